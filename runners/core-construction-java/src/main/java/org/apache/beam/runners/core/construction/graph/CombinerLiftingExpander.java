@@ -0,0 +1,312 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.runners.core.construction.graph;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.function.Predicate;
+import org.apache.beam.model.pipeline.v1.RunnerApi.Coder;
+import org.apache.beam.model.pipeline.v1.RunnerApi.CombinePayload;
+import org.apache.beam.model.pipeline.v1.RunnerApi.ComponentsOrBuilder;
+import org.apache.beam.model.pipeline.v1.RunnerApi.FunctionSpec;
+import org.apache.beam.model.pipeline.v1.RunnerApi.MergeStatus;
+import org.apache.beam.model.pipeline.v1.RunnerApi.MessageWithComponents;
+import org.apache.beam.model.pipeline.v1.RunnerApi.OutputTime;
+import org.apache.beam.model.pipeline.v1.RunnerApi.PCollection;
+import org.apache.beam.model.pipeline.v1.RunnerApi.PTransform;
+import org.apache.beam.model.pipeline.v1.RunnerApi.Pipeline;
+import org.apache.beam.model.pipeline.v1.RunnerApi.Trigger;
+import org.apache.beam.model.pipeline.v1.RunnerApi.WindowingStrategy;
+import org.apache.beam.runners.core.construction.ModelCoders;
+import org.apache.beam.runners.core.construction.PTransformTranslation;
+import org.apache.beam.runners.core.construction.graph.ProtoOverrides.TransformReplacement;
+import org.apache.beam.sdk.options.ExperimentalOptions;
+import org.apache.beam.sdk.options.PipelineOptions;
+import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.collect.Iterables;
+
+/**
+ * A transform replacement which lifts a {@code Combine.perKey} composite into its precombine, group
+ * by key, merge accumulators and extract outputs phases.
+ *
+ * <p>Lifting allows the SDK harness to partially combine values before the shuffle so that only
+ * accumulators are transferred between workers. It should be applied before {@link
+ * GreedyPipelineFuser fusion} so that the precombine phase is fused with its producer and the merge
+ * and extract phases are fused with their consumers.
+ */
+@SuppressWarnings({
+  "nullness" // TODO(https://issues.apache.org/jira/browse/BEAM-10402)
+})
+public class CombinerLiftingExpander {
+
+  /** Experiment which disables combiner lifting for portable runners. */
+  public static final String DISABLE_COMBINER_LIFTING_EXPERIMENT = "disable_combiner_lifting";
+
+  /**
+   * Lifts all eligible {@code Combine.perKey} composites within the {@code pipeline} unless the
+   * {@link #DISABLE_COMBINER_LIFTING_EXPERIMENT} is enabled in the supplied {@code options}.
+   */
+  public static Pipeline liftCombiners(Pipeline pipeline, PipelineOptions options) {
+    if (ExperimentalOptions.hasExperiment(options, DISABLE_COMBINER_LIFTING_EXPERIMENT)) {
+      return pipeline;
+    }
+    return ProtoOverrides.updateTransform(
+        PTransformTranslation.COMBINE_PER_KEY_TRANSFORM_URN, pipeline, createLiftedReplacement());
+  }
+
+  /**
+   * Returns a transform replacement which expands a {@code Combine.perKey} from:
+   *
+   * <pre>{@code
+   * mainInput ---> Combine.perKey --> output
+   * }</pre>
+   *
+   * into:
+   *
+   * <pre>{@code
+   * mainInput ---> Precombine --> GroupByKey --> MergeAccumulators --> ExtractOutputs --> output
+   * }</pre>
+   *
+   * <p>Only combines whose input uses a non-merging {@link WindowingStrategy} with the default
+   * trigger and an end of window output time are lifted since the accumulators are otherwise not
+   * guaranteed to be combined into the same panes as the raw inputs. All other combines are left
+   * untouched.
+   */
+  public static TransformReplacement createLiftedReplacement() {
+    return new LiftedReplacement();
+  }
+
+  /** See {@link #createLiftedReplacement()} for details. */
+  static class LiftedReplacement implements TransformReplacement {
+
+    @Override
+    public MessageWithComponents getReplacement(
+        String transformId, ComponentsOrBuilder existingComponents) {
+      try {
+        PTransform combinePerKey = existingComponents.getTransformsOrThrow(transformId);
+        if (combinePerKey.getInputsCount() != 1 || combinePerKey.getOutputsCount() != 1) {
+          return null;
+        }
+        CombinePayload payload = CombinePayload.parseFrom(combinePerKey.getSpec().getPayload());
+        if (payload.getAccumulatorCoderId().isEmpty()) {
+          return null;
+        }
+
+        String mainInputPCollectionId =
+            Iterables.getOnlyElement(combinePerKey.getInputsMap().values());
+        PCollection mainInputPCollection =
+            existingComponents.getPcollectionsOrThrow(mainInputPCollectionId);
+        Coder inputCoder = existingComponents.getCodersOrThrow(mainInputPCollection.getCoderId());
+        if (!ModelCoders.KV_CODER_URN.equals(inputCoder.getSpec().getUrn())) {
+          return null;
+        }
+        WindowingStrategy windowingStrategy =
+            existingComponents.getWindowingStrategiesOrThrow(
+                mainInputPCollection.getWindowingStrategyId());
+        if (!isLiftable(windowingStrategy)) {
+          return null;
+        }
+        String keyCoderId = ModelCoders.getKvCoderComponents(inputCoder).keyCoderId();
+        String outputPCollectionId =
+            Iterables.getOnlyElement(combinePerKey.getOutputsMap().values());
+
+        MessageWithComponents.Builder rval = MessageWithComponents.newBuilder();
+
+        String accumulatorKvCoderId =
+            generateUniqueId(
+                mainInputPCollection.getCoderId() + "/Precombine",
+                existingComponents::containsCoders);
+        rval.getComponentsBuilder()
+            .putCoders(
+                accumulatorKvCoderId,
+                ModelCoders.kvCoder(keyCoderId, payload.getAccumulatorCoderId()));
+        String accumulatorIterableCoderId =
+            generateUniqueId(
+                payload.getAccumulatorCoderId() + "/Iterable", existingComponents::containsCoders);
+        rval.getComponentsBuilder()
+            .putCoders(
+                accumulatorIterableCoderId,
+                Coder.newBuilder()
+                    .setSpec(FunctionSpec.newBuilder().setUrn(ModelCoders.ITERABLE_CODER_URN))
+                    .addComponentCoderIds(payload.getAccumulatorCoderId())
+                    .build());
+        String groupedAccumulatorsCoderId =
+            generateUniqueId(
+                mainInputPCollection.getCoderId() + "/GroupByKey",
+                existingComponents::containsCoders);
+        rval.getComponentsBuilder()
+            .putCoders(
+                groupedAccumulatorsCoderId,
+                ModelCoders.kvCoder(keyCoderId, accumulatorIterableCoderId));
+
+        String precombineOutId =
+            addPCollection(
+                mainInputPCollectionId + "/Precombine",
+                accumulatorKvCoderId,
+                mainInputPCollection,
+                existingComponents,
+                rval);
+        String groupByKeyOutId =
+            addPCollection(
+                mainInputPCollectionId + "/GroupByKey",
+                groupedAccumulatorsCoderId,
+                mainInputPCollection,
+                existingComponents,
+                rval);
+        String mergeAccumulatorsOutId =
+            addPCollection(
+                mainInputPCollectionId + "/MergeAccumulators",
+                accumulatorKvCoderId,
+                mainInputPCollection,
+                existingComponents,
+                rval);
+
+        String precombineId =
+            addTransform(
+                transformId + "/Precombine",
+                PTransformTranslation.COMBINE_PER_KEY_PRECOMBINE_TRANSFORM_URN,
+                mainInputPCollectionId,
+                precombineOutId,
+                combinePerKey,
+                existingComponents,
+                rval);
+        String groupByKeyId =
+            addTransform(
+                transformId + "/GroupByKey",
+                PTransformTranslation.GROUP_BY_KEY_TRANSFORM_URN,
+                precombineOutId,
+                groupByKeyOutId,
+                combinePerKey,
+                existingComponents,
+                rval);
+        String mergeAccumulatorsId =
+            addTransform(
+                transformId + "/MergeAccumulators",
+                PTransformTranslation.COMBINE_PER_KEY_MERGE_ACCUMULATORS_TRANSFORM_URN,
+                groupByKeyOutId,
+                mergeAccumulatorsOutId,
+                combinePerKey,
+                existingComponents,
+                rval);
+        String extractOutputsId =
+            addTransform(
+                transformId + "/ExtractOutputs",
+                PTransformTranslation.COMBINE_PER_KEY_EXTRACT_OUTPUTS_TRANSFORM_URN,
+                mergeAccumulatorsOutId,
+                outputPCollectionId,
+                combinePerKey,
+                existingComponents,
+                rval);
+
+        rval.setPtransform(
+            combinePerKey
+                .toBuilder()
+                // Clear the original combine spec and add all the new transforms as children.
+                .clearSpec()
+                .clearSubtransforms()
+                .addAllSubtransforms(
+                    Arrays.asList(
+                        precombineId, groupByKeyId, mergeAccumulatorsId, extractOutputsId)));
+        return rval.build();
+      } catch (IOException e) {
+        throw new RuntimeException("Unable to perform lifting for transform " + transformId, e);
+      }
+    }
+  }
+
+  private static boolean isLiftable(WindowingStrategy windowingStrategy) {
+    return windowingStrategy.getMergeStatus() == MergeStatus.Enum.NON_MERGING
+        && windowingStrategy.getTrigger().getTriggerCase() == Trigger.TriggerCase.DEFAULT
+        && windowingStrategy.getOutputTime() == OutputTime.Enum.END_OF_WINDOW;
+  }
+
+  private static String addPCollection(
+      String idPrefix,
+      String coderId,
+      PCollection mainInputPCollection,
+      ComponentsOrBuilder existingComponents,
+      MessageWithComponents.Builder out) {
+    String pCollectionId = generateUniqueId(idPrefix, existingComponents::containsPcollections);
+    out.getComponentsBuilder()
+        .putPcollections(
+            pCollectionId,
+            PCollection.newBuilder()
+                .setCoderId(coderId)
+                .setIsBounded(mainInputPCollection.getIsBounded())
+                .setWindowingStrategyId(mainInputPCollection.getWindowingStrategyId())
+                .setUniqueName(
+                    generateUniquePCollectonName(
+                        mainInputPCollection.getUniqueName()
+                            + idPrefix.substring(idPrefix.lastIndexOf('/')),
+                        existingComponents))
+                .build());
+    return pCollectionId;
+  }
+
+  private static String addTransform(
+      String idPrefix,
+      String urn,
+      String inputPCollectionId,
+      String outputPCollectionId,
+      PTransform combinePerKey,
+      ComponentsOrBuilder existingComponents,
+      MessageWithComponents.Builder out) {
+    String transformId = generateUniqueId(idPrefix, existingComponents::containsTransforms);
+    PTransform.Builder transform = PTransform.newBuilder();
+    transform.putInputs("in", inputPCollectionId);
+    transform.putOutputs("out", outputPCollectionId);
+    transform.setUniqueName(
+        combinePerKey.getUniqueName() + idPrefix.substring(idPrefix.lastIndexOf('/')));
+    if (PTransformTranslation.GROUP_BY_KEY_TRANSFORM_URN.equals(urn)) {
+      // GroupByKeys are runner-implemented and do not require an environment.
+      transform.setSpec(FunctionSpec.newBuilder().setUrn(urn));
+    } else {
+      transform.setSpec(
+          FunctionSpec.newBuilder().setUrn(urn).setPayload(combinePerKey.getSpec().getPayload()));
+      transform.setEnvironmentId(combinePerKey.getEnvironmentId());
+    }
+    out.getComponentsBuilder().putTransforms(transformId, transform.build());
+    return transformId;
+  }
+
+  /**
+   * Returns a PCollection name that uses the supplied prefix that does not exist in {@code
+   * existingComponents}.
+   */
+  private static String generateUniquePCollectonName(
+      String prefix, ComponentsOrBuilder existingComponents) {
+    return generateUniqueId(
+        prefix,
+        input -> {
+          for (PCollection pc : existingComponents.getPcollectionsMap().values()) {
+            if (input.equals(pc.getUniqueName())) {
+              return true;
+            }
+          }
+          return false;
+        });
+  }
+
+  /** Generates a unique id given a prefix and a predicate to compare if the id is already used. */
+  private static String generateUniqueId(String prefix, Predicate<String> isExistingId) {
+    int i = 0;
+    while (isExistingId.test(prefix + i)) {
+      i += 1;
+    }
+    return prefix + i;
+  }
+}
@@ -0,0 +1,261 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.runners.core.construction.graph;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.beam.model.pipeline.v1.RunnerApi;
+import org.apache.beam.model.pipeline.v1.RunnerApi.CombinePayload;
+import org.apache.beam.model.pipeline.v1.RunnerApi.FunctionSpec;
+import org.apache.beam.runners.core.construction.PTransformTranslation;
+import org.apache.beam.runners.core.construction.PipelineTranslation;
+import org.apache.beam.runners.core.construction.RehydratedComponents;
+import org.apache.beam.sdk.Pipeline;
+import org.apache.beam.sdk.coders.Coder;
+import org.apache.beam.sdk.options.ExperimentalOptions;
+import org.apache.beam.sdk.options.PipelineOptionsFactory;
+import org.apache.beam.sdk.transforms.Combine.CombineFn;
+import org.apache.beam.sdk.transforms.Create;
+import org.apache.beam.sdk.transforms.Sum;
+import org.apache.beam.sdk.transforms.windowing.AfterPane;
+import org.apache.beam.sdk.transforms.windowing.Repeatedly;
+import org.apache.beam.sdk.transforms.windowing.Sessions;
+import org.apache.beam.sdk.transforms.windowing.Window;
+import org.apache.beam.sdk.util.CoderUtils;
+import org.apache.beam.sdk.util.SerializableUtils;
+import org.apache.beam.sdk.values.KV;
+import org.apache.beam.sdk.values.PCollection;
+import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.collect.Iterables;
+import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.collect.Maps;
+import org.joda.time.Duration;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link CombinerLiftingExpander}. */
+@RunWith(JUnit4.class)
+public class CombinerLiftingExpanderTest {
+
+  private static List<KV<String, Integer>> createInput() {
+    List<KV<String, Integer>> input = new ArrayList<>();
+    for (int i = 0; i < 1000; ++i) {
+      input.add(KV.of("key" + (i % 3), i));
+    }
+    return input;
+  }
+
+  private static String getCombineTransformId(RunnerApi.Pipeline proto) {
+    return Iterables.getOnlyElement(
+        Maps.filterValues(
+                proto.getComponents().getTransformsMap(),
+                (RunnerApi.PTransform transform) ->
+                    PTransformTranslation.COMBINE_PER_KEY_TRANSFORM_URN.equals(
+                        transform.getSpec().getUrn()))
+            .keySet());
+  }
+
+  @Test
+  public void testLiftedReplacement() {
+    Pipeline p = Pipeline.create();
+    p.apply(Create.of(createInput())).apply("TestCombine", Sum.integersPerKey());
+
+    RunnerApi.Pipeline proto = PipelineTranslation.toProto(p);
+    String transformId = getCombineTransformId(proto);
+    RunnerApi.PTransform originalComposite =
+        proto.getComponents().getTransformsOrThrow(transformId);
+
+    RunnerApi.Pipeline updatedProto =
+        ProtoOverrides.updateTransform(
+            PTransformTranslation.COMBINE_PER_KEY_TRANSFORM_URN,
+            proto,
+            CombinerLiftingExpander.createLiftedReplacement());
+    RunnerApi.PTransform newComposite =
+        updatedProto.getComponents().getTransformsOrThrow(transformId);
+    assertEquals(FunctionSpec.getDefaultInstance(), newComposite.getSpec());
+    assertEquals(originalComposite.getInputsMap(), newComposite.getInputsMap());
+    assertEquals(originalComposite.getOutputsMap(), newComposite.getOutputsMap());
+    assertEquals(4, newComposite.getSubtransformsCount());
+
+    RunnerApi.PTransform precombine =
+        updatedProto.getComponents().getTransformsOrThrow(newComposite.getSubtransforms(0));
+    RunnerApi.PTransform groupByKey =
+        updatedProto.getComponents().getTransformsOrThrow(newComposite.getSubtransforms(1));
+    RunnerApi.PTransform mergeAccumulators =
+        updatedProto.getComponents().getTransformsOrThrow(newComposite.getSubtransforms(2));
+    RunnerApi.PTransform extractOutputs =
+        updatedProto.getComponents().getTransformsOrThrow(newComposite.getSubtransforms(3));
+    assertEquals(
+        PTransformTranslation.COMBINE_PER_KEY_PRECOMBINE_TRANSFORM_URN,
+        precombine.getSpec().getUrn());
+    assertEquals(PTransformTranslation.GROUP_BY_KEY_TRANSFORM_URN, groupByKey.getSpec().getUrn());
+    assertEquals(
+        PTransformTranslation.COMBINE_PER_KEY_MERGE_ACCUMULATORS_TRANSFORM_URN,
+        mergeAccumulators.getSpec().getUrn());
+    assertEquals(
+        PTransformTranslation.COMBINE_PER_KEY_EXTRACT_OUTPUTS_TRANSFORM_URN,
+        extractOutputs.getSpec().getUrn());
+    assertEquals(originalComposite.getEnvironmentId(), precombine.getEnvironmentId());
+    assertEquals("", groupByKey.getEnvironmentId());
+
+    // The phases are chained together and produce the original output.
+    assertEquals(
+        Iterables.getOnlyElement(originalComposite.getInputsMap().values()),
+        Iterables.getOnlyElement(precombine.getInputsMap().values()));
+    assertEquals(
+        Iterables.getOnlyElement(precombine.getOutputsMap().values()),
+        Iterables.getOnlyElement(groupByKey.getInputsMap().values()));
+    assertEquals(
+        Iterables.getOnlyElement(groupByKey.getOutputsMap().values()),
+        Iterables.getOnlyElement(mergeAccumulators.getInputsMap().values()));
+    assertEquals(
+        Iterables.getOnlyElement(mergeAccumulators.getOutputsMap().values()),
+        Iterables.getOnlyElement(extractOutputs.getInputsMap().values()));
+    assertEquals(
+        Iterables.getOnlyElement(originalComposite.getOutputsMap().values()),
+        Iterables.getOnlyElement(extractOutputs.getOutputsMap().values()));
+
+    // The lifted pipeline can still be fused.
+    GreedyPipelineFuser.fuse(updatedProto);
+  }
+
+  @Test
+  public void testLiftingReducesShuffledBytes() throws Exception {
+    Pipeline p = Pipeline.create();
+    List<KV<String, Integer>> input = createInput();
+    p.apply(Create.of(input)).apply("TestCombine", Sum.integersPerKey());
+
+    RunnerApi.Pipeline proto = PipelineTranslation.toProto(p);
+    String transformId = getCombineTransformId(proto);
+    RunnerApi.Pipeline updatedProto =
+        ProtoOverrides.updateTransform(
+            PTransformTranslation.COMBINE_PER_KEY_TRANSFORM_URN,
+            proto,
+            CombinerLiftingExpander.createLiftedReplacement());
+    RehydratedComponents originalComponents =
+        RehydratedComponents.forComponents(proto.getComponents());
+    RehydratedComponents updatedComponents =
+        RehydratedComponents.forComponents(updatedProto.getComponents());
+
+    // Without lifting the raw inputs are shuffled.
+    RunnerApi.PTransform originalComposite =
+        proto.getComponents().getTransformsOrThrow(transformId);
+    Coder<KV<String, Integer>> inputCoder =
+        (Coder<KV<String, Integer>>)
+            originalComponents.getCoder(
+                proto
+                    .getComponents()
+                    .getPcollectionsOrThrow(
+                        Iterables.getOnlyElement(originalComposite.getInputsMap().values()))
+                    .getCoderId());
+    long rawBytes = 0;
+    for (KV<String, Integer> element : input) {
+      rawBytes += CoderUtils.encodeToByteArray(inputCoder, element).length;
+    }
+
+    // With lifting only the precombined accumulators are shuffled.
+    RunnerApi.PTransform groupByKey =
+        updatedProto
+            .getComponents()
+            .getTransformsOrThrow(
+                updatedProto.getComponents().getTransformsOrThrow(transformId).getSubtransforms(1));
+    Coder<KV<String, Object>> groupByKeyInputCoder =
+        (Coder<KV<String, Object>>)
+            updatedComponents.getCoder(
+                updatedProto
+                    .getComponents()
+                    .getPcollectionsOrThrow(
+                        Iterables.getOnlyElement(groupByKey.getInputsMap().values()))
+                    .getCoderId());
+    CombinePayload payload = CombinePayload.parseFrom(originalComposite.getSpec().getPayload());
+    CombineFn<Integer, Object, Integer> combineFn =
+        (CombineFn<Integer, Object, Integer>)
+            SerializableUtils.deserializeFromByteArray(
+                payload.getCombineFn().getPayload().toByteArray(), "CombineFn");
+    Map<String, Object> accumulators = new HashMap<>();
+    for (KV<String, Integer> element : input) {
+      Object accumulator =
+          accumulators.computeIfAbsent(element.getKey(), key -> combineFn.createAccumulator());
+      accumulators.put(element.getKey(), combineFn.addInput(accumulator, element.getValue()));
+    }
+    long liftedBytes = 0;
+    for (Map.Entry<String, Object> accumulator : accumulators.entrySet()) {
+      liftedBytes +=
+          CoderUtils.encodeToByteArray(
+                  groupByKeyInputCoder, KV.of(accumulator.getKey(), accumulator.getValue()))
+              .length;
+    }
+
+    assertThat(liftedBytes, lessThan(rawBytes));
+  }
+
+  @Test
+  public void testMergingWindowsAreNotLifted() {
+    Pipeline p = Pipeline.create();
+    p.apply(Create.of(createInput()))
+        .apply(Window.into(Sessions.withGapDuration(Duration.standardMinutes(1))))
+        .apply("TestCombine", Sum.integersPerKey());
+
+    RunnerApi.Pipeline proto = PipelineTranslation.toProto(p);
+    RunnerApi.Pipeline updatedProto =
+        ProtoOverrides.updateTransform(
+            PTransformTranslation.COMBINE_PER_KEY_TRANSFORM_URN,
+            proto,
+            CombinerLiftingExpander.createLiftedReplacement());
+    assertEquals(proto, updatedProto);
+  }
+
+  @Test
+  public void testNonDefaultTriggersAreNotLifted() {
+    Pipeline p = Pipeline.create();
+    PCollection<KV<String, Integer>> input = p.apply(Create.of(createInput()));
+    input
+        .apply(
+            Window.<KV<String, Integer>>configure()
+                .triggering(Repeatedly.forever(AfterPane.elementCountAtLeast(10)))
+                .withAllowedLateness(Duration.ZERO)
+                .discardingFiredPanes())
+        .apply("TestCombine", Sum.integersPerKey());
+
+    RunnerApi.Pipeline proto = PipelineTranslation.toProto(p);
+    RunnerApi.Pipeline updatedProto =
+        ProtoOverrides.updateTransform(
+            PTransformTranslation.COMBINE_PER_KEY_TRANSFORM_URN,
+            proto,
+            CombinerLiftingExpander.createLiftedReplacement());
+    assertEquals(proto, updatedProto);
+  }
+
+  @Test
+  public void testLiftingDisabledByExperiment() {
+    Pipeline p = Pipeline.create();
+    p.apply(Create.of(createInput())).apply("TestCombine", Sum.integersPerKey());
+
+    RunnerApi.Pipeline proto = PipelineTranslation.toProto(p);
+    ExperimentalOptions options = PipelineOptionsFactory.as(ExperimentalOptions.class);
+    ExperimentalOptions.addExperiment(
+        options, CombinerLiftingExpander.DISABLE_COMBINER_LIFTING_EXPERIMENT);
+    assertSame(proto, CombinerLiftingExpander.liftCombiners(proto, options));
+  }
+}
@@ -26,7 +26,9 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import org.apache.beam.runners.core.DoFnRunners.OutputManager;
+import org.apache.beam.runners.core.metrics.ElementProcessingTimeSampler;
 import org.apache.beam.sdk.coders.Coder;
+import org.apache.beam.sdk.coders.KvCoder;
 import org.apache.beam.sdk.options.PipelineOptions;
 import org.apache.beam.sdk.schemas.SchemaCoder;
 import org.apache.beam.sdk.state.ReadableState;
@@ -118,6 +120,8 @@ public class SimpleDoFnRunner<InputT, OutputT> implements DoFnRunner<InputT, Out
 
   private final Map<String, PCollectionView<?>> sideInputMapping;
 
+  private final ElementProcessingTimeSampler processingTimeSampler;
+
   /** Constructor. */
   public SimpleDoFnRunner(
       PipelineOptions options,
@@ -163,6 +167,11 @@ public class SimpleDoFnRunner<InputT, OutputT> implements DoFnRunner<InputT, Out
     this.allowedLateness = windowingStrategy.getAllowedLateness();
     this.doFnSchemaInformation = doFnSchemaInformation;
     this.sideInputMapping = sideInputMapping;
+    this.processingTimeSampler =
+        ElementProcessingTimeSampler.fromOptions(
+            options,
+            inputCoder instanceof KvCoder ? ((KvCoder<?, ?>) inputCoder).getKeyCoder() : null,
+            true);
   }
 
   @Override
@@ -183,6 +192,7 @@ public class SimpleDoFnRunner<InputT, OutputT> implements DoFnRunner<InputT, Out
 
   @Override
   public void processElement(WindowedValue<InputT> compressedElem) {
+    processingTimeSampler.start();
     if (observesWindow) {
       for (WindowedValue<InputT> elem : compressedElem.explodeWindows()) {
         invokeProcessElement(elem);
@@ -190,6 +200,7 @@ public class SimpleDoFnRunner<InputT, OutputT> implements DoFnRunner<InputT, Out
     } else {
       invokeProcessElement(compressedElem);
     }
+    processingTimeSampler.finish(compressedElem.getValue());
   }
 
   @Override
@@ -244,6 +255,7 @@ public class SimpleDoFnRunner<InputT, OutputT> implements DoFnRunner<InputT, Out
       // Exception in user code.
       throw wrapUserCodeException(t);
     }
+    processingTimeSampler.reportSlowestKeys();
   }
 
   @Override
@@ -269,7 +281,10 @@ public class SimpleDoFnRunner<InputT, OutputT> implements DoFnRunner<InputT, Out
 
   private <T> void outputWindowedValue(TupleTag<T> tag, WindowedValue<T> windowedElem) {
     checkArgument(outputTags.contains(tag), "Unknown output tag %s", tag);
+    // Downstream consumers may run within output(), which is not part of this DoFn's time.
+    long outputStartNanos = processingTimeSampler.startOutput();
     outputManager.output(tag, windowedElem);
+    processingTimeSampler.finishOutput(outputStartNanos);
   }
 
   /** An {@link DoFnInvoker.ArgumentProvider} for {@link DoFn.StartBundle @StartBundle}. */
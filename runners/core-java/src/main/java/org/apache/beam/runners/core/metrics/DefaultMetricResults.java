@@ -17,6 +17,7 @@
  */
 package org.apache.beam.runners.core.metrics;
 
+import java.util.Collections;
 import org.apache.beam.sdk.metrics.DistributionResult;
 import org.apache.beam.sdk.metrics.GaugeResult;
 import org.apache.beam.sdk.metrics.MetricFiltering;
@@ -24,13 +25,14 @@ import org.apache.beam.sdk.metrics.MetricQueryResults;
 import org.apache.beam.sdk.metrics.MetricResult;
 import org.apache.beam.sdk.metrics.MetricResults;
 import org.apache.beam.sdk.metrics.MetricsFilter;
+import org.apache.beam.sdk.util.HistogramData;
 import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.collect.Iterables;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
 /**
  * Default implementation of {@link org.apache.beam.sdk.metrics.MetricResults}, which takes static
- * {@link Iterable}s of counters, distributions, and gauges, and serves queries by applying {@link
- * org.apache.beam.sdk.metrics.MetricsFilter}s linearly to them.
+ * {@link Iterable}s of counters, distributions, gauges, and histograms, and serves queries by
+ * applying {@link org.apache.beam.sdk.metrics.MetricsFilter}s linearly to them.
  */
 @SuppressWarnings({
   "nullness" // TODO(https://issues.apache.org/jira/browse/BEAM-10402)
@@ -40,14 +42,24 @@ public class DefaultMetricResults extends MetricResults {
   private final Iterable<MetricResult<Long>> counters;
   private final Iterable<MetricResult<DistributionResult>> distributions;
   private final Iterable<MetricResult<GaugeResult>> gauges;
+  private final Iterable<MetricResult<HistogramData>> histograms;
 
   public DefaultMetricResults(
       Iterable<MetricResult<Long>> counters,
       Iterable<MetricResult<DistributionResult>> distributions,
       Iterable<MetricResult<GaugeResult>> gauges) {
+    this(counters, distributions, gauges, Collections.emptyList());
+  }
+
+  public DefaultMetricResults(
+      Iterable<MetricResult<Long>> counters,
+      Iterable<MetricResult<DistributionResult>> distributions,
+      Iterable<MetricResult<GaugeResult>> gauges,
+      Iterable<MetricResult<HistogramData>> histograms) {
     this.counters = counters;
     this.distributions = distributions;
     this.gauges = gauges;
+    this.histograms = histograms;
   }
 
   @Override
@@ -56,6 +68,8 @@ public class DefaultMetricResults extends MetricResults {
         Iterables.filter(counters, counter -> MetricFiltering.matches(filter, counter.getKey())),
         Iterables.filter(
             distributions, distribution -> MetricFiltering.matches(filter, distribution.getKey())),
-        Iterables.filter(gauges, gauge -> MetricFiltering.matches(filter, gauge.getKey())));
+        Iterables.filter(gauges, gauge -> MetricFiltering.matches(filter, gauge.getKey())),
+        Iterables.filter(
+            histograms, histogram -> MetricFiltering.matches(filter, histogram.getKey())));
   }
 }
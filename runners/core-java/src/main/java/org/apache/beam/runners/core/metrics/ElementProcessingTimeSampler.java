@@ -0,0 +1,277 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.runners.core.metrics;
+
+import static org.apache.beam.vendor.guava.v26_0_jre.com.google.common.base.Preconditions.checkArgument;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.apache.beam.sdk.coders.Coder;
+import org.apache.beam.sdk.coders.CoderException;
+import org.apache.beam.sdk.metrics.Distribution;
+import org.apache.beam.sdk.metrics.Gauge;
+import org.apache.beam.sdk.metrics.Histogram;
+import org.apache.beam.sdk.metrics.Metrics;
+import org.apache.beam.sdk.options.ExperimentalOptions;
+import org.apache.beam.sdk.options.PipelineOptions;
+import org.apache.beam.sdk.util.CoderUtils;
+import org.apache.beam.sdk.util.HistogramData;
+import org.apache.beam.sdk.values.KV;
+import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.annotations.VisibleForTesting;
+import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.hash.Hashing;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Samples the time spent processing a configurable fraction of the elements of a DoFn.
+ *
+ * <p>Sampling is enabled with the {@code element_processing_time_sampling_rate=<fraction>}
+ * experiment. The processing time of sampled elements is recorded in microseconds through the
+ * metrics API, into the metrics container of the transform which is processing the element. Time
+ * spent in downstream consumers of the element's outputs, which runners may invoke from within
+ * {@code output()}, is excluded when the runner reports it through {@link #startOutput()} and
+ * {@link #finishOutput(long)}. The sampler reports:
+ *
+ * <ul>
+ *   <li>a {@link Histogram} named {@value #PROCESS_TIME_HISTOGRAM}, unless disabled for runners
+ *       which cannot report histograms,
+ *   <li>a {@link Distribution} named {@value #PROCESS_TIME_DISTRIBUTION}, which is reported by all
+ *       runners, and
+ *   <li>if a key coder is given, the {@value #MAX_SLOWEST_KEYS} keys with the slowest sampled
+ *       elements of each bundle, ranked from the slowest. The key at rank {@code i} is reported
+ *       through a gauge named {@value #SLOWEST_KEY_MICROS_PREFIX}{@code i} holding its processing
+ *       time, and a gauge named {@value #SLOWEST_KEY_HASH_PREFIX}{@code i} holding its {@link
+ *       #keyHash hash}.
+ * </ul>
+ *
+ * <p>Keys are reported as hashes rather than as their string representation so that the values of
+ * user keys, which may be sensitive, do not leak into metric names, and so that the number of
+ * gauges stays bounded regardless of the number of distinct keys. All ranks are set together by
+ * {@link #reportSlowestKeys()} at the end of each bundle, with ranks without a key set to zero, so
+ * that the gauges of a rank always describe the same key and stale ranks do not persist.
+ *
+ * <p>Which elements are sampled is decided by counting down a randomly drawn number of elements, so
+ * elements which are not sampled only pay for a decrement. A sampler is not thread safe and is
+ * expected to be owned by a single {@link org.apache.beam.runners.core.DoFnRunner}.
+ */
+public class ElementProcessingTimeSampler {
+
+  /** The experiment which sets the fraction of elements to sample. */
+  public static final String SAMPLING_RATE_EXPERIMENT = "element_processing_time_sampling_rate";
+
+  public static final String NAMESPACE = ElementProcessingTimeSampler.class.getName();
+  public static final String PROCESS_TIME_HISTOGRAM = "processElementMicros";
+  public static final String PROCESS_TIME_DISTRIBUTION = "processElementMicrosDistribution";
+  public static final String SLOWEST_KEY_MICROS_PREFIX = "slowestKeyMicros:";
+  public static final String SLOWEST_KEY_HASH_PREFIX = "slowestKeyHash:";
+
+  /** Returned by {@link #startOutput()} when the current element is not sampled. */
+  public static final long NOT_SAMPLED = Long.MIN_VALUE;
+
+  @VisibleForTesting static final int MAX_SLOWEST_KEYS = 10;
+
+  // Processing times from 1 microsecond to roughly an hour, with 10% precision.
+  private static final HistogramData.BucketType BUCKET_TYPE =
+      HistogramData.LogLinearBuckets.of(1, TimeUnit.HOURS.toMicros(1), 1);
+
+  private final double samplingRate;
+  private final @Nullable Coder<Object> keyCoder;
+  private final @Nullable Histogram processTimes;
+  private final Distribution processTimeDistribution =
+      Metrics.distribution(NAMESPACE, PROCESS_TIME_DISTRIBUTION);
+  private final Gauge[] slowestKeyMicrosGauges = rankedGauges(SLOWEST_KEY_MICROS_PREFIX);
+  private final Gauge[] slowestKeyHashGauges = rankedGauges(SLOWEST_KEY_HASH_PREFIX);
+  // The slowest keys of the current bundle, sorted by descending processing time.
+  private final long[] slowestKeyHashes = new long[MAX_SLOWEST_KEYS];
+  private final long[] slowestKeyMicros = new long[MAX_SLOWEST_KEYS];
+  private int numSlowestKeys;
+  private int numReportedKeys;
+  private long elementsUntilSample;
+  // The start of the element being sampled, and the time spent in its outputs so far.
+  private long sampleStartNanos = NOT_SAMPLED;
+  private long outputNanos;
+
+  @VisibleForTesting
+  @SuppressWarnings("unchecked")
+  ElementProcessingTimeSampler(
+      double samplingRate, @Nullable Coder<?> keyCoder, boolean reportHistogram) {
+    checkArgument(
+        samplingRate >= 0 && samplingRate <= 1,
+        "The sampling rate must be between 0 and 1, but was %s",
+        samplingRate);
+    this.samplingRate = samplingRate;
+    this.keyCoder = (Coder<Object>) keyCoder;
+    this.processTimes =
+        reportHistogram ? Metrics.histogram(NAMESPACE, PROCESS_TIME_HISTOGRAM, BUCKET_TYPE) : null;
+    this.elementsUntilSample = nextSkip();
+  }
+
+  /**
+   * Returns a sampler configured by the {@value #SAMPLING_RATE_EXPERIMENT} experiment of the given
+   * options, which samples no elements if the experiment is not set.
+   *
+   * @param keyCoder the coder of the keys of {@link KV} input elements, or null if the input
+   *     elements are not keyed. The slowest keys are only tracked if it is given.
+   * @param reportHistogram whether to report the {@value #PROCESS_TIME_HISTOGRAM} histogram.
+   *     Runners which cannot report histograms, such as portable runners, should pass false.
+   */
+  public static ElementProcessingTimeSampler fromOptions(
+      @Nullable PipelineOptions options, @Nullable Coder<?> keyCoder, boolean reportHistogram) {
+    String samplingRate = ExperimentalOptions.getExperimentValue(options, SAMPLING_RATE_EXPERIMENT);
+    return new ElementProcessingTimeSampler(
+        samplingRate == null ? 0 : Double.parseDouble(samplingRate), keyCoder, reportHistogram);
+  }
+
+  /** Returns whether this sampler samples any elements. */
+  public boolean isEnabled() {
+    return samplingRate > 0;
+  }
+
+  /** Called before processing an element. Decides whether the element is sampled. */
+  public void start() {
+    if (--elementsUntilSample > 0) {
+      sampleStartNanos = NOT_SAMPLED;
+      return;
+    }
+    elementsUntilSample = nextSkip();
+    outputNanos = 0;
+    sampleStartNanos = System.nanoTime();
+  }
+
+  /**
+   * Called before passing an output to downstream consumers. Returns the value to pass to {@link
+   * #finishOutput}, which is {@link #NOT_SAMPLED} unless an element is being sampled.
+   */
+  public long startOutput() {
+    return sampleStartNanos == NOT_SAMPLED ? NOT_SAMPLED : System.nanoTime();
+  }
+
+  /** Called after passing an output to downstream consumers, excluding their time. */
+  public void finishOutput(long outputStartNanos) {
+    if (outputStartNanos != NOT_SAMPLED) {
+      outputNanos += System.nanoTime() - outputStartNanos;
+    }
+  }
+
+  /** Called after processing the element passed to the preceding {@link #start()}. */
+  public void finish(@Nullable Object element) {
+    if (sampleStartNanos == NOT_SAMPLED) {
+      return;
+    }
+    long nanos = System.nanoTime() - sampleStartNanos - outputNanos;
+    sampleStartNanos = NOT_SAMPLED;
+    record(TimeUnit.NANOSECONDS.toMicros(nanos), element);
+  }
+
+  @VisibleForTesting
+  void record(long micros, @Nullable Object element) {
+    if (processTimes != null) {
+      processTimes.update(micros);
+    }
+    processTimeDistribution.update(micros);
+    Coder<Object> keyCoder = this.keyCoder;
+    if (keyCoder != null && element instanceof KV) {
+      recordKey(keyCoder, ((KV<?, ?>) element).getKey(), micros);
+    }
+  }
+
+  /**
+   * Called at the end of a bundle. Reports the slowest keys of the bundle and starts tracking the
+   * slowest keys of the next bundle.
+   */
+  public void reportSlowestKeys() {
+    // Ranks which were reported before but have no key now are set to zero.
+    int numRanks = Math.max(numSlowestKeys, numReportedKeys);
+    for (int rank = 0; rank < numRanks; rank++) {
+      boolean hasKey = rank < numSlowestKeys;
+      slowestKeyMicrosGauges[rank].set(hasKey ? slowestKeyMicros[rank] : 0);
+      slowestKeyHashGauges[rank].set(hasKey ? slowestKeyHashes[rank] : 0);
+    }
+    numReportedKeys = numSlowestKeys;
+    numSlowestKeys = 0;
+  }
+
+  /**
+   * Returns the hash under which a key is reported in the {@value #SLOWEST_KEY_HASH_PREFIX} gauges,
+   * computed from its encoding so that it is stable across workers.
+   */
+  public static <K> long keyHash(Coder<K> keyCoder, K key) {
+    try {
+      return Hashing.murmur3_128().hashBytes(CoderUtils.encodeToByteArray(keyCoder, key)).asLong();
+    } catch (CoderException e) {
+      throw new IllegalArgumentException(
+          String.format("Unable to encode key %s with %s", key, keyCoder), e);
+    }
+  }
+
+  private void recordKey(Coder<Object> keyCoder, @Nullable Object key, long micros) {
+    if (numSlowestKeys == MAX_SLOWEST_KEYS && micros <= slowestKeyMicros[numSlowestKeys - 1]) {
+      return;
+    }
+    // Keys are only hashed once an element is known to be among the slowest.
+    long hash = keyHash(keyCoder, key);
+    int index = 0;
+    while (index < numSlowestKeys && slowestKeyHashes[index] != hash) {
+      index++;
+    }
+    if (index < numSlowestKeys) {
+      if (slowestKeyMicros[index] >= micros) {
+        return;
+      }
+    } else if (numSlowestKeys < MAX_SLOWEST_KEYS) {
+      numSlowestKeys++;
+    } else {
+      // Evict the fastest of the slowest keys.
+      index = numSlowestKeys - 1;
+    }
+    // Move the key up to its rank, shifting faster keys down.
+    while (index > 0 && slowestKeyMicros[index - 1] < micros) {
+      slowestKeyHashes[index] = slowestKeyHashes[index - 1];
+      slowestKeyMicros[index] = slowestKeyMicros[index - 1];
+      index--;
+    }
+    slowestKeyHashes[index] = hash;
+    slowestKeyMicros[index] = micros;
+  }
+
+  private static Gauge[] rankedGauges(String prefix) {
+    Gauge[] gauges = new Gauge[MAX_SLOWEST_KEYS];
+    for (int rank = 0; rank < MAX_SLOWEST_KEYS; rank++) {
+      gauges[rank] = Metrics.gauge(NAMESPACE, prefix + rank);
+    }
+    return gauges;
+  }
+
+  /** Returns the number of elements to skip until the next sample, drawn geometrically. */
+  private long nextSkip() {
+    if (samplingRate <= 0) {
+      return Long.MAX_VALUE;
+    }
+    if (samplingRate >= 1) {
+      return 1;
+    }
+    double uniform = 1 - ThreadLocalRandom.current().nextDouble();
+    return 1 + (long) (Math.log(uniform) / Math.log(1 - samplingRate));
+  }
+
+  @VisibleForTesting
+  long[] getSlowestKeyHashes() {
+    long[] hashes = new long[numSlowestKeys];
+    System.arraycopy(slowestKeyHashes, 0, hashes, 0, numSlowestKeys);
+    return hashes;
+  }
+}
@@ -17,7 +17,14 @@
  */
 package org.apache.beam.runners.core.metrics;
 
+import static org.apache.beam.vendor.guava.v26_0_jre.com.google.common.base.Preconditions.checkArgument;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLongArray;
 import org.apache.beam.sdk.metrics.MetricName;
 import org.apache.beam.sdk.metrics.MetricsContainer;
 import org.apache.beam.sdk.util.HistogramData;
@@ -27,16 +34,26 @@ import org.checkerframework.checker.nullness.qual.Nullable;
 /**
  * Tracks the current value (and delta) for a Histogram metric.
  *
+ * <p>Each thread records into bucket counts of its own, in the manner of {@link
+ * java.util.concurrent.atomic.LongAdder}, so threads recording values neither block nor contend
+ * with each other. The bucket counts of all threads are summed when the value is read.
+ *
  * <p>This class generally shouldn't be used directly. The only exception is within a runner where a
  * histogram is being reported for a specific step (rather than the histogram in the current
  * context). In that case retrieving the underlying cell and reporting directly to it avoids a step
  * of indirection.
  */
+@SuppressWarnings({
+  "nullness" // TODO(https://issues.apache.org/jira/browse/BEAM-10402)
+})
 public class HistogramCell
     implements org.apache.beam.sdk.metrics.Histogram, MetricCell<HistogramData> {
 
   private final DirtyState dirty = new DirtyState();
-  private final HistogramData value;
+  private final HistogramData.BucketType bucketType;
+  // The bucket counts of each thread: the bottom bucket, the bounded buckets and the top bucket.
+  private final Queue<AtomicLongArray> threadCounts = new ConcurrentLinkedQueue<>();
+  private transient ThreadLocal<AtomicLongArray> currentThreadCounts = newCounts();
   private final MetricName name;
 
   /**
@@ -46,27 +63,81 @@ public class HistogramCell
    */
   public HistogramCell(KV<MetricName, HistogramData.BucketType> kv) {
     this.name = kv.getKey();
-    this.value = new HistogramData(kv.getValue());
+    this.bucketType = kv.getValue();
+  }
+
+  private ThreadLocal<AtomicLongArray> newCounts() {
+    return ThreadLocal.withInitial(
+        () -> {
+          AtomicLongArray counts = new AtomicLongArray(getNumCounts());
+          threadCounts.add(counts);
+          return counts;
+        });
+  }
+
+  private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+    in.defaultReadObject();
+    currentThreadCounts = newCounts();
+  }
+
+  /** Returns the count of the bucket at {@code index}, summed over all threads. */
+  private long getCount(int index) {
+    long count = 0;
+    for (AtomicLongArray counts : threadCounts) {
+      count += counts.get(index);
+    }
+    return count;
+  }
+
+  private int getNumCounts() {
+    return bucketType.getNumBuckets() + 2;
   }
 
   @Override
   public void reset() {
     dirty.afterModification();
-    value.clear();
+    for (AtomicLongArray counts : threadCounts) {
+      for (int i = 0; i < counts.length(); i++) {
+        counts.set(i, 0);
+      }
+    }
   }
 
   /** Increment the corresponding histogram bucket count for the value by 1. */
   @Override
   public void update(double value) {
-    this.value.record(value);
+    int index;
+    if (value >= bucketType.getRangeTo()) {
+      index = getNumCounts() - 1;
+    } else if (value < bucketType.getRangeFrom()) {
+      index = 0;
+    } else {
+      index = bucketType.getBucketIndex(value) + 1;
+    }
+    currentThreadCounts.get().incrementAndGet(index);
     dirty.afterModification();
   }
 
   /**
    * Increment all of the bucket counts in this histogram, by the bucket counts specified in other.
+   *
+   * @throws IllegalArgumentException if the histograms have different bucket types
    */
   public void update(HistogramCell other) {
-    this.value.update(other.value);
+    checkArgument(
+        bucketType.equals(other.bucketType),
+        "Cannot merge histogram %s with buckets %s into %s with buckets %s.",
+        other.name,
+        other.bucketType,
+        name,
+        bucketType);
+    AtomicLongArray counts = currentThreadCounts.get();
+    for (int i = 0; i < counts.length(); i++) {
+      long count = other.getCount(i);
+      if (count != 0) {
+        counts.addAndGet(i, count);
+      }
+    }
     dirty.afterModification();
   }
 
@@ -74,17 +145,17 @@ public class HistogramCell
   // and remove the incTopBucketCount and incBotBucketCount methods.
   // Using 0 and length -1 as the bucketIndex.
   public void incBucketCount(int bucketIndex, long count) {
-    this.value.incBucketCount(bucketIndex, count);
+    currentThreadCounts.get().addAndGet(bucketIndex + 1, count);
     dirty.afterModification();
   }
 
   public void incTopBucketCount(long count) {
-    this.value.incTopBucketCount(count);
+    currentThreadCounts.get().addAndGet(getNumCounts() - 1, count);
     dirty.afterModification();
   }
 
   public void incBottomBucketCount(long count) {
-    this.value.incBottomBucketCount(count);
+    currentThreadCounts.get().addAndGet(0, count);
     dirty.afterModification();
   }
 
@@ -93,8 +164,15 @@ public class HistogramCell
     return dirty;
   }
 
+  /** Returns a snapshot of the bucket counts of this histogram. */
   @Override
   public HistogramData getCumulative() {
+    HistogramData value = new HistogramData(bucketType);
+    value.incBottomBucketCount(getCount(0));
+    for (int i = 0; i < bucketType.getNumBuckets(); i++) {
+      value.incBucketCount(i, getCount(i + 1));
+    }
+    value.incTopBucketCount(getCount(getNumCounts() - 1));
     return value;
   }
 
@@ -107,9 +185,17 @@ public class HistogramCell
   public boolean equals(@Nullable Object object) {
     if (object instanceof HistogramCell) {
       HistogramCell histogramCell = (HistogramCell) object;
-      return Objects.equals(dirty, histogramCell.dirty)
-          && Objects.equals(value, histogramCell.value)
-          && Objects.equals(name, histogramCell.name);
+      if (!Objects.equals(dirty, histogramCell.dirty)
+          || !Objects.equals(name, histogramCell.name)
+          || !Objects.equals(bucketType, histogramCell.bucketType)) {
+        return false;
+      }
+      for (int i = 0; i < getNumCounts(); i++) {
+        if (getCount(i) != histogramCell.getCount(i)) {
+          return false;
+        }
+      }
+      return true;
     }
 
     return false;
@@ -117,6 +203,10 @@ public class HistogramCell
 
   @Override
   public int hashCode() {
-    return Objects.hash(dirty, value, name);
+    int hashCode = Objects.hash(dirty, name, bucketType);
+    for (int i = 0; i < getNumCounts(); i++) {
+      hashCode = 31 * hashCode + Long.hashCode(getCount(i));
+    }
+    return hashCode;
   }
 }
@@ -21,10 +21,10 @@ import com.google.auto.value.AutoValue;
 import java.io.Serializable;
 import java.util.Collections;
 import org.apache.beam.sdk.metrics.MetricKey;
+import org.apache.beam.sdk.util.HistogramData;
 import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.collect.Iterables;
 
 /** Representation of multiple metric updates. */
-@AutoValue
 @SuppressWarnings({
   "rawtypes" // TODO(https://issues.apache.org/jira/browse/BEAM-10556)
 })
@@ -32,7 +32,10 @@ public abstract class MetricUpdates {
 
   public static final MetricUpdates EMPTY =
       MetricUpdates.create(
-          Collections.emptyList(), Collections.emptyList(), Collections.emptyList());
+          Collections.emptyList(),
+          Collections.emptyList(),
+          Collections.emptyList(),
+          Collections.emptyList());
 
   /**
    * Representation of a single metric update.
@@ -54,7 +57,9 @@ public abstract class MetricUpdates {
 
   /** Returns true if there are no updates in this MetricUpdates object. */
   public boolean isEmpty() {
-    return Iterables.isEmpty(counterUpdates()) && Iterables.isEmpty(distributionUpdates());
+    return Iterables.isEmpty(counterUpdates())
+        && Iterables.isEmpty(distributionUpdates())
+        && Iterables.isEmpty(histogramUpdates());
   }
 
   /** All of the counter updates. */
@@ -66,11 +71,36 @@ public abstract class MetricUpdates {
   /** All of the gauges updates. */
   public abstract Iterable<MetricUpdate<GaugeData>> gaugeUpdates();
 
+  /** All of the histogram updates, if histograms are supported. */
+  public Iterable<MetricUpdate<HistogramData>> histogramUpdates() {
+    return Collections.emptyList();
+  }
+
   /** Create a new {@link MetricUpdates} bundle. */
   public static MetricUpdates create(
       Iterable<MetricUpdate<Long>> counterUpdates,
       Iterable<MetricUpdate<DistributionData>> distributionUpdates,
       Iterable<MetricUpdate<GaugeData>> gaugeUpdates) {
-    return new AutoValue_MetricUpdates(counterUpdates, distributionUpdates, gaugeUpdates);
+    return create(counterUpdates, distributionUpdates, gaugeUpdates, Collections.emptyList());
+  }
+
+  /** Create a new {@link MetricUpdates} bundle. */
+  public static MetricUpdates create(
+      Iterable<MetricUpdate<Long>> counterUpdates,
+      Iterable<MetricUpdate<DistributionData>> distributionUpdates,
+      Iterable<MetricUpdate<GaugeData>> gaugeUpdates,
+      Iterable<MetricUpdate<HistogramData>> histogramUpdates) {
+    return new AutoValue_MetricUpdates_Impl(
+        counterUpdates, distributionUpdates, gaugeUpdates, histogramUpdates);
+  }
+
+  /**
+   * The {@link MetricUpdates} created by {@link #create}. {@link #histogramUpdates()} is only a
+   * property here, so that other implementations do not have to provide it.
+   */
+  @AutoValue
+  abstract static class Impl extends MetricUpdates {
+    @Override
+    public abstract Iterable<MetricUpdate<HistogramData>> histogramUpdates();
   }
 }
@@ -210,13 +210,30 @@ public class MetricsContainerImpl implements Serializable, MetricsContainer {
     return updates.build();
   }
 
+  private ImmutableList<MetricUpdate<HistogramData>> extractHistograms(boolean onlyDirty) {
+    ImmutableList.Builder<MetricUpdate<HistogramData>> updates = ImmutableList.builder();
+    for (Map.Entry<KV<MetricName, HistogramData.BucketType>, HistogramCell> cell :
+        histograms.entries()) {
+      if (!onlyDirty || cell.getValue().getDirty().beforeCommit()) {
+        updates.add(
+            MetricUpdate.create(
+                MetricKey.create(stepName, cell.getKey().getKey()),
+                cell.getValue().getCumulative()));
+      }
+    }
+    return updates.build();
+  }
+
   /**
    * Return the cumulative values for any metrics that have changed since the last time updates were
    * committed.
    */
   public MetricUpdates getUpdates() {
     return MetricUpdates.create(
-        extractUpdates(counters), extractUpdates(distributions), extractUpdates(gauges));
+        extractUpdates(counters),
+        extractUpdates(distributions),
+        extractUpdates(gauges),
+        extractHistograms(true));
   }
 
   /** @return The MonitoringInfo metadata from the metric. */
@@ -355,7 +372,7 @@ public class MetricsContainerImpl implements Serializable, MetricsContainer {
     return shortId.orElse(null);
   }
 
-  private void commitUpdates(MetricsMap<MetricName, ? extends MetricCell<?>> cells) {
+  private void commitUpdates(MetricsMap<?, ? extends MetricCell<?>> cells) {
     for (MetricCell<?> cell : cells.values()) {
       cell.getDirty().afterCommit();
     }
@@ -369,6 +386,7 @@ public class MetricsContainerImpl implements Serializable, MetricsContainer {
     commitUpdates(counters);
     commitUpdates(distributions);
     commitUpdates(gauges);
+    commitUpdates(histograms);
   }
 
   private <UserT extends Metric, UpdateT, CellT extends MetricCell<UpdateT>>
@@ -389,7 +407,8 @@ public class MetricsContainerImpl implements Serializable, MetricsContainer {
     return MetricUpdates.create(
         extractCumulatives(counters),
         extractCumulatives(distributions),
-        extractCumulatives(gauges));
+        extractCumulatives(gauges),
+        extractHistograms(false));
   }
 
   /** Update values of this {@link MetricsContainerImpl} by merging the value of another cell. */
@@ -0,0 +1,191 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.runners.core.metrics;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.Closeable;
+import java.io.IOException;
+import org.apache.beam.sdk.coders.ByteArrayCoder;
+import org.apache.beam.sdk.coders.VarIntCoder;
+import org.apache.beam.sdk.metrics.MetricName;
+import org.apache.beam.sdk.metrics.MetricsEnvironment;
+import org.apache.beam.sdk.options.PipelineOptions;
+import org.apache.beam.sdk.options.PipelineOptionsFactory;
+import org.apache.beam.sdk.values.KV;
+import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.collect.Iterables;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link ElementProcessingTimeSampler}. */
+@RunWith(JUnit4.class)
+public class ElementProcessingTimeSamplerTest {
+  private static final MetricName DISTRIBUTION_NAME =
+      MetricName.named(
+          ElementProcessingTimeSampler.NAMESPACE,
+          ElementProcessingTimeSampler.PROCESS_TIME_DISTRIBUTION);
+
+  @Test
+  public void testDisabledByDefault() {
+    ElementProcessingTimeSampler sampler =
+        ElementProcessingTimeSampler.fromOptions(PipelineOptionsFactory.create(), null, true);
+    assertFalse(sampler.isEnabled());
+    for (int i = 0; i < 1000; i++) {
+      sampler.start();
+      assertEquals(ElementProcessingTimeSampler.NOT_SAMPLED, sampler.startOutput());
+    }
+  }
+
+  @Test
+  public void testFromOptions() {
+    PipelineOptions options =
+        PipelineOptionsFactory.fromArgs("--experiments=element_processing_time_sampling_rate=0.5")
+            .create();
+    assertTrue(ElementProcessingTimeSampler.fromOptions(options, null, true).isEnabled());
+  }
+
+  @Test
+  public void testSamplesFraction() {
+    ElementProcessingTimeSampler sampler = new ElementProcessingTimeSampler(0.1, null, true);
+    int sampled = 0;
+    for (int i = 0; i < 100000; i++) {
+      sampler.start();
+      if (sampler.startOutput() != ElementProcessingTimeSampler.NOT_SAMPLED) {
+        sampled++;
+      }
+      sampler.finish("element");
+    }
+    assertTrue("Sampled " + sampled + " elements", sampled > 9000 && sampled < 11000);
+  }
+
+  @Test
+  public void testRecordsProcessingTime() throws IOException {
+    MetricsContainerImpl container = new MetricsContainerImpl("step");
+    ElementProcessingTimeSampler sampler = new ElementProcessingTimeSampler(1, null, true);
+    try (Closeable ignored = MetricsEnvironment.scopedMetricsContainer(container)) {
+      for (int i = 0; i < 3; i++) {
+        sampler.start();
+        sampler.finish(KV.of("key", "value"));
+      }
+      sampler.reportSlowestKeys();
+    }
+
+    assertThat(container.getDistribution(DISTRIBUTION_NAME).getCumulative().count(), equalTo(3L));
+    assertThat(
+        Iterables.getOnlyElement(container.getUpdates().histogramUpdates())
+            .getUpdate()
+            .getTotalCount(),
+        equalTo(3L));
+    // Keys are not tracked without a key coder.
+    assertEquals(0, sampler.getSlowestKeyHashes().length);
+    assertTrue(Iterables.isEmpty(container.getUpdates().gaugeUpdates()));
+  }
+
+  @Test
+  public void testWithoutHistogram() throws IOException {
+    MetricsContainerImpl container = new MetricsContainerImpl("step");
+    ElementProcessingTimeSampler sampler = new ElementProcessingTimeSampler(1, null, false);
+    try (Closeable ignored = MetricsEnvironment.scopedMetricsContainer(container)) {
+      sampler.start();
+      sampler.finish("element");
+    }
+
+    assertThat(container.getDistribution(DISTRIBUTION_NAME).getCumulative().count(), equalTo(1L));
+    assertTrue(Iterables.isEmpty(container.getUpdates().histogramUpdates()));
+  }
+
+  @Test
+  public void testExcludesOutputTime() throws Exception {
+    MetricsContainerImpl container = new MetricsContainerImpl("step");
+    ElementProcessingTimeSampler sampler = new ElementProcessingTimeSampler(1, null, true);
+    try (Closeable ignored = MetricsEnvironment.scopedMetricsContainer(container)) {
+      sampler.start();
+      long outputStartNanos = sampler.startOutput();
+      // Pretend that a downstream consumer took 100 milliseconds.
+      Thread.sleep(100);
+      sampler.finishOutput(outputStartNanos);
+      sampler.finish("element");
+    }
+
+    assertThat(
+        container.getDistribution(DISTRIBUTION_NAME).getCumulative().max() < 50_000, equalTo(true));
+  }
+
+  @Test
+  public void testKeyHashUsesEncoding() {
+    assertEquals(
+        ElementProcessingTimeSampler.keyHash(ByteArrayCoder.of(), new byte[] {1, 2}),
+        ElementProcessingTimeSampler.keyHash(ByteArrayCoder.of(), new byte[] {1, 2}));
+    assertNotEquals(
+        ElementProcessingTimeSampler.keyHash(ByteArrayCoder.of(), new byte[] {1, 2}),
+        ElementProcessingTimeSampler.keyHash(ByteArrayCoder.of(), new byte[] {2, 1}));
+  }
+
+  @Test
+  public void testTracksSlowestKeysPerBundle() throws IOException {
+    MetricsContainerImpl container = new MetricsContainerImpl("step");
+    ElementProcessingTimeSampler sampler =
+        new ElementProcessingTimeSampler(1, VarIntCoder.of(), true);
+    int numKeys = ElementProcessingTimeSampler.MAX_SLOWEST_KEYS + 5;
+    try (Closeable ignored = MetricsEnvironment.scopedMetricsContainer(container)) {
+      for (int i = 0; i < numKeys; i++) {
+        // Pretend that higher keys took longer to process.
+        sampler.record(1000L * i, KV.of(i, "value"));
+        // A faster element of an already tracked key does not take another rank.
+        sampler.record(0, KV.of(i, "value"));
+      }
+
+      long[] expected = new long[ElementProcessingTimeSampler.MAX_SLOWEST_KEYS];
+      for (int rank = 0; rank < expected.length; rank++) {
+        expected[rank] = ElementProcessingTimeSampler.keyHash(VarIntCoder.of(), numKeys - 1 - rank);
+      }
+      assertArrayEquals(expected, sampler.getSlowestKeyHashes());
+      sampler.reportSlowestKeys();
+      assertGauges(container, expected);
+
+      // The next bundle only reports its own keys, and clears the ranks without a key.
+      sampler.record(1, KV.of(0, "value"));
+      sampler.reportSlowestKeys();
+      long[] nextExpected = new long[ElementProcessingTimeSampler.MAX_SLOWEST_KEYS];
+      nextExpected[0] = ElementProcessingTimeSampler.keyHash(VarIntCoder.of(), 0);
+      assertGauges(container, nextExpected);
+    }
+  }
+
+  private static void assertGauges(MetricsContainerImpl container, long[] expectedHashes) {
+    int numGauges = 0;
+    for (MetricUpdates.MetricUpdate<GaugeData> update : container.getUpdates().gaugeUpdates()) {
+      String name = update.getKey().metricName().getName();
+      if (name.startsWith(ElementProcessingTimeSampler.SLOWEST_KEY_HASH_PREFIX)) {
+        int rank =
+            Integer.parseInt(
+                name.substring(ElementProcessingTimeSampler.SLOWEST_KEY_HASH_PREFIX.length()));
+        assertEquals(expectedHashes[rank], update.getUpdate().value());
+      }
+      numGauges++;
+    }
+    assertEquals(2 * ElementProcessingTimeSampler.MAX_SLOWEST_KEYS, numGauges);
+  }
+}
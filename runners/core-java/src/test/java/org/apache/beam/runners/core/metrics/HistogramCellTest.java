@@ -0,0 +1,151 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.runners.core.metrics;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.beam.sdk.metrics.MetricName;
+import org.apache.beam.sdk.util.HistogramData;
+import org.apache.beam.sdk.util.SerializableUtils;
+import org.apache.beam.sdk.values.KV;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link HistogramCell}. */
+@RunWith(JUnit4.class)
+public class HistogramCellTest {
+  private static final HistogramData.BucketType BUCKETS = HistogramData.LinearBuckets.of(0, 10, 3);
+
+  private HistogramCell cell = newCell("namespace", "name", BUCKETS);
+
+  private static HistogramCell newCell(
+      String namespace, String name, HistogramData.BucketType bucketType) {
+    return new HistogramCell(KV.of(MetricName.named(namespace, name), bucketType));
+  }
+
+  private static HistogramData histogram(double... values) {
+    HistogramData data = new HistogramData(BUCKETS);
+    data.record(values);
+    return data;
+  }
+
+  @Test
+  public void testDeltaAndCumulative() {
+    cell.update(5);
+    cell.update(-1);
+    cell.update(45);
+    assertThat(cell.getCumulative(), equalTo(histogram(5, -1, 45)));
+
+    assertThat(cell.getDirty().beforeCommit(), equalTo(true));
+    cell.getDirty().afterCommit();
+    assertThat(cell.getDirty().beforeCommit(), equalTo(false));
+
+    cell.update(15);
+    assertThat(cell.getCumulative(), equalTo(histogram(5, -1, 45, 15)));
+    assertThat(
+        "Adding a new value made the cell dirty", cell.getDirty().beforeCommit(), equalTo(true));
+  }
+
+  @Test
+  public void testUpdatesFromManyThreads() throws Exception {
+    List<Thread> threads = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      threads.add(
+          new Thread(
+              () -> {
+                for (int j = 0; j < 1000; j++) {
+                  cell.update(j % 30);
+                }
+              }));
+    }
+    for (Thread thread : threads) {
+      thread.start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    HistogramData cumulative = cell.getCumulative();
+    assertThat(cumulative.getTotalCount(), equalTo(4000L));
+    assertThat(cumulative.getCount(0), equalTo(1360L));
+    assertThat(cumulative.getCount(1), equalTo(1320L));
+    assertThat(cumulative.getCount(2), equalTo(1320L));
+  }
+
+  @Test
+  public void testUpdateFromCell() {
+    HistogramCell other = newCell("namespace", "other", BUCKETS);
+    other.update(5);
+    other.update(25);
+    cell.update(5);
+    cell.update(other);
+    assertThat(cell.getCumulative(), equalTo(histogram(5, 5, 25)));
+
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> cell.update(newCell("namespace", "other", HistogramData.LinearBuckets.of(0, 1, 3))));
+  }
+
+  @Test
+  public void testSerialization() {
+    cell.update(5);
+    HistogramCell copy = SerializableUtils.clone(cell);
+    assertThat(copy, equalTo(cell));
+    copy.update(15);
+    assertThat(copy.getCumulative(), equalTo(histogram(5, 15)));
+  }
+
+  @Test
+  public void testEquals() {
+    HistogramCell equal = newCell("namespace", "name", BUCKETS);
+    Assert.assertEquals(cell, equal);
+    Assert.assertEquals(cell.hashCode(), equal.hashCode());
+  }
+
+  @Test
+  public void testNotEquals() {
+    Assert.assertNotEquals(cell, new Object());
+
+    HistogramCell differentValue = newCell("namespace", "name", BUCKETS);
+    differentValue.update(5);
+    Assert.assertNotEquals(cell, differentValue);
+    Assert.assertNotEquals(cell.hashCode(), differentValue.hashCode());
+
+    HistogramCell differentBuckets =
+        newCell("namespace", "name", HistogramData.LinearBuckets.of(0, 1, 3));
+    Assert.assertNotEquals(cell, differentBuckets);
+
+    HistogramCell differentName = newCell("DIFFERENT", "DIFFERENT", BUCKETS);
+    Assert.assertNotEquals(cell, differentName);
+    Assert.assertNotEquals(cell.hashCode(), differentName.hashCode());
+  }
+
+  @Test
+  public void testReset() {
+    cell.update(5);
+    cell.reset();
+    assertThat(cell.getCumulative(), equalTo(new HistogramData(BUCKETS)));
+    assertThat(cell.getDirty(), equalTo(new DirtyState()));
+  }
+}
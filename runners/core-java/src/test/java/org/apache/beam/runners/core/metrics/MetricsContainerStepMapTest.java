@@ -21,6 +21,7 @@ import static org.apache.beam.runners.core.metrics.MetricsContainerStepMap.asAtt
 import static org.apache.beam.runners.core.metrics.MetricsContainerStepMap.asMetricResults;
 import static org.apache.beam.sdk.metrics.MetricResultsMatchers.metricsResult;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.hamcrest.Matchers.hasItem;
 
@@ -40,6 +41,7 @@ import org.apache.beam.sdk.metrics.MetricResults;
 import org.apache.beam.sdk.metrics.Metrics;
 import org.apache.beam.sdk.metrics.MetricsEnvironment;
 import org.apache.beam.sdk.metrics.MetricsFilter;
+import org.apache.beam.sdk.util.HistogramData;
 import org.hamcrest.collection.IsIterableWithSize;
 import org.joda.time.Instant;
 import org.junit.Assert;
@@ -178,6 +180,29 @@ public class MetricsContainerStepMapTest {
     assertGauge(GAUGE_NAME, step1res, STEP1, GaugeResult.empty(), true);
   }
 
+  @Test
+  public void testHistogramAttemptedMetricResults() {
+    MetricName name = MetricName.named(NAMESPACE, "myHistogram");
+    HistogramData.BucketType bucketType = HistogramData.LinearBuckets.of(0, 10, 10);
+    MetricsContainerStepMap attemptedMetrics = new MetricsContainerStepMap();
+    attemptedMetrics.getContainer(STEP1).getHistogram(name, bucketType).update(5);
+    attemptedMetrics.getContainer(STEP1).getHistogram(name, bucketType).update(15);
+    attemptedMetrics.getContainer(STEP2).getHistogram(name, bucketType).update(25);
+
+    MetricResults metricResults = asAttemptedOnlyMetricResults(attemptedMetrics);
+
+    MetricQueryResults step1res =
+        metricResults.queryMetrics(MetricsFilter.builder().addStep(STEP1).build());
+    HistogramData expected = HistogramData.linear(0, 10, 10);
+    expected.record(5, 15);
+    assertThat(
+        step1res.getHistograms(),
+        contains(metricsResult(NAMESPACE, "myHistogram", STEP1, expected, false)));
+
+    MetricQueryResults allres = metricResults.allMetrics();
+    assertIterableSize(allres.getHistograms(), 2);
+  }
+
   @Test
   public void testUserMetricDroppedOnUnbounded() {
     MetricsContainerStepMap testObject = new MetricsContainerStepMap();
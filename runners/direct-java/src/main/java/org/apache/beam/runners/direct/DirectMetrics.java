@@ -41,6 +41,7 @@ import org.apache.beam.sdk.metrics.MetricQueryResults;
 import org.apache.beam.sdk.metrics.MetricResult;
 import org.apache.beam.sdk.metrics.MetricResults;
 import org.apache.beam.sdk.metrics.MetricsFilter;
+import org.apache.beam.sdk.util.HistogramData;
 import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.collect.ImmutableList;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
@@ -217,6 +218,34 @@ class DirectMetrics extends MetricResults {
         }
       };
 
+  /**
+   * Histograms have no identity element since their bucket type is not known upfront, so {@code
+   * null} stands for a histogram without updates.
+   */
+  private static final MetricAggregation<HistogramData, HistogramData> HISTOGRAM =
+      new MetricAggregation<HistogramData, HistogramData>() {
+        @Override
+        public HistogramData zero() {
+          return null;
+        }
+
+        @Override
+        public HistogramData combine(Iterable<HistogramData> updates) {
+          HistogramData result = null;
+          for (HistogramData update : updates) {
+            if (update != null) {
+              result = result == null ? update : result.combine(update);
+            }
+          }
+          return result;
+        }
+
+        @Override
+        public HistogramData extract(HistogramData data) {
+          return data;
+        }
+      };
+
   /** The current values of counters in memory. */
   private final MetricsMap<MetricKey, DirectMetric<Long, Long>> counters;
 
@@ -225,11 +254,14 @@ class DirectMetrics extends MetricResults {
 
   private final MetricsMap<MetricKey, DirectMetric<GaugeData, GaugeResult>> gauges;
 
+  private final MetricsMap<MetricKey, DirectMetric<HistogramData, HistogramData>> histograms;
+
   DirectMetrics(ExecutorService executorService) {
     this.counters = new MetricsMap<>(unusedKey -> new DirectMetric<>(COUNTER, executorService));
     this.distributions =
         new MetricsMap<>(unusedKey -> new DirectMetric<>(DISTRIBUTION, executorService));
     this.gauges = new MetricsMap<>(unusedKey -> new DirectMetric<>(GAUGE, executorService));
+    this.histograms = new MetricsMap<>(unusedKey -> new DirectMetric<>(HISTOGRAM, executorService));
   }
 
   @Override
@@ -248,9 +280,17 @@ class DirectMetrics extends MetricResults {
     for (Entry<MetricKey, DirectMetric<GaugeData, GaugeResult>> gauge : gauges.entries()) {
       maybeExtractResult(filter, gaugeResults, gauge);
     }
+    ImmutableList.Builder<MetricResult<HistogramData>> histogramResults = ImmutableList.builder();
+    for (Entry<MetricKey, DirectMetric<HistogramData, HistogramData>> histogram :
+        histograms.entries()) {
+      maybeExtractResult(filter, histogramResults, histogram);
+    }
 
     return MetricQueryResults.create(
-        counterResults.build(), distributionResults.build(), gaugeResults.build());
+        counterResults.build(),
+        distributionResults.build(),
+        gaugeResults.build(),
+        histogramResults.build());
   }
 
   private <ResultT> void maybeExtractResult(
@@ -277,6 +317,9 @@ class DirectMetrics extends MetricResults {
     for (MetricUpdate<GaugeData> gauge : updates.gaugeUpdates()) {
       gauges.get(gauge.getKey()).updatePhysical(bundle, gauge.getUpdate());
     }
+    for (MetricUpdate<HistogramData> histogram : updates.histogramUpdates()) {
+      histograms.get(histogram.getKey()).updatePhysical(bundle, histogram.getUpdate());
+    }
   }
 
   public void commitPhysical(CommittedBundle<?> bundle, MetricUpdates updates) {
@@ -289,6 +332,9 @@ class DirectMetrics extends MetricResults {
     for (MetricUpdate<GaugeData> gauge : updates.gaugeUpdates()) {
       gauges.get(gauge.getKey()).commitPhysical(bundle, gauge.getUpdate());
     }
+    for (MetricUpdate<HistogramData> histogram : updates.histogramUpdates()) {
+      histograms.get(histogram.getKey()).commitPhysical(bundle, histogram.getUpdate());
+    }
   }
 
   /** Apply metric updates that represent new logical values from a bundle being committed. */
@@ -302,5 +348,8 @@ class DirectMetrics extends MetricResults {
     for (MetricUpdate<GaugeData> gauge : updates.gaugeUpdates()) {
       gauges.get(gauge.getKey()).commitLogical(bundle, gauge.getUpdate());
     }
+    for (MetricUpdate<HistogramData> histogram : updates.histogramUpdates()) {
+      histograms.get(histogram.getKey()).commitLogical(bundle, histogram.getUpdate());
+    }
   }
 }
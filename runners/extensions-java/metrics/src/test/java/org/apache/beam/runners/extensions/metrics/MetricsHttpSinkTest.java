@@ -94,7 +94,7 @@ public class MetricsHttpSinkTest {
             + "\"namespace\":\"ns1\"},\"step\":\"s2\"}],\"gauges\":[{\"attempted\":{\"timestamp\":"
             + "\"1970-01-05T00:04:22.800Z\",\"value\":120},\"committed\":{\"timestamp\":"
             + "\"1970-01-05T00:04:22.800Z\",\"value\":100},\"name\":{\"name\":\"n3\",\"namespace\":"
-            + "\"ns1\"},\"step\":\"s3\"}]}";
+            + "\"ns1\"},\"step\":\"s3\"}],\"histograms\":[]}";
     assertEquals("Wrong number of messages sent to HTTP server", 1, messages.size());
     assertEquals("Wrong messages sent to HTTP server", expected, messages.get(0));
   }
@@ -114,7 +114,7 @@ public class MetricsHttpSinkTest {
             + "{\"count\":4,\"max\":9,\"mean\":6.25,\"min\":3,\"sum\":25},\"name\":{\"name\":\"n2\""
             + ",\"namespace\":\"ns1\"},\"step\":\"s2\"}],\"gauges\":[{\"attempted\":{\"timestamp\":"
             + "\"1970-01-05T00:04:22.800Z\",\"value\":120},\"name\":{\"name\":\"n3\",\"namespace\":"
-            + "\"ns1\"},\"step\":\"s3\"}]}";
+            + "\"ns1\"},\"step\":\"s3\"}],\"histograms\":[]}";
     assertEquals("Wrong number of messages sent to HTTP server", 1, messages.size());
     assertEquals("Wrong messages sent to HTTP server", expected, messages.get(0));
   }
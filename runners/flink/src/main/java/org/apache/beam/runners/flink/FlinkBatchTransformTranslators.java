@@ -33,8 +33,11 @@ import org.apache.beam.runners.core.construction.ParDoTranslation;
 import org.apache.beam.runners.core.construction.ReadTranslation;
 import org.apache.beam.runners.flink.translation.functions.FlinkAssignWindows;
 import org.apache.beam.runners.flink.translation.functions.FlinkDoFnFunction;
+import org.apache.beam.runners.flink.translation.functions.FlinkEncodeAccumulatorFunction;
 import org.apache.beam.runners.flink.translation.functions.FlinkExplodeWindowsFunction;
+import org.apache.beam.runners.flink.translation.functions.FlinkExtractOutputFunction;
 import org.apache.beam.runners.flink.translation.functions.FlinkIdentityFunction;
+import org.apache.beam.runners.flink.translation.functions.FlinkMergeAccumulatorsFunction;
 import org.apache.beam.runners.flink.translation.functions.FlinkMergingNonShuffleReduceFunction;
 import org.apache.beam.runners.flink.translation.functions.FlinkMultiOutputPruningFunction;
 import org.apache.beam.runners.flink.translation.functions.FlinkNonMergingReduceFunction;
@@ -42,6 +45,7 @@ import org.apache.beam.runners.flink.translation.functions.FlinkPartialReduceFun
 import org.apache.beam.runners.flink.translation.functions.FlinkReduceFunction;
 import org.apache.beam.runners.flink.translation.functions.FlinkStatefulDoFnFunction;
 import org.apache.beam.runners.flink.translation.types.CoderTypeInformation;
+import org.apache.beam.runners.flink.translation.types.EncodedValueTypeInformation;
 import org.apache.beam.runners.flink.translation.types.KvKeySelector;
 import org.apache.beam.runners.flink.translation.types.WindowedKvKeySelector;
 import org.apache.beam.runners.flink.translation.wrappers.ImpulseInputFormat;
@@ -86,6 +90,8 @@ import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.collect.Multimap
 import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.collect.MultimapBuilder;
 import org.apache.flink.api.common.functions.RichGroupReduceFunction;
 import org.apache.flink.api.common.operators.Order;
+import org.apache.flink.api.common.operators.base.ReduceOperatorBase.CombineHint;
+import org.apache.flink.api.common.typeinfo.BasicTypeInfo;
 import org.apache.flink.api.common.typeinfo.TypeInformation;
 import org.apache.flink.api.java.DataSet;
 import org.apache.flink.api.java.functions.KeySelector;
@@ -97,6 +103,8 @@ import org.apache.flink.api.java.operators.Grouping;
 import org.apache.flink.api.java.operators.MapOperator;
 import org.apache.flink.api.java.operators.SingleInputUdfOperator;
 import org.apache.flink.api.java.operators.UnsortedGrouping;
+import org.apache.flink.api.java.tuple.Tuple3;
+import org.apache.flink.api.java.typeutils.TupleTypeInfo;
 import org.apache.flink.configuration.Configuration;
 import org.apache.flink.optimizer.Optimizer;
 import org.checkerframework.checker.nullness.qual.Nullable;
@@ -537,7 +545,23 @@ class FlinkBatchTransformTranslators {
         sideInputStrategies.put(sideInput, sideInput.getWindowingStrategyInternal());
       }
 
-      if (!windowingStrategy.needsMerge()) {
+      if (canGroupByWindow
+          && combineTransform.getSideInputs().isEmpty()
+          && context
+              .getPipelineOptions()
+              .as(FlinkPipelineOptions.class)
+              .isManagedMemoryCombineEnabled()) {
+        translateWithManagedMemory(
+            inputDataSet,
+            combineFn,
+            KvCoder.of(inputCoder.getKeyCoder(), windowingStrategy.getWindowFn().windowCoder()),
+            accumulatorCoder,
+            windowingStrategy.getTimestampCombiner(),
+            context.getTypeInfo(context.getOutput(transform)),
+            fullName,
+            transform,
+            context);
+      } else if (!windowingStrategy.needsMerge()) {
         final FlinkPartialReduceFunction<K, InputT, AccumT, ?> partialReduceFunction =
             new FlinkPartialReduceFunction<>(
                 combineFn,
@@ -620,6 +644,69 @@ class FlinkBatchTransformTranslators {
     }
   }
 
+  /**
+   * Translates the combine into Flink reduce operators over binary records of the encoded key and
+   * window, the output timestamp and the encoded accumulator. The combine phase of the reduce keeps
+   * the records in a hash table in Flink managed memory and the final reduce sorts them with
+   * Flink's sorter, which spills to disk if needed.
+   */
+  private static <K, InputT, AccumT, OutputT, W extends BoundedWindow>
+      void translateWithManagedMemory(
+          DataSet<WindowedValue<KV<K, InputT>>> inputDataSet,
+          CombineFnBase.GlobalCombineFn<InputT, AccumT, OutputT> combineFn,
+          KvCoder<K, W> keyAndWindowCoder,
+          Coder<AccumT> accumulatorCoder,
+          TimestampCombiner timestampCombiner,
+          TypeInformation<WindowedValue<KV<K, OutputT>>> outputTypeInfo,
+          String fullName,
+          PTransform<PCollection<KV<K, InputT>>, PCollection<KV<K, OutputT>>> transform,
+          FlinkBatchTranslationContext context) {
+    final TupleTypeInfo<Tuple3<byte[], Long, byte[]>> recordTypeInfo =
+        new TupleTypeInfo<>(
+            new EncodedValueTypeInformation(),
+            BasicTypeInfo.LONG_TYPE_INFO,
+            new EncodedValueTypeInformation());
+
+    final DataSet<Tuple3<byte[], Long, byte[]>> records =
+        new FlatMapOperator<>(
+                inputDataSet,
+                inputDataSet.getType(),
+                new FlinkExplodeWindowsFunction<>(),
+                "ExplodeWindows: " + fullName)
+            .map(
+                new FlinkEncodeAccumulatorFunction<>(
+                    combineFn,
+                    keyAndWindowCoder,
+                    accumulatorCoder,
+                    timestampCombiner,
+                    context.getPipelineOptions()))
+            .returns(recordTypeInfo)
+            .name("EncodeAccumulators: " + fullName);
+
+    final DataSet<Tuple3<byte[], Long, byte[]>> merged =
+        records
+            .groupBy(0)
+            .reduce(
+                new FlinkMergeAccumulatorsFunction<>(
+                    combineFn,
+                    keyAndWindowCoder,
+                    accumulatorCoder,
+                    timestampCombiner,
+                    context.getPipelineOptions()))
+            .setCombineHint(CombineHint.HASH)
+            .name("MergeAccumulators: " + fullName);
+
+    final MapOperator<Tuple3<byte[], Long, byte[]>, WindowedValue<KV<K, OutputT>>> outputDataSet =
+        new MapOperator<>(
+            merged,
+            outputTypeInfo,
+            new FlinkExtractOutputFunction<>(
+                combineFn, keyAndWindowCoder, accumulatorCoder, context.getPipelineOptions()),
+            fullName);
+
+    context.setOutputDataSet(context.getOutput(transform), outputDataSet);
+  }
+
   private static class ParDoTranslatorBatch<InputT, OutputT>
       implements FlinkBatchPipelineTranslator.BatchTransformTranslator<
           PTransform<PCollection<InputT>, PCollectionTuple>> {
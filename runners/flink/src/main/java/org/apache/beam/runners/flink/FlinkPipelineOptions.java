@@ -216,6 +216,21 @@ public interface FlinkPipelineOptions
 
   void setMaxBundleTimeMills(Long time);
 
+  @Description(
+      "If set, the number of elements in a bundle is adapted between minBundleSize and maxBundleSize "
+          + "based on the observed element rate, such that bundles take about maxBundleTimeMills "
+          + "and finish shortly before the next checkpoint.")
+  @Default.Boolean(false)
+  Boolean isAdaptiveBundleSizeEnabled();
+
+  void setAdaptiveBundleSizeEnabled(Boolean adaptiveBundleSizeEnabled);
+
+  @Description("The minimum number of elements in a bundle if adaptive bundle sizing is enabled.")
+  @Default.Long(1)
+  Long getMinBundleSize();
+
+  void setMinBundleSize(Long size);
+
   @Description(
       "Interval in milliseconds for sending latency tracking marks from the sources to the sinks. "
           + "Interval value <= 0 disables the feature.")
@@ -285,6 +300,16 @@ public interface FlinkPipelineOptions
 
   void setFasterCopy(Boolean fasterCopy);
 
+  @Description(
+      "Flag indicating whether batch Combine.perKey transforms with non-merging windows and without "
+          + "side inputs should keep encoded keys and accumulators in Flink managed memory instead of "
+          + "heap hash maps. Merged accumulators are spilled through Flink's sorter when managed "
+          + "memory runs out, which reduces garbage collection pressure for high cardinality keys.")
+  @Default.Boolean(false)
+  Boolean isManagedMemoryCombineEnabled();
+
+  void setManagedMemoryCombineEnabled(Boolean managedMemoryCombineEnabled);
+
   static FlinkPipelineOptions defaults() {
     return PipelineOptionsFactory.as(FlinkPipelineOptions.class);
   }
@@ -28,6 +28,7 @@ import org.apache.beam.model.pipeline.v1.RunnerApi;
 import org.apache.beam.model.pipeline.v1.RunnerApi.Pipeline;
 import org.apache.beam.runners.core.construction.PTransformTranslation;
 import org.apache.beam.runners.core.construction.PipelineOptionsTranslation;
+import org.apache.beam.runners.core.construction.graph.CombinerLiftingExpander;
 import org.apache.beam.runners.core.construction.graph.ExecutableStage;
 import org.apache.beam.runners.core.construction.graph.GreedyPipelineFuser;
 import org.apache.beam.runners.core.construction.graph.ProtoOverrides;
@@ -98,10 +99,15 @@ public class FlinkPipelineRunner implements PortablePipelineRunner {
             pipeline,
             SplittableParDoExpander.createSizedReplacement());
 
+    // Lift eligible combines into precombine, GroupByKey, merge and extract phases so that only
+    // accumulators are shuffled.
+    Pipeline pipelineWithCombinersLifted =
+        CombinerLiftingExpander.liftCombiners(pipelineWithSdfExpanded, pipelineOptions);
+
     // Don't let the fuser fuse any subcomponents of native transforms.
     Pipeline trimmedPipeline =
         TrivialNativeTransformExpander.forKnownUrns(
-            pipelineWithSdfExpanded, translator.knownUrns());
+            pipelineWithCombinersLifted, translator.knownUrns());
 
     // Fused pipeline proto.
     // TODO: Consider supporting partially-fused graphs.
@@ -25,6 +25,8 @@ import java.util.Map;
 import org.apache.beam.model.pipeline.v1.MetricsApi.MonitoringInfo;
 import org.apache.beam.runners.core.metrics.MetricsContainerImpl;
 import org.apache.beam.runners.core.metrics.MetricsContainerStepMap;
+import org.apache.beam.runners.fnexecution.control.DefaultJobBundleFactory.SdkWorkerUtilization;
+import org.apache.beam.runners.fnexecution.control.ExecutableStageContext;
 import org.apache.beam.sdk.metrics.DistributionResult;
 import org.apache.beam.sdk.metrics.GaugeResult;
 import org.apache.beam.sdk.metrics.MetricKey;
@@ -33,6 +35,7 @@ import org.apache.beam.sdk.metrics.MetricQueryResults;
 import org.apache.beam.sdk.metrics.MetricResult;
 import org.apache.beam.sdk.metrics.MetricResults;
 import org.apache.beam.sdk.metrics.MetricsFilter;
+import org.apache.beam.sdk.util.HistogramData;
 import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.annotations.VisibleForTesting;
 import org.apache.flink.api.common.accumulators.Accumulator;
 import org.apache.flink.api.common.functions.RuntimeContext;
@@ -40,6 +43,10 @@ import org.apache.flink.configuration.GlobalConfiguration;
 import org.apache.flink.configuration.MetricOptions;
 import org.apache.flink.metrics.Counter;
 import org.apache.flink.metrics.Gauge;
+import org.apache.flink.metrics.Histogram;
+import org.apache.flink.metrics.HistogramStatistics;
+import org.apache.flink.metrics.MetricGroup;
+import org.apache.flink.runtime.metrics.DescriptiveStatisticsHistogram;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -61,17 +68,27 @@ public class FlinkMetricContainer {
   private static final String METRIC_KEY_SEPARATOR =
       GlobalConfiguration.loadConfiguration().getString(MetricOptions.SCOPE_DELIMITER);
 
+  /** The Flink metric group of the SDK worker metrics. */
+  public static final String SDK_WORKER_METRIC_GROUP = "sdkWorkers";
+
+  /** Number of most recent samples which the percentiles of runner histograms are computed of. */
+  private static final int HISTOGRAM_WINDOW_SIZE = 1000;
+
   private final MetricsContainerStepMap metricsContainers;
   private final RuntimeContext runtimeContext;
   private final Map<String, Counter> flinkCounterCache;
   private final Map<String, FlinkDistributionGauge> flinkDistributionGaugeCache;
   private final Map<String, FlinkGauge> flinkGaugeCache;
+  private final Map<String, Histogram> flinkHistogramCache;
+  private final Map<String, FlinkBeamHistogram> flinkBeamHistogramCache;
 
   public FlinkMetricContainer(RuntimeContext runtimeContext) {
     this.runtimeContext = runtimeContext;
     this.flinkCounterCache = new HashMap<>();
     this.flinkDistributionGaugeCache = new HashMap<>();
     this.flinkGaugeCache = new HashMap<>();
+    this.flinkHistogramCache = new HashMap<>();
+    this.flinkBeamHistogramCache = new HashMap<>();
     this.metricsContainers = new MetricsContainerStepMap();
   }
 
@@ -100,6 +117,46 @@ public class FlinkMetricContainer {
     metricsAccumulator.add(metricsContainers);
   }
 
+  /**
+   * Registers Flink gauges which report the utilization of the SDK workers of the given context,
+   * aggregated over all its workers: the number of workers, the total and maximum number of bundles
+   * in flight, the number of completed bundles, and the ratio of the time spent processing bundles
+   * to the uptime of the workers.
+   */
+  public void registerSdkWorkerMetrics(ExecutableStageContext stageContext) {
+    MetricGroup group = runtimeContext.getMetricGroup().addGroup(SDK_WORKER_METRIC_GROUP);
+    group.gauge("workers", () -> stageContext.getSdkWorkerUtilization().size());
+    group.gauge(
+        "inFlightBundles",
+        () ->
+            stageContext.getSdkWorkerUtilization().stream()
+                .mapToInt(SdkWorkerUtilization::getInFlightBundles)
+                .sum());
+    group.gauge(
+        "maxInFlightBundles",
+        () ->
+            stageContext.getSdkWorkerUtilization().stream()
+                .mapToInt(SdkWorkerUtilization::getInFlightBundles)
+                .max()
+                .orElse(0));
+    group.gauge(
+        "completedBundles",
+        () ->
+            stageContext.getSdkWorkerUtilization().stream()
+                .mapToLong(SdkWorkerUtilization::getCompletedBundles)
+                .sum());
+    group.gauge(
+        "busyRatio",
+        () -> {
+          List<SdkWorkerUtilization> utilization = stageContext.getSdkWorkerUtilization();
+          long uptimeMillis =
+              utilization.stream().mapToLong(SdkWorkerUtilization::getUptimeMillis).sum();
+          long busyMillis =
+              utilization.stream().mapToLong(SdkWorkerUtilization::getBusyMillis).sum();
+          return uptimeMillis == 0 ? 0.0 : (double) busyMillis / uptimeMillis;
+        });
+  }
+
   /**
    * Update this container with metrics from the passed {@link MonitoringInfo}s, and send updates
    * along to Flink's internal metrics framework.
@@ -120,6 +177,7 @@ public class FlinkMetricContainer {
     updateCounters(metricQueryResults.getCounters());
     updateDistributions(metricQueryResults.getDistributions());
     updateGauge(metricQueryResults.getGauges());
+    updateHistograms(metricQueryResults.getHistograms());
   }
 
   private void updateCounters(Iterable<MetricResult<Long>> counters) {
@@ -174,6 +232,41 @@ public class FlinkMetricContainer {
     }
   }
 
+  private void updateHistograms(Iterable<MetricResult<HistogramData>> histograms) {
+    for (MetricResult<HistogramData> metricResult : histograms) {
+      String flinkMetricName = getFlinkMetricNameString(metricResult.getKey());
+
+      HistogramData update = metricResult.getAttempted();
+
+      // update flink metric
+      FlinkBeamHistogram histogram = flinkBeamHistogramCache.get(flinkMetricName);
+      if (histogram == null) {
+        histogram =
+            runtimeContext
+                .getMetricGroup()
+                .histogram(flinkMetricName, new FlinkBeamHistogram(update));
+        flinkBeamHistogramCache.put(flinkMetricName, histogram);
+      } else {
+        histogram.setBeamData(update);
+      }
+    }
+  }
+
+  /**
+   * Returns a Flink {@link Histogram} for runner-internal measurements, e.g. bundle sizes, which
+   * are not reported as Beam metrics. The histogram keeps a sliding window of the most recent
+   * samples.
+   */
+  public Histogram getFlinkHistogram(MetricName metricName) {
+    return flinkHistogramCache.computeIfAbsent(
+        metricName.getNamespace() + METRIC_KEY_SEPARATOR + metricName.getName(),
+        n -> {
+          Histogram histogram = new DescriptiveStatisticsHistogram(HISTOGRAM_WINDOW_SIZE);
+          runtimeContext.getMetricGroup().histogram(n, histogram);
+          return histogram;
+        });
+  }
+
   @VisibleForTesting
   static String getFlinkMetricNameString(MetricKey metricKey) {
     MetricName metricName = metricKey.metricName();
@@ -202,6 +295,134 @@ public class FlinkMetricContainer {
     }
   }
 
+  /**
+   * Flink {@link Histogram} for Beam histogram metrics. The statistics are estimated from the
+   * bucket counts, assuming that values are spread uniformly within each bucket.
+   *
+   * <p>Values recorded through {@link #update(long)} are kept in buckets of the same type next to
+   * the latest Beam snapshot, so they are not lost when the snapshot is replaced.
+   */
+  public static class FlinkBeamHistogram implements Histogram {
+
+    private HistogramData beamData;
+    private final HistogramData flinkData;
+
+    FlinkBeamHistogram(HistogramData beamData) {
+      this.beamData = beamData;
+      this.flinkData = new HistogramData(beamData.getBucketType());
+    }
+
+    void setBeamData(HistogramData beamData) {
+      this.beamData = beamData;
+    }
+
+    @Override
+    public void update(long value) {
+      flinkData.record(value);
+    }
+
+    @Override
+    public long getCount() {
+      return beamData.getTotalCount() + flinkData.getTotalCount();
+    }
+
+    @Override
+    public HistogramStatistics getStatistics() {
+      return new BucketStatistics(beamData.combine(flinkData));
+    }
+  }
+
+  private static class BucketStatistics extends HistogramStatistics {
+    private final HistogramData data;
+    private final HistogramData.BucketType bucketType;
+
+    BucketStatistics(HistogramData data) {
+      this.data = data;
+      this.bucketType = data.getBucketType();
+    }
+
+    @Override
+    public double getQuantile(double quantile) {
+      return data.getTotalCount() == 0 ? 0 : data.getPercentile(quantile);
+    }
+
+    /** Individual values are not retained by Beam histograms. */
+    @Override
+    public long[] getValues() {
+      return new long[0];
+    }
+
+    @Override
+    public int size() {
+      return (int) Math.min(Integer.MAX_VALUE, data.getTotalCount());
+    }
+
+    @Override
+    public double getMean() {
+      long count = data.getTotalCount();
+      if (count == 0) {
+        return 0;
+      }
+      double sum =
+          data.getBottomBucketCount() * bucketType.getRangeFrom()
+              + data.getTopBucketCount() * bucketType.getRangeTo();
+      for (int i = 0; i < bucketType.getNumBuckets(); i++) {
+        sum += data.getCount(i) * midpoint(i);
+      }
+      return sum / count;
+    }
+
+    @Override
+    public double getStdDev() {
+      long count = data.getTotalCount();
+      if (count < 2) {
+        return 0;
+      }
+      double mean = getMean();
+      double squares =
+          data.getBottomBucketCount() * Math.pow(bucketType.getRangeFrom() - mean, 2)
+              + data.getTopBucketCount() * Math.pow(bucketType.getRangeTo() - mean, 2);
+      for (int i = 0; i < bucketType.getNumBuckets(); i++) {
+        squares += data.getCount(i) * Math.pow(midpoint(i) - mean, 2);
+      }
+      return Math.sqrt(squares / (count - 1));
+    }
+
+    @Override
+    public long getMax() {
+      if (data.getTopBucketCount() > 0) {
+        return (long) bucketType.getRangeTo();
+      }
+      for (int i = bucketType.getNumBuckets() - 1; i >= 0; i--) {
+        if (data.getCount(i) > 0) {
+          return (long) (lowerBound(i) + bucketType.getBucketSize(i));
+        }
+      }
+      return (long) bucketType.getRangeFrom();
+    }
+
+    @Override
+    public long getMin() {
+      if (data.getBottomBucketCount() > 0) {
+        return (long) bucketType.getRangeFrom();
+      }
+      for (int i = 0; i < bucketType.getNumBuckets(); i++) {
+        if (data.getCount(i) > 0) {
+          return (long) lowerBound(i);
+        }
+      }
+      return (long) bucketType.getRangeTo();
+    }
+
+    private double lowerBound(int index) {
+      return bucketType.getRangeFrom() + bucketType.getAccumulatedBucketSize(index);
+    }
+
+    private double midpoint(int index) {
+      return lowerBound(index) + bucketType.getBucketSize(index) / 2;
+    }
+  }
+
   /** Flink {@link Gauge} for {@link GaugeResult}. */
   public static class FlinkGauge implements Gauge<Long> {
 
@@ -0,0 +1,103 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.runners.flink.translation.functions;
+
+import java.util.Collection;
+import java.util.Collections;
+import org.apache.beam.runners.core.GlobalCombineFnRunner;
+import org.apache.beam.runners.core.GlobalCombineFnRunners;
+import org.apache.beam.runners.core.NullSideInputReader;
+import org.apache.beam.runners.core.construction.SerializablePipelineOptions;
+import org.apache.beam.sdk.coders.Coder;
+import org.apache.beam.sdk.coders.KvCoder;
+import org.apache.beam.sdk.io.FileSystems;
+import org.apache.beam.sdk.options.PipelineOptions;
+import org.apache.beam.sdk.transforms.CombineFnBase;
+import org.apache.beam.sdk.transforms.windowing.BoundedWindow;
+import org.apache.beam.sdk.transforms.windowing.TimestampCombiner;
+import org.apache.beam.sdk.util.CoderUtils;
+import org.apache.beam.sdk.util.WindowedValue;
+import org.apache.beam.sdk.values.KV;
+import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.collect.Iterables;
+import org.apache.flink.api.common.functions.RichMapFunction;
+import org.apache.flink.api.java.tuple.Tuple3;
+import org.apache.flink.configuration.Configuration;
+
+/**
+ * First step of a {@link org.apache.beam.sdk.transforms.Combine.PerKey} that is executed in Flink
+ * managed memory. Each element, which must already be exploded into a single window, is turned into
+ * a binary record of the encoded key and window, the output timestamp and the encoded accumulator
+ * holding just this element.
+ *
+ * <p>Records are merged by {@link FlinkMergeAccumulatorsFunction} and the output is extracted by
+ * {@link FlinkExtractOutputFunction}.
+ */
+@SuppressWarnings({
+  "nullness" // TODO(https://issues.apache.org/jira/browse/BEAM-10402)
+})
+public class FlinkEncodeAccumulatorFunction<K, InputT, AccumT, W extends BoundedWindow>
+    extends RichMapFunction<WindowedValue<KV<K, InputT>>, Tuple3<byte[], Long, byte[]>> {
+
+  private final CombineFnBase.GlobalCombineFn<InputT, AccumT, ?> combineFn;
+  private final KvCoder<K, W> keyAndWindowCoder;
+  private final Coder<AccumT> accumulatorCoder;
+  private final TimestampCombiner timestampCombiner;
+  private final SerializablePipelineOptions serializedOptions;
+
+  private transient GlobalCombineFnRunner<InputT, AccumT, ?> combineFnRunner;
+
+  public FlinkEncodeAccumulatorFunction(
+      CombineFnBase.GlobalCombineFn<InputT, AccumT, ?> combineFn,
+      KvCoder<K, W> keyAndWindowCoder,
+      Coder<AccumT> accumulatorCoder,
+      TimestampCombiner timestampCombiner,
+      PipelineOptions pipelineOptions) {
+    this.combineFn = combineFn;
+    this.keyAndWindowCoder = keyAndWindowCoder;
+    this.accumulatorCoder = accumulatorCoder;
+    this.timestampCombiner = timestampCombiner;
+    this.serializedOptions = new SerializablePipelineOptions(pipelineOptions);
+  }
+
+  @Override
+  public void open(Configuration parameters) {
+    // Initialize FileSystems for any coders which may want to use the FileSystem,
+    // see https://issues.apache.org/jira/browse/BEAM-8303
+    FileSystems.setDefaultPipelineOptions(serializedOptions.get());
+    combineFnRunner = GlobalCombineFnRunners.create(combineFn);
+  }
+
+  @Override
+  public Tuple3<byte[], Long, byte[]> map(WindowedValue<KV<K, InputT>> value) throws Exception {
+    PipelineOptions options = serializedOptions.get();
+    @SuppressWarnings("unchecked")
+    W window = (W) Iterables.getOnlyElement(value.getWindows());
+    Collection<W> windows = Collections.singleton(window);
+    AccumT accumulator =
+        combineFnRunner.addInput(
+            combineFnRunner.createAccumulator(options, NullSideInputReader.empty(), windows),
+            value.getValue().getValue(),
+            options,
+            NullSideInputReader.empty(),
+            windows);
+    return new Tuple3<>(
+        CoderUtils.encodeToByteArray(keyAndWindowCoder, KV.of(value.getValue().getKey(), window)),
+        timestampCombiner.assign(window, value.getTimestamp()).getMillis(),
+        CoderUtils.encodeToByteArray(accumulatorCoder, accumulator));
+  }
+}
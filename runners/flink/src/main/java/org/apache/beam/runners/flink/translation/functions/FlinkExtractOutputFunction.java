@@ -0,0 +1,92 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.runners.flink.translation.functions;
+
+import java.util.Collections;
+import org.apache.beam.runners.core.GlobalCombineFnRunner;
+import org.apache.beam.runners.core.GlobalCombineFnRunners;
+import org.apache.beam.runners.core.NullSideInputReader;
+import org.apache.beam.runners.core.construction.SerializablePipelineOptions;
+import org.apache.beam.sdk.coders.Coder;
+import org.apache.beam.sdk.coders.KvCoder;
+import org.apache.beam.sdk.io.FileSystems;
+import org.apache.beam.sdk.options.PipelineOptions;
+import org.apache.beam.sdk.transforms.CombineFnBase;
+import org.apache.beam.sdk.transforms.windowing.BoundedWindow;
+import org.apache.beam.sdk.transforms.windowing.PaneInfo;
+import org.apache.beam.sdk.util.CoderUtils;
+import org.apache.beam.sdk.util.WindowedValue;
+import org.apache.beam.sdk.values.KV;
+import org.apache.flink.api.common.functions.RichMapFunction;
+import org.apache.flink.api.java.tuple.Tuple3;
+import org.apache.flink.configuration.Configuration;
+import org.joda.time.Instant;
+
+/**
+ * Last step of a {@link org.apache.beam.sdk.transforms.Combine.PerKey} that is executed in Flink
+ * managed memory. Decodes the fully merged binary records produced by {@link
+ * FlinkMergeAccumulatorsFunction} and extracts the output of the accumulator.
+ */
+@SuppressWarnings({
+  "nullness" // TODO(https://issues.apache.org/jira/browse/BEAM-10402)
+})
+public class FlinkExtractOutputFunction<K, AccumT, OutputT, W extends BoundedWindow>
+    extends RichMapFunction<Tuple3<byte[], Long, byte[]>, WindowedValue<KV<K, OutputT>>> {
+
+  private final CombineFnBase.GlobalCombineFn<?, AccumT, OutputT> combineFn;
+  private final KvCoder<K, W> keyAndWindowCoder;
+  private final Coder<AccumT> accumulatorCoder;
+  private final SerializablePipelineOptions serializedOptions;
+
+  private transient GlobalCombineFnRunner<?, AccumT, OutputT> combineFnRunner;
+
+  public FlinkExtractOutputFunction(
+      CombineFnBase.GlobalCombineFn<?, AccumT, OutputT> combineFn,
+      KvCoder<K, W> keyAndWindowCoder,
+      Coder<AccumT> accumulatorCoder,
+      PipelineOptions pipelineOptions) {
+    this.combineFn = combineFn;
+    this.keyAndWindowCoder = keyAndWindowCoder;
+    this.accumulatorCoder = accumulatorCoder;
+    this.serializedOptions = new SerializablePipelineOptions(pipelineOptions);
+  }
+
+  @Override
+  public void open(Configuration parameters) {
+    // Initialize FileSystems for any coders which may want to use the FileSystem,
+    // see https://issues.apache.org/jira/browse/BEAM-8303
+    FileSystems.setDefaultPipelineOptions(serializedOptions.get());
+    combineFnRunner = GlobalCombineFnRunners.create(combineFn);
+  }
+
+  @Override
+  public WindowedValue<KV<K, OutputT>> map(Tuple3<byte[], Long, byte[]> value) throws Exception {
+    KV<K, W> keyAndWindow = CoderUtils.decodeFromByteArray(keyAndWindowCoder, value.f0);
+    OutputT output =
+        combineFnRunner.extractOutput(
+            CoderUtils.decodeFromByteArray(accumulatorCoder, value.f2),
+            serializedOptions.get(),
+            NullSideInputReader.empty(),
+            Collections.singleton(keyAndWindow.getValue()));
+    return WindowedValue.of(
+        KV.of(keyAndWindow.getKey(), output),
+        new Instant(value.f1),
+        keyAndWindow.getValue(),
+        PaneInfo.NO_FIRING);
+  }
+}
@@ -0,0 +1,106 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.runners.flink.translation.functions;
+
+import java.util.Collection;
+import java.util.Collections;
+import org.apache.beam.runners.core.GlobalCombineFnRunner;
+import org.apache.beam.runners.core.GlobalCombineFnRunners;
+import org.apache.beam.runners.core.NullSideInputReader;
+import org.apache.beam.runners.core.construction.SerializablePipelineOptions;
+import org.apache.beam.sdk.coders.Coder;
+import org.apache.beam.sdk.coders.KvCoder;
+import org.apache.beam.sdk.io.FileSystems;
+import org.apache.beam.sdk.options.PipelineOptions;
+import org.apache.beam.sdk.transforms.CombineFnBase;
+import org.apache.beam.sdk.transforms.CombineWithContext;
+import org.apache.beam.sdk.transforms.windowing.BoundedWindow;
+import org.apache.beam.sdk.transforms.windowing.TimestampCombiner;
+import org.apache.beam.sdk.util.CoderUtils;
+import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.collect.ImmutableList;
+import org.apache.flink.api.common.functions.RichReduceFunction;
+import org.apache.flink.api.java.tuple.Tuple3;
+import org.apache.flink.configuration.Configuration;
+import org.joda.time.Instant;
+
+/**
+ * Merges two binary records produced by {@link FlinkEncodeAccumulatorFunction} that share the same
+ * encoded key and window.
+ *
+ * <p>Used as a Flink {@link org.apache.flink.api.common.functions.ReduceFunction}, so that the
+ * combine phase keeps the serialized records in a hash table in Flink managed memory, and the final
+ * reduce runs on Flink's sorter, which spills to disk when managed memory runs out. Only the two
+ * accumulators being merged are materialized on the heap.
+ */
+@SuppressWarnings({
+  "nullness" // TODO(https://issues.apache.org/jira/browse/BEAM-10402)
+})
+public class FlinkMergeAccumulatorsFunction<K, AccumT, W extends BoundedWindow>
+    extends RichReduceFunction<Tuple3<byte[], Long, byte[]>> {
+
+  private final CombineFnBase.GlobalCombineFn<?, AccumT, ?> combineFn;
+  private final KvCoder<K, W> keyAndWindowCoder;
+  private final Coder<AccumT> accumulatorCoder;
+  private final TimestampCombiner timestampCombiner;
+  private final SerializablePipelineOptions serializedOptions;
+
+  private transient GlobalCombineFnRunner<?, AccumT, ?> combineFnRunner;
+
+  public FlinkMergeAccumulatorsFunction(
+      CombineFnBase.GlobalCombineFn<?, AccumT, ?> combineFn,
+      KvCoder<K, W> keyAndWindowCoder,
+      Coder<AccumT> accumulatorCoder,
+      TimestampCombiner timestampCombiner,
+      PipelineOptions pipelineOptions) {
+    this.combineFn = combineFn;
+    this.keyAndWindowCoder = keyAndWindowCoder;
+    this.accumulatorCoder = accumulatorCoder;
+    this.timestampCombiner = timestampCombiner;
+    this.serializedOptions = new SerializablePipelineOptions(pipelineOptions);
+  }
+
+  @Override
+  public void open(Configuration parameters) {
+    // Initialize FileSystems for any coders which may want to use the FileSystem,
+    // see https://issues.apache.org/jira/browse/BEAM-8303
+    FileSystems.setDefaultPipelineOptions(serializedOptions.get());
+    combineFnRunner = GlobalCombineFnRunners.create(combineFn);
+  }
+
+  @Override
+  public Tuple3<byte[], Long, byte[]> reduce(
+      Tuple3<byte[], Long, byte[]> first, Tuple3<byte[], Long, byte[]> second) throws Exception {
+    // Only a CombineFnWithContext may observe the window, so avoid decoding it otherwise.
+    Collection<W> windows =
+        combineFn instanceof CombineWithContext.CombineFnWithContext
+            ? Collections.singleton(
+                CoderUtils.decodeFromByteArray(keyAndWindowCoder, first.f0).getValue())
+            : Collections.emptyList();
+    AccumT merged =
+        combineFnRunner.mergeAccumulators(
+            ImmutableList.of(
+                CoderUtils.decodeFromByteArray(accumulatorCoder, first.f2),
+                CoderUtils.decodeFromByteArray(accumulatorCoder, second.f2)),
+            serializedOptions.get(),
+            NullSideInputReader.empty(),
+            windows);
+    first.f1 = timestampCombiner.combine(new Instant(first.f1), new Instant(second.f1)).getMillis();
+    first.f2 = CoderUtils.encodeToByteArray(accumulatorCoder, merged);
+    return first;
+  }
+}
@@ -0,0 +1,115 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.runners.flink.translation.utils;
+
+import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.base.Preconditions;
+
+/**
+ * Adapts the maximum number of elements in a bundle to the observed element rate.
+ *
+ * <p>The bundle size is chosen such that a bundle is expected to take {@code maxBundleTimeMillis}
+ * to process, or less if the next checkpoint is expected earlier. Ending bundles just before the
+ * checkpoint barrier arrives keeps the amount of data that has to be flushed or buffered during a
+ * checkpoint small, while bundles between checkpoints stay large enough to amortize the per-bundle
+ * overhead. The size changes by at most a factor of two per bundle and always stays within {@code
+ * [minBundleSize, maxBundleSize]}.
+ *
+ * <p>This class is not thread-safe. It is only accessed while holding the checkpoint lock.
+ */
+public class AdaptiveBundleSizeController {
+
+  /** Weight of the most recent bundle in the exponentially weighted element rate. */
+  private static final double RATE_SMOOTHING = 0.3;
+
+  private final long minBundleSize;
+  private final long maxBundleSize;
+  private final long maxBundleTimeMillis;
+  private final long checkpointIntervalMillis;
+
+  private long bundleSize;
+  /** Smoothed number of elements processed per millisecond, negative if unknown. */
+  private double elementsPerMilli;
+  /** Time of the last checkpoint, negative if no checkpoint happened yet. */
+  private long lastCheckpointTime;
+
+  /**
+   * Creates a controller. A non-positive {@code checkpointIntervalMillis} disables aligning bundles
+   * with checkpoints.
+   */
+  public AdaptiveBundleSizeController(
+      long minBundleSize,
+      long maxBundleSize,
+      long maxBundleTimeMillis,
+      long checkpointIntervalMillis) {
+    Preconditions.checkArgument(minBundleSize > 0, "Minimum bundle size must be at least 1");
+    Preconditions.checkArgument(
+        minBundleSize <= maxBundleSize,
+        "Minimum bundle size %s must not exceed the maximum bundle size %s",
+        minBundleSize,
+        maxBundleSize);
+    this.minBundleSize = minBundleSize;
+    this.maxBundleSize = maxBundleSize;
+    this.maxBundleTimeMillis = maxBundleTimeMillis;
+    this.checkpointIntervalMillis = checkpointIntervalMillis;
+    this.bundleSize = maxBundleSize;
+    this.elementsPerMilli = -1;
+    this.lastCheckpointTime = -1;
+  }
+
+  /** Returns the number of elements after which the current bundle should be finished. */
+  public long getBundleSize() {
+    return bundleSize;
+  }
+
+  /** Records that a checkpoint was taken at the given processing time. */
+  public void checkpointStarted(long now) {
+    lastCheckpointTime = now;
+  }
+
+  /**
+   * Records a finished bundle and computes the size of the next bundle.
+   *
+   * @param elementCount the number of elements and timers processed in the bundle
+   * @param bundleStartTime the processing time at which the bundle was started
+   * @param now the processing time at which the bundle was finished
+   */
+  public void bundleFinished(long elementCount, long bundleStartTime, long now) {
+    long bundleMillis = Math.max(now - bundleStartTime, 1);
+    double rate = (double) elementCount / bundleMillis;
+    elementsPerMilli =
+        elementsPerMilli < 0
+            ? rate
+            : RATE_SMOOTHING * rate + (1 - RATE_SMOOTHING) * elementsPerMilli;
+
+    long targetMillis = maxBundleTimeMillis;
+    if (checkpointIntervalMillis > 0 && lastCheckpointTime >= 0) {
+      long untilCheckpoint = lastCheckpointTime + checkpointIntervalMillis - now;
+      if (untilCheckpoint > 0) {
+        targetMillis = Math.min(targetMillis, untilCheckpoint);
+      }
+    }
+
+    long target = (long) Math.ceil(elementsPerMilli * targetMillis);
+    target = Math.max(bundleSize / 2, Math.min(target, saturatedDouble(bundleSize)));
+    bundleSize = Math.max(minBundleSize, Math.min(target, maxBundleSize));
+  }
+
+  private static long saturatedDouble(long value) {
+    return value > Long.MAX_VALUE / 2 ? Long.MAX_VALUE : value * 2;
+  }
+}
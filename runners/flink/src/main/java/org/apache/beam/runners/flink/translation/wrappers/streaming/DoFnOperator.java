@@ -59,6 +59,7 @@ import org.apache.beam.runners.flink.FlinkPipelineOptions;
 import org.apache.beam.runners.flink.metrics.DoFnRunnerWithMetricsUpdate;
 import org.apache.beam.runners.flink.metrics.FlinkMetricContainer;
 import org.apache.beam.runners.flink.translation.types.CoderTypeSerializer;
+import org.apache.beam.runners.flink.translation.utils.AdaptiveBundleSizeController;
 import org.apache.beam.runners.flink.translation.utils.CheckpointStats;
 import org.apache.beam.runners.flink.translation.utils.Workarounds;
 import org.apache.beam.runners.flink.translation.wrappers.streaming.stableinput.BufferingDoFnRunner;
@@ -100,6 +101,7 @@ import org.apache.flink.api.common.state.MapState;
 import org.apache.flink.api.common.state.MapStateDescriptor;
 import org.apache.flink.api.common.typeutils.base.StringSerializer;
 import org.apache.flink.api.java.functions.KeySelector;
+import org.apache.flink.metrics.Histogram;
 import org.apache.flink.runtime.state.InternalPriorityQueue;
 import org.apache.flink.runtime.state.KeyedStateBackend;
 import org.apache.flink.runtime.state.OperatorStateBackend;
@@ -191,6 +193,14 @@ public class DoFnOperator<InputT, OutputT>
   private final long maxBundleSize;
   /** Max duration of a bundle. */
   private final long maxBundleTimeMills;
+  /** Min number of elements in a bundle, only used if the bundle size is adaptive. */
+  private final long minBundleSize;
+  /**
+   * If true, the bundle size is adapted between {@link #minBundleSize} and {@link #maxBundleSize}.
+   */
+  private final boolean adaptiveBundleSize;
+  /** Checkpointing interval, used to align bundles with checkpoints. */
+  private final long checkpointingInterval;
 
   private final DoFnSchemaInformation doFnSchemaInformation;
 
@@ -223,6 +233,14 @@ public class DoFnOperator<InputT, OutputT>
   /** Helper class to report the checkpoint duration. */
   private transient @Nullable CheckpointStats checkpointStats;
 
+  /** Histogram of the number of elements per bundle (null if metrics are disabled). */
+  private transient @Nullable Histogram bundleSizeHistogram;
+  /** Histogram of the duration of bundles in milliseconds (null if metrics are disabled). */
+  private transient @Nullable Histogram bundleLatencyHistogram;
+
+  /** Adapts the bundle size (null if the bundle size is fixed). */
+  private transient @Nullable AdaptiveBundleSizeController bundleSizeController;
+
   /** A timer that finishes the current bundle after a fixed amount of time. */
   private transient ScheduledFuture<?> checkFinishBundleTimer;
 
@@ -241,6 +259,10 @@ public class DoFnOperator<InputT, OutputT>
   private transient volatile long elementCount;
   /** Time that the last bundle was finished (to set the timer). */
   private transient volatile long lastFinishBundleTime;
+  /** Time that the current bundle was started. */
+  private transient volatile long bundleStartTime;
+  /** Number of elements after which the current bundle is finished. */
+  private transient volatile long currentMaxBundleSize;
   /** Callback to be executed before the current bundle is started. */
   private transient volatile Runnable preBundleCallback;
   /** Callback to be executed after the current bundle was finished. */
@@ -296,6 +318,14 @@ public class DoFnOperator<InputT, OutputT>
     Preconditions.checkArgument(maxBundleSize > 0, "Bundle size must be at least 1");
     this.maxBundleTimeMills = flinkOptions.getMaxBundleTimeMills();
     Preconditions.checkArgument(maxBundleTimeMills > 0, "Bundle time must be at least 1");
+    this.adaptiveBundleSize = flinkOptions.isAdaptiveBundleSizeEnabled();
+    this.minBundleSize = flinkOptions.getMinBundleSize();
+    if (adaptiveBundleSize) {
+      Preconditions.checkArgument(
+          minBundleSize > 0 && minBundleSize <= maxBundleSize,
+          "Min bundle size must be at least 1 and at most the max bundle size");
+    }
+    this.checkpointingInterval = flinkOptions.getCheckpointingInterval();
     this.doFnSchemaInformation = doFnSchemaInformation;
     this.sideInputMapping = sideInputMapping;
 
@@ -516,6 +546,20 @@ public class DoFnOperator<InputT, OutputT>
                         .getMetricsContainer(stepName)
                         .getDistribution(checkpointMetric));
       }
+      bundleSizeHistogram =
+          flinkMetricContainer.getFlinkHistogram(MetricName.named(stepName, "bundle_size"));
+      bundleLatencyHistogram =
+          flinkMetricContainer.getFlinkHistogram(
+              MetricName.named(stepName, "bundle_latency_millis"));
+    }
+
+    if (adaptiveBundleSize) {
+      bundleSizeController =
+          new AdaptiveBundleSizeController(
+              minBundleSize, maxBundleSize, maxBundleTimeMills, checkpointingInterval);
+      currentMaxBundleSize = bundleSizeController.getBundleSize();
+    } else {
+      currentMaxBundleSize = maxBundleSize;
     }
 
     elementCount = 0L;
@@ -861,6 +905,7 @@ public class DoFnOperator<InputT, OutputT>
       if (preBundleCallback != null) {
         preBundleCallback.run();
       }
+      bundleStartTime = getProcessingTimeService().getCurrentProcessingTime();
       pushbackDoFnRunner.startBundle();
       bundleStarted = true;
     }
@@ -875,7 +920,7 @@ public class DoFnOperator<InputT, OutputT>
     // for more information.
     //noinspection NonAtomicOperationOnVolatileField
     elementCount++;
-    if (elementCount >= maxBundleSize) {
+    if (elementCount >= currentMaxBundleSize) {
       invokeFinishBundle();
     }
   }
@@ -893,8 +938,17 @@ public class DoFnOperator<InputT, OutputT>
       LOG.debug("Finishing bundle.");
       pushbackDoFnRunner.finishBundle();
       LOG.debug("Finished bundle. Element count: {}", elementCount);
+      long now = getProcessingTimeService().getCurrentProcessingTime();
+      if (bundleSizeHistogram != null) {
+        bundleSizeHistogram.update(elementCount);
+        bundleLatencyHistogram.update(now - bundleStartTime);
+      }
+      if (bundleSizeController != null) {
+        bundleSizeController.bundleFinished(elementCount, bundleStartTime, now);
+        currentMaxBundleSize = bundleSizeController.getBundleSize();
+      }
       elementCount = 0L;
-      lastFinishBundleTime = getProcessingTimeService().getCurrentProcessingTime();
+      lastFinishBundleTime = now;
       bundleStarted = false;
       // callback only after current bundle was fully finalized
       // it could start a new bundle, for example resulting from timer processing
@@ -907,6 +961,9 @@ public class DoFnOperator<InputT, OutputT>
 
   @Override
   public void prepareSnapshotPreBarrier(long checkpointId) {
+    if (bundleSizeController != null) {
+      bundleSizeController.checkpointStarted(getProcessingTimeService().getCurrentProcessingTime());
+    }
     if (finishBundleBeforeCheckpointing) {
       // We finish the bundle and flush any pending data.
       // This avoids buffering any data as part of snapshotState() below.
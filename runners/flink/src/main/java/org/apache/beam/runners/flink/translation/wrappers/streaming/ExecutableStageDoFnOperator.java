@@ -271,6 +271,9 @@ public class ExecutableStageDoFnOperator<InputT, OutputT> extends DoFnOperator<I
 
     // This will call {@code createWrappingDoFnRunner} which needs the above dependencies.
     super.open();
+    if (flinkMetricContainer != null) {
+      flinkMetricContainer.registerSdkWorkerMetrics(stageContext);
+    }
   }
 
   @Override
@@ -93,11 +93,14 @@ public class FlinkPipelineOptionsTest {
     assertThat(options.getStateBackendStoragePath(), is(nullValue()));
     assertThat(options.getMaxBundleSize(), is(1000L));
     assertThat(options.getMaxBundleTimeMills(), is(1000L));
+    assertThat(options.isAdaptiveBundleSizeEnabled(), is(false));
+    assertThat(options.getMinBundleSize(), is(1L));
     assertThat(options.getExecutionModeForBatch(), is(ExecutionMode.PIPELINED.name()));
     assertThat(options.getSavepointPath(), is(nullValue()));
     assertThat(options.getAllowNonRestoredState(), is(false));
     assertThat(options.getDisableMetrics(), is(false));
     assertThat(options.getFasterCopy(), is(false));
+    assertThat(options.isManagedMemoryCombineEnabled(), is(false));
   }
 
   @Test(expected = Exception.class)
@@ -0,0 +1,121 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.runners.flink.batch;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.beam.runners.flink.FlinkPipelineOptions;
+import org.apache.beam.runners.flink.FlinkTestPipeline;
+import org.apache.beam.sdk.Pipeline;
+import org.apache.beam.sdk.testing.PAssert;
+import org.apache.beam.sdk.transforms.Combine;
+import org.apache.beam.sdk.transforms.Count;
+import org.apache.beam.sdk.transforms.Create;
+import org.apache.beam.sdk.transforms.DoFn;
+import org.apache.beam.sdk.transforms.ParDo;
+import org.apache.beam.sdk.transforms.Sum;
+import org.apache.beam.sdk.transforms.windowing.FixedWindows;
+import org.apache.beam.sdk.transforms.windowing.IntervalWindow;
+import org.apache.beam.sdk.transforms.windowing.SlidingWindows;
+import org.apache.beam.sdk.transforms.windowing.TimestampCombiner;
+import org.apache.beam.sdk.transforms.windowing.Window;
+import org.apache.beam.sdk.values.KV;
+import org.apache.beam.sdk.values.PCollection;
+import org.apache.beam.sdk.values.TimestampedValue;
+import org.joda.time.Duration;
+import org.joda.time.Instant;
+import org.junit.Test;
+
+/** Tests for batch combines executed in Flink managed memory. */
+public class ManagedMemoryCombineTest {
+
+  private static Pipeline createPipeline() {
+    Pipeline p = FlinkTestPipeline.createForBatch();
+    p.getOptions().as(FlinkPipelineOptions.class).setManagedMemoryCombineEnabled(true);
+    return p;
+  }
+
+  @Test
+  public void testCountPerKey() {
+    Pipeline p = createPipeline();
+    List<String> input = new ArrayList<>();
+    List<KV<String, Long>> expected = new ArrayList<>();
+    for (int key = 0; key < 1000; key++) {
+      for (int i = 0; i <= key % 7; i++) {
+        input.add("key" + key);
+      }
+      expected.add(KV.of("key" + key, (long) (key % 7 + 1)));
+    }
+    PCollection<KV<String, Long>> counts = p.apply(Create.of(input)).apply(Count.perElement());
+    PAssert.that(counts).containsInAnyOrder(expected);
+    p.run().waitUntilFinish();
+  }
+
+  @Test
+  public void testSlidingWindowsWithEarliestTimestamp() {
+    Pipeline p = createPipeline();
+    PCollection<String> sums =
+        p.apply(
+                Create.timestamped(
+                    TimestampedValue.of(KV.of("a", 1), new Instant(1)),
+                    TimestampedValue.of(KV.of("a", 2), new Instant(7)),
+                    TimestampedValue.of(KV.of("b", 3), new Instant(12))))
+            .apply(
+                Window.<KV<String, Integer>>into(
+                        SlidingWindows.of(Duration.millis(10)).every(Duration.millis(5)))
+                    .withTimestampCombiner(TimestampCombiner.EARLIEST))
+            .apply(Combine.perKey(Sum.ofIntegers()))
+            .apply(ParDo.of(new FormatWithWindowFn()));
+    PAssert.that(sums)
+        .containsInAnyOrder("a=1@-5/1", "a=3@0/1", "a=2@5/7", "b=3@5/12", "b=3@10/12");
+    p.run().waitUntilFinish();
+  }
+
+  @Test
+  public void testFixedWindowsWithEndOfWindowTimestamp() {
+    Pipeline p = createPipeline();
+    PCollection<String> sums =
+        p.apply(
+                Create.timestamped(
+                    TimestampedValue.of(KV.of("a", 1), new Instant(1)),
+                    TimestampedValue.of(KV.of("a", 2), new Instant(7)),
+                    TimestampedValue.of(KV.of("a", 4), new Instant(12))))
+            .apply(Window.into(FixedWindows.of(Duration.millis(10))))
+            .apply(Combine.perKey(Sum.ofIntegers()))
+            .apply(ParDo.of(new FormatWithWindowFn()));
+    PAssert.that(sums).containsInAnyOrder("a=3@0/9", "a=4@10/19");
+    p.run().waitUntilFinish();
+  }
+
+  private static class FormatWithWindowFn extends DoFn<KV<String, Integer>, String> {
+    @ProcessElement
+    public void processElement(
+        @Element KV<String, Integer> element,
+        @Timestamp Instant timestamp,
+        IntervalWindow window,
+        OutputReceiver<String> out) {
+      out.output(
+          String.format(
+              "%s=%d@%d/%d",
+              element.getKey(),
+              element.getValue(),
+              window.start().getMillis(),
+              timestamp.getMillis()));
+    }
+  }
+}
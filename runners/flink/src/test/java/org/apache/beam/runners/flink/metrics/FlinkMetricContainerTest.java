@@ -19,15 +19,20 @@ package org.apache.beam.runners.flink.metrics;
 
 import static org.apache.beam.runners.flink.metrics.FlinkMetricContainer.getFlinkMetricNameString;
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.junit.Assert.assertNotNull;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Matchers.anyObject;
 import static org.mockito.Matchers.argThat;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import org.apache.beam.model.pipeline.v1.MetricsApi.MonitoringInfo;
 import org.apache.beam.runners.core.metrics.CounterCell;
 import org.apache.beam.runners.core.metrics.DistributionCell;
@@ -38,6 +43,8 @@ import org.apache.beam.runners.core.metrics.MonitoringInfoConstants;
 import org.apache.beam.runners.core.metrics.MonitoringInfoMetricName;
 import org.apache.beam.runners.core.metrics.SimpleMonitoringInfoBuilder;
 import org.apache.beam.runners.flink.metrics.FlinkMetricContainer.FlinkDistributionGauge;
+import org.apache.beam.runners.fnexecution.control.DefaultJobBundleFactory.SdkWorkerUtilization;
+import org.apache.beam.runners.fnexecution.control.ExecutableStageContext;
 import org.apache.beam.sdk.metrics.Counter;
 import org.apache.beam.sdk.metrics.Distribution;
 import org.apache.beam.sdk.metrics.DistributionResult;
@@ -48,12 +55,15 @@ import org.apache.beam.sdk.metrics.MetricName;
 import org.apache.beam.sdk.metrics.MetricsContainer;
 import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.collect.ImmutableList;
 import org.apache.flink.api.common.functions.RuntimeContext;
+import org.apache.flink.metrics.Histogram;
 import org.apache.flink.metrics.MetricGroup;
 import org.apache.flink.metrics.SimpleCounter;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.ArgumentMatcher;
 import org.mockito.Mock;
+import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
 
 /** Tests for {@link FlinkMetricContainer}. */
@@ -116,6 +126,19 @@ public class FlinkMetricContainerTest {
     assertThat(flinkGauge.getValue(), is(42L));
   }
 
+  @Test
+  public void testFlinkHistogram() {
+    MetricName metricName = MetricName.named("namespace", "name");
+    Histogram histogram = container.getFlinkHistogram(metricName);
+    histogram.update(1);
+    histogram.update(3);
+
+    assertThat(container.getFlinkHistogram(metricName), is(sameInstance(histogram)));
+    verify(metricGroup, times(1)).histogram("namespace.name", histogram);
+    assertThat(histogram.getCount(), is(2L));
+    assertThat(histogram.getStatistics().getMax(), is(3L));
+  }
+
   @Test
   public void testMonitoringInfoUpdate() {
     SimpleCounter userCounter = new SimpleCounter();
@@ -271,4 +294,42 @@ public class FlinkMetricContainerTest {
     assertThat(flinkGauge.getValue().getSum(), is(20L));
     assertThat(flinkGauge.getValue().getMean(), is(5.0));
   }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testSdkWorkerMetrics() {
+    MetricGroup sdkWorkerGroup = Mockito.mock(MetricGroup.class);
+    when(metricGroup.addGroup(FlinkMetricContainer.SDK_WORKER_METRIC_GROUP))
+        .thenReturn(sdkWorkerGroup);
+    List<SdkWorkerUtilization> utilization =
+        ImmutableList.of(mockUtilization(2, 10, 300, 1000), mockUtilization(0, 5, 0, 1000));
+    ExecutableStageContext stageContext = Mockito.mock(ExecutableStageContext.class);
+    when(stageContext.getSdkWorkerUtilization()).thenReturn(utilization);
+
+    container.registerSdkWorkerMetrics(stageContext);
+
+    ArgumentCaptor<String> names = ArgumentCaptor.forClass(String.class);
+    ArgumentCaptor<org.apache.flink.metrics.Gauge> gauges =
+        ArgumentCaptor.forClass(org.apache.flink.metrics.Gauge.class);
+    verify(sdkWorkerGroup, times(5)).gauge(names.capture(), gauges.capture());
+    Map<String, Object> values = new HashMap<>();
+    for (int i = 0; i < names.getAllValues().size(); i++) {
+      values.put(names.getAllValues().get(i), gauges.getAllValues().get(i).getValue());
+    }
+    assertThat(values.get("workers"), is(2));
+    assertThat(values.get("inFlightBundles"), is(2));
+    assertThat(values.get("maxInFlightBundles"), is(2));
+    assertThat(values.get("completedBundles"), is(15L));
+    assertThat(values.get("busyRatio"), is(0.15));
+  }
+
+  private static SdkWorkerUtilization mockUtilization(
+      int inFlightBundles, long completedBundles, long busyMillis, long uptimeMillis) {
+    SdkWorkerUtilization utilization = Mockito.mock(SdkWorkerUtilization.class);
+    when(utilization.getInFlightBundles()).thenReturn(inFlightBundles);
+    when(utilization.getCompletedBundles()).thenReturn(completedBundles);
+    when(utilization.getBusyMillis()).thenReturn(busyMillis);
+    when(utilization.getUptimeMillis()).thenReturn(uptimeMillis);
+    return utilization;
+  }
 }
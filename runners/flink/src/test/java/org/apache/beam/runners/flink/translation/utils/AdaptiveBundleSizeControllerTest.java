@@ -0,0 +1,89 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.runners.flink.translation.utils;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link AdaptiveBundleSizeController}. */
+@RunWith(JUnit4.class)
+public class AdaptiveBundleSizeControllerTest {
+
+  @Test
+  public void testStartsWithMaxBundleSize() {
+    AdaptiveBundleSizeController controller = new AdaptiveBundleSizeController(10, 1000, 1000, -1);
+    assertThat(controller.getBundleSize(), is(1000L));
+  }
+
+  @Test
+  public void testShrinksByAtMostHalfAndNotBelowMin() {
+    AdaptiveBundleSizeController controller = new AdaptiveBundleSizeController(10, 1000, 100, -1);
+    // 1 element per 10 milliseconds, so a bundle of 100 milliseconds should hold 10 elements.
+    controller.bundleFinished(100, 0, 1000);
+    assertThat(controller.getBundleSize(), is(500L));
+    controller.bundleFinished(100, 1000, 2000);
+    assertThat(controller.getBundleSize(), is(250L));
+    for (int i = 0; i < 10; i++) {
+      controller.bundleFinished(10, 0, 100);
+    }
+    assertThat(controller.getBundleSize(), is(10L));
+  }
+
+  @Test
+  public void testGrowsByAtMostDoubleAndNotAboveMax() {
+    AdaptiveBundleSizeController controller = new AdaptiveBundleSizeController(1, 1000, 100, -1);
+    for (int i = 0; i < 10; i++) {
+      controller.bundleFinished(1, 0, 100);
+    }
+    assertThat(controller.getBundleSize(), is(1L));
+    // 10 elements per millisecond.
+    controller.bundleFinished(1000, 0, 100);
+    assertThat(controller.getBundleSize(), is(2L));
+    controller.bundleFinished(1000, 0, 100);
+    assertThat(controller.getBundleSize(), is(4L));
+    for (int i = 0; i < 20; i++) {
+      controller.bundleFinished(1000, 0, 100);
+    }
+    assertThat(controller.getBundleSize(), is(1000L));
+  }
+
+  @Test
+  public void testFinishesBundlesBeforeNextCheckpoint() {
+    AdaptiveBundleSizeController controller = new AdaptiveBundleSizeController(1, 2000, 1000, 500);
+    // 1 element per millisecond, bundles would hold 1000 elements without checkpoints.
+    controller.bundleFinished(1000, 0, 1000);
+    assertThat(controller.getBundleSize(), is(1000L));
+
+    // The next checkpoint is expected 200 milliseconds after the bundle finished.
+    controller.checkpointStarted(1000);
+    controller.bundleFinished(300, 1000, 1300);
+    assertThat(controller.getBundleSize(), is(500L));
+    controller.bundleFinished(50, 1300, 1350);
+    assertThat(controller.getBundleSize(), is(250L));
+    controller.bundleFinished(100, 1350, 1450);
+    assertThat(controller.getBundleSize(), is(125L));
+
+    // Once the checkpoint is overdue, bundles are sized by the bundle time again.
+    controller.bundleFinished(100, 1450, 1550);
+    assertThat(controller.getBundleSize(), is(250L));
+  }
+}
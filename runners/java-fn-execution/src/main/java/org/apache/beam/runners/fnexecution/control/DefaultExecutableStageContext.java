@@ -17,7 +17,10 @@
  */
 package org.apache.beam.runners.fnexecution.control;
 
+import java.util.Collections;
+import java.util.List;
 import org.apache.beam.runners.core.construction.graph.ExecutableStage;
+import org.apache.beam.runners.fnexecution.control.DefaultJobBundleFactory.SdkWorkerUtilization;
 import org.apache.beam.runners.fnexecution.provisioning.JobInfo;
 
 /** Implementation of a {@link ExecutableStageContext}. */
@@ -38,6 +41,13 @@ public class DefaultExecutableStageContext implements ExecutableStageContext, Au
     return jobBundleFactory.forStage(executableStage);
   }
 
+  @Override
+  public List<SdkWorkerUtilization> getSdkWorkerUtilization() {
+    return jobBundleFactory instanceof DefaultJobBundleFactory
+        ? ((DefaultJobBundleFactory) jobBundleFactory).getSdkWorkerUtilization()
+        : Collections.emptyList();
+  }
+
   @Override
   public void close() throws Exception {
     jobBundleFactory.close();
@@ -20,6 +20,7 @@ package org.apache.beam.runners.fnexecution.control;
 import com.google.auto.value.AutoValue;
 import java.io.IOException;
 import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ExecutorService;
@@ -28,6 +29,7 @@ import java.util.concurrent.LinkedBlockingDeque;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 import javax.annotation.concurrent.ThreadSafe;
@@ -68,6 +70,7 @@ import org.apache.beam.sdk.function.ThrowingFunction;
 import org.apache.beam.sdk.options.ExperimentalOptions;
 import org.apache.beam.sdk.options.PipelineOptions;
 import org.apache.beam.sdk.options.PortablePipelineOptions;
+import org.apache.beam.sdk.options.PortablePipelineOptions.SdkWorkerSelection;
 import org.apache.beam.sdk.util.NoopLock;
 import org.apache.beam.sdk.values.KV;
 import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.annotations.VisibleForTesting;
@@ -110,6 +113,8 @@ public class DefaultJobBundleFactory implements JobBundleFactory {
   private final Semaphore availableCachesSemaphore;
   private final LinkedBlockingDeque<EnvironmentCacheAndLock> availableCaches;
   private final boolean loadBalanceBundles;
+  private final boolean selectLeastOutstandingBundles;
+  private final int stageAffinity;
   /** Clients which were evicted due to environment expiration but still had pending references. */
   private final Set<WrappedSdkHarnessClient> evictedActiveClients;
 
@@ -145,6 +150,8 @@ public class DefaultJobBundleFactory implements JobBundleFactory {
     this.stageIdGenerator = () -> factoryId + "-" + stageIdSuffixGenerator.getId();
     this.environmentExpirationMillis = getEnvironmentExpirationMillis(jobInfo);
     this.loadBalanceBundles = shouldLoadBalanceBundles(jobInfo);
+    this.selectLeastOutstandingBundles = shouldSelectLeastOutstandingBundles(jobInfo);
+    this.stageAffinity = getStageAffinity(jobInfo);
     this.environmentCaches =
         createEnvironmentCaches(
             serverFactory -> createServerInfo(jobInfo, serverFactory),
@@ -166,6 +173,8 @@ public class DefaultJobBundleFactory implements JobBundleFactory {
     this.stageIdGenerator = stageIdGenerator;
     this.environmentExpirationMillis = getEnvironmentExpirationMillis(jobInfo);
     this.loadBalanceBundles = shouldLoadBalanceBundles(jobInfo);
+    this.selectLeastOutstandingBundles = shouldSelectLeastOutstandingBundles(jobInfo);
+    this.stageAffinity = getStageAffinity(jobInfo);
     this.environmentCaches =
         createEnvironmentCaches(serverFactory -> serverInfo, getMaxEnvironmentClients(jobInfo));
     this.availableCachesSemaphore = new Semaphore(environmentCaches.size(), true);
@@ -249,7 +258,9 @@ public class DefaultJobBundleFactory implements JobBundleFactory {
                           clientPool,
                           stageIdGenerator);
                   return WrappedSdkHarnessClient.wrapping(
-                      environmentFactory.createEnvironment(environment, workerId), serverInfo);
+                      workerId,
+                      environmentFactory.createEnvironment(environment, workerId),
+                      serverInfo);
                 }
               });
 
@@ -298,11 +309,58 @@ public class DefaultJobBundleFactory implements JobBundleFactory {
     return loadBalanceBundles;
   }
 
+  private static boolean shouldSelectLeastOutstandingBundles(JobInfo jobInfo) {
+    PortablePipelineOptions pipelineOptions =
+        PipelineOptionsTranslation.fromProto(jobInfo.pipelineOptions())
+            .as(PortablePipelineOptions.class);
+    boolean selectLeastOutstandingBundles =
+        pipelineOptions.getSdkWorkerSelection() == SdkWorkerSelection.LEAST_OUTSTANDING_BUNDLES;
+    if (selectLeastOutstandingBundles) {
+      Preconditions.checkArgument(
+          !pipelineOptions.getLoadBalanceBundles(),
+          "loadBalanceBundles can not be combined with the %s SDK worker selection",
+          SdkWorkerSelection.LEAST_OUTSTANDING_BUNDLES);
+      int stateCacheSize =
+          Integer.parseInt(
+              MoreObjects.firstNonNull(
+                  ExperimentalOptions.getExperimentValue(
+                      pipelineOptions, ExperimentalOptions.STATE_CACHE_SIZE),
+                  "0"));
+      Preconditions.checkArgument(
+          stateCacheSize == 0,
+          "%s must be 0 when using the %s SDK worker selection",
+          ExperimentalOptions.STATE_CACHE_SIZE,
+          SdkWorkerSelection.LEAST_OUTSTANDING_BUNDLES);
+    }
+    return selectLeastOutstandingBundles;
+  }
+
+  private static int getStageAffinity(JobInfo jobInfo) {
+    PipelineOptions pipelineOptions =
+        PipelineOptionsTranslation.fromProto(jobInfo.pipelineOptions());
+    return pipelineOptions.as(PortablePipelineOptions.class).getSdkWorkerStageAffinity();
+  }
+
   @Override
   public StageBundleFactory forStage(ExecutableStage executableStage) {
     return new SimpleStageBundleFactory(executableStage);
   }
 
+  /**
+   * Returns a snapshot of the utilization of all SDK workers which are currently managed by this
+   * factory. Runners poll this through {@link ExecutableStageContext#getSdkWorkerUtilization()} to
+   * report worker metrics.
+   */
+  public List<SdkWorkerUtilization> getSdkWorkerUtilization() {
+    ImmutableList.Builder<SdkWorkerUtilization> utilization = ImmutableList.builder();
+    for (EnvironmentCacheAndLock environmentCache : environmentCaches) {
+      for (WrappedSdkHarnessClient client : environmentCache.cache.asMap().values()) {
+        utilization.add(client.getUtilization());
+      }
+    }
+    return utilization.build();
+  }
+
   @Override
   public synchronized void close() throws Exception {
     if (closed) {
@@ -437,6 +495,9 @@ public class DefaultJobBundleFactory implements JobBundleFactory {
 
     private final ExecutableStage executableStage;
     private final int environmentIndex;
+    /** The index of the cache which served the previous bundle of this stage. */
+    private volatile int affinityIndex;
+
     private final Map<WrappedSdkHarnessClient, PreparedClient> preparedClients =
         new IdentityHashMap<>();
     private volatile PreparedClient currentClient;
@@ -444,6 +505,7 @@ public class DefaultJobBundleFactory implements JobBundleFactory {
     private SimpleStageBundleFactory(ExecutableStage executableStage) {
       this.executableStage = executableStage;
       this.environmentIndex = stageBundleFactoryCount.getAndIncrement() % environmentCaches.size();
+      this.affinityIndex = environmentIndex;
       WrappedSdkHarnessClient client =
           environmentCaches
               .get(environmentIndex)
@@ -467,11 +529,15 @@ public class DefaultJobBundleFactory implements JobBundleFactory {
 
       final EnvironmentCacheAndLock currentCache;
       final WrappedSdkHarnessClient client;
-      if (loadBalanceBundles) {
-        // The semaphore is used to ensure fairness, i.e. first stop first go.
-        availableCachesSemaphore.acquire();
-        // The blocking queue of caches for serving multiple bundles concurrently.
-        currentCache = availableCaches.take();
+      if (loadBalanceBundles || selectLeastOutstandingBundles) {
+        if (loadBalanceBundles) {
+          // The semaphore is used to ensure fairness, i.e. first stop first go.
+          availableCachesSemaphore.acquire();
+          // The blocking queue of caches for serving multiple bundles concurrently.
+          currentCache = availableCaches.take();
+        } else {
+          currentCache = selectLeastOutstandingCache();
+        }
         // Lock because the environment expiration can remove the ref for the client
         // which would close the underlying environment before we can ref it.
         try {
@@ -523,6 +589,9 @@ public class DefaultJobBundleFactory implements JobBundleFactory {
               progressHandler,
               finalizationHandler,
               checkpointHandler);
+      // Only count the bundle once it was started, so that failing to start it does not leave the
+      // worker looking busy.
+      final long bundleStartNanos = client.startBundle();
       return new RemoteBundle() {
         @Override
         public String getId() {
@@ -554,6 +623,7 @@ public class DefaultJobBundleFactory implements JobBundleFactory {
           try {
             bundle.close();
           } finally {
+            client.finishBundle(bundleStartNanos);
             client.unref();
             if (loadBalanceBundles) {
               availableCaches.offer(currentCache);
@@ -564,6 +634,33 @@ public class DefaultJobBundleFactory implements JobBundleFactory {
       };
     }
 
+    /**
+     * Returns the cache whose SDK worker has the fewest bundles in flight. Ties are broken in favor
+     * of the worker this stage was assigned to initially so that stages spread across workers. If
+     * stage affinity is enabled, the worker which processed the previous bundle of this stage is
+     * kept as long as it is at most {@code stageAffinity} bundles busier than the least loaded one.
+     */
+    private EnvironmentCacheAndLock selectLeastOutstandingCache() {
+      Environment environment = executableStage.getEnvironment();
+      int leastLoadedIndex = environmentIndex;
+      int leastLoad = Integer.MAX_VALUE;
+      for (int i = 0; i < environmentCaches.size(); i++) {
+        int index = (environmentIndex + i) % environmentCaches.size();
+        int load = getInFlightBundles(environmentCaches.get(index), environment);
+        if (load < leastLoad) {
+          leastLoad = load;
+          leastLoadedIndex = index;
+        }
+      }
+      if (stageAffinity >= 0
+          && getInFlightBundles(environmentCaches.get(affinityIndex), environment)
+              <= leastLoad + stageAffinity) {
+        return environmentCaches.get(affinityIndex);
+      }
+      affinityIndex = leastLoadedIndex;
+      return environmentCaches.get(leastLoadedIndex);
+    }
+
     @Override
     public ExecutableProcessBundleDescriptor getProcessBundleDescriptor() {
       return currentClient.processBundleDescriptor;
@@ -581,6 +678,42 @@ public class DefaultJobBundleFactory implements JobBundleFactory {
     }
   }
 
+  private static int getInFlightBundles(
+      EnvironmentCacheAndLock environmentCache, Environment environment) {
+    // Workers which have not been started yet are treated as idle.
+    WrappedSdkHarnessClient client = environmentCache.cache.getIfPresent(environment);
+    return client == null ? 0 : client.inFlightBundles.get();
+  }
+
+  /** A snapshot of the utilization of a single SDK worker. */
+  @AutoValue
+  public abstract static class SdkWorkerUtilization {
+    /** The id of the SDK worker. */
+    public abstract String getWorkerId();
+
+    /** The number of bundles which are currently being processed by the SDK worker. */
+    public abstract int getInFlightBundles();
+
+    /** The number of bundles which the SDK worker has completed. */
+    public abstract long getCompletedBundles();
+
+    /** The accumulated processing time of all completed bundles in milliseconds. */
+    public abstract long getBusyMillis();
+
+    /** The time in milliseconds since the SDK worker was started. */
+    public abstract long getUptimeMillis();
+
+    static SdkWorkerUtilization create(
+        String workerId,
+        int inFlightBundles,
+        long completedBundles,
+        long busyMillis,
+        long uptimeMillis) {
+      return new AutoValue_DefaultJobBundleFactory_SdkWorkerUtilization(
+          workerId, inFlightBundles, completedBundles, busyMillis, uptimeMillis);
+    }
+  }
+
   /**
    * Holder for an {@link SdkHarnessClient} along with its associated state and data servers. As of
    * now, there is a 1:1 relationship between data services and harness clients. The servers are
@@ -588,22 +721,32 @@ public class DefaultJobBundleFactory implements JobBundleFactory {
    */
   protected static class WrappedSdkHarnessClient {
 
+    private final String workerId;
     private final RemoteEnvironment environment;
     private final SdkHarnessClient client;
     private final ServerInfo serverInfo;
     private final AtomicInteger bundleRefCount = new AtomicInteger();
+    private final AtomicInteger inFlightBundles = new AtomicInteger();
+    private final AtomicLong completedBundles = new AtomicLong();
+    private final AtomicLong busyNanos = new AtomicLong();
+    private final long startNanos = System.nanoTime();
 
     private boolean closed;
 
-    static WrappedSdkHarnessClient wrapping(RemoteEnvironment environment, ServerInfo serverInfo) {
+    static WrappedSdkHarnessClient wrapping(
+        String workerId, RemoteEnvironment environment, ServerInfo serverInfo) {
       SdkHarnessClient client =
           SdkHarnessClient.usingFnApiClient(
               environment.getInstructionRequestHandler(), serverInfo.getDataServer().getService());
-      return new WrappedSdkHarnessClient(environment, client, serverInfo);
+      return new WrappedSdkHarnessClient(workerId, environment, client, serverInfo);
     }
 
     private WrappedSdkHarnessClient(
-        RemoteEnvironment environment, SdkHarnessClient client, ServerInfo serverInfo) {
+        String workerId,
+        RemoteEnvironment environment,
+        SdkHarnessClient client,
+        ServerInfo serverInfo) {
+      this.workerId = workerId;
       this.environment = environment;
       this.client = client;
       this.serverInfo = serverInfo;
@@ -618,6 +761,27 @@ public class DefaultJobBundleFactory implements JobBundleFactory {
       return serverInfo;
     }
 
+    /** Marks the start of a bundle and returns its start time for {@link #finishBundle(long)}. */
+    private long startBundle() {
+      inFlightBundles.incrementAndGet();
+      return System.nanoTime();
+    }
+
+    private void finishBundle(long bundleStartNanos) {
+      busyNanos.addAndGet(System.nanoTime() - bundleStartNanos);
+      completedBundles.incrementAndGet();
+      inFlightBundles.decrementAndGet();
+    }
+
+    SdkWorkerUtilization getUtilization() {
+      return SdkWorkerUtilization.create(
+          workerId,
+          inFlightBundles.get(),
+          completedBundles.get(),
+          TimeUnit.NANOSECONDS.toMillis(busyNanos.get()),
+          TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+    }
+
     public synchronized void close() {
       if (closed) {
         return;
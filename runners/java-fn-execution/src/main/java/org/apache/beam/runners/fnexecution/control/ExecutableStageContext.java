@@ -18,7 +18,10 @@
 package org.apache.beam.runners.fnexecution.control;
 
 import java.io.Serializable;
+import java.util.Collections;
+import java.util.List;
 import org.apache.beam.runners.core.construction.graph.ExecutableStage;
+import org.apache.beam.runners.fnexecution.control.DefaultJobBundleFactory.SdkWorkerUtilization;
 import org.apache.beam.runners.fnexecution.provisioning.JobInfo;
 
 /** The context required in order to execute {@link ExecutableStage stages}. */
@@ -35,4 +38,12 @@ public interface ExecutableStageContext extends AutoCloseable {
   }
 
   StageBundleFactory getStageBundleFactory(ExecutableStage executableStage);
+
+  /**
+   * Returns a snapshot of the utilization of the SDK workers which execute the stages of this
+   * context, or an empty list if it is not tracked.
+   */
+  default List<SdkWorkerUtilization> getSdkWorkerUtilization() {
+    return Collections.emptyList();
+  }
 }
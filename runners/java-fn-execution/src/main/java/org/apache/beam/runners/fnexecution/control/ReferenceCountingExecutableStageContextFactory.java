@@ -18,6 +18,7 @@
 package org.apache.beam.runners.fnexecution.control;
 
 import java.io.Serializable;
+import java.util.List;
 import java.util.Objects;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
@@ -26,6 +27,7 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import org.apache.beam.runners.core.construction.PipelineOptionsTranslation;
 import org.apache.beam.runners.core.construction.graph.ExecutableStage;
+import org.apache.beam.runners.fnexecution.control.DefaultJobBundleFactory.SdkWorkerUtilization;
 import org.apache.beam.runners.fnexecution.provisioning.JobInfo;
 import org.apache.beam.sdk.function.ThrowingFunction;
 import org.apache.beam.sdk.options.PipelineOptions;
@@ -202,6 +204,11 @@ public class ReferenceCountingExecutableStageContextFactory
       return context.getStageBundleFactory(executableStage);
     }
 
+    @Override
+    public List<SdkWorkerUtilization> getSdkWorkerUtilization() {
+      return context.getSdkWorkerUtilization();
+    }
+
     @Override
     public void close() {
       // Just schedule the context as we want to reuse it if possible.
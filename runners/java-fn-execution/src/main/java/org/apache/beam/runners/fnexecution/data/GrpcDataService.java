@@ -18,6 +18,8 @@
 package org.apache.beam.runners.fnexecution.data;
 
 import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.LinkedBlockingQueue;
@@ -29,6 +31,7 @@ import org.apache.beam.sdk.coders.Coder;
 import org.apache.beam.sdk.fn.data.BeamFnDataBufferingOutboundObserver;
 import org.apache.beam.sdk.fn.data.BeamFnDataGrpcMultiplexer;
 import org.apache.beam.sdk.fn.data.BeamFnDataInboundObserver;
+import org.apache.beam.sdk.fn.data.BeamFnDataOutboundAggregator;
 import org.apache.beam.sdk.fn.data.CloseableFnDataReceiver;
 import org.apache.beam.sdk.fn.data.DecodingFnDataReceiver;
 import org.apache.beam.sdk.fn.data.FnDataReceiver;
@@ -77,6 +80,7 @@ public class GrpcDataService extends BeamFnDataGrpc.BeamFnDataImplBase
   private final PipelineOptions options;
   private final ExecutorService executor;
   private final OutboundObserverFactory outboundObserverFactory;
+  private final ConcurrentMap<String, BeamFnDataOutboundAggregator> outboundAggregators;
 
   private GrpcDataService(
       PipelineOptions options,
@@ -87,6 +91,7 @@ public class GrpcDataService extends BeamFnDataGrpc.BeamFnDataImplBase
     this.options = options;
     this.executor = executor;
     this.outboundObserverFactory = outboundObserverFactory;
+    this.outboundAggregators = new ConcurrentHashMap<>();
   }
 
   /** @deprecated This constructor is for migrating Dataflow purpose only. */
@@ -97,6 +102,7 @@ public class GrpcDataService extends BeamFnDataGrpc.BeamFnDataImplBase
     this.options = null;
     this.executor = null;
     this.outboundObserverFactory = null;
+    this.outboundAggregators = null;
   }
 
   @Override
@@ -180,11 +186,13 @@ public class GrpcDataService extends BeamFnDataGrpc.BeamFnDataImplBase
         outputLocation.getInstructionId(),
         outputLocation.getTransformId());
     try {
+      StreamObserver<BeamFnApi.Elements> outboundObserver =
+          connectedClient.get(3, TimeUnit.MINUTES).getOutboundObserver();
+      if (BeamFnDataOutboundAggregator.isEnabled(options)) {
+        return sendAggregated(outputLocation, coder, outboundObserver);
+      }
       return BeamFnDataBufferingOutboundObserver.forLocation(
-          options,
-          outputLocation,
-          coder,
-          connectedClient.get(3, TimeUnit.MINUTES).getOutboundObserver());
+          options, outputLocation, coder, outboundObserver);
     } catch (InterruptedException e) {
       Thread.currentThread().interrupt();
       throw new RuntimeException(e);
@@ -194,4 +202,26 @@ public class GrpcDataService extends BeamFnDataGrpc.BeamFnDataImplBase
       throw new RuntimeException(e);
     }
   }
+
+  private <T> CloseableFnDataReceiver<T> sendAggregated(
+      LogicalEndpoint outputLocation,
+      Coder<T> coder,
+      StreamObserver<BeamFnApi.Elements> outboundObserver) {
+    String instructionId = outputLocation.getInstructionId();
+    while (true) {
+      BeamFnDataOutboundAggregator aggregator =
+          outboundAggregators.computeIfAbsent(
+              instructionId,
+              (String id) ->
+                  new BeamFnDataOutboundAggregator(
+                      options, id, outboundObserver, () -> outboundAggregators.remove(id)));
+      CloseableFnDataReceiver<T> receiver =
+          aggregator.registerOutputLocation(outputLocation, coder);
+      if (receiver != null) {
+        return receiver;
+      }
+      // All outputs of the aggregator were closed concurrently, use a new aggregator instead.
+      outboundAggregators.remove(instructionId, aggregator);
+    }
+  }
 }
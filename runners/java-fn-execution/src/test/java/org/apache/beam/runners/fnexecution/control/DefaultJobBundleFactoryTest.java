@@ -29,6 +29,7 @@ import static org.mockito.Mockito.when;
 
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
@@ -50,6 +51,7 @@ import org.apache.beam.runners.core.construction.ModelCoders;
 import org.apache.beam.runners.core.construction.PipelineOptionsTranslation;
 import org.apache.beam.runners.core.construction.graph.ExecutableStage;
 import org.apache.beam.runners.fnexecution.artifact.ArtifactRetrievalService;
+import org.apache.beam.runners.fnexecution.control.DefaultJobBundleFactory.SdkWorkerUtilization;
 import org.apache.beam.runners.fnexecution.data.GrpcDataService;
 import org.apache.beam.runners.fnexecution.environment.EnvironmentFactory;
 import org.apache.beam.runners.fnexecution.environment.EnvironmentFactory.Provider;
@@ -68,6 +70,7 @@ import org.apache.beam.sdk.fn.server.ServerFactory;
 import org.apache.beam.sdk.options.ExperimentalOptions;
 import org.apache.beam.sdk.options.PipelineOptionsFactory;
 import org.apache.beam.sdk.options.PortablePipelineOptions;
+import org.apache.beam.sdk.options.PortablePipelineOptions.SdkWorkerSelection;
 import org.apache.beam.vendor.grpc.v1p36p0.com.google.protobuf.ByteString;
 import org.apache.beam.vendor.grpc.v1p36p0.com.google.protobuf.Struct;
 import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.collect.ImmutableMap;
@@ -496,6 +499,105 @@ public class DefaultJobBundleFactoryTest {
     }
   }
 
+  @Test
+  public void selectsLeastOutstandingSdkWorker() throws Exception {
+    PortablePipelineOptions portableOptions =
+        PipelineOptionsFactory.as(PortablePipelineOptions.class);
+    portableOptions.setSdkWorkerParallelism(2);
+    portableOptions.setSdkWorkerSelection(SdkWorkerSelection.LEAST_OUTSTANDING_BUNDLES);
+    Struct pipelineOptions = PipelineOptionsTranslation.toProto(portableOptions);
+
+    try (DefaultJobBundleFactory bundleFactory =
+        new DefaultJobBundleFactory(
+            JobInfo.create("testJob", "testJob", "token", pipelineOptions),
+            envFactoryProviderMap,
+            stageIdGenerator,
+            serverInfo)) {
+      OutputReceiverFactory orf = mock(OutputReceiverFactory.class);
+      StateRequestHandler srh = mock(StateRequestHandler.class);
+      when(srh.getCacheTokens()).thenReturn(Collections.emptyList());
+      StageBundleFactory sbf = bundleFactory.forStage(getExecutableStage(environment));
+      verify(envFactory, Mockito.times(1)).createEnvironment(eq(environment), any());
+
+      RemoteBundle b1 = sbf.getBundle(orf, srh, BundleProgressHandler.ignored());
+      verify(envFactory, Mockito.times(1)).createEnvironment(eq(environment), any());
+      // The first worker is busy, so the second worker gets started without blocking.
+      RemoteBundle b2 = sbf.getBundle(orf, srh, BundleProgressHandler.ignored());
+      verify(envFactory, Mockito.times(2)).createEnvironment(eq(environment), any());
+      b1.close();
+      // Both workers are running now, the first one is idle again.
+      RemoteBundle b3 = sbf.getBundle(orf, srh, BundleProgressHandler.ignored());
+      verify(envFactory, Mockito.times(2)).createEnvironment(eq(environment), any());
+
+      List<SdkWorkerUtilization> utilization = bundleFactory.getSdkWorkerUtilization();
+      assertThat(utilization.size(), equalTo(2));
+      for (SdkWorkerUtilization workerUtilization : utilization) {
+        assertThat(workerUtilization.getInFlightBundles(), equalTo(1));
+      }
+      assertThat(
+          utilization.stream().mapToLong(SdkWorkerUtilization::getCompletedBundles).sum(),
+          equalTo(1L));
+
+      b3.close();
+      b2.close();
+    }
+  }
+
+  @Test
+  public void keepsStageAffinityWithinThreshold() throws Exception {
+    PortablePipelineOptions portableOptions =
+        PipelineOptionsFactory.as(PortablePipelineOptions.class);
+    portableOptions.setSdkWorkerParallelism(2);
+    portableOptions.setSdkWorkerSelection(SdkWorkerSelection.LEAST_OUTSTANDING_BUNDLES);
+    portableOptions.setSdkWorkerStageAffinity(1);
+    Struct pipelineOptions = PipelineOptionsTranslation.toProto(portableOptions);
+
+    try (DefaultJobBundleFactory bundleFactory =
+        new DefaultJobBundleFactory(
+            JobInfo.create("testJob", "testJob", "token", pipelineOptions),
+            envFactoryProviderMap,
+            stageIdGenerator,
+            serverInfo)) {
+      OutputReceiverFactory orf = mock(OutputReceiverFactory.class);
+      StateRequestHandler srh = mock(StateRequestHandler.class);
+      when(srh.getCacheTokens()).thenReturn(Collections.emptyList());
+      StageBundleFactory sbf = bundleFactory.forStage(getExecutableStage(environment));
+
+      RemoteBundle b1 = sbf.getBundle(orf, srh, BundleProgressHandler.ignored());
+      // The worker of the previous bundle is only one bundle busier than the idle worker.
+      RemoteBundle b2 = sbf.getBundle(orf, srh, BundleProgressHandler.ignored());
+      verify(envFactory, Mockito.times(1)).createEnvironment(eq(environment), any());
+      // The worker of the previous bundle is now two bundles busier than the idle worker.
+      RemoteBundle b3 = sbf.getBundle(orf, srh, BundleProgressHandler.ignored());
+      verify(envFactory, Mockito.times(2)).createEnvironment(eq(environment), any());
+
+      b3.close();
+      b2.close();
+      b1.close();
+    }
+  }
+
+  @Test
+  public void rejectsLoadBalancingWithLeastOutstandingSdkWorkerSelection() throws Exception {
+    PortablePipelineOptions portableOptions =
+        PipelineOptionsFactory.as(PortablePipelineOptions.class);
+    portableOptions.setLoadBalanceBundles(true);
+    portableOptions.setSdkWorkerSelection(SdkWorkerSelection.LEAST_OUTSTANDING_BUNDLES);
+    Struct pipelineOptions = PipelineOptionsTranslation.toProto(portableOptions);
+
+    Exception e =
+        Assert.assertThrows(
+            IllegalArgumentException.class,
+            () ->
+                new DefaultJobBundleFactory(
+                        JobInfo.create("testJob", "testJob", "token", pipelineOptions),
+                        envFactoryProviderMap,
+                        stageIdGenerator,
+                        serverInfo)
+                    .close());
+    assertThat(e.getMessage(), containsString("loadBalanceBundles"));
+  }
+
   @Test
   public void rejectsStateCachingWithLoadBalancing() throws Exception {
     PortablePipelineOptions portableOptions =
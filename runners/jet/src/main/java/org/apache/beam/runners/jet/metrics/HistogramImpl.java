@@ -0,0 +1,44 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.runners.jet.metrics;
+
+import org.apache.beam.sdk.metrics.Histogram;
+import org.apache.beam.sdk.metrics.MetricName;
+import org.apache.beam.sdk.util.HistogramData;
+
+/** Implementation of {@link Histogram}. */
+public class HistogramImpl extends AbstractMetric<HistogramData> implements Histogram {
+
+  private final HistogramData histogramData;
+
+  public HistogramImpl(MetricName name, HistogramData.BucketType bucketType) {
+    super(name);
+    this.histogramData = new HistogramData(bucketType);
+  }
+
+  @Override
+  HistogramData getValue() {
+    // Return a copy, as the updates are serialized while this histogram keeps being updated.
+    return new HistogramData(histogramData.getBucketType()).combine(histogramData);
+  }
+
+  @Override
+  public void update(double value) {
+    histogramData.record(value);
+  }
+}
@@ -33,6 +33,7 @@ import org.apache.beam.sdk.metrics.MetricQueryResults;
 import org.apache.beam.sdk.metrics.MetricResult;
 import org.apache.beam.sdk.metrics.MetricResults;
 import org.apache.beam.sdk.metrics.MetricsFilter;
+import org.apache.beam.sdk.util.HistogramData;
 import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.base.Predicate;
 import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.collect.FluentIterable;
 import org.checkerframework.checker.nullness.qual.Nullable;
@@ -52,6 +53,9 @@ public class JetMetricResults extends MetricResults {
   @GuardedBy("this")
   private final Gauges gauges = new Gauges();
 
+  @GuardedBy("this")
+  private final Histograms histograms = new Histograms();
+
   @GuardedBy("this")
   private IMap<String, MetricUpdates> metricsAccumulator;
 
@@ -70,18 +74,23 @@ public class JetMetricResults extends MetricResults {
       updateLocalMetrics(metricsAccumulator);
     }
     return new QueryResults(
-        counters.filter(filter), distributions.filter(filter), gauges.filter(filter));
+        counters.filter(filter),
+        distributions.filter(filter),
+        gauges.filter(filter),
+        histograms.filter(filter));
   }
 
   private synchronized void updateLocalMetrics(IMap<String, MetricUpdates> metricsAccumulator) {
     counters.clear();
     distributions.clear();
     gauges.clear();
+    histograms.clear();
 
     for (MetricUpdates metricUpdates : metricsAccumulator.values()) {
       counters.merge(metricUpdates.counterUpdates());
       distributions.merge(metricUpdates.distributionUpdates());
       gauges.merge(metricUpdates.gaugeUpdates());
+      histograms.merge(metricUpdates.histogramUpdates());
     }
   }
 
@@ -93,14 +102,17 @@ public class JetMetricResults extends MetricResults {
     private final Iterable<MetricResult<Long>> counters;
     private final Iterable<MetricResult<DistributionResult>> distributions;
     private final Iterable<MetricResult<GaugeResult>> gauges;
+    private final Iterable<MetricResult<HistogramData>> histograms;
 
     private QueryResults(
         Iterable<MetricResult<Long>> counters,
         Iterable<MetricResult<DistributionResult>> distributions,
-        Iterable<MetricResult<GaugeResult>> gauges) {
+        Iterable<MetricResult<GaugeResult>> gauges,
+        Iterable<MetricResult<HistogramData>> histograms) {
       this.counters = counters;
       this.distributions = distributions;
       this.gauges = gauges;
+      this.histograms = histograms;
     }
 
     @Override
@@ -117,6 +129,11 @@ public class JetMetricResults extends MetricResults {
     public Iterable<MetricResult<GaugeResult>> getGauges() {
       return gauges;
     }
+
+    @Override
+    public Iterable<MetricResult<HistogramData>> getHistograms() {
+      return histograms;
+    }
   }
 
   private static class Counters {
@@ -212,4 +229,36 @@ public class JetMetricResults extends MetricResults {
       return MetricResult.create(key, gaugeResult, gaugeResult);
     }
   }
+
+  private static class Histograms {
+
+    private final Map<MetricKey, HistogramData> histograms = new HashMap<>();
+
+    void merge(Iterable<MetricUpdate<HistogramData>> updates) {
+      for (MetricUpdate<HistogramData> update : updates) {
+        MetricKey key = update.getKey();
+        HistogramData oldHistogram = histograms.get(key);
+        HistogramData updatedHistogram =
+            oldHistogram == null ? update.getUpdate() : oldHistogram.combine(update.getUpdate());
+        histograms.put(key, updatedHistogram);
+      }
+    }
+
+    void clear() {
+      histograms.clear();
+    }
+
+    Iterable<MetricResult<HistogramData>> filter(MetricsFilter filter) {
+      return FluentIterable.from(histograms.entrySet())
+          .filter(matchesFilter(filter))
+          .transform(this::toUpdateResult)
+          .toList();
+    }
+
+    private MetricResult<HistogramData> toUpdateResult(Map.Entry<MetricKey, HistogramData> entry) {
+      MetricKey key = entry.getKey();
+      HistogramData histogram = entry.getValue();
+      return MetricResult.create(key, histogram, histogram);
+    }
+  }
 }
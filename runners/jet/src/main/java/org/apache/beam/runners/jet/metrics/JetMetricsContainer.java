@@ -29,9 +29,11 @@ import org.apache.beam.runners.core.metrics.MetricUpdates;
 import org.apache.beam.sdk.metrics.Counter;
 import org.apache.beam.sdk.metrics.Distribution;
 import org.apache.beam.sdk.metrics.Gauge;
+import org.apache.beam.sdk.metrics.Histogram;
 import org.apache.beam.sdk.metrics.MetricKey;
 import org.apache.beam.sdk.metrics.MetricName;
 import org.apache.beam.sdk.metrics.MetricsContainer;
+import org.apache.beam.sdk.util.HistogramData;
 import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.collect.ImmutableList;
 
 /** Jet specific implementation of {@link MetricsContainer}. */
@@ -47,6 +49,7 @@ public class JetMetricsContainer implements MetricsContainer {
   private final Map<MetricName, CounterImpl> counters = new HashMap<>();
   private final Map<MetricName, DistributionImpl> distributions = new HashMap<>();
   private final Map<MetricName, GaugeImpl> gauges = new HashMap<>();
+  private final Map<MetricName, HistogramImpl> histograms = new HashMap<>();
 
   private final IMap<String, MetricUpdates> accumulator;
 
@@ -71,9 +74,14 @@ public class JetMetricsContainer implements MetricsContainer {
     return gauges.computeIfAbsent(metricName, GaugeImpl::new);
   }
 
+  @Override
+  public Histogram getHistogram(MetricName metricName, HistogramData.BucketType bucketType) {
+    return histograms.computeIfAbsent(metricName, name -> new HistogramImpl(name, bucketType));
+  }
+
   @SuppressWarnings("FutureReturnValueIgnored")
   public void flush(boolean async) {
-    if (counters.isEmpty() && distributions.isEmpty() && gauges.isEmpty()) {
+    if (counters.isEmpty() && distributions.isEmpty() && gauges.isEmpty() && histograms.isEmpty()) {
       return;
     }
 
@@ -81,7 +89,9 @@ public class JetMetricsContainer implements MetricsContainer {
     ImmutableList<MetricUpdates.MetricUpdate<DistributionData>> distributions =
         extractUpdates(this.distributions);
     ImmutableList<MetricUpdates.MetricUpdate<GaugeData>> gauges = extractUpdates(this.gauges);
-    MetricUpdates updates = new MetricUpdatesImpl(counters, distributions, gauges);
+    ImmutableList<MetricUpdates.MetricUpdate<HistogramData>> histograms =
+        extractUpdates(this.histograms);
+    MetricUpdates updates = new MetricUpdatesImpl(counters, distributions, gauges, histograms);
 
     if (async) {
       accumulator.setAsync(metricsKey, updates);
@@ -110,14 +120,17 @@ public class JetMetricsContainer implements MetricsContainer {
     private final Iterable<MetricUpdate<Long>> counters;
     private final Iterable<MetricUpdate<DistributionData>> distributions;
     private final Iterable<MetricUpdate<GaugeData>> gauges;
+    private final Iterable<MetricUpdate<HistogramData>> histograms;
 
     MetricUpdatesImpl(
         Iterable<MetricUpdate<Long>> counters,
         Iterable<MetricUpdate<DistributionData>> distributions,
-        Iterable<MetricUpdate<GaugeData>> gauges) {
+        Iterable<MetricUpdate<GaugeData>> gauges,
+        Iterable<MetricUpdate<HistogramData>> histograms) {
       this.counters = counters;
       this.distributions = distributions;
       this.gauges = gauges;
+      this.histograms = histograms;
     }
 
     @Override
@@ -134,5 +147,10 @@ public class JetMetricsContainer implements MetricsContainer {
     public Iterable<MetricUpdate<GaugeData>> gaugeUpdates() {
       return gauges;
     }
+
+    @Override
+    public Iterable<MetricUpdate<HistogramData>> histogramUpdates() {
+      return histograms;
+    }
   }
 }
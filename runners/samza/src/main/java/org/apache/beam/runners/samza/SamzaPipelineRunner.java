@@ -20,6 +20,7 @@ package org.apache.beam.runners.samza;
 import org.apache.beam.model.pipeline.v1.RunnerApi;
 import org.apache.beam.model.pipeline.v1.RunnerApi.Pipeline;
 import org.apache.beam.runners.core.construction.PTransformTranslation;
+import org.apache.beam.runners.core.construction.graph.CombinerLiftingExpander;
 import org.apache.beam.runners.core.construction.graph.GreedyPipelineFuser;
 import org.apache.beam.runners.core.construction.graph.ProtoOverrides;
 import org.apache.beam.runners.core.construction.graph.SplittableParDoExpander;
@@ -46,9 +47,14 @@ public class SamzaPipelineRunner implements PortablePipelineRunner {
             pipeline,
             SplittableParDoExpander.createSizedReplacement());
 
+    // Lift eligible combines into precombine, GroupByKey, merge and extract phases so that only
+    // accumulators are shuffled.
+    Pipeline pipelineWithCombinersLifted =
+        CombinerLiftingExpander.liftCombiners(pipelineWithSdfExpanded, options);
+
     // Fused pipeline proto.
     final RunnerApi.Pipeline fusedPipeline =
-        GreedyPipelineFuser.fuse(pipelineWithSdfExpanded).toPipeline();
+        GreedyPipelineFuser.fuse(pipelineWithCombinersLifted).toPipeline();
     LOG.info("Portable pipeline to run:");
     LOG.info(PipelineDotRenderer.toDotString(fusedPipeline));
     // the pipeline option coming from sdk will set the sdk specific runner which will break
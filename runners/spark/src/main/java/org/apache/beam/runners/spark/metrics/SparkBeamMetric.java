@@ -32,6 +32,7 @@ import org.apache.beam.sdk.metrics.MetricName;
 import org.apache.beam.sdk.metrics.MetricQueryResults;
 import org.apache.beam.sdk.metrics.MetricResult;
 import org.apache.beam.sdk.metrics.MetricResults;
+import org.apache.beam.sdk.util.HistogramData;
 import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.annotations.VisibleForTesting;
 import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.collect.ImmutableList;
 
@@ -58,6 +59,15 @@ public class SparkBeamMetric implements Metric {
     for (MetricResult<GaugeResult> metricResult : metricQueryResults.getGauges()) {
       metrics.put(renderName(metricResult), metricResult.getAttempted().getValue());
     }
+    for (MetricResult<HistogramData> metricResult : metricQueryResults.getHistograms()) {
+      HistogramData result = metricResult.getAttempted();
+      metrics.put(renderName(metricResult) + ".count", result.getTotalCount());
+      if (result.getTotalCount() > 0) {
+        metrics.put(renderName(metricResult) + ".p50", result.p50());
+        metrics.put(renderName(metricResult) + ".p90", result.p90());
+        metrics.put(renderName(metricResult) + ".p99", result.p99());
+      }
+    }
     return metrics;
   }
 
@@ -0,0 +1,270 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.sdk.coders;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.BitSet;
+import org.apache.beam.sdk.schemas.Schema;
+import org.apache.beam.sdk.schemas.Schema.FieldType;
+import org.apache.beam.sdk.schemas.Schema.TypeName;
+import org.apache.beam.sdk.util.VarInt;
+import org.apache.beam.sdk.values.Row;
+import org.apache.beam.sdk.values.RowWithEncodedBytes;
+
+/**
+ * Reads {@link Row Rows} encoded by a coder of {@link RowCoderGenerator} into {@link
+ * RowWithEncodedBytes}, without decoding any field.
+ *
+ * <p>The encoding of a row is not prefixed by its length, so the reader has to find the end of the
+ * row by skipping all fields. Skipping a field only reads the lengths contained in its encoding,
+ * which is much cheaper than decoding it. The offsets of the fields are only recorded once a field
+ * of the row is accessed, by skipping the fields of the encoded row again, so rows which are only
+ * encoded again never record them.
+ */
+@SuppressWarnings({
+  "nullness", // TODO(https://issues.apache.org/jira/browse/BEAM-10402)
+  "rawtypes"
+})
+class EncodedRowReader implements RowWithEncodedBytes.FieldOffsetsReader {
+  private final Schema schema;
+  // The coders of the generated row coder, indexed by encoding position.
+  private final Coder[] coders;
+  private final int[] encodingPosToIndex;
+  // Field types indexed by encoding position. Nulls are encoded in the null bitmap of the row.
+  private final FieldType[] fieldTypes;
+  // Coders used to decode the fields of RowWithEncodedBytes, indexed by field index.
+  private final Coder[] fieldCoders;
+
+  EncodedRowReader(Schema schema, Coder[] coders, int[] encodingPosToIndex) {
+    this.schema = schema;
+    this.coders = coders;
+    this.encodingPosToIndex = encodingPosToIndex;
+    this.fieldTypes = new FieldType[coders.length];
+    this.fieldCoders = new Coder[coders.length];
+    for (int encodingPos = 0; encodingPos < coders.length; ++encodingPos) {
+      int rowIndex = encodingPosToIndex[encodingPos];
+      FieldType fieldType = schema.getField(rowIndex).getType().withNullable(false);
+      fieldTypes[encodingPos] = fieldType;
+      // Nested rows are decoded lazily as well.
+      fieldCoders[rowIndex] =
+          fieldType.getTypeName() == TypeName.ROW
+              ? RowCoder.of(fieldType.getRowSchema()).withLazyDecoding()
+              : coders[encodingPos];
+    }
+  }
+
+  Row read(InputStream inStream) throws IOException {
+    RecordingInputStream in = new RecordingInputStream(inStream);
+    int fieldCount = scan(in, null);
+    // Rows written with a different number of fields have to be encoded field by field.
+    Object encoding = fieldCount == coders.length ? coders : null;
+    return Row.withSchema(schema).attachEncodedBytes(in.toByteArray(), this, fieldCoders, encoding);
+  }
+
+  @Override
+  public int[] readFieldOffsets(byte[] encodedRow) throws IOException {
+    int[] fieldOffsets = new int[coders.length];
+    Arrays.fill(fieldOffsets, RowWithEncodedBytes.NULL_FIELD);
+    scan(new RecordingInputStream(new ByteArrayInputStream(encodedRow)), fieldOffsets);
+    return fieldOffsets;
+  }
+
+  /**
+   * Skips the encoded row, recording the offsets of the non-null fields in {@code fieldOffsets} if
+   * not null. Returns the number of encoded fields.
+   */
+  private int scan(RecordingInputStream in, int[] fieldOffsets) throws IOException {
+    int fieldCount = VarInt.decodeInt(in);
+    BitSet nullFields = BitSet.valueOf(in.readBytes(VarInt.decodeInt(in)));
+    // Like the generated coder, drop the fields which were added to the schema after the row was
+    // encoded.
+    for (int encodingPos = 0; encodingPos < Math.min(fieldCount, coders.length); ++encodingPos) {
+      int rowIndex = encodingPosToIndex[encodingPos];
+      if (!nullFields.get(rowIndex)) {
+        if (fieldOffsets != null) {
+          fieldOffsets[rowIndex] = in.getPosition();
+        }
+        skip(fieldTypes[encodingPos], in);
+      }
+    }
+    return fieldCount;
+  }
+
+  private static void skip(FieldType fieldType, RecordingInputStream in) throws IOException {
+    if (fieldType.getNullable() && in.readByte() == 0) {
+      // NullableCoder encodes null as a single zero byte.
+      return;
+    }
+    switch (fieldType.getTypeName()) {
+      case BYTE:
+      case BOOLEAN:
+        in.skipBytes(1);
+        break;
+      case INT16:
+        in.skipBytes(2);
+        break;
+      case FLOAT:
+        in.skipBytes(4);
+        break;
+      case DOUBLE:
+      case DATETIME:
+        in.skipBytes(8);
+        break;
+      case INT32:
+      case INT64:
+        VarInt.decodeLong(in);
+        break;
+      case STRING:
+      case BYTES:
+        in.skipBytes(VarInt.decodeInt(in));
+        break;
+      case DECIMAL:
+        // The scale followed by the bytes of the unscaled value.
+        VarInt.decodeInt(in);
+        in.skipBytes(VarInt.decodeInt(in));
+        break;
+      case ARRAY:
+      case ITERABLE:
+        skipIterable(fieldType.getCollectionElementType(), in);
+        break;
+      case MAP:
+        int size = in.readInt();
+        for (int i = 0; i < size; ++i) {
+          skip(fieldType.getMapKeyType(), in);
+          skip(fieldType.getMapValueType(), in);
+        }
+        break;
+      case ROW:
+        RowCoderGenerator.getReader(fieldType.getRowSchema()).scan(in, null);
+        break;
+      case LOGICAL_TYPE:
+        skip(fieldType.getLogicalType().getBaseType(), in);
+        break;
+      default:
+        throw new IllegalArgumentException("Unexpected field type " + fieldType.getTypeName());
+    }
+  }
+
+  // See IterableLikeCoder for the encoding.
+  private static void skipIterable(FieldType elementType, RecordingInputStream in)
+      throws IOException {
+    int size = in.readInt();
+    if (size >= 0) {
+      for (int i = 0; i < size; ++i) {
+        skip(elementType, in);
+      }
+      return;
+    }
+    // Iterables of unknown size are encoded in blocks prefixed by their number of elements.
+    long count = VarInt.decodeLong(in);
+    while (count > 0L) {
+      for (long i = 0; i < count; ++i) {
+        skip(elementType, in);
+      }
+      count = VarInt.decodeLong(in);
+    }
+    if (count < 0L) {
+      throw new CoderException("Unable to skip iterable of unknown size " + count);
+    }
+  }
+
+  /** Copies all bytes read from the underlying stream into a buffer. */
+  private static class RecordingInputStream extends InputStream {
+    private final InputStream in;
+    private byte[] buffer = new byte[64];
+    private int position = 0;
+
+    RecordingInputStream(InputStream in) {
+      this.in = in;
+    }
+
+    int getPosition() {
+      return position;
+    }
+
+    byte[] toByteArray() {
+      return Arrays.copyOf(buffer, position);
+    }
+
+    private void ensureCapacity(int length) {
+      if (position + length > buffer.length) {
+        buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + length));
+      }
+    }
+
+    @Override
+    public int read() throws IOException {
+      int b = in.read();
+      if (b >= 0) {
+        ensureCapacity(1);
+        buffer[position++] = (byte) b;
+      }
+      return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      int read = in.read(b, off, len);
+      if (read > 0) {
+        ensureCapacity(read);
+        System.arraycopy(b, off, buffer, position, read);
+        position += read;
+      }
+      return read;
+    }
+
+    void skipBytes(int length) throws IOException {
+      if (length < 0) {
+        throw new CoderException("Invalid length " + length);
+      }
+      ensureCapacity(length);
+      int end = position + length;
+      while (position < end) {
+        int read = in.read(buffer, position, end - position);
+        if (read < 0) {
+          throw new EOFException();
+        }
+        position += read;
+      }
+    }
+
+    byte readByte() throws IOException {
+      skipBytes(1);
+      return buffer[position - 1];
+    }
+
+    byte[] readBytes(int length) throws IOException {
+      int start = position;
+      skipBytes(length);
+      return Arrays.copyOfRange(buffer, start, position);
+    }
+
+    int readInt() throws IOException {
+      int start = position;
+      skipBytes(4);
+      return ((buffer[start] & 0xFF) << 24)
+          | ((buffer[start + 1] & 0xFF) << 16)
+          | ((buffer[start + 2] & 0xFF) << 8)
+          | (buffer[start + 3] & 0xFF);
+    }
+  }
+}
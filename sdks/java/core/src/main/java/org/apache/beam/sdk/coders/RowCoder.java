@@ -17,6 +17,8 @@
  */
 package org.apache.beam.sdk.coders;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.Map;
 import java.util.Objects;
 import java.util.UUID;
@@ -32,8 +34,10 @@ import org.checkerframework.checker.nullness.qual.Nullable;
 /** A sub-class of SchemaCoder that can only encode {@link Row} instances. */
 @Experimental(Kind.SCHEMAS)
 public class RowCoder extends SchemaCoder<Row> {
+  private final boolean lazyDecoding;
+
   public static RowCoder of(Schema schema) {
-    return new RowCoder(schema);
+    return new RowCoder(schema, false);
   }
 
   /** Override encoding positions for the given schema. */
@@ -41,12 +45,40 @@ public class RowCoder extends SchemaCoder<Row> {
     SchemaCoder.overrideEncodingPositions(uuid, encodingPositions);
   }
 
-  private RowCoder(Schema schema) {
+  private RowCoder(Schema schema, boolean lazyDecoding) {
     super(
         schema,
         TypeDescriptors.rows(),
         SerializableFunctions.identity(),
         SerializableFunctions.identity());
+    this.lazyDecoding = lazyDecoding;
+  }
+
+  /**
+   * Returns a {@link RowCoder} with the same encoding that decodes fields only when they are
+   * accessed.
+   *
+   * <p>The decoded {@link Row Rows} keep their encoded bytes, and each field is decoded when it is
+   * first accessed. This is faster for wide rows of which only a few fields are read, and for rows
+   * which are only passed through, e.g. shuffled and sorted, since rows which are encoded by a
+   * coder of the same schema again are copied without decoding. Note that invalid field encodings
+   * only fail when the field is accessed.
+   */
+  public RowCoder withLazyDecoding() {
+    return new RowCoder(schema, true);
+  }
+
+  /** Returns whether this coder decodes fields only when they are accessed. */
+  public boolean isLazyDecoding() {
+    return lazyDecoding;
+  }
+
+  @Override
+  public Row decode(InputStream inStream) throws IOException {
+    if (lazyDecoding) {
+      return RowCoderGenerator.decodeLazily(schema, inStream);
+    }
+    return super.decode(inStream);
   }
 
   @Override
@@ -58,7 +90,7 @@ public class RowCoder extends SchemaCoder<Row> {
       return false;
     }
     RowCoder rowCoder = (RowCoder) o;
-    return schema.equals(rowCoder.schema);
+    return schema.equals(rowCoder.schema) && lazyDecoding == rowCoder.lazyDecoding;
   }
 
   @Override
@@ -36,6 +36,7 @@ import org.apache.beam.sdk.schemas.Schema.Field;
 import org.apache.beam.sdk.schemas.Schema.FieldType;
 import org.apache.beam.sdk.schemas.SchemaCoder;
 import org.apache.beam.sdk.values.Row;
+import org.apache.beam.sdk.values.RowWithEncodedBytes;
 import org.apache.beam.vendor.bytebuddy.v1_11_0.net.bytebuddy.ByteBuddy;
 import org.apache.beam.vendor.bytebuddy.v1_11_0.net.bytebuddy.description.modifier.FieldManifestation;
 import org.apache.beam.vendor.bytebuddy.v1_11_0.net.bytebuddy.description.modifier.Ownership;
@@ -114,6 +115,8 @@ public abstract class RowCoderGenerator {
   private static final Map<UUID, Coder<Row>> GENERATED_CODERS = Maps.newConcurrentMap();
   private static final Map<UUID, Map<String, Integer>> ENCODING_POSITION_OVERRIDES =
       Maps.newConcurrentMap();
+  // Readers for lazily decoded rows, using the same component coders as the generated coders.
+  private static final Map<UUID, EncodedRowReader> READERS = Maps.newConcurrentMap();
 
   private static final Logger LOG = LoggerFactory.getLogger(RowCoderGenerator.class);
 
@@ -180,11 +183,26 @@ public abstract class RowCoderGenerator {
           | InvocationTargetException e) {
         throw new RuntimeException("Unable to generate coder for schema " + schema, e);
       }
+      READERS.put(
+          schema.getUUID(), new EncodedRowReader(schema, componentCoders, encodingPosToRowIndex));
       GENERATED_CODERS.put(schema.getUUID(), rowCoder);
     }
     return rowCoder;
   }
 
+  static EncodedRowReader getReader(Schema schema) {
+    generate(schema);
+    return READERS.get(schema.getUUID());
+  }
+
+  /**
+   * Decodes a {@link Row} encoded by the coder generated for the schema into a {@link
+   * RowWithEncodedBytes}, which only decodes fields when they are accessed.
+   */
+  static Row decodeLazily(Schema schema, InputStream inputStream) throws IOException {
+    return getReader(schema).read(inputStream);
+  }
+
   private static class GeneratedCoderConstructor implements Implementation {
     @Override
     public InstrumentedType prepare(InstrumentedType instrumentedType) {
@@ -311,6 +329,12 @@ public abstract class RowCoderGenerator {
         OutputStream outputStream,
         boolean hasNullableFields)
         throws IOException {
+      if (value instanceof RowWithEncodedBytes
+          && ((RowWithEncodedBytes) value).hasEncoding(coders)) {
+        // The row was lazily decoded from the same encoding, so it can be copied.
+        ((RowWithEncodedBytes) value).writeEncodedRow(outputStream);
+        return;
+      }
       checkState(value.getFieldCount() == value.getSchema().getFieldCount());
       checkState(encodingPosToIndex.length == value.getFieldCount());
 
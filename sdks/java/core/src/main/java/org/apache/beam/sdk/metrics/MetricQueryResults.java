@@ -18,15 +18,16 @@
 package org.apache.beam.sdk.metrics;
 
 import com.google.auto.value.AutoValue;
+import java.util.Collections;
 import java.util.List;
 import org.apache.beam.sdk.annotations.Experimental;
 import org.apache.beam.sdk.annotations.Experimental.Kind;
+import org.apache.beam.sdk.util.HistogramData;
 import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.collect.ImmutableList;
 
 /**
  * The results of a query for metrics. Allows accessing all of the metrics that matched the filter.
  */
-@AutoValue
 @Experimental(Kind.METRICS)
 public abstract class MetricQueryResults {
   /** Return the metric results for the counters that matched the filter. */
@@ -38,6 +39,16 @@ public abstract class MetricQueryResults {
   /** Return the metric results for the gauges that matched the filter. */
   public abstract Iterable<MetricResult<GaugeResult>> getGauges();
 
+  /**
+   * Return the metric results for the histograms that matched the filter. Percentiles can be
+   * queried from the results, e.g. with {@link HistogramData#getPercentile(double)}.
+   *
+   * <p>Results that do not support histograms return no histograms.
+   */
+  public Iterable<MetricResult<HistogramData>> getHistograms() {
+    return Collections.emptyList();
+  }
+
   static <T> void printMetrics(String type, Iterable<MetricResult<T>> metrics, StringBuilder sb) {
     List<MetricResult<T>> metricsList = ImmutableList.copyOf(metrics);
     if (!metricsList.isEmpty()) {
@@ -67,6 +78,7 @@ public abstract class MetricQueryResults {
     printMetrics("Counters", getCounters(), sb);
     printMetrics("Distributions", getDistributions(), sb);
     printMetrics("Gauges", getGauges(), sb);
+    printMetrics("Histograms", getHistograms(), sb);
     sb.append(")");
     return sb.toString();
   }
@@ -75,6 +87,24 @@ public abstract class MetricQueryResults {
       Iterable<MetricResult<Long>> counters,
       Iterable<MetricResult<DistributionResult>> distributions,
       Iterable<MetricResult<GaugeResult>> gauges) {
-    return new AutoValue_MetricQueryResults(counters, distributions, gauges);
+    return create(counters, distributions, gauges, Collections.emptyList());
+  }
+
+  public static MetricQueryResults create(
+      Iterable<MetricResult<Long>> counters,
+      Iterable<MetricResult<DistributionResult>> distributions,
+      Iterable<MetricResult<GaugeResult>> gauges,
+      Iterable<MetricResult<HistogramData>> histograms) {
+    return new AutoValue_MetricQueryResults_Impl(counters, distributions, gauges, histograms);
+  }
+
+  /**
+   * The {@link MetricQueryResults} created by {@link #create}. {@link #getHistograms()} is only a
+   * property here, so that other implementations do not have to provide it.
+   */
+  @AutoValue
+  abstract static class Impl extends MetricQueryResults {
+    @Override
+    public abstract Iterable<MetricResult<HistogramData>> getHistograms();
   }
 }
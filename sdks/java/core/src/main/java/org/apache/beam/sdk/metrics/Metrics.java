@@ -20,6 +20,7 @@ package org.apache.beam.sdk.metrics;
 import java.io.Serializable;
 import org.apache.beam.sdk.annotations.Experimental;
 import org.apache.beam.sdk.annotations.Experimental.Kind;
+import org.apache.beam.sdk.util.HistogramData;
 
 /**
  * The <code>Metrics</code> is a utility class for producing various kinds of metrics for reporting
@@ -96,6 +97,26 @@ public class Metrics {
     return new DelegatingGauge(MetricName.named(namespace, name));
   }
 
+  /**
+   * Create a metric that records the histogram of reported values in the buckets of {@code
+   * bucketType}. Unlike a {@link Distribution}, it allows querying percentiles from the {@link
+   * MetricQueryResults#getHistograms() results}.
+   */
+  public static Histogram histogram(
+      String namespace, String name, HistogramData.BucketType bucketType) {
+    return new DelegatingHistogram(MetricName.named(namespace, name), bucketType, false);
+  }
+
+  /**
+   * Create a metric that records the histogram of reported values in the buckets of {@code
+   * bucketType}. Unlike a {@link Distribution}, it allows querying percentiles from the {@link
+   * MetricQueryResults#getHistograms() results}.
+   */
+  public static Histogram histogram(
+      Class<?> namespace, String name, HistogramData.BucketType bucketType) {
+    return new DelegatingHistogram(MetricName.named(namespace, name), bucketType, false);
+  }
+
   /**
    * Implementation of {@link Distribution} that delegates to the instance for the current context.
    */
@@ -93,6 +93,34 @@ public interface PortablePipelineOptions extends PipelineOptions, FileStagingOpt
 
   void setLoadBalanceBundles(boolean loadBalanceBundles);
 
+  /** Strategies for choosing the SDK worker that processes a bundle. */
+  enum SdkWorkerSelection {
+    /** Each runner task is pinned to one SDK worker for the duration of the pipeline. */
+    PINNED,
+    /** Each bundle is sent to the SDK worker with the fewest bundles in flight. */
+    LEAST_OUTSTANDING_BUNDLES
+  }
+
+  @Description(
+      "Specifies how SDK workers are selected for bundles when sdkWorkerParallelism is greater than 1. "
+          + "PINNED (the default) pins runner tasks to SDK workers. LEAST_OUTSTANDING_BUNDLES "
+          + "sends each bundle to the SDK worker with the fewest bundles in flight without blocking, "
+          + "which helps pipelines where some stages are much heavier than others.")
+  @Default.Enum("PINNED")
+  SdkWorkerSelection getSdkWorkerSelection();
+
+  void setSdkWorkerSelection(SdkWorkerSelection sdkWorkerSelection);
+
+  @Description(
+      "When using the LEAST_OUTSTANDING_BUNDLES SDK worker selection, a stage keeps sending bundles "
+          + "to the SDK worker which processed its previous bundle as long as that worker has at most "
+          + "this many more bundles in flight than the least loaded worker. This keeps SDK harness "
+          + "caches warm. A negative value disables stage affinity.")
+  @Default.Integer(0)
+  int getSdkWorkerStageAffinity();
+
+  void setSdkWorkerStageAffinity(int sdkWorkerStageAffinity);
+
   @Description("The output path for the executable file to be created.")
   @Nullable
   String getOutputExecutablePath();
@@ -0,0 +1,158 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.sdk.schemas.transforms;
+
+import static org.apache.beam.vendor.guava.v26_0_jre.com.google.common.base.Preconditions.checkArgument;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.apache.beam.sdk.coders.Coder;
+import org.apache.beam.sdk.coders.KvCoder;
+import org.apache.beam.sdk.coders.NullableCoder;
+import org.apache.beam.sdk.schemas.FieldAccessDescriptor;
+import org.apache.beam.sdk.schemas.Schema;
+import org.apache.beam.sdk.schemas.Schema.FieldType;
+import org.apache.beam.sdk.schemas.SchemaCoder;
+import org.apache.beam.sdk.schemas.SchemaUtils;
+import org.apache.beam.sdk.schemas.utils.RowSelector;
+import org.apache.beam.sdk.schemas.utils.SelectHelpers;
+import org.apache.beam.sdk.schemas.utils.SelectHelpers.RowSelectorContainer;
+import org.apache.beam.sdk.transforms.DoFn;
+import org.apache.beam.sdk.transforms.PTransform;
+import org.apache.beam.sdk.transforms.ParDo;
+import org.apache.beam.sdk.values.KV;
+import org.apache.beam.sdk.values.PCollection;
+import org.apache.beam.sdk.values.Row;
+
+/**
+ * Implementation of {@link Join.Impl#withHotKeyFanout}.
+ *
+ * <p>Both inputs are keyed by their join fields, using a key schema shared by both inputs, and
+ * joined by the {@link org.apache.beam.sdk.transforms.join.HotKeyJoin} of KV elements. The joined
+ * pairs of rows are output with the same schema as by a join without hot key handling.
+ */
+@SuppressWarnings({
+  "nullness" // TODO(https://issues.apache.org/jira/browse/BEAM-10402)
+})
+class HotKeyJoin<LhsT, RhsT> extends PTransform<PCollection<LhsT>, PCollection<Row>> {
+  private final transient PCollection<RhsT> rhs;
+  private final FieldAccessDescriptor lhsKeyFields;
+  private final FieldAccessDescriptor rhsKeyFields;
+  private final boolean lhsOptional;
+  private final boolean rhsOptional;
+  private final int fanout;
+  private final long threshold;
+
+  HotKeyJoin(
+      PCollection<RhsT> rhs,
+      FieldAccessDescriptor lhsKeyFields,
+      FieldAccessDescriptor rhsKeyFields,
+      boolean lhsOptional,
+      boolean rhsOptional,
+      int fanout,
+      long threshold) {
+    checkArgument(fanout > 0, "Hot key fanout must be positive, but was %s", fanout);
+    checkArgument(threshold > 0, "Hot key threshold must be positive, but was %s", threshold);
+    this.rhs = rhs;
+    this.lhsKeyFields = lhsKeyFields;
+    this.rhsKeyFields = rhsKeyFields;
+    this.lhsOptional = lhsOptional;
+    this.rhsOptional = rhsOptional;
+    this.fanout = fanout;
+    this.threshold = threshold;
+  }
+
+  @Override
+  public PCollection<Row> expand(PCollection<LhsT> lhs) {
+    Schema lhsSchema = lhs.getSchema();
+    Schema rhsSchema = rhs.getSchema();
+    Schema keySchema =
+        SchemaUtils.mergeWideningNullable(
+            SelectHelpers.getOutputSchema(lhsSchema, lhsKeyFields),
+            SelectHelpers.getOutputSchema(rhsSchema, rhsKeyFields));
+
+    PCollection<KV<Row, Row>> keyedLhs =
+        lhs.apply("KeyLhs", ParDo.of(new KeyFn<LhsT>(lhsSchema, lhsKeyFields, keySchema)))
+            .setCoder(KvCoder.of(SchemaCoder.of(keySchema), valueCoder(lhsSchema, lhsOptional)));
+    PCollection<KV<Row, Row>> keyedRhs =
+        rhs.apply("KeyRhs", ParDo.of(new KeyFn<RhsT>(rhsSchema, rhsKeyFields, keySchema)))
+            .setCoder(KvCoder.of(SchemaCoder.of(keySchema), valueCoder(rhsSchema, rhsOptional)));
+
+    // The output schema is the same as the one of a join without hot key handling.
+    Schema outputSchema =
+        Schema.builder()
+            .addField(Join.LHS_TAG, FieldType.row(lhsSchema).withNullable(lhsOptional))
+            .addField(Join.RHS_TAG, FieldType.row(rhsSchema).withNullable(rhsOptional))
+            .build();
+    return keyedLhs
+        .apply(
+            "Join",
+            new org.apache.beam.sdk.transforms.join.HotKeyJoin<Row, Row, Row>(
+                keyedRhs, fanout, threshold, rhsOptional, lhsOptional, null, null))
+        .apply("ToRows", ParDo.of(new ToRowFn(outputSchema)))
+        .setRowSchema(outputSchema);
+  }
+
+  /** Unmatched rows of an optional side are joined with null. */
+  private static Coder<Row> valueCoder(Schema schema, boolean optional) {
+    Coder<Row> coder = SchemaCoder.of(schema);
+    return optional ? NullableCoder.of(coder) : coder;
+  }
+
+  /** Copies the first {@code schema.getFieldCount()} values of a row to a row of the schema. */
+  private static Row project(Row row, Schema schema) {
+    List<Object> values = new ArrayList<>(schema.getFieldCount());
+    for (int i = 0; i < schema.getFieldCount(); i++) {
+      values.add(row.getValue(i));
+    }
+    return Row.withSchema(schema).attachValues(values);
+  }
+
+  /** Keys each row by its join key, using the key schema shared by both inputs. */
+  private static class KeyFn<T> extends DoFn<T, KV<Row, Row>> {
+    private final RowSelector rowSelector;
+    private final Schema keySchema;
+
+    KeyFn(Schema schema, FieldAccessDescriptor keyFields, Schema keySchema) {
+      this.rowSelector = new RowSelectorContainer(schema, keyFields, true);
+      this.keySchema = keySchema;
+    }
+
+    @ProcessElement
+    public void process(@Element Row row, OutputReceiver<KV<Row, Row>> o) {
+      o.output(KV.of(project(rowSelector.select(row), keySchema), row));
+    }
+  }
+
+  /** Converts the joined pairs of rows to rows of the output schema. */
+  private static class ToRowFn extends DoFn<KV<Row, KV<Row, Row>>, Row> {
+    private final Schema outputSchema;
+
+    ToRowFn(Schema outputSchema) {
+      this.outputSchema = outputSchema;
+    }
+
+    @ProcessElement
+    public void process(@Element KV<Row, KV<Row, Row>> joined, OutputReceiver<Row> o) {
+      KV<Row, Row> rows = joined.getValue();
+      o.output(
+          Row.withSchema(outputSchema).attachValues(Arrays.asList(rows.getKey(), rows.getValue())));
+    }
+  }
+}
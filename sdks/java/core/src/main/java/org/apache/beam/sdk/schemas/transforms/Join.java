@@ -17,6 +17,8 @@
  */
 package org.apache.beam.sdk.schemas.transforms;
 
+import static org.apache.beam.vendor.guava.v26_0_jre.com.google.common.base.Preconditions.checkArgument;
+
 import java.io.Serializable;
 import org.apache.beam.sdk.annotations.Experimental;
 import org.apache.beam.sdk.annotations.Experimental.Kind;
@@ -51,6 +53,15 @@ import org.checkerframework.checker.nullness.qual.Nullable;
  * }</pre>
  *
  * <p>Full outer joins, left outer joins, and right outer joins are also supported.
+ *
+ * <p>If a few join keys are much more frequent than the others, the rows of a hot key are all
+ * joined by a single worker. {@link Impl#withHotKeyFanout} spreads the left-hand rows of such keys
+ * across several sub-keys and replicates the matching right-hand rows to each of them:
+ *
+ * <pre>{@code PCollection<Row> joined = pCollection1.apply(Join.innerJoin(pCollection2)
+ *       .using("user")
+ *       .withHotKeyFanout(16));
+ * }</pre>
  */
 @Experimental(Kind.SCHEMAS)
 @SuppressWarnings({
@@ -173,15 +184,29 @@ public class Join {
     private final JoinType joinType;
     private final transient PCollection<RhsT> rhs;
     private final FieldsEqual.@Nullable Impl predicate;
+    private final int hotKeyFanout;
+    private final long hotKeyThreshold;
 
     private Impl(JoinType joinType, PCollection<RhsT> rhs) {
-      this(joinType, rhs, null);
+      this(
+          joinType,
+          rhs,
+          null,
+          0,
+          org.apache.beam.sdk.transforms.join.HotKeyJoin.DEFAULT_HOT_KEY_THRESHOLD);
     }
 
-    private Impl(JoinType joinType, PCollection<RhsT> rhs, FieldsEqual.Impl predicate) {
+    private Impl(
+        JoinType joinType,
+        PCollection<RhsT> rhs,
+        FieldsEqual.Impl predicate,
+        int hotKeyFanout,
+        long hotKeyThreshold) {
       this.joinType = joinType;
       this.rhs = rhs;
       this.predicate = predicate;
+      this.hotKeyFanout = hotKeyFanout;
+      this.hotKeyThreshold = hotKeyThreshold;
     }
 
     /**
@@ -189,7 +214,12 @@ public class Join {
      * PCollections
      */
     public Impl<LhsT, RhsT> using(String... fieldNames) {
-      return new Impl<>(joinType, rhs, FieldsEqual.left(fieldNames).right(fieldNames));
+      return new Impl<>(
+          joinType,
+          rhs,
+          FieldsEqual.left(fieldNames).right(fieldNames),
+          hotKeyFanout,
+          hotKeyThreshold);
     }
 
     /**
@@ -197,7 +227,8 @@ public class Join {
      * PCollections
      */
     public Impl<LhsT, RhsT> using(Integer... fieldIds) {
-      return new Impl<>(joinType, rhs, FieldsEqual.left(fieldIds).right(fieldIds));
+      return new Impl<>(
+          joinType, rhs, FieldsEqual.left(fieldIds).right(fieldIds), hotKeyFanout, hotKeyThreshold);
     }
 
     /**
@@ -206,17 +237,59 @@ public class Join {
      */
     public Impl<LhsT, RhsT> using(FieldAccessDescriptor fieldAccessDescriptor) {
       return new Impl<>(
-          joinType, rhs, FieldsEqual.left(fieldAccessDescriptor).right(fieldAccessDescriptor));
+          joinType,
+          rhs,
+          FieldsEqual.left(fieldAccessDescriptor).right(fieldAccessDescriptor),
+          hotKeyFanout,
+          hotKeyThreshold);
     }
 
     /** Join the PCollections using the provided predicate. */
     public Impl<LhsT, RhsT> on(FieldsEqual.Impl predicate) {
-      return new Impl<>(joinType, rhs, predicate);
+      return new Impl<>(joinType, rhs, predicate, hotKeyFanout, hotKeyThreshold);
+    }
+
+    /**
+     * Spread the left-hand rows of each hot key across {@code fanout} sub-keys, and replicate the
+     * right-hand rows with that key to all of them. Hot keys are detected from a sample of the
+     * left-hand PCollection, see {@link #withHotKeyThreshold}. A fanout of 0 disables hot key
+     * handling. Broadcast joins are not affected by this setting. Unbounded inputs in the global
+     * window are rejected, as their hot keys would never be known.
+     */
+    public Impl<LhsT, RhsT> withHotKeyFanout(int fanout) {
+      checkArgument(fanout >= 0, "Hot key fanout must not be negative, but was %s", fanout);
+      return new Impl<>(joinType, rhs, predicate, fanout, hotKeyThreshold);
+    }
+
+    /**
+     * Consider keys that occur at least {@code threshold} times in the left-hand PCollection as
+     * hot. Only used together with {@link #withHotKeyFanout}.
+     */
+    public Impl<LhsT, RhsT> withHotKeyThreshold(long threshold) {
+      checkArgument(threshold > 0, "Hot key threshold must be positive, but was %s", threshold);
+      return new Impl<>(joinType, rhs, predicate, hotKeyFanout, threshold);
     }
 
     @Override
     public PCollection<Row> expand(PCollection lhs) {
       FieldsEqual.Impl resolvedPredicate = predicate.resolve(lhs.getSchema(), rhs.getSchema());
+      if (hotKeyFanout > 0
+          && joinType != JoinType.INNER_BROADCAST
+          && joinType != JoinType.LEFT_OUTER_BROADCAST) {
+        boolean lhsOptional = joinType == JoinType.OUTER || joinType == JoinType.RIGHT_OUTER;
+        boolean rhsOptional = joinType == JoinType.OUTER || joinType == JoinType.LEFT_OUTER;
+        return (PCollection<Row>)
+            lhs.apply(
+                "HotKeyJoin",
+                new HotKeyJoin<>(
+                    rhs,
+                    resolvedPredicate.lhs,
+                    resolvedPredicate.rhs,
+                    lhsOptional,
+                    rhsOptional,
+                    hotKeyFanout,
+                    hotKeyThreshold));
+      }
       PCollectionTuple tuple = PCollectionTuple.of(LHS_TAG, lhs).and(RHS_TAG, rhs);
       switch (joinType) {
         case INNER:
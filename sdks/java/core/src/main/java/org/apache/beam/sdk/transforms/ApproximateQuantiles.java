@@ -41,6 +41,7 @@ import org.apache.beam.sdk.coders.CustomCoder;
 import org.apache.beam.sdk.coders.ListCoder;
 import org.apache.beam.sdk.transforms.Combine.AccumulatingCombineFn;
 import org.apache.beam.sdk.transforms.Combine.AccumulatingCombineFn.Accumulator;
+import org.apache.beam.sdk.transforms.Combine.CombineFn;
 import org.apache.beam.sdk.transforms.display.DisplayData;
 import org.apache.beam.sdk.util.WeightedValue;
 import org.apache.beam.sdk.util.common.ElementByteSizeObserver;
@@ -158,6 +159,56 @@ public class ApproximateQuantiles {
     return Combine.perKey(ApproximateQuantilesCombineFn.<V>create(numQuantiles));
   }
 
+  /**
+   * Like {@link #globally(int)}, but for {@code Double} values, using a {@link KllSketch} of
+   * primitive values as accumulator. The accumulators are much smaller and faster to encode and
+   * merge than the ones of {@link ApproximateQuantilesCombineFn}, at the cost of a probabilistic
+   * instead of a deterministic error bound. See {@link KllDoublesCombineFn}.
+   *
+   * @param numQuantiles the number of elements in the resulting quantile values {@code List}
+   */
+  public static PTransform<PCollection<Double>, PCollection<List<Double>>> doublesGlobally(
+      int numQuantiles) {
+    return Combine.globally(KllDoublesCombineFn.create(numQuantiles));
+  }
+
+  /**
+   * Like {@link #perKey(int)}, but for {@code Double} values, using a {@link KllSketch} of
+   * primitive values as accumulator. See {@link #doublesGlobally}.
+   *
+   * @param <K> the type of the keys in the input and output {@code PCollection}s
+   * @param numQuantiles the number of elements in the resulting quantile values {@code List}
+   */
+  public static <K>
+      PTransform<PCollection<KV<K, Double>>, PCollection<KV<K, List<Double>>>> doublesPerKey(
+          int numQuantiles) {
+    return Combine.perKey(KllDoublesCombineFn.create(numQuantiles));
+  }
+
+  /**
+   * Like {@link #globally(int)}, but for {@code Long} values, using a {@link KllSketch} of
+   * primitive values as accumulator. See {@link #doublesGlobally}.
+   *
+   * @param numQuantiles the number of elements in the resulting quantile values {@code List}
+   */
+  public static PTransform<PCollection<Long>, PCollection<List<Long>>> longsGlobally(
+      int numQuantiles) {
+    return Combine.globally(KllLongsCombineFn.create(numQuantiles));
+  }
+
+  /**
+   * Like {@link #perKey(int)}, but for {@code Long} values, using a {@link KllSketch} of primitive
+   * values as accumulator. See {@link #doublesGlobally}.
+   *
+   * @param <K> the type of the keys in the input and output {@code PCollection}s
+   * @param numQuantiles the number of elements in the resulting quantile values {@code List}
+   */
+  public static <K>
+      PTransform<PCollection<KV<K, Long>>, PCollection<KV<K, List<Long>>>> longsPerKey(
+          int numQuantiles) {
+    return Combine.perKey(KllLongsCombineFn.create(numQuantiles));
+  }
+
   /////////////////////////////////////////////////////////////////////////////
 
   /**
@@ -334,6 +385,132 @@ public class ApproximateQuantiles {
     }
   }
 
+  /**
+   * Base class of the combiners that estimate quantiles of primitive values with a {@link
+   * KllSketch}.
+   */
+  private abstract static class KllCombineFn<InputT>
+      extends CombineFn<InputT, KllSketch, List<InputT>> {
+    final int numQuantiles;
+    final int k;
+
+    KllCombineFn(int numQuantiles, int k) {
+      checkArgument(numQuantiles >= 2, "numQuantiles must be at least 2, but was %s", numQuantiles);
+      // Validates k.
+      KllSketch.create(k);
+      this.numQuantiles = numQuantiles;
+      this.k = k;
+    }
+
+    @Override
+    public KllSketch createAccumulator() {
+      return KllSketch.create(k);
+    }
+
+    @Override
+    public KllSketch mergeAccumulators(Iterable<KllSketch> accumulators) {
+      Iterator<KllSketch> iterator = accumulators.iterator();
+      KllSketch merged = iterator.next();
+      while (iterator.hasNext()) {
+        merged.merge(iterator.next());
+      }
+      return merged;
+    }
+
+    @Override
+    public Coder<KllSketch> getAccumulatorCoder(CoderRegistry registry, Coder<InputT> inputCoder) {
+      return KllSketch.coder();
+    }
+
+    @Override
+    public void populateDisplayData(DisplayData.Builder builder) {
+      super.populateDisplayData(builder);
+      builder
+          .add(DisplayData.item("numQuantiles", numQuantiles).withLabel("Quantile Count"))
+          .add(DisplayData.item("k", k).withLabel("Sketch Accuracy Parameter"));
+    }
+  }
+
+  /**
+   * A combiner like {@link ApproximateQuantilesCombineFn} for {@code Double} values, which uses a
+   * {@link KllSketch} of primitive values as accumulator.
+   *
+   * <p>The rank error of each quantile is about {@code 1.65 / k} with high probability, where
+   * {@code k} defaults to {@link KllSketch#DEFAULT_K}. Unlike for {@link
+   * ApproximateQuantilesCombineFn}, the size of the accumulator does not depend on an upper bound
+   * of the number of elements, and sketches of partial inputs can be merged in any order without
+   * losing accuracy.
+   */
+  public static class KllDoublesCombineFn extends KllCombineFn<Double> {
+    private KllDoublesCombineFn(int numQuantiles, int k) {
+      super(numQuantiles, k);
+    }
+
+    /**
+     * Returns a combiner producing {@code numQuantiles} quantiles, including the minimum and
+     * maximum.
+     */
+    public static KllDoublesCombineFn create(int numQuantiles) {
+      return new KllDoublesCombineFn(numQuantiles, KllSketch.DEFAULT_K);
+    }
+
+    /**
+     * Returns a {@code KllDoublesCombineFn} that's like this one except that it uses the specified
+     * sketch accuracy parameter {@code k}. Does not modify this combiner.
+     */
+    public KllDoublesCombineFn withK(int k) {
+      return new KllDoublesCombineFn(numQuantiles, k);
+    }
+
+    @Override
+    public KllSketch addInput(KllSketch accumulator, Double input) {
+      accumulator.update(input.doubleValue());
+      return accumulator;
+    }
+
+    @Override
+    public List<Double> extractOutput(KllSketch accumulator) {
+      return accumulator.getDoubleQuantiles(numQuantiles);
+    }
+  }
+
+  /**
+   * A combiner like {@link ApproximateQuantilesCombineFn} for {@code Long} values, which uses a
+   * {@link KllSketch} of primitive values as accumulator. See {@link KllDoublesCombineFn}.
+   */
+  public static class KllLongsCombineFn extends KllCombineFn<Long> {
+    private KllLongsCombineFn(int numQuantiles, int k) {
+      super(numQuantiles, k);
+    }
+
+    /**
+     * Returns a combiner producing {@code numQuantiles} quantiles, including the minimum and
+     * maximum.
+     */
+    public static KllLongsCombineFn create(int numQuantiles) {
+      return new KllLongsCombineFn(numQuantiles, KllSketch.DEFAULT_K);
+    }
+
+    /**
+     * Returns a {@code KllLongsCombineFn} that's like this one except that it uses the specified
+     * sketch accuracy parameter {@code k}. Does not modify this combiner.
+     */
+    public KllLongsCombineFn withK(int k) {
+      return new KllLongsCombineFn(numQuantiles, k);
+    }
+
+    @Override
+    public KllSketch addInput(KllSketch accumulator, Long input) {
+      accumulator.update(input.longValue());
+      return accumulator;
+    }
+
+    @Override
+    public List<Long> extractOutput(KllSketch accumulator) {
+      return accumulator.getLongQuantiles(numQuantiles);
+    }
+  }
+
   /** Compact summarization of a collection on which quantiles can be estimated. */
   static class QuantileState<T, ComparatorT extends Comparator<T> & Serializable>
       implements Accumulator<T, QuantileState<T, ComparatorT>, List<T>> {
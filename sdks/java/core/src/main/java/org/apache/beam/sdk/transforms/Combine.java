@@ -49,10 +49,17 @@ import org.apache.beam.sdk.transforms.View.CreatePCollectionView;
 import org.apache.beam.sdk.transforms.display.DisplayData;
 import org.apache.beam.sdk.transforms.display.DisplayData.Builder;
 import org.apache.beam.sdk.transforms.display.HasDisplayData;
+import org.apache.beam.sdk.transforms.windowing.BoundedWindow;
+import org.apache.beam.sdk.transforms.windowing.DefaultTrigger;
+import org.apache.beam.sdk.transforms.windowing.FixedWindows;
 import org.apache.beam.sdk.transforms.windowing.GlobalWindow;
 import org.apache.beam.sdk.transforms.windowing.GlobalWindows;
+import org.apache.beam.sdk.transforms.windowing.IntervalWindow;
+import org.apache.beam.sdk.transforms.windowing.SlidingWindows;
+import org.apache.beam.sdk.transforms.windowing.TimestampCombiner;
 import org.apache.beam.sdk.transforms.windowing.Window;
 import org.apache.beam.sdk.util.AppliedCombineFn;
+import org.apache.beam.sdk.util.CoderUtils;
 import org.apache.beam.sdk.util.NameUtils;
 import org.apache.beam.sdk.util.NameUtils.NameOverride;
 import org.apache.beam.sdk.util.SerializableUtils;
@@ -1574,6 +1581,17 @@ public class Combine {
           });
     }
 
+    /**
+     * If the input is windowed into {@link SlidingWindows}, returns a new per-key combining
+     * transform that combines the values of each key per non-overlapping slice of the sliding
+     * period and merges the accumulators of the slices for each window, instead of combining every
+     * value once per overlapping window. See {@link PerKeyWithSlidingWindowSlicing} for the
+     * requirements, otherwise the returned transform behaves like this one.
+     */
+    public PerKeyWithSlidingWindowSlicing<K, InputT, OutputT> withSlidingWindowSlicing() {
+      return new PerKeyWithSlidingWindowSlicing<>(fn, fnDisplayData, fewKeys, sideInputs);
+    }
+
     /** Returns the {@link GlobalCombineFn} used by this Combine operation. */
     public GlobalCombineFn<? super InputT, ?, OutputT> getFn() {
       return fn;
@@ -2050,6 +2068,248 @@ public class Combine {
     }
   }
 
+  /**
+   * Like {@link PerKey}, but combining values of {@link SlidingWindows} per slice.
+   *
+   * <p>{@link SlidingWindows} assign every element to {@code size / period} overlapping windows, so
+   * that combining them directly accumulates and shuffles every element that many times. If the
+   * input is windowed into {@link SlidingWindows} whose size is a multiple of the period, this
+   * transform instead combines the values of each key into non-overlapping slices of the length of
+   * the period, assigns each slice accumulator to the sliding windows containing the slice and
+   * merges the slice accumulators of each window using {@link CombineFn#mergeAccumulators}.
+   *
+   * <p>Slicing requires a {@link CombineFn}, the default trigger and the {@link
+   * TimestampCombiner#END_OF_WINDOW} timestamp combiner. For any other input this transform behaves
+   * exactly like {@link PerKey}.
+   */
+  public static class PerKeyWithSlidingWindowSlicing<K, InputT, OutputT>
+      extends PTransform<PCollection<KV<K, InputT>>, PCollection<KV<K, OutputT>>> {
+
+    private final GlobalCombineFn<? super InputT, ?, OutputT> fn;
+    private final DisplayData.ItemSpec<? extends Class<?>> fnDisplayData;
+    private final boolean fewKeys;
+    private final List<PCollectionView<?>> sideInputs;
+
+    private PerKeyWithSlidingWindowSlicing(
+        GlobalCombineFn<? super InputT, ?, OutputT> fn,
+        DisplayData.ItemSpec<? extends Class<?>> fnDisplayData,
+        boolean fewKeys,
+        List<PCollectionView<?>> sideInputs) {
+      this.fn = fn;
+      this.fnDisplayData = fnDisplayData;
+      this.fewKeys = fewKeys;
+      this.sideInputs = sideInputs;
+    }
+
+    @Override
+    protected String getKindString() {
+      return String.format(
+          "Combine.perKeyWithSlidingWindowSlicing(%s)", NameUtils.approximateSimpleName(fn));
+    }
+
+    @Override
+    public Map<TupleTag<?>, PValue> getAdditionalInputs() {
+      return PCollectionViews.toAdditionalInputs(sideInputs);
+    }
+
+    /**
+     * Returns whether values with the given {@link WindowingStrategy} can be combined per slice.
+     */
+    static boolean canSlice(WindowingStrategy<?, ?> windowingStrategy) {
+      if (!(windowingStrategy.getWindowFn() instanceof SlidingWindows)) {
+        return false;
+      }
+      SlidingWindows windowFn = (SlidingWindows) windowingStrategy.getWindowFn();
+      long sizeMillis = windowFn.getSize().getMillis();
+      long periodMillis = windowFn.getPeriod().getMillis();
+      return sizeMillis > periodMillis
+          && sizeMillis % periodMillis == 0
+          && windowingStrategy.getTrigger() instanceof DefaultTrigger
+          && windowingStrategy.getTimestampCombiner() == TimestampCombiner.END_OF_WINDOW;
+    }
+
+    @Override
+    public PCollection<KV<K, OutputT>> expand(PCollection<KV<K, InputT>> input) {
+      if (!(fn instanceof CombineFn)
+          || !sideInputs.isEmpty()
+          || !canSlice(input.getWindowingStrategy())) {
+        return input.apply("Combine", new PerKey<>(fn, fnDisplayData, fewKeys, sideInputs));
+      }
+      return applyHelper(input);
+    }
+
+    private <AccumT> PCollection<KV<K, OutputT>> applyHelper(PCollection<KV<K, InputT>> input) {
+      @SuppressWarnings("unchecked")
+      final CombineFn<InputT, AccumT, OutputT> typedFn =
+          (CombineFn<InputT, AccumT, OutputT>) this.fn;
+
+      if (!(input.getCoder() instanceof KvCoder)) {
+        throw new IllegalStateException(
+            "Expected input coder to be KvCoder, but was " + input.getCoder());
+      }
+
+      @SuppressWarnings("unchecked")
+      final KvCoder<K, InputT> inputCoder = (KvCoder<K, InputT>) input.getCoder();
+      final Coder<AccumT> accumCoder;
+      try {
+        accumCoder =
+            typedFn.getAccumulatorCoder(
+                input.getPipeline().getCoderRegistry(), inputCoder.getValueCoder());
+      } catch (CannotProvideCoderException e) {
+        throw new IllegalStateException("Unable to determine accumulator coder.", e);
+      }
+
+      // Split the CombineFn into one that does addInput + merge for the slices and another that
+      // does merge + extract for the sliding windows.
+      CombineFn<InputT, AccumT, AccumT> sliceCombine =
+          new CombineFn<InputT, AccumT, AccumT>() {
+            @Override
+            public AccumT createAccumulator() {
+              return typedFn.createAccumulator();
+            }
+
+            @Override
+            public AccumT addInput(AccumT accumulator, InputT value) {
+              return typedFn.addInput(accumulator, value);
+            }
+
+            @Override
+            public AccumT mergeAccumulators(Iterable<AccumT> accumulators) {
+              return typedFn.mergeAccumulators(accumulators);
+            }
+
+            @Override
+            public AccumT compact(AccumT accumulator) {
+              return typedFn.compact(accumulator);
+            }
+
+            @Override
+            public AccumT extractOutput(AccumT accumulator) {
+              return accumulator;
+            }
+
+            @Override
+            public Coder<AccumT> getAccumulatorCoder(
+                CoderRegistry registry, Coder<InputT> inputCoder) {
+              return accumCoder;
+            }
+
+            @Override
+            public Coder<AccumT> getDefaultOutputCoder(
+                CoderRegistry registry, Coder<InputT> inputCoder) {
+              return accumCoder;
+            }
+
+            @Override
+            public void populateDisplayData(DisplayData.Builder builder) {
+              builder.delegate(PerKeyWithSlidingWindowSlicing.this);
+            }
+          };
+
+      CombineFn<AccumT, AccumT, OutputT> windowCombine =
+          new CombineFn<AccumT, AccumT, OutputT>() {
+            @Override
+            public AccumT createAccumulator() {
+              return typedFn.createAccumulator();
+            }
+
+            @Override
+            public AccumT addInput(AccumT accumulator, AccumT sliceAccumulator) {
+              // The slice accumulator may be shared by all windows containing the slice, while
+              // mergeAccumulators is allowed to modify any of its arguments.
+              try {
+                return typedFn.mergeAccumulators(
+                    ImmutableList.of(accumulator, CoderUtils.clone(accumCoder, sliceAccumulator)));
+              } catch (CoderException e) {
+                throw new IllegalStateException("Unable to copy slice accumulator.", e);
+              }
+            }
+
+            @Override
+            public AccumT mergeAccumulators(Iterable<AccumT> accumulators) {
+              return typedFn.mergeAccumulators(accumulators);
+            }
+
+            @Override
+            public AccumT compact(AccumT accumulator) {
+              return typedFn.compact(accumulator);
+            }
+
+            @Override
+            public OutputT extractOutput(AccumT accumulator) {
+              return typedFn.extractOutput(accumulator);
+            }
+
+            @Override
+            public Coder<AccumT> getAccumulatorCoder(
+                CoderRegistry registry, Coder<AccumT> accumulatorCoder) {
+              return accumCoder;
+            }
+
+            @Override
+            public Coder<OutputT> getDefaultOutputCoder(
+                CoderRegistry registry, Coder<AccumT> accumulatorCoder)
+                throws CannotProvideCoderException {
+              return typedFn.getDefaultOutputCoder(registry, inputCoder.getValueCoder());
+            }
+
+            @Override
+            public void populateDisplayData(DisplayData.Builder builder) {
+              builder.delegate(PerKeyWithSlidingWindowSlicing.this);
+            }
+          };
+
+      @SuppressWarnings("unchecked")
+      WindowingStrategy<Object, IntervalWindow> windowingStrategy =
+          (WindowingStrategy<Object, IntervalWindow>) input.getWindowingStrategy();
+      SlidingWindows windowFn = (SlidingWindows) windowingStrategy.getWindowFn();
+      // Every sliding window consists of consecutive slices of the length of the period, which
+      // start at the offset of the windows.
+      final FixedWindows sliceFn =
+          FixedWindows.of(windowFn.getPeriod()).withOffset(windowFn.getOffset());
+      // Like for hot key fanout, the slices should never use accumulating mode. Otherwise late
+      // panes of a slice would be merged into the windows more than once.
+      WindowingStrategy<Object, IntervalWindow> sliceStrategy =
+          windowingStrategy
+              .withWindowFn(sliceFn)
+              .withMode(WindowingStrategy.AccumulationMode.DISCARDING_FIRED_PANES);
+
+      // The slice accumulators are timestamped with the end of their slice, which only falls into
+      // the sliding windows that contain the whole slice.
+      return input
+          .apply(
+              "DropOverlappingWindows",
+              ParDo.of(
+                  new DoFn<KV<K, InputT>, KV<K, InputT>>() {
+                    // Each element is contained in several sliding windows but must be added to
+                    // its slice only once, so only the window starting with the slice is kept.
+                    @ProcessElement
+                    public void processElement(ProcessContext c, BoundedWindow window) {
+                      if (!(window instanceof IntervalWindow)
+                          || ((IntervalWindow) window)
+                              .start()
+                              .equals(sliceFn.assignWindow(c.timestamp()).start())) {
+                        c.output(c.element());
+                      }
+                    }
+                  }))
+          .setCoder(inputCoder)
+          .apply("AssignSlices", Window.into(sliceFn))
+          .setWindowingStrategyInternal(sliceStrategy)
+          .apply("CombineSlices", Combine.perKey(sliceCombine, fnDisplayData))
+          .setCoder(KvCoder.of(inputCoder.getKeyCoder(), accumCoder))
+          .apply("AssignWindows", Window.into(windowFn))
+          .setWindowingStrategyInternal(windowingStrategy)
+          .apply("MergeSlices", Combine.perKey(windowCombine, fnDisplayData));
+    }
+
+    @Override
+    public void populateDisplayData(DisplayData.Builder builder) {
+      super.populateDisplayData(builder);
+      Combine.populateDisplayData(builder, fn, fnDisplayData);
+    }
+  }
+
   /////////////////////////////////////////////////////////////////////////////
 
   /**
@@ -17,9 +17,24 @@
  */
 package org.apache.beam.sdk.transforms;
 
+import static org.apache.beam.vendor.guava.v26_0_jre.com.google.common.base.Preconditions.checkArgument;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.apache.beam.sdk.coders.AtomicCoder;
+import org.apache.beam.sdk.coders.BigEndianLongCoder;
 import org.apache.beam.sdk.coders.BooleanCoder;
 import org.apache.beam.sdk.coders.Coder;
 import org.apache.beam.sdk.coders.KvCoder;
+import org.apache.beam.sdk.coders.VarIntCoder;
+import org.apache.beam.sdk.coders.VarLongCoder;
+import org.apache.beam.sdk.state.MapState;
+import org.apache.beam.sdk.state.ReadableState;
 import org.apache.beam.sdk.state.StateSpec;
 import org.apache.beam.sdk.state.StateSpecs;
 import org.apache.beam.sdk.state.TimeDomain;
@@ -28,9 +43,15 @@ import org.apache.beam.sdk.state.TimerSpec;
 import org.apache.beam.sdk.state.TimerSpecs;
 import org.apache.beam.sdk.state.ValueState;
 import org.apache.beam.sdk.transforms.windowing.BoundedWindow;
+import org.apache.beam.sdk.util.VarInt;
 import org.apache.beam.sdk.values.KV;
 import org.apache.beam.sdk.values.PCollection;
 import org.apache.beam.sdk.values.TypeDescriptor;
+import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.hash.Funnel;
+import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.hash.Funnels;
+import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.hash.HashCode;
+import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.hash.Hashing;
+import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.primitives.Longs;
 import org.checkerframework.checker.nullness.qual.Nullable;
 import org.joda.time.Duration;
 
@@ -55,6 +76,13 @@ import org.joda.time.Duration;
  * provide an optimized implementation of their choice using the deduplication time domain and
  * threshold specified.
  *
+ * <p>By default, each distinct value is tracked by its own state cell and expiry timer. For very
+ * large numbers of distinct values, {@link Values#withShardedState} instead spreads the values over
+ * a bounded number of shards. Each shard stores compact, sorted blocks of 64-bit fingerprints of
+ * the encoded values in time buckets, and a single timer per shard expires a whole bucket at once.
+ * Fingerprint collisions may cause distinct values to be dropped with a probability of roughly
+ * {@code n^2 / 2^65} for {@code n} values within the deduplication duration.
+ *
  * <p>Does not preserve any order the input PCollection might have had.
  *
  * <p>Example of use:
@@ -78,10 +106,12 @@ public final class Deduplicate {
   public static final class Values<T> extends PTransform<PCollection<T>, PCollection<T>> {
     private final TimeDomain timeDomain;
     private final Duration duration;
+    private final int numShards;
 
-    private Values(TimeDomain timeDomain, Duration duration) {
+    private Values(TimeDomain timeDomain, Duration duration, int numShards) {
       this.timeDomain = timeDomain;
       this.duration = duration;
+      this.numShards = numShards;
     }
 
     @Override
@@ -96,7 +126,7 @@ public final class Deduplicate {
                       return KV.of(element, (Void) null);
                     }
                   }))
-          .apply(new KeyedValues<>(timeDomain, duration))
+          .apply(new KeyedValues<>(timeDomain, duration, numShards))
           .apply(Keys.create());
     }
 
@@ -104,14 +134,24 @@ public final class Deduplicate {
      * Returns a {@code Values} {@link PTransform} like this one but with the specified time domain.
      */
     public Values<T> withTimeDomain(TimeDomain timeDomain) {
-      return new Values<T>(timeDomain, duration);
+      return new Values<T>(timeDomain, duration, numShards);
     }
 
     /**
      * Returns a {@code Values} {@link PTransform} like this one but with the specified duration.
      */
     public Values<T> withDuration(Duration duration) {
-      return new Values<T>(timeDomain, duration);
+      return new Values<T>(timeDomain, duration, numShards);
+    }
+
+    /**
+     * Returns a {@code Values} {@link PTransform} like this one but which tracks the seen values in
+     * time-bucketed blocks of fingerprints spread over {@code numShards} keys, rather than with one
+     * state cell and timer per distinct value. See {@link Deduplicate} for details.
+     */
+    public Values<T> withShardedState(int numShards) {
+      checkArgument(numShards > 0, "numShards must be positive, but was %s", numShards);
+      return new Values<T>(timeDomain, duration, numShards);
     }
   }
 
@@ -131,15 +171,18 @@ public final class Deduplicate {
     private final @Nullable Coder<IdT> coder;
     private final TimeDomain timeDomain;
     private final Duration duration;
+    private final int numShards;
 
     private WithRepresentativeValues(
         TimeDomain timeDomain,
         Duration duration,
+        int numShards,
         SerializableFunction<T, IdT> fn,
         @Nullable TypeDescriptor<IdT> type,
         @Nullable Coder<IdT> coder) {
       this.timeDomain = timeDomain;
       this.duration = duration;
+      this.numShards = numShards;
       this.fn = fn;
       this.type = type;
       this.coder = coder;
@@ -159,7 +202,7 @@ public final class Deduplicate {
      *     value coder will be cleared.
      */
     public WithRepresentativeValues<T, IdT> withRepresentativeType(TypeDescriptor<IdT> type) {
-      return new WithRepresentativeValues<>(timeDomain, duration, fn, type, null);
+      return new WithRepresentativeValues<>(timeDomain, duration, numShards, fn, type, null);
     }
 
     /**
@@ -176,7 +219,7 @@ public final class Deduplicate {
      *     descriptor will be cleared.
      */
     public WithRepresentativeValues<T, IdT> withRepresentativeCoder(Coder<IdT> coder) {
-      return new WithRepresentativeValues<>(timeDomain, duration, fn, null, coder);
+      return new WithRepresentativeValues<>(timeDomain, duration, numShards, fn, null, coder);
     }
 
     /**
@@ -184,7 +227,7 @@ public final class Deduplicate {
      * specified time domain.
      */
     public WithRepresentativeValues<T, IdT> withTimeDomain(TimeDomain timeDomain) {
-      return new WithRepresentativeValues<>(timeDomain, duration, fn, type, coder);
+      return new WithRepresentativeValues<>(timeDomain, duration, numShards, fn, type, coder);
     }
 
     /**
@@ -192,7 +235,17 @@ public final class Deduplicate {
      * the specified deduplication duration.
      */
     public WithRepresentativeValues<T, IdT> withDuration(Duration duration) {
-      return new WithRepresentativeValues<>(timeDomain, duration, fn, type, coder);
+      return new WithRepresentativeValues<>(timeDomain, duration, numShards, fn, type, coder);
+    }
+
+    /**
+     * Returns a {@code WithRepresentativeValues} {@link PTransform} like this one but which tracks
+     * the seen representative values in time-bucketed blocks of fingerprints spread over {@code
+     * numShards} keys. See {@link Values#withShardedState}.
+     */
+    public WithRepresentativeValues<T, IdT> withShardedState(int numShards) {
+      checkArgument(numShards > 0, "numShards must be positive, but was %s", numShards);
+      return new WithRepresentativeValues<>(timeDomain, duration, numShards, fn, type, coder);
     }
 
     @Override
@@ -206,7 +259,7 @@ public final class Deduplicate {
         inputWithKey.setCoder(KvCoder.of(coder, input.getCoder()));
       }
       return inputWithKey
-          .apply(new KeyedValues<>(timeDomain, duration))
+          .apply(new KeyedValues<>(timeDomain, duration, numShards))
           .apply(org.apache.beam.sdk.transforms.Values.create());
     }
   }
@@ -219,15 +272,26 @@ public final class Deduplicate {
       extends PTransform<PCollection<KV<K, V>>, PCollection<KV<K, V>>> {
     private final TimeDomain timeDomain;
     private final Duration duration;
+    private final int numShards;
 
-    private KeyedValues(TimeDomain timeDomain, Duration duration) {
+    private KeyedValues(TimeDomain timeDomain, Duration duration, int numShards) {
       this.timeDomain = timeDomain;
       this.duration = duration;
+      this.numShards = numShards;
     }
 
     @Override
     public PCollection<KV<K, V>> expand(PCollection<KV<K, V>> input) {
-      return input.apply(ParDo.of(new DeduplicateFn<>(timeDomain, duration)));
+      if (numShards == 0) {
+        return input.apply(ParDo.of(new DeduplicateFn<>(timeDomain, duration)));
+      }
+      Coder<K> keyCoder = ((KvCoder<K, V>) input.getCoder()).getKeyCoder();
+      return input
+          .apply("AssignShards", ParDo.of(new AssignShardFn<>(keyCoder, numShards)))
+          .setCoder(
+              KvCoder.of(VarIntCoder.of(), KvCoder.of(BigEndianLongCoder.of(), input.getCoder())))
+          .apply(ParDo.of(new ShardedDeduplicateFn<>(timeDomain, duration)))
+          .setCoder(input.getCoder());
     }
 
     /**
@@ -235,7 +299,7 @@ public final class Deduplicate {
      * domain.
      */
     public KeyedValues<K, V> withTimeDomain(TimeDomain timeDomain) {
-      return new KeyedValues<>(timeDomain, duration);
+      return new KeyedValues<>(timeDomain, duration, numShards);
     }
 
     /**
@@ -243,7 +307,17 @@ public final class Deduplicate {
      * duration.
      */
     public KeyedValues<K, V> withDuration(Duration duration) {
-      return new KeyedValues<>(timeDomain, duration);
+      return new KeyedValues<>(timeDomain, duration, numShards);
+    }
+
+    /**
+     * Returns a {@code KeyedValues} {@link PTransform} like this one but which tracks the seen keys
+     * in time-bucketed blocks of fingerprints spread over {@code numShards} keys. See {@link
+     * Values#withShardedState}.
+     */
+    public KeyedValues<K, V> withShardedState(int numShards) {
+      checkArgument(numShards > 0, "numShards must be positive, but was %s", numShards);
+      return new KeyedValues<>(timeDomain, duration, numShards);
     }
   }
 
@@ -252,7 +326,7 @@ public final class Deduplicate {
    * TimeDomain#PROCESSING_TIME processing time domain}.
    */
   public static <T> Deduplicate.Values<T> values() {
-    return new Deduplicate.Values<>(DEFAULT_TIME_DOMAIN, DEFAULT_DURATION);
+    return new Deduplicate.Values<>(DEFAULT_TIME_DOMAIN, DEFAULT_DURATION, 0);
   }
 
   /**
@@ -260,7 +334,7 @@ public final class Deduplicate {
    * mins within the {@link TimeDomain#PROCESSING_TIME processing time domain}.
    */
   public static <K, V> Deduplicate.KeyedValues<K, V> keyedValues() {
-    return new Deduplicate.KeyedValues<>(DEFAULT_TIME_DOMAIN, DEFAULT_DURATION);
+    return new Deduplicate.KeyedValues<>(DEFAULT_TIME_DOMAIN, DEFAULT_DURATION, 0);
   }
 
   /**
@@ -270,7 +344,7 @@ public final class Deduplicate {
   public static <T, IdT> Deduplicate.WithRepresentativeValues<T, IdT> withRepresentativeValueFn(
       SerializableFunction<T, IdT> representativeValueFn) {
     return new Deduplicate.WithRepresentativeValues<T, IdT>(
-        DEFAULT_TIME_DOMAIN, DEFAULT_DURATION, representativeValueFn, null, null);
+        DEFAULT_TIME_DOMAIN, DEFAULT_DURATION, 0, representativeValueFn, null, null);
   }
 
   /////////////////////////////////////////////////////////////////////////////
@@ -327,4 +401,210 @@ public final class Deduplicate {
       seenState.clear();
     }
   }
+
+  /**
+   * Computes a 128-bit hash of the encoded key of each element. The upper half of the hash is used
+   * to pick one of {@code numShards} shards, the lower half is the fingerprint of the key.
+   */
+  private static class AssignShardFn<K, V> extends DoFn<KV<K, V>, KV<Integer, KV<Long, KV<K, V>>>> {
+    private final Funnel<K> keyFunnel;
+    private final int numShards;
+
+    private AssignShardFn(Coder<K> keyCoder, int numShards) {
+      this.keyFunnel =
+          (key, into) -> {
+            try {
+              keyCoder.encode(key, Funnels.asOutputStream(into));
+            } catch (IOException e) {
+              throw new UncheckedIOException(e);
+            }
+          };
+      this.numShards = numShards;
+    }
+
+    @ProcessElement
+    public void processElement(
+        @Element KV<K, V> element, OutputReceiver<KV<Integer, KV<Long, KV<K, V>>>> receiver) {
+      HashCode hash = Hashing.murmur3_128().hashObject(element.getKey(), keyFunnel);
+      byte[] bytes = hash.asBytes();
+      long fingerprint =
+          Longs.fromBytes(
+              bytes[0], bytes[1], bytes[2], bytes[3], bytes[4], bytes[5], bytes[6], bytes[7]);
+      long shardHash =
+          Longs.fromBytes(
+              bytes[8], bytes[9], bytes[10], bytes[11], bytes[12], bytes[13], bytes[14], bytes[15]);
+      receiver.output(
+          KV.of((int) Math.floorMod(shardHash, (long) numShards), KV.of(fingerprint, element)));
+    }
+  }
+
+  /**
+   * A stateful {@link DoFn} that deduplicates the elements of a shard by the fingerprints of their
+   * keys.
+   *
+   * <p>The deduplication duration is divided into {@link #BUCKETS_PER_DURATION} time buckets. A
+   * single timer fires at the end of each bucket, starts a new one, and drops the oldest bucket
+   * once it has been kept for the whole duration, so each fingerprint is remembered for at least
+   * the deduplication duration and at most one bucket longer. Within a bucket, fingerprints are
+   * spread over {@link #BLOCKS_PER_BUCKET} sorted blocks by their top bits, so that looking up and
+   * adding a fingerprint only reads and writes a small block.
+   */
+  private static class ShardedDeduplicateFn<K, V>
+      extends DoFn<KV<Integer, KV<Long, KV<K, V>>>, KV<K, V>> {
+    private static final int BUCKETS_PER_DURATION = 8;
+    private static final int BLOCK_BITS = 8;
+    private static final int BLOCKS_PER_BUCKET = 1 << BLOCK_BITS;
+
+    private static final String BUCKET_TIMER = "bucketTimer";
+    private static final String CURRENT_BUCKET_STATE = "currentBucket";
+    private static final String LAST_WRITTEN_BUCKET_STATE = "lastWrittenBucket";
+    private static final String BLOCKS_STATE = "blocks";
+
+    @TimerId(BUCKET_TIMER)
+    private final TimerSpec bucketTimerSpec;
+
+    @StateId(CURRENT_BUCKET_STATE)
+    private final StateSpec<ValueState<Long>> currentBucketState =
+        StateSpecs.value(VarLongCoder.of());
+
+    @StateId(LAST_WRITTEN_BUCKET_STATE)
+    private final StateSpec<ValueState<Long>> lastWrittenBucketState =
+        StateSpecs.value(VarLongCoder.of());
+
+    @StateId(BLOCKS_STATE)
+    private final StateSpec<MapState<Long, long[]>> blocksState =
+        StateSpecs.map(VarLongCoder.of(), FingerprintBlockCoder.INSTANCE);
+
+    private final Duration bucketDuration;
+
+    private ShardedDeduplicateFn(TimeDomain timeDomain, Duration duration) {
+      this.bucketTimerSpec = TimerSpecs.timer(timeDomain);
+      this.bucketDuration =
+          Duration.millis(Math.max(1L, duration.getMillis() / BUCKETS_PER_DURATION));
+    }
+
+    @ProcessElement
+    public void processElement(
+        @Element KV<Integer, KV<Long, KV<K, V>>> element,
+        BoundedWindow window,
+        OutputReceiver<KV<K, V>> receiver,
+        @StateId(CURRENT_BUCKET_STATE) ValueState<Long> currentBucketState,
+        @StateId(LAST_WRITTEN_BUCKET_STATE) ValueState<Long> lastWrittenBucketState,
+        @StateId(BLOCKS_STATE) MapState<Long, long[]> blocksState,
+        @TimerId(BUCKET_TIMER) Timer bucketTimer) {
+      long fingerprint = element.getValue().getKey();
+      int block = (int) (fingerprint >>> (Long.SIZE - BLOCK_BITS));
+
+      Long currentBucket = currentBucketState.read();
+      if (currentBucket == null) {
+        // No bucket is live, so start the first one. As for DeduplicateFn, the timer should not
+        // hold up the watermark.
+        currentBucket = 0L;
+        currentBucketState.write(currentBucket);
+        bucketTimer.offset(bucketDuration).withOutputTimestamp(window.maxTimestamp()).setRelative();
+      }
+
+      long oldestBucket = Math.max(0L, currentBucket - BUCKETS_PER_DURATION);
+      List<ReadableState<long[]>> blocks = new ArrayList<>();
+      for (long bucket = currentBucket; bucket >= oldestBucket; bucket--) {
+        blocks.add(blocksState.get(blockId(bucket, block)).readLater());
+      }
+      for (ReadableState<long[]> fingerprints : blocks) {
+        long[] sortedFingerprints = fingerprints.read();
+        if (sortedFingerprints != null
+            && Arrays.binarySearch(sortedFingerprints, fingerprint) >= 0) {
+          return;
+        }
+      }
+
+      long[] current = blocks.get(0).read();
+      blocksState.put(blockId(currentBucket, block), insert(current, fingerprint));
+      lastWrittenBucketState.write(currentBucket);
+      receiver.output(element.getValue().getValue());
+    }
+
+    @OnTimer(BUCKET_TIMER)
+    public void onBucketEnd(
+        BoundedWindow window,
+        @StateId(CURRENT_BUCKET_STATE) ValueState<Long> currentBucketState,
+        @StateId(LAST_WRITTEN_BUCKET_STATE) ValueState<Long> lastWrittenBucketState,
+        @StateId(BLOCKS_STATE) MapState<Long, long[]> blocksState,
+        @TimerId(BUCKET_TIMER) Timer bucketTimer) {
+      Long currentBucket = currentBucketState.read();
+      if (currentBucket == null) {
+        return;
+      }
+      long nextBucket = currentBucket + 1;
+      long expiredBucket = nextBucket - BUCKETS_PER_DURATION - 1;
+      if (expiredBucket >= 0) {
+        for (int block = 0; block < BLOCKS_PER_BUCKET; block++) {
+          blocksState.remove(blockId(expiredBucket, block));
+        }
+      }
+
+      Long lastWrittenBucket = lastWrittenBucketState.read();
+      if (lastWrittenBucket == null || lastWrittenBucket <= expiredBucket) {
+        // Every bucket that was written to has expired.
+        currentBucketState.clear();
+        lastWrittenBucketState.clear();
+        blocksState.clear();
+      } else {
+        currentBucketState.write(nextBucket);
+        bucketTimer.offset(bucketDuration).withOutputTimestamp(window.maxTimestamp()).setRelative();
+      }
+    }
+
+    private static long blockId(long bucket, int block) {
+      return bucket * BLOCKS_PER_BUCKET + block;
+    }
+
+    private static long[] insert(long @Nullable [] sortedFingerprints, long fingerprint) {
+      if (sortedFingerprints == null) {
+        return new long[] {fingerprint};
+      }
+      int insertionPoint = -Arrays.binarySearch(sortedFingerprints, fingerprint) - 1;
+      long[] result = new long[sortedFingerprints.length + 1];
+      System.arraycopy(sortedFingerprints, 0, result, 0, insertionPoint);
+      result[insertionPoint] = fingerprint;
+      System.arraycopy(
+          sortedFingerprints,
+          insertionPoint,
+          result,
+          insertionPoint + 1,
+          sortedFingerprints.length - insertionPoint);
+      return result;
+    }
+  }
+
+  /**
+   * A {@link Coder} for sorted arrays of fingerprints, which encodes the differences between
+   * consecutive fingerprints as var longs.
+   */
+  private static class FingerprintBlockCoder extends AtomicCoder<long[]> {
+    private static final FingerprintBlockCoder INSTANCE = new FingerprintBlockCoder();
+
+    @Override
+    public void encode(long[] value, OutputStream outStream) throws IOException {
+      VarInt.encode(value.length, outStream);
+      long previous = 0;
+      for (long fingerprint : value) {
+        VarInt.encode(fingerprint - previous, outStream);
+        previous = fingerprint;
+      }
+    }
+
+    @Override
+    public long[] decode(InputStream inStream) throws IOException {
+      long[] value = new long[VarInt.decodeInt(inStream)];
+      long previous = 0;
+      for (int i = 0; i < value.length; i++) {
+        previous += VarInt.decodeLong(inStream);
+        value[i] = previous;
+      }
+      return value;
+    }
+
+    @Override
+    public void verifyDeterministic() {}
+  }
 }
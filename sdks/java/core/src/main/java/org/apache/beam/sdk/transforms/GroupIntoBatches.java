@@ -22,11 +22,16 @@ import static org.apache.beam.vendor.guava.v26_0_jre.com.google.common.base.Prec
 import com.google.auto.value.AutoValue;
 import java.io.Serializable;
 import java.nio.ByteBuffer;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
 import javax.annotation.Nullable;
 import org.apache.beam.sdk.annotations.Experimental;
 import org.apache.beam.sdk.coders.Coder;
+import org.apache.beam.sdk.coders.InstantCoder;
 import org.apache.beam.sdk.coders.KvCoder;
+import org.apache.beam.sdk.coders.VarLongCoder;
 import org.apache.beam.sdk.state.BagState;
 import org.apache.beam.sdk.state.CombiningState;
 import org.apache.beam.sdk.state.StateSpec;
@@ -35,6 +40,7 @@ import org.apache.beam.sdk.state.TimeDomain;
 import org.apache.beam.sdk.state.Timer;
 import org.apache.beam.sdk.state.TimerSpec;
 import org.apache.beam.sdk.state.TimerSpecs;
+import org.apache.beam.sdk.state.ValueState;
 import org.apache.beam.sdk.transforms.windowing.BoundedWindow;
 import org.apache.beam.sdk.util.ShardedKey;
 import org.apache.beam.sdk.util.common.ElementByteSizeObserver;
@@ -117,8 +123,17 @@ public class GroupIntoBatches<K, InputT>
         long batchSizeBytes,
         SerializableFunction<InputT, Long> elementByteSize,
         Duration maxBufferingDuration) {
+      return create(batchSize, batchSizeBytes, elementByteSize, maxBufferingDuration, null);
+    }
+
+    public static <InputT> BatchingParams<InputT> create(
+        long batchSize,
+        long batchSizeBytes,
+        SerializableFunction<InputT, Long> elementByteSize,
+        Duration maxBufferingDuration,
+        @Nullable Duration targetLatency) {
       return new AutoValue_GroupIntoBatches_BatchingParams(
-          batchSize, batchSizeBytes, elementByteSize, maxBufferingDuration);
+          batchSize, batchSizeBytes, elementByteSize, maxBufferingDuration, targetLatency);
     }
 
     public abstract long getBatchSize();
@@ -130,6 +145,13 @@ public class GroupIntoBatches<K, InputT>
 
     public abstract Duration getMaxBufferingDuration();
 
+    /**
+     * The latency targeted by the adaptive batch size, or null if the batch size is static. See
+     * {@link GroupIntoBatches#withAdaptiveBatchSize(Duration)}.
+     */
+    @Nullable
+    public abstract Duration getTargetLatency();
+
     public SerializableFunction<InputT, Long> getWeigher(Coder<InputT> valueCoder) {
       SerializableFunction<InputT, Long> weigher = getElementByteSize();
       if (getBatchSizeBytes() < Long.MAX_VALUE) {
@@ -158,6 +180,9 @@ public class GroupIntoBatches<K, InputT>
   private final BatchingParams<InputT> params;
   private static final UUID workerUuid = UUID.randomUUID();
 
+  /** The weight of the latest measurement when adapting the batch size of a key. */
+  private static final double ADAPTATION_WEIGHT = 0.5;
+
   private GroupIntoBatches(BatchingParams<InputT> params) {
     this.params = params;
   }
@@ -215,7 +240,36 @@ public class GroupIntoBatches<K, InputT>
             params.getBatchSize(),
             params.getBatchSizeBytes(),
             params.getElementByteSize(),
-            duration));
+            duration,
+            params.getTargetLatency()));
+  }
+
+  /**
+   * Adapts the batch size of each key to its observed arrival rate, aiming to emit batches within
+   * {@code targetLatency} (in processing time) of their first element.
+   *
+   * <p>After every batch the transform measures how quickly the batch filled up and sets the next
+   * batch size of the key to the number of elements expected to arrive within {@code
+   * targetLatency}, bounded by the configured batch size. Keys with little traffic therefore get
+   * small batches that are emitted quickly, while hot keys get batches up to the configured batch
+   * size. A batch that is not complete when {@code targetLatency} elapses is emitted early, unless
+   * a shorter {@link #withMaxBufferingDuration max buffering duration} is set.
+   *
+   * <p>When used with {@link #withShardedKey()}, keys whose arrival rate exceeds what a single
+   * shard can batch within {@code targetLatency} are additionally spread over more shards.
+   */
+  @Experimental
+  public GroupIntoBatches<K, InputT> withAdaptiveBatchSize(Duration targetLatency) {
+    checkArgument(
+        targetLatency != null && targetLatency.isLongerThan(Duration.ZERO),
+        "target latency should be a positive value");
+    return new GroupIntoBatches<>(
+        BatchingParams.create(
+            params.getBatchSize(),
+            params.getBatchSizeBytes(),
+            params.getElementByteSize(),
+            params.getMaxBufferingDuration(),
+            targetLatency));
   }
 
   /**
@@ -223,6 +277,11 @@ public class GroupIntoBatches<K, InputT>
    * such that the input elements with the same key are spread to all available threads executing
    * the transform. Runners may override the default sharding to do a better load balancing during
    * the execution time.
+   *
+   * <p>If {@link #withAdaptiveBatchSize(Duration) adaptive batching} is enabled, keys are instead
+   * assigned a number of shards that grows with their observed arrival rate, so that cold keys are
+   * batched in a single shard and hot keys are spread until each shard can emit full batches within
+   * the target latency.
    */
   @Experimental
   public WithShardedKey withShardedKey() {
@@ -249,20 +308,31 @@ public class GroupIntoBatches<K, InputT>
       Coder<K> keyCoder = (Coder<K>) inputCoder.getCoderArguments().get(0);
       Coder<InputT> valueCoder = (Coder<InputT>) inputCoder.getCoderArguments().get(1);
 
-      return input
-          .apply(
-              MapElements.via(
-                  new SimpleFunction<KV<K, InputT>, KV<ShardedKey<K>, InputT>>() {
-                    @Override
-                    public KV<ShardedKey<K>, InputT> apply(KV<K, InputT> input) {
-                      long tid = Thread.currentThread().getId();
-                      ByteBuffer buffer = ByteBuffer.allocate(3 * Long.BYTES);
-                      buffer.putLong(workerUuid.getMostSignificantBits());
-                      buffer.putLong(workerUuid.getLeastSignificantBits());
-                      buffer.putLong(tid);
-                      return KV.of(ShardedKey.of(input.getKey(), buffer.array()), input.getValue());
-                    }
-                  }))
+      PCollection<KV<ShardedKey<K>, InputT>> shardedInput;
+      if (params.getTargetLatency() != null) {
+        shardedInput =
+            input.apply(
+                ParDo.of(
+                    new AdaptiveShardFn<>(
+                        keyCoder, params.getBatchSize(), params.getTargetLatency())));
+      } else {
+        shardedInput =
+            input.apply(
+                MapElements.via(
+                    new SimpleFunction<KV<K, InputT>, KV<ShardedKey<K>, InputT>>() {
+                      @Override
+                      public KV<ShardedKey<K>, InputT> apply(KV<K, InputT> input) {
+                        long tid = Thread.currentThread().getId();
+                        ByteBuffer buffer = ByteBuffer.allocate(3 * Long.BYTES);
+                        buffer.putLong(workerUuid.getMostSignificantBits());
+                        buffer.putLong(workerUuid.getLeastSignificantBits());
+                        buffer.putLong(tid);
+                        return KV.of(
+                            ShardedKey.of(input.getKey(), buffer.array()), input.getValue());
+                      }
+                    }));
+      }
+      return shardedInput
           .setCoder(KvCoder.of(ShardedKey.Coder.of(keyCoder), valueCoder))
           .apply(new GroupIntoBatches<>(getBatchingParams()));
     }
@@ -292,6 +362,17 @@ public class GroupIntoBatches<K, InputT>
     final Coder<InputT> valueCoder = (Coder<InputT>) inputCoder.getCoderArguments().get(1);
 
     SerializableFunction<InputT, Long> weigher = params.getWeigher(valueCoder);
+    if (params.getTargetLatency() != null) {
+      return input.apply(
+          ParDo.of(
+              new AdaptiveGroupIntoBatchesDoFn<>(
+                  params.getBatchSize(),
+                  params.getBatchSizeBytes(),
+                  weigher,
+                  params.getMaxBufferingDuration(),
+                  params.getTargetLatency(),
+                  valueCoder)));
+    }
     return input.apply(
         ParDo.of(
             new GroupIntoBatchesDoFn<>(
@@ -484,4 +565,306 @@ public class GroupIntoBatches<K, InputT>
       storedBatchSizeBytes.clear();
     }
   }
+
+  /**
+   * Returns the next batch size of a key given that its last batch of {@code numElements} elements
+   * arrived within {@code fillDuration}, measured from the first to the last element. The result is
+   * the number of elements expected to arrive within {@code targetLatency}, smoothed with the
+   * {@code current} batch size.
+   *
+   * <p>A batch of fewer than two elements says nothing about the arrival rate, so the {@code
+   * current} batch size is kept. For the same reason the result is at least two unless {@code
+   * maxBatchSize} is smaller, as a key would otherwise never leave a batch size of one.
+   */
+  @VisibleForTesting
+  static @Nullable Long nextAdaptiveBatchSize(
+      @Nullable Long current,
+      long maxBatchSize,
+      long numElements,
+      Duration fillDuration,
+      Duration targetLatency) {
+    if (numElements < 2) {
+      return current;
+    }
+    double elementsPerMilli = (numElements - 1) / (double) Math.max(1L, fillDuration.getMillis());
+    double desired = elementsPerMilli * targetLatency.getMillis();
+    double next =
+        current == null ? desired : ADAPTATION_WEIGHT * desired + (1 - ADAPTATION_WEIGHT) * current;
+    return Math.max(Math.min(2L, maxBatchSize), Math.min(maxBatchSize, Math.round(next)));
+  }
+
+  /**
+   * An exponentially decaying count of arrivals, which estimates the number of arrivals per second
+   * over the last few seconds.
+   */
+  @VisibleForTesting
+  static class ArrivalRate {
+    private static final double DECAY_SECONDS = 1.0;
+
+    private long lastArrivalNanos;
+    private double arrivalsPerSecond;
+
+    /** Records an arrival at {@code nowNanos} and returns the estimated arrivals per second. */
+    double observe(long nowNanos) {
+      double elapsedSeconds = Math.max(0L, nowNanos - lastArrivalNanos) / 1e9;
+      arrivalsPerSecond = arrivalsPerSecond * Math.exp(-elapsedSeconds / DECAY_SECONDS);
+      arrivalsPerSecond += 1 / DECAY_SECONDS;
+      lastArrivalNanos = nowNanos;
+      return arrivalsPerSecond;
+    }
+  }
+
+  /**
+   * Assigns shards to keys based on their arrival rate as observed by this instance. A key is
+   * spread over as many shards as are needed for each shard to receive a full batch within the
+   * target latency, so keys with little traffic keep a single shard.
+   */
+  private static class AdaptiveShardFn<K, InputT>
+      extends DoFn<KV<K, InputT>, KV<ShardedKey<K>, InputT>> {
+    private static final int MAX_SHARDS_PER_KEY = 256;
+    private static final int MAX_TRACKED_KEYS = 10_000;
+
+    private final Coder<K> keyCoder;
+    private final long batchSize;
+    private final double targetLatencySeconds;
+    private transient Map<Object, ArrivalRate> arrivalRates;
+
+    AdaptiveShardFn(Coder<K> keyCoder, long batchSize, Duration targetLatency) {
+      this.keyCoder = keyCoder;
+      this.batchSize = batchSize;
+      this.targetLatencySeconds = targetLatency.getMillis() / 1000.0;
+    }
+
+    @Setup
+    public void setup() {
+      // Least recently used keys are forgotten and start over with a single shard.
+      arrivalRates =
+          new LinkedHashMap<Object, ArrivalRate>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Object, ArrivalRate> eldest) {
+              return size() > MAX_TRACKED_KEYS;
+            }
+          };
+    }
+
+    @ProcessElement
+    public void processElement(
+        @Element KV<K, InputT> element, OutputReceiver<KV<ShardedKey<K>, InputT>> receiver) {
+      double arrivalsPerSecond =
+          arrivalRates
+              .computeIfAbsent(keyCoder.structuralValue(element.getKey()), k -> new ArrivalRate())
+              .observe(System.nanoTime());
+      double numShards = Math.ceil(arrivalsPerSecond * targetLatencySeconds / batchSize);
+      int shard =
+          numShards <= 1
+              ? 0
+              : ThreadLocalRandom.current().nextInt((int) Math.min(MAX_SHARDS_PER_KEY, numShards));
+      // The shard count is only known to this instance, so shard ids are salted with the worker
+      // and thread like the non-adaptive shard ids. Otherwise the cold key estimates of other
+      // instances would still send a hot key to a single shard.
+      ByteBuffer buffer = ByteBuffer.allocate(3 * Long.BYTES + Integer.BYTES);
+      buffer.putLong(workerUuid.getMostSignificantBits());
+      buffer.putLong(workerUuid.getLeastSignificantBits());
+      buffer.putLong(Thread.currentThread().getId());
+      buffer.putInt(shard);
+      receiver.output(KV.of(ShardedKey.of(element.getKey(), buffer.array()), element.getValue()));
+    }
+  }
+
+  /**
+   * Like {@link GroupIntoBatchesDoFn}, but adapts the batch size of each key to the rate at which
+   * its previous batches filled up. It uses its own state so that the state of transforms with a
+   * static batch size stays update compatible.
+   */
+  private static class AdaptiveGroupIntoBatchesDoFn<K, InputT>
+      extends DoFn<KV<K, InputT>, KV<K, Iterable<InputT>>> {
+
+    private final long maxBatchSize;
+    private final long batchSizeBytes;
+    @Nullable private final SerializableFunction<InputT, Long> weigher;
+    private final Duration bufferingDuration;
+    private final Duration targetLatency;
+
+    private static final String END_OF_BUFFERING_ID = "endOfBuffering";
+
+    @TimerId(END_OF_BUFFERING_ID)
+    private final TimerSpec bufferingTimer = TimerSpecs.timer(TimeDomain.PROCESSING_TIME);
+
+    private static final String BATCH_ID = "batch";
+
+    @StateId(BATCH_ID)
+    private final StateSpec<BagState<InputT>> batchSpec;
+
+    private static final String NUM_ELEMENTS_IN_BATCH_ID = "numElementsInBatch";
+
+    @StateId(NUM_ELEMENTS_IN_BATCH_ID)
+    private final StateSpec<CombiningState<Long, long[], Long>> batchSizeSpec =
+        StateSpecs.combining(Sum.ofLongs());
+
+    private static final String NUM_BYTES_IN_BATCH_ID = "numBytesInBatch";
+
+    @StateId(NUM_BYTES_IN_BATCH_ID)
+    private final StateSpec<CombiningState<Long, long[], Long>> batchSizeBytesSpec =
+        StateSpecs.combining(Sum.ofLongs());
+
+    private static final String BATCH_START_ID = "batchStart";
+
+    @StateId(BATCH_START_ID)
+    private final StateSpec<ValueState<Instant>> batchStartSpec =
+        StateSpecs.value(InstantCoder.of());
+
+    private static final String LAST_ARRIVAL_ID = "lastArrival";
+
+    @StateId(LAST_ARRIVAL_ID)
+    private final StateSpec<ValueState<Instant>> lastArrivalSpec =
+        StateSpecs.value(InstantCoder.of());
+
+    private static final String TARGET_BATCH_SIZE_ID = "targetBatchSize";
+
+    @StateId(TARGET_BATCH_SIZE_ID)
+    private final StateSpec<ValueState<Long>> targetBatchSizeSpec =
+        StateSpecs.value(VarLongCoder.of());
+
+    AdaptiveGroupIntoBatchesDoFn(
+        long maxBatchSize,
+        long batchSizeBytes,
+        @Nullable SerializableFunction<InputT, Long> weigher,
+        Duration maxBufferingDuration,
+        Duration targetLatency,
+        Coder<InputT> inputValueCoder) {
+      this.maxBatchSize = maxBatchSize;
+      this.batchSizeBytes = batchSizeBytes;
+      this.weigher = weigher;
+      this.bufferingDuration =
+          maxBufferingDuration.isLongerThan(Duration.ZERO)
+                  && maxBufferingDuration.isShorterThan(targetLatency)
+              ? maxBufferingDuration
+              : targetLatency;
+      this.targetLatency = targetLatency;
+      this.batchSpec = StateSpecs.bag(inputValueCoder);
+    }
+
+    @ProcessElement
+    public void processElement(
+        @TimerId(END_OF_BUFFERING_ID) Timer bufferingTimer,
+        @StateId(BATCH_ID) BagState<InputT> batch,
+        @StateId(NUM_ELEMENTS_IN_BATCH_ID) CombiningState<Long, long[], Long> storedBatchSize,
+        @StateId(NUM_BYTES_IN_BATCH_ID) CombiningState<Long, long[], Long> storedBatchSizeBytes,
+        @StateId(BATCH_START_ID) ValueState<Instant> batchStart,
+        @StateId(LAST_ARRIVAL_ID) ValueState<Instant> lastArrival,
+        @StateId(TARGET_BATCH_SIZE_ID) ValueState<Long> targetBatchSize,
+        @Element KV<K, InputT> element,
+        OutputReceiver<KV<K, Iterable<InputT>>> receiver) {
+      batch.add(element.getValue());
+      storedBatchSize.add(1L);
+      if (weigher != null) {
+        storedBatchSizeBytes.add(weigher.apply(element.getValue()));
+        storedBatchSizeBytes.readLater();
+      }
+      targetBatchSize.readLater();
+
+      long num = storedBatchSize.read();
+      // The first and last arrival of a batch determine how fast its elements arrived.
+      Instant now = Instant.now();
+      if (num == 1) {
+        batchStart.write(now);
+        bufferingTimer.offset(bufferingDuration).setRelative();
+      } else {
+        lastArrival.write(now);
+      }
+
+      Long target = targetBatchSize.read();
+      if (num >= (target == null ? maxBatchSize : target)
+          || (batchSizeBytes != Long.MAX_VALUE && storedBatchSizeBytes.read() >= batchSizeBytes)) {
+        flushBatch(
+            receiver,
+            element.getKey(),
+            batch,
+            storedBatchSize,
+            storedBatchSizeBytes,
+            batchStart,
+            lastArrival,
+            targetBatchSize);
+        // TODO(BEAM-10887): Use clear() when it's available.
+        bufferingTimer.offset(bufferingDuration).setRelative();
+      }
+    }
+
+    @OnTimer(END_OF_BUFFERING_ID)
+    public void onBufferingTimer(
+        OutputReceiver<KV<K, Iterable<InputT>>> receiver,
+        @Key K key,
+        @StateId(BATCH_ID) BagState<InputT> batch,
+        @StateId(NUM_ELEMENTS_IN_BATCH_ID) CombiningState<Long, long[], Long> storedBatchSize,
+        @StateId(NUM_BYTES_IN_BATCH_ID) CombiningState<Long, long[], Long> storedBatchSizeBytes,
+        @StateId(BATCH_START_ID) ValueState<Instant> batchStart,
+        @StateId(LAST_ARRIVAL_ID) ValueState<Instant> lastArrival,
+        @StateId(TARGET_BATCH_SIZE_ID) ValueState<Long> targetBatchSize) {
+      flushBatch(
+          receiver,
+          key,
+          batch,
+          storedBatchSize,
+          storedBatchSizeBytes,
+          batchStart,
+          lastArrival,
+          targetBatchSize);
+    }
+
+    @OnWindowExpiration
+    public void onWindowExpiration(
+        OutputReceiver<KV<K, Iterable<InputT>>> receiver,
+        @Key K key,
+        @StateId(BATCH_ID) BagState<InputT> batch,
+        @StateId(NUM_ELEMENTS_IN_BATCH_ID) CombiningState<Long, long[], Long> storedBatchSize,
+        @StateId(NUM_BYTES_IN_BATCH_ID) CombiningState<Long, long[], Long> storedBatchSizeBytes,
+        @StateId(BATCH_START_ID) ValueState<Instant> batchStart,
+        @StateId(LAST_ARRIVAL_ID) ValueState<Instant> lastArrival,
+        @StateId(TARGET_BATCH_SIZE_ID) ValueState<Long> targetBatchSize) {
+      flushBatch(
+          receiver,
+          key,
+          batch,
+          storedBatchSize,
+          storedBatchSizeBytes,
+          batchStart,
+          lastArrival,
+          targetBatchSize);
+    }
+
+    private void flushBatch(
+        OutputReceiver<KV<K, Iterable<InputT>>> receiver,
+        K key,
+        BagState<InputT> batch,
+        CombiningState<Long, long[], Long> storedBatchSize,
+        CombiningState<Long, long[], Long> storedBatchSizeBytes,
+        ValueState<Instant> batchStart,
+        ValueState<Instant> lastArrival,
+        ValueState<Long> targetBatchSize) {
+      Iterable<InputT> values = batch.read();
+      // When the timer fires, batch state might be empty
+      if (!Iterables.isEmpty(values)) {
+        receiver.output(KV.of(key, values));
+        Instant start = batchStart.read();
+        Instant end = lastArrival.read();
+        if (start != null && end != null) {
+          Long next =
+              nextAdaptiveBatchSize(
+                  targetBatchSize.read(),
+                  maxBatchSize,
+                  storedBatchSize.read(),
+                  new Duration(start, end),
+                  targetLatency);
+          if (next != null) {
+            targetBatchSize.write(next);
+          }
+        }
+      }
+      batch.clear();
+      storedBatchSize.clear();
+      storedBatchSizeBytes.clear();
+      batchStart.clear();
+      lastArrival.clear();
+    }
+  }
 }
@@ -0,0 +1,443 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.sdk.transforms;
+
+import static org.apache.beam.vendor.guava.v26_0_jre.com.google.common.base.Preconditions.checkArgument;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import org.apache.beam.sdk.annotations.Experimental;
+import org.apache.beam.sdk.coders.Coder;
+import org.apache.beam.sdk.coders.CoderException;
+import org.apache.beam.sdk.coders.CustomCoder;
+import org.apache.beam.sdk.util.VarInt;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * A mergeable sketch for estimating quantiles of a stream of {@code long} or {@code double} values,
+ * using the algorithm described in:
+ *
+ * <pre>
+ *   [KLL16] Karnin, Lang &amp; Liberty, "Optimal Quantile Approximation in Streams",
+ *   Proc. 2016 IEEE FOCS, p 71-78.
+ *   https://arxiv.org/abs/1603.05346
+ * </pre>
+ *
+ * <p>The sketch keeps a hierarchy of compactors holding primitive {@code long}s. Items of level
+ * {@code h} represent {@code 2^h} input values. When a level exceeds its capacity it is sorted and
+ * every other item, starting at a random offset, is promoted to the next level. The capacity of the
+ * top level is {@code k} and decreases geometrically towards the lower levels, so the sketch
+ * retains {@code O(k log(n / k))} items and the rank error of a quantile is about {@code 1.65 / k}
+ * with high probability. Sketches with the same {@code k} can be merged in any order without losing
+ * accuracy.
+ *
+ * <p>{@code double} values are stored as {@code long}s with the same ordering. A sketch must only
+ * be used with one of the two value types: values added with {@link #update(double)} must be
+ * queried with {@link #getDoubleQuantile} and {@link #getDoubleQuantiles}, and values added with
+ * {@link #update(long)} with {@link #getLongQuantile} and {@link #getLongQuantiles}.
+ *
+ * <p>This class is not thread-safe.
+ */
+@Experimental
+public final class KllSketch implements Serializable {
+  /** The default value of {@code k}, which gives a normalized rank error of about 1.65%. */
+  public static final int DEFAULT_K = 200;
+
+  /** The smallest capacity of a level. */
+  private static final int MIN_LEVEL_CAPACITY = 8;
+
+  /** The ratio between the capacities of two adjacent levels. */
+  private static final double LEVEL_CAPACITY_RATIO = 2.0 / 3.0;
+
+  private final int k;
+  private long count;
+  private long min;
+  private long max;
+  private long[][] levels;
+  private int[] levelSizes;
+  private int numLevels;
+  private int numRetained;
+  private int totalCapacity;
+
+  /** Sorted items and their cumulative weights, or null if they need to be recomputed. */
+  private transient long @Nullable [] sortedItems;
+
+  private transient long @Nullable [] cumulativeWeights;
+
+  private KllSketch(int k) {
+    this.k = k;
+    this.levels = new long[][] {new long[levelCapacity(0, 1)]};
+    this.levelSizes = new int[1];
+    this.numLevels = 1;
+    this.totalCapacity = computeTotalCapacity();
+  }
+
+  /** Returns an empty sketch with the {@link #DEFAULT_K default} accuracy. */
+  public static KllSketch create() {
+    return create(DEFAULT_K);
+  }
+
+  /**
+   * Returns an empty sketch with the given {@code k}, which controls the tradeoff between accuracy
+   * and size. The rank error of a quantile is about {@code 1.65 / k}.
+   */
+  public static KllSketch create(int k) {
+    checkArgument(
+        k >= MIN_LEVEL_CAPACITY, "k must be at least %s, but was %s", MIN_LEVEL_CAPACITY, k);
+    return new KllSketch(k);
+  }
+
+  /** Returns a {@link Coder} for {@link KllSketch}es. */
+  public static Coder<KllSketch> coder() {
+    return KllSketchCoder.INSTANCE;
+  }
+
+  /** Returns the {@code k} this sketch was created with. */
+  public int getK() {
+    return k;
+  }
+
+  /** Returns the number of values added to this sketch, including merged sketches. */
+  public long getCount() {
+    return count;
+  }
+
+  /** Returns whether no value was added to this sketch. */
+  public boolean isEmpty() {
+    return count == 0;
+  }
+
+  /** Returns the number of items retained by this sketch. */
+  public int getNumRetained() {
+    return numRetained;
+  }
+
+  /** Adds a {@code long} value to this sketch. */
+  public void update(long value) {
+    if (count == 0) {
+      min = value;
+      max = value;
+    } else {
+      min = Math.min(min, value);
+      max = Math.max(max, value);
+    }
+    count++;
+    append(0, value);
+    sortedItems = null;
+    if (numRetained >= totalCapacity) {
+      compress();
+    }
+  }
+
+  /** Adds a {@code double} value to this sketch. */
+  public void update(double value) {
+    update(toSortableLong(value));
+  }
+
+  /**
+   * Merges the values of the given sketch, which must have the same {@code k}, into this sketch.
+   * Does not modify {@code other}.
+   */
+  public KllSketch merge(KllSketch other) {
+    if (other.count == 0) {
+      return this;
+    }
+    checkArgument(other.k == k, "Cannot merge sketches with different k: %s and %s", k, other.k);
+    if (count == 0) {
+      min = other.min;
+      max = other.max;
+    } else {
+      min = Math.min(min, other.min);
+      max = Math.max(max, other.max);
+    }
+    count += other.count;
+    for (int level = 0; level < other.numLevels; level++) {
+      if (level == numLevels) {
+        addLevel();
+      }
+      for (int i = 0; i < other.levelSizes[level]; i++) {
+        append(level, other.levels[level][i]);
+      }
+    }
+    sortedItems = null;
+    compress();
+    return this;
+  }
+
+  /**
+   * Returns the approximate value at the given {@code fraction} of the sorted {@code long} values,
+   * where 0 is the minimum and 1 the maximum.
+   */
+  public long getLongQuantile(double fraction) {
+    checkArgument(count > 0, "Cannot compute the quantile of an empty sketch");
+    checkArgument(
+        fraction >= 0 && fraction <= 1, "fraction must be in [0, 1], but was %s", fraction);
+    return quantile(fraction);
+  }
+
+  /** Like {@link #getLongQuantile}, but for a sketch of {@code double} values. */
+  public double getDoubleQuantile(double fraction) {
+    return fromSortableLong(getLongQuantile(fraction));
+  }
+
+  /**
+   * Returns the approximate {@code N}-tiles of the {@code long} values, in the format of {@link
+   * ApproximateQuantiles}: a list of size {@code numQuantiles} with the minimum, {@code
+   * numQuantiles-2} intermediate values, and the maximum. If the sketch holds at most {@code
+   * numQuantiles} values, the list contains all of them in sorted order.
+   */
+  public List<Long> getLongQuantiles(int numQuantiles) {
+    long[] quantiles = quantiles(numQuantiles);
+    List<Long> result = new ArrayList<>(quantiles.length);
+    for (long quantile : quantiles) {
+      result.add(quantile);
+    }
+    return result;
+  }
+
+  /** Like {@link #getLongQuantiles}, but for a sketch of {@code double} values. */
+  public List<Double> getDoubleQuantiles(int numQuantiles) {
+    long[] quantiles = quantiles(numQuantiles);
+    List<Double> result = new ArrayList<>(quantiles.length);
+    for (long quantile : quantiles) {
+      result.add(fromSortableLong(quantile));
+    }
+    return result;
+  }
+
+  @Override
+  public String toString() {
+    return String.format(
+        "KllSketch{k=%d, count=%d, retained=%d, levels=%d}", k, count, getNumRetained(), numLevels);
+  }
+
+  /////////////////////////////////////////////////////////////////////////////
+
+  private long[] quantiles(int numQuantiles) {
+    checkArgument(numQuantiles >= 2, "numQuantiles must be at least 2, but was %s", numQuantiles);
+    if (count == 0) {
+      return new long[0];
+    }
+    if (count <= numQuantiles && numLevels == 1) {
+      // Nothing has been compacted, so all values are still there.
+      long[] values = Arrays.copyOf(levels[0], levelSizes[0]);
+      Arrays.sort(values);
+      return values;
+    }
+    long[] quantiles = new long[numQuantiles];
+    quantiles[0] = min;
+    for (int i = 1; i < numQuantiles - 1; i++) {
+      quantiles[i] = quantile((double) i / (numQuantiles - 1));
+    }
+    quantiles[numQuantiles - 1] = max;
+    return quantiles;
+  }
+
+  private long quantile(double fraction) {
+    if (fraction == 0) {
+      return min;
+    } else if (fraction == 1) {
+      return max;
+    }
+    if (sortedItems == null) {
+      buildSortedView();
+    }
+    long rank = (long) Math.ceil(fraction * count);
+    int index = Arrays.binarySearch(cumulativeWeights, rank);
+    if (index < 0) {
+      index = -index - 1;
+    }
+    return sortedItems[Math.min(index, sortedItems.length - 1)];
+  }
+
+  private void buildSortedView() {
+    long[][] pairs = new long[numRetained][];
+    int pos = 0;
+    for (int level = 0; level < numLevels; level++) {
+      for (int i = 0; i < levelSizes[level]; i++) {
+        pairs[pos++] = new long[] {levels[level][i], 1L << level};
+      }
+    }
+    Arrays.sort(pairs, (a, b) -> Long.compare(a[0], b[0]));
+    long[] items = new long[numRetained];
+    long[] weights = new long[numRetained];
+    long cumulativeWeight = 0;
+    for (int i = 0; i < numRetained; i++) {
+      items[i] = pairs[i][0];
+      cumulativeWeight += pairs[i][1];
+      weights[i] = cumulativeWeight;
+    }
+    sortedItems = items;
+    cumulativeWeights = weights;
+  }
+
+  /** Compacts levels until the sketch fits into its total capacity. */
+  private void compress() {
+    while (numRetained >= totalCapacity) {
+      int level = 0;
+      while (levelSizes[level] < levelCapacity(level, numLevels)) {
+        level++;
+      }
+      compact(level);
+    }
+  }
+
+  /**
+   * Sorts the given level and promotes every other item to the next level, starting at a random
+   * offset. If the level has an odd number of items, its largest item stays behind.
+   */
+  private void compact(int level) {
+    if (level + 1 == numLevels) {
+      addLevel();
+    }
+    long[] items = levels[level];
+    int size = levelSizes[level];
+    Arrays.sort(items, 0, size);
+    int pairs = size / 2;
+    int offset = ThreadLocalRandom.current().nextBoolean() ? 1 : 0;
+    for (int i = 0; i < pairs; i++) {
+      append(level + 1, items[2 * i + offset]);
+    }
+    if (size % 2 == 1) {
+      items[0] = items[size - 1];
+    }
+    levelSizes[level] = size % 2;
+    numRetained -= size - size % 2;
+  }
+
+  private void addLevel() {
+    if (numLevels == levels.length) {
+      levels = Arrays.copyOf(levels, numLevels * 2);
+      levelSizes = Arrays.copyOf(levelSizes, numLevels * 2);
+    }
+    levels[numLevels] = new long[MIN_LEVEL_CAPACITY];
+    levelSizes[numLevels] = 0;
+    numLevels++;
+    totalCapacity = computeTotalCapacity();
+  }
+
+  private void append(int level, long item) {
+    long[] items = levels[level];
+    int size = levelSizes[level];
+    if (size == items.length) {
+      items = Arrays.copyOf(items, Math.max(MIN_LEVEL_CAPACITY, size * 2));
+      levels[level] = items;
+    }
+    items[size] = item;
+    levelSizes[level] = size + 1;
+    numRetained++;
+  }
+
+  private int computeTotalCapacity() {
+    int totalCapacity = 0;
+    for (int level = 0; level < numLevels; level++) {
+      totalCapacity += levelCapacity(level, numLevels);
+    }
+    return totalCapacity;
+  }
+
+  private int levelCapacity(int level, int numLevels) {
+    int depth = numLevels - level - 1;
+    return Math.max(MIN_LEVEL_CAPACITY, (int) Math.ceil(k * Math.pow(LEVEL_CAPACITY_RATIO, depth)));
+  }
+
+  /** Maps a {@code double} to a {@code long} such that the order of the values is preserved. */
+  static long toSortableLong(double value) {
+    long bits = Double.doubleToLongBits(value);
+    return bits ^ ((bits >> 63) & Long.MAX_VALUE);
+  }
+
+  /** Inverse of {@link #toSortableLong}. */
+  static double fromSortableLong(long value) {
+    return Double.longBitsToDouble(value ^ ((value >> 63) & Long.MAX_VALUE));
+  }
+
+  /**
+   * A compact {@link Coder} for {@link KllSketch}es. The items of each level are sorted and encoded
+   * as var long differences.
+   */
+  private static class KllSketchCoder extends CustomCoder<KllSketch> {
+    private static final KllSketchCoder INSTANCE = new KllSketchCoder();
+
+    @Override
+    public void encode(KllSketch value, OutputStream outStream) throws IOException {
+      if (value == null) {
+        throw new CoderException("cannot encode a null KllSketch");
+      }
+      VarInt.encode(value.k, outStream);
+      VarInt.encode(value.count, outStream);
+      if (value.count == 0) {
+        return;
+      }
+      DataOutputStream dataOutStream = new DataOutputStream(outStream);
+      dataOutStream.writeLong(value.min);
+      dataOutStream.writeLong(value.max);
+      dataOutStream.flush();
+      VarInt.encode(value.numLevels, outStream);
+      for (int level = 0; level < value.numLevels; level++) {
+        int size = value.levelSizes[level];
+        long[] items = Arrays.copyOf(value.levels[level], size);
+        Arrays.sort(items);
+        VarInt.encode(size, outStream);
+        long previous = 0;
+        for (long item : items) {
+          VarInt.encode(item - previous, outStream);
+          previous = item;
+        }
+      }
+    }
+
+    @Override
+    public KllSketch decode(InputStream inStream) throws IOException {
+      KllSketch sketch = new KllSketch(VarInt.decodeInt(inStream));
+      sketch.count = VarInt.decodeLong(inStream);
+      if (sketch.count == 0) {
+        return sketch;
+      }
+      DataInputStream dataInStream = new DataInputStream(inStream);
+      sketch.min = dataInStream.readLong();
+      sketch.max = dataInStream.readLong();
+      int numLevels = VarInt.decodeInt(inStream);
+      sketch.levels = new long[numLevels][];
+      sketch.levelSizes = new int[numLevels];
+      sketch.numLevels = numLevels;
+      for (int level = 0; level < numLevels; level++) {
+        int size = VarInt.decodeInt(inStream);
+        long[] items = new long[Math.max(size, MIN_LEVEL_CAPACITY)];
+        long previous = 0;
+        for (int i = 0; i < size; i++) {
+          previous += VarInt.decodeLong(inStream);
+          items[i] = previous;
+        }
+        sketch.levels[level] = items;
+        sketch.levelSizes[level] = size;
+        sketch.numRetained += size;
+      }
+      sketch.totalCapacity = sketch.computeTotalCapacity();
+      return sketch;
+    }
+  }
+}
@@ -17,21 +17,36 @@
  */
 package org.apache.beam.sdk.transforms;
 
+import static org.apache.beam.vendor.guava.v26_0_jre.com.google.common.base.Preconditions.checkArgument;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ThreadLocalRandom;
 import org.apache.beam.sdk.annotations.Experimental;
 import org.apache.beam.sdk.annotations.Internal;
+import org.apache.beam.sdk.coders.ByteArrayCoder;
+import org.apache.beam.sdk.coders.Coder;
+import org.apache.beam.sdk.coders.CoderException;
+import org.apache.beam.sdk.coders.KvCoder;
+import org.apache.beam.sdk.coders.ListCoder;
+import org.apache.beam.sdk.coders.VarIntCoder;
 import org.apache.beam.sdk.transforms.windowing.BoundedWindow;
 import org.apache.beam.sdk.transforms.windowing.ReshuffleTrigger;
 import org.apache.beam.sdk.transforms.windowing.TimestampCombiner;
 import org.apache.beam.sdk.transforms.windowing.Window;
+import org.apache.beam.sdk.util.CoderUtils;
 import org.apache.beam.sdk.util.IdentityWindowFn;
 import org.apache.beam.sdk.values.KV;
 import org.apache.beam.sdk.values.PCollection;
 import org.apache.beam.sdk.values.TimestampedValue;
+import org.apache.beam.sdk.values.TimestampedValue.TimestampedValueCoder;
 import org.apache.beam.sdk.values.WindowingStrategy;
 import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.primitives.UnsignedInteger;
 import org.checkerframework.checker.nullness.qual.Nullable;
 import org.joda.time.Duration;
+import org.joda.time.Instant;
 
 /**
  * <b>For internal use only; no backwards compatibility guarantees.</b>
@@ -111,20 +126,62 @@ public class Reshuffle<K, V> extends PTransform<PCollection<KV<K, V>>, PCollecti
   public static class ViaRandomKey<T> extends PTransform<PCollection<T>, PCollection<T>> {
     private ViaRandomKey() {}
 
-    private ViaRandomKey(@Nullable Integer numBuckets) {
+    private ViaRandomKey(@Nullable Integer numBuckets, @Nullable Long targetBatchBytes) {
       this.numBuckets = numBuckets;
+      this.targetBatchBytes = targetBatchBytes;
     }
 
     // The number of buckets to shard into. This is a performance optimization to prevent having
     // unit sized bundles on the output. If unset, uses a random integer key.
     private @Nullable Integer numBuckets;
 
+    // The encoded size of the batches that elements are packed into before the shuffle. If unset,
+    // every element is shuffled individually.
+    private @Nullable Long targetBatchBytes;
+
     public ViaRandomKey<T> withNumBuckets(@Nullable Integer numBuckets) {
-      return new ViaRandomKey<>(numBuckets);
+      return new ViaRandomKey<>(numBuckets, targetBatchBytes);
+    }
+
+    /**
+     * Packs elements into batches of about {@code targetBatchBytes} encoded bytes before the
+     * shuffle, and unpacks them afterwards. This reduces the per-element shuffle overhead of small
+     * elements. Elements larger than the target are shuffled on their own, and batches are spread
+     * over keys by their size rather than by their number of elements.
+     *
+     * <p>Batches are formed per window within a bundle, and elements keep their timestamps and
+     * windows. Elements in merging windows such as {@link
+     * org.apache.beam.sdk.transforms.windowing.Sessions} are each in a window of their own before a
+     * {@link GroupByKey}, so they would never share a batch; such inputs are rejected.
+     */
+    @Experimental
+    public ViaRandomKey<T> withTargetBatchBytes(long targetBatchBytes) {
+      checkArgument(
+          targetBatchBytes > 0, "targetBatchBytes must be positive, but was %s", targetBatchBytes);
+      return new ViaRandomKey<>(numBuckets, targetBatchBytes);
     }
 
     @Override
     public PCollection<T> expand(PCollection<T> input) {
+      if (targetBatchBytes != null) {
+        checkArgument(
+            input.getWindowingStrategy().getWindowFn().isNonMerging(),
+            "withTargetBatchBytes does not support merging windows, but %s uses %s",
+            input,
+            input.getWindowingStrategy().getWindowFn());
+        Coder<T> coder = input.getCoder();
+        return input
+            .apply(
+                "Batch and pair with random key",
+                ParDo.of(new AssignShardToBatchFn<>(coder, targetBatchBytes, numBuckets)))
+            .setCoder(
+                KvCoder.of(
+                    VarIntCoder.of(), ListCoder.of(TimestampedValueCoder.of(ByteArrayCoder.of()))))
+            .apply(Reshuffle.of())
+            .apply(Values.create())
+            .apply("Unbatch", ParDo.of(new UnbatchFn<>(coder)))
+            .setCoder(coder);
+      }
       return input
           .apply("Pair with random key", ParDo.of(new AssignShardFn<>(numBuckets)))
           .apply(Reshuffle.of())
@@ -132,6 +189,124 @@ public class Reshuffle<K, V> extends PTransform<PCollection<KV<K, V>>, PCollecti
     }
   }
 
+  /**
+   * Packs encoded elements into batches of about {@code targetBatchBytes} and assigns each batch a
+   * shard. Without a fixed number of buckets every batch gets a random shard. With a fixed number
+   * of buckets, each batch goes to the less loaded of two randomly chosen buckets, measured in the
+   * bytes this instance has assigned to them.
+   */
+  static class AssignShardToBatchFn<T>
+      extends DoFn<T, KV<Integer, List<TimestampedValue<byte[]>>>> {
+    private final Coder<T> coder;
+    private final long targetBatchBytes;
+    private final @Nullable Integer numBuckets;
+
+    private transient long @Nullable [] bucketBytes;
+    // Empty whenever the fn is serialized, between bundles.
+    private final Map<BoundedWindow, Batch> batches = new HashMap<>();
+
+    /** Encoded elements of one window, waiting to be output. */
+    private static class Batch {
+      private final List<TimestampedValue<byte[]>> elements = new ArrayList<>();
+      private long bytes;
+      private Instant minTimestamp = BoundedWindow.TIMESTAMP_MAX_VALUE;
+
+      void add(byte[] encoded, Instant timestamp) {
+        elements.add(TimestampedValue.of(encoded, timestamp));
+        bytes += encoded.length;
+        if (timestamp.isBefore(minTimestamp)) {
+          minTimestamp = timestamp;
+        }
+      }
+    }
+
+    AssignShardToBatchFn(Coder<T> coder, long targetBatchBytes, @Nullable Integer numBuckets) {
+      this.coder = coder;
+      this.targetBatchBytes = targetBatchBytes;
+      this.numBuckets = numBuckets;
+    }
+
+    @Setup
+    public void setup() {
+      if (numBuckets != null) {
+        bucketBytes = new long[numBuckets];
+      }
+    }
+
+    // A full batch is output with the earliest timestamp of its elements, which may be earlier than
+    // the current element. Outputting it with the current element's timestamp instead would need
+    // the same skew in UnbatchFn to restore the earlier timestamps. Every element of the batch was
+    // received in the current bundle, so its timestamp still holds the output watermark and the
+    // batch is never late, just as if the elements had been output one at a time.
+    @Override
+    public Duration getAllowedTimestampSkew() {
+      return Duration.millis(Long.MAX_VALUE);
+    }
+
+    @ProcessElement
+    public void processElement(
+        @Element T element,
+        @Timestamp Instant timestamp,
+        BoundedWindow window,
+        OutputReceiver<KV<Integer, List<TimestampedValue<byte[]>>>> r)
+        throws CoderException {
+      byte[] encoded = CoderUtils.encodeToByteArray(coder, element);
+      if (encoded.length >= targetBatchBytes) {
+        // Large elements are shuffled on their own.
+        Batch single = new Batch();
+        single.add(encoded, timestamp);
+        r.outputWithTimestamp(KV.of(nextShard(single.bytes), single.elements), timestamp);
+        return;
+      }
+      Batch batch = batches.computeIfAbsent(window, w -> new Batch());
+      batch.add(encoded, timestamp);
+      if (batch.bytes >= targetBatchBytes) {
+        batches.remove(window);
+        r.outputWithTimestamp(KV.of(nextShard(batch.bytes), batch.elements), batch.minTimestamp);
+      }
+    }
+
+    @FinishBundle
+    public void finishBundle(FinishBundleContext c) {
+      for (Map.Entry<BoundedWindow, Batch> entry : batches.entrySet()) {
+        Batch batch = entry.getValue();
+        c.output(KV.of(nextShard(batch.bytes), batch.elements), batch.minTimestamp, entry.getKey());
+      }
+      batches.clear();
+    }
+
+    private int nextShard(long bytes) {
+      ThreadLocalRandom random = ThreadLocalRandom.current();
+      if (bucketBytes == null) {
+        return random.nextInt();
+      }
+      int first = random.nextInt(bucketBytes.length);
+      int second = random.nextInt(bucketBytes.length);
+      int bucket = bucketBytes[first] <= bucketBytes[second] ? first : second;
+      bucketBytes[bucket] += bytes;
+      return bucket;
+    }
+  }
+
+  /** Decodes the elements of a batch and outputs them with their original timestamps. */
+  static class UnbatchFn<T> extends DoFn<List<TimestampedValue<byte[]>>, T> {
+    private final Coder<T> coder;
+
+    UnbatchFn(Coder<T> coder) {
+      this.coder = coder;
+    }
+
+    @ProcessElement
+    public void processElement(@Element List<TimestampedValue<byte[]>> batch, OutputReceiver<T> r)
+        throws CoderException {
+      // A batch carries the earliest timestamp of its elements, so no element moves backwards.
+      for (TimestampedValue<byte[]> encoded : batch) {
+        r.outputWithTimestamp(
+            CoderUtils.decodeFromByteArray(coder, encoded.getValue()), encoded.getTimestamp());
+      }
+    }
+  }
+
   public static class AssignShardFn<T> extends DoFn<T, KV<Integer, T>> {
     private int shard;
     private @Nullable Integer numBuckets;
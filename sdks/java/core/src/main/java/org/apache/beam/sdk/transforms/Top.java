@@ -24,7 +24,9 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Objects;
 import java.util.PriorityQueue;
@@ -35,16 +37,19 @@ import org.apache.beam.sdk.coders.CustomCoder;
 import org.apache.beam.sdk.coders.ListCoder;
 import org.apache.beam.sdk.transforms.Combine.AccumulatingCombineFn;
 import org.apache.beam.sdk.transforms.Combine.AccumulatingCombineFn.Accumulator;
+import org.apache.beam.sdk.transforms.Combine.CombineFn;
 import org.apache.beam.sdk.transforms.Combine.PerKey;
 import org.apache.beam.sdk.transforms.display.DisplayData;
 import org.apache.beam.sdk.transforms.windowing.GlobalWindow;
 import org.apache.beam.sdk.transforms.windowing.GlobalWindows;
 import org.apache.beam.sdk.util.NameUtils;
 import org.apache.beam.sdk.util.NameUtils.NameOverride;
+import org.apache.beam.sdk.util.VarInt;
 import org.apache.beam.sdk.util.common.ElementByteSizeObserver;
 import org.apache.beam.sdk.values.KV;
 import org.apache.beam.sdk.values.PCollection;
 import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.collect.Lists;
+import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.io.ByteStreams;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
 /**
@@ -326,6 +331,83 @@ public class Top {
     return Combine.perKey(largestFn(count));
   }
 
+  /**
+   * Returns a {@code PTransform} that takes an input {@code PCollection<Long>} and returns a {@code
+   * PCollection<List<Long>>} with a single element containing the largest {@code count} elements of
+   * the input, in decreasing order.
+   *
+   * <p>Equivalent to {@link #largest}, but the accumulator is a heap of primitive {@code long}s
+   * with a compact binary encoding, which is considerably cheaper to encode, decode and merge.
+   */
+  public static Combine.Globally<Long, List<Long>> largestLongs(int count) {
+    return Combine.globally(TopLongsFn.largest(count));
+  }
+
+  /**
+   * Returns a {@code PTransform} that takes an input {@code PCollection<Long>} and returns a {@code
+   * PCollection<List<Long>>} with a single element containing the smallest {@code count} elements
+   * of the input, in increasing order. See {@link #largestLongs}.
+   */
+  public static Combine.Globally<Long, List<Long>> smallestLongs(int count) {
+    return Combine.globally(TopLongsFn.smallest(count));
+  }
+
+  /**
+   * Returns a {@code PTransform} that takes an input {@code PCollection<Double>} and returns a
+   * {@code PCollection<List<Double>>} with a single element containing the largest {@code count}
+   * elements of the input, in decreasing order, using the ordering of {@link Double#compare}. See
+   * {@link #largestLongs}.
+   */
+  public static Combine.Globally<Double, List<Double>> largestDoubles(int count) {
+    return Combine.globally(TopDoublesFn.largest(count));
+  }
+
+  /**
+   * Returns a {@code PTransform} that takes an input {@code PCollection<Double>} and returns a
+   * {@code PCollection<List<Double>>} with a single element containing the smallest {@code count}
+   * elements of the input, in increasing order, using the ordering of {@link Double#compare}. See
+   * {@link #largestLongs}.
+   */
+  public static Combine.Globally<Double, List<Double>> smallestDoubles(int count) {
+    return Combine.globally(TopDoublesFn.smallest(count));
+  }
+
+  /**
+   * Returns a {@code PTransform} that takes an input {@code PCollection<KV<K, Long>>} and returns a
+   * {@code PCollection<KV<K, List<Long>>>} mapping each distinct key to its largest {@code count}
+   * values, in decreasing order. See {@link #largestLongs}.
+   */
+  public static <K> PerKey<K, Long, List<Long>> largestLongsPerKey(int count) {
+    return Combine.perKey(TopLongsFn.largest(count));
+  }
+
+  /**
+   * Returns a {@code PTransform} that takes an input {@code PCollection<KV<K, Long>>} and returns a
+   * {@code PCollection<KV<K, List<Long>>>} mapping each distinct key to its smallest {@code count}
+   * values, in increasing order. See {@link #largestLongs}.
+   */
+  public static <K> PerKey<K, Long, List<Long>> smallestLongsPerKey(int count) {
+    return Combine.perKey(TopLongsFn.smallest(count));
+  }
+
+  /**
+   * Returns a {@code PTransform} that takes an input {@code PCollection<KV<K, Double>>} and returns
+   * a {@code PCollection<KV<K, List<Double>>>} mapping each distinct key to its largest {@code
+   * count} values, in decreasing order. See {@link #largestLongs}.
+   */
+  public static <K> PerKey<K, Double, List<Double>> largestDoublesPerKey(int count) {
+    return Combine.perKey(TopDoublesFn.largest(count));
+  }
+
+  /**
+   * Returns a {@code PTransform} that takes an input {@code PCollection<KV<K, Double>>} and returns
+   * a {@code PCollection<KV<K, List<Double>>>} mapping each distinct key to its smallest {@code
+   * count} values, in increasing order. See {@link #largestLongs}.
+   */
+  public static <K> PerKey<K, Double, List<Double>> smallestDoublesPerKey(int count) {
+    return Combine.perKey(TopDoublesFn.smallest(count));
+  }
+
   /** @deprecated use {@link Natural} instead */
   @Deprecated
   public static class Largest<T extends Comparable<? super T>>
@@ -588,4 +670,409 @@ public class Top {
       return Objects.hash(compareFn, listCoder, maximumSize);
     }
   }
+
+  /**
+   * {@code CombineFn} for {@code Top} transforms over primitive values, which maps every value to
+   * an order preserving {@code long} sort key and keeps the largest keys in a {@link
+   * PrimitiveHeap}.
+   *
+   * @param <T> type of element being compared
+   */
+  public abstract static class PrimitiveTopCombineFn<T> extends CombineFn<T, PrimitiveHeap, List<T>>
+      implements NameOverride {
+
+    private final int count;
+    private final boolean largest;
+
+    PrimitiveTopCombineFn(int count, boolean largest) {
+      checkArgument(count >= 0, "count must be >= 0 (not %s)", count);
+      this.count = count;
+      this.largest = largest;
+    }
+
+    /** Returns the sort key of a value, for the largest values. */
+    abstract long toSortKey(T value);
+
+    /** Returns the value of a sort key returned by {@link #toSortKey}. */
+    abstract T fromSortKey(long sortKey);
+
+    @Override
+    public String getNameOverride() {
+      return String.format("Top(%s)", largest ? "Largest" : "Smallest");
+    }
+
+    @Override
+    public PrimitiveHeap createAccumulator() {
+      return new PrimitiveHeap(count);
+    }
+
+    @Override
+    public PrimitiveHeap addInput(PrimitiveHeap accumulator, T input) {
+      long sortKey = toSortKey(input);
+      // Inverting all bits reverses the order of the keys, so that the heap keeps the smallest.
+      accumulator.add(largest ? sortKey : ~sortKey);
+      return accumulator;
+    }
+
+    @Override
+    public PrimitiveHeap mergeAccumulators(Iterable<PrimitiveHeap> accumulators) {
+      Iterator<PrimitiveHeap> iterator = accumulators.iterator();
+      if (!iterator.hasNext()) {
+        return createAccumulator();
+      }
+      PrimitiveHeap merged = iterator.next();
+      while (iterator.hasNext()) {
+        merged.merge(iterator.next());
+      }
+      return merged;
+    }
+
+    @Override
+    public List<T> extractOutput(PrimitiveHeap accumulator) {
+      long[] sortKeys = accumulator.sortedKeys();
+      List<T> output = new ArrayList<>(sortKeys.length);
+      for (long sortKey : sortKeys) {
+        output.add(fromSortKey(largest ? sortKey : ~sortKey));
+      }
+      return output;
+    }
+
+    @Override
+    public Coder<PrimitiveHeap> getAccumulatorCoder(CoderRegistry registry, Coder<T> inputCoder) {
+      return new PrimitiveHeapCoder(count);
+    }
+
+    @Override
+    public Coder<List<T>> getDefaultOutputCoder(CoderRegistry registry, Coder<T> inputCoder) {
+      return ListCoder.of(inputCoder);
+    }
+
+    @Override
+    public void populateDisplayData(DisplayData.Builder builder) {
+      super.populateDisplayData(builder);
+      builder
+          .add(DisplayData.item("count", count).withLabel("Top Count"))
+          .add(DisplayData.item("largest", largest).withLabel("Keeps Largest Values"));
+    }
+
+    @Override
+    public String getIncompatibleGlobalWindowErrorMessage() {
+      return "Default values are not supported in Top.[smallest, largest][Longs, Doubles]() if the "
+          + "input PCollection is not windowed by GlobalWindows. Instead, use "
+          + "withoutDefaults() to output an empty PCollection if the input PCollection is empty, "
+          + "or asSingletonView() to get a PCollection containing the empty list if the input "
+          + "PCollection is empty.";
+    }
+  }
+
+  /** A {@link PrimitiveTopCombineFn} for {@code Long}s. */
+  public static class TopLongsFn extends PrimitiveTopCombineFn<Long> {
+    private TopLongsFn(int count, boolean largest) {
+      super(count, largest);
+    }
+
+    /** Returns a {@link TopLongsFn} that aggregates the largest count values. */
+    public static TopLongsFn largest(int count) {
+      return new TopLongsFn(count, true);
+    }
+
+    /** Returns a {@link TopLongsFn} that aggregates the smallest count values. */
+    public static TopLongsFn smallest(int count) {
+      return new TopLongsFn(count, false);
+    }
+
+    @Override
+    long toSortKey(Long value) {
+      return value;
+    }
+
+    @Override
+    Long fromSortKey(long sortKey) {
+      return sortKey;
+    }
+  }
+
+  /** A {@link PrimitiveTopCombineFn} for {@code Double}s, ordered by {@link Double#compare}. */
+  public static class TopDoublesFn extends PrimitiveTopCombineFn<Double> {
+    private TopDoublesFn(int count, boolean largest) {
+      super(count, largest);
+    }
+
+    /** Returns a {@link TopDoublesFn} that aggregates the largest count values. */
+    public static TopDoublesFn largest(int count) {
+      return new TopDoublesFn(count, true);
+    }
+
+    /** Returns a {@link TopDoublesFn} that aggregates the smallest count values. */
+    public static TopDoublesFn smallest(int count) {
+      return new TopDoublesFn(count, false);
+    }
+
+    @Override
+    long toSortKey(Double value) {
+      // Flipping all but the sign bit of negative values orders the bits like Double.compare.
+      long bits = Double.doubleToLongBits(value);
+      return bits ^ ((bits >> 63) & Long.MAX_VALUE);
+    }
+
+    @Override
+    Double fromSortKey(long sortKey) {
+      return Double.longBitsToDouble(sortKey ^ ((sortKey >> 63) & Long.MAX_VALUE));
+    }
+  }
+
+  /**
+   * A heap of primitive {@code long}s that keeps only the largest {@code maximumSize} of them.
+   *
+   * <p>A heap decoded by {@link PrimitiveHeapCoder} keeps its encoded form, which lists the keys in
+   * decreasing order, until it is added to. Merging an encoded heap reads the keys only until the
+   * first which does not make the top, and merging two encoded heaps is a linear merge of their
+   * encoded forms, so accumulators are never fully decoded on the merge path.
+   *
+   * <p>This class is <i>not</i> safe for multithreaded use, except read-only.
+   */
+  static class PrimitiveHeap {
+    private static final int KEY_BYTES = Long.BYTES;
+
+    private final int maximumSize;
+
+    /** A min-heap of the first {@code size} elements, only used if {@code encoded} is null. */
+    private long[] heap;
+
+    private int size;
+
+    /** The big-endian keys in decreasing order, which are never modified once set. */
+    private byte @Nullable [] encoded;
+
+    PrimitiveHeap(int maximumSize) {
+      this.maximumSize = maximumSize;
+      this.heap = new long[0];
+    }
+
+    private PrimitiveHeap(int maximumSize, byte[] encoded) {
+      this(maximumSize);
+      this.encoded = encoded;
+    }
+
+    int size() {
+      return encoded != null ? encoded.length / KEY_BYTES : size;
+    }
+
+    void add(long key) {
+      if (encoded != null) {
+        decodeToHeap();
+      }
+      offer(key);
+    }
+
+    void merge(PrimitiveHeap other) {
+      if (other.size() == 0) {
+        return;
+      }
+      if (size() == 0) {
+        // Adopt the other heap, keeping it encoded if it is.
+        if (other.encoded != null) {
+          encoded = other.encoded;
+          heap = new long[0];
+          size = 0;
+          return;
+        }
+      }
+      if (encoded != null && other.encoded != null) {
+        encoded = mergeEncoded(encoded, other.encoded);
+        return;
+      }
+      if (encoded != null) {
+        decodeToHeap();
+      }
+      if (other.encoded != null) {
+        byte[] otherEncoded = other.encoded;
+        for (int i = 0; i < otherEncoded.length; i += KEY_BYTES) {
+          if (!offer(readKey(otherEncoded, i))) {
+            // The remaining keys are smaller, so they will not make the top either.
+            break;
+          }
+        }
+      } else {
+        for (int i = 0; i < other.size; i++) {
+          offer(other.heap[i]);
+        }
+      }
+    }
+
+    /** Returns the keys of this heap in decreasing order. */
+    long[] sortedKeys() {
+      if (encoded != null) {
+        long[] keys = new long[encoded.length / KEY_BYTES];
+        for (int i = 0; i < keys.length; i++) {
+          keys[i] = readKey(encoded, i * KEY_BYTES);
+        }
+        return keys;
+      }
+      long[] keys = Arrays.copyOf(heap, size);
+      Arrays.sort(keys);
+      for (int i = 0, j = keys.length - 1; i < j; i++, j--) {
+        long tmp = keys[i];
+        keys[i] = keys[j];
+        keys[j] = tmp;
+      }
+      return keys;
+    }
+
+    /** Returns the big-endian keys of this heap in decreasing order. */
+    byte[] encodedKeys() {
+      if (encoded == null) {
+        long[] keys = sortedKeys();
+        byte[] bytes = new byte[keys.length * KEY_BYTES];
+        for (int i = 0; i < keys.length; i++) {
+          writeKey(keys[i], bytes, i * KEY_BYTES);
+        }
+        return bytes;
+      }
+      return encoded;
+    }
+
+    private void decodeToHeap() {
+      // The keys are in decreasing order, which is also a valid max-heap, but not a min-heap.
+      long[] keys = sortedKeys();
+      encoded = null;
+      heap = new long[Math.min(maximumSize, Math.max(keys.length, 16))];
+      size = 0;
+      for (int i = keys.length - 1; i >= 0; i--) {
+        // Increasing order is a valid min-heap.
+        heap[size++] = keys[i];
+      }
+    }
+
+    /** Adds {@code key} if it makes the top. Returns {@code true} if {@code key} was added. */
+    private boolean offer(long key) {
+      if (maximumSize == 0) {
+        return false;
+      }
+      if (size < maximumSize) {
+        if (size == heap.length) {
+          heap = Arrays.copyOf(heap, Math.min(maximumSize, Math.max(16, heap.length * 2)));
+        }
+        int i = size++;
+        while (i > 0) {
+          int parent = (i - 1) >>> 1;
+          if (heap[parent] <= key) {
+            break;
+          }
+          heap[i] = heap[parent];
+          i = parent;
+        }
+        heap[i] = key;
+        return true;
+      } else if (key > heap[0]) {
+        int i = 0;
+        while (true) {
+          int child = 2 * i + 1;
+          if (child >= size) {
+            break;
+          }
+          if (child + 1 < size && heap[child + 1] < heap[child]) {
+            child++;
+          }
+          if (heap[child] >= key) {
+            break;
+          }
+          heap[i] = heap[child];
+          i = child;
+        }
+        heap[i] = key;
+        return true;
+      } else {
+        return false;
+      }
+    }
+
+    private static long readKey(byte[] bytes, int offset) {
+      long key = 0;
+      for (int i = 0; i < KEY_BYTES; i++) {
+        key = (key << 8) | (bytes[offset + i] & 0xFF);
+      }
+      return key;
+    }
+
+    private static void writeKey(long key, byte[] bytes, int offset) {
+      for (int i = KEY_BYTES - 1; i >= 0; i--) {
+        bytes[offset + i] = (byte) key;
+        key >>>= 8;
+      }
+    }
+
+    private byte[] mergeEncoded(byte[] left, byte[] right) {
+      int count = Math.min(maximumSize, (left.length + right.length) / KEY_BYTES);
+      byte[] merged = new byte[count * KEY_BYTES];
+      int l = 0;
+      int r = 0;
+      for (int m = 0; m < merged.length; m += KEY_BYTES) {
+        if (r >= right.length || (l < left.length && readKey(left, l) >= readKey(right, r))) {
+          System.arraycopy(left, l, merged, m, KEY_BYTES);
+          l += KEY_BYTES;
+        } else {
+          System.arraycopy(right, r, merged, m, KEY_BYTES);
+          r += KEY_BYTES;
+        }
+      }
+      return merged;
+    }
+  }
+
+  /**
+   * A {@link Coder} for {@link PrimitiveHeap}, which encodes the number of keys followed by the
+   * big-endian keys in decreasing order.
+   */
+  private static class PrimitiveHeapCoder extends CustomCoder<PrimitiveHeap> {
+    private final int maximumSize;
+
+    PrimitiveHeapCoder(int maximumSize) {
+      this.maximumSize = maximumSize;
+    }
+
+    @Override
+    public void encode(PrimitiveHeap value, OutputStream outStream) throws IOException {
+      byte[] keys = value.encodedKeys();
+      VarInt.encode(keys.length / PrimitiveHeap.KEY_BYTES, outStream);
+      outStream.write(keys);
+    }
+
+    @Override
+    public PrimitiveHeap decode(InputStream inStream) throws IOException {
+      int count = VarInt.decodeInt(inStream);
+      if (count < 0 || count > maximumSize) {
+        throw new CoderException(
+            String.format("Invalid heap size %s for a maximum size of %s", count, maximumSize));
+      }
+      byte[] keys = new byte[count * PrimitiveHeap.KEY_BYTES];
+      ByteStreams.readFully(inStream, keys);
+      return new PrimitiveHeap(maximumSize, keys);
+    }
+
+    @Override
+    public void verifyDeterministic() {}
+
+    @Override
+    public boolean isRegisterByteSizeObserverCheap(PrimitiveHeap value) {
+      return true;
+    }
+
+    @Override
+    protected long getEncodedElementByteSize(PrimitiveHeap value) {
+      int size = value.size();
+      return VarInt.getLength(size) + (long) size * PrimitiveHeap.KEY_BYTES;
+    }
+
+    @Override
+    public boolean equals(@Nullable Object other) {
+      return other instanceof PrimitiveHeapCoder
+          && maximumSize == ((PrimitiveHeapCoder) other).maximumSize;
+    }
+
+    @Override
+    public int hashCode() {
+      return Integer.hashCode(maximumSize);
+    }
+  }
 }
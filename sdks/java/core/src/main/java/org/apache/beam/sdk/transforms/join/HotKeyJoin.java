@@ -0,0 +1,265 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.sdk.transforms.join;
+
+import static org.apache.beam.vendor.guava.v26_0_jre.com.google.common.base.Preconditions.checkArgument;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import org.apache.beam.sdk.annotations.Internal;
+import org.apache.beam.sdk.coders.Coder;
+import org.apache.beam.sdk.coders.KvCoder;
+import org.apache.beam.sdk.coders.VarIntCoder;
+import org.apache.beam.sdk.transforms.Count;
+import org.apache.beam.sdk.transforms.DoFn;
+import org.apache.beam.sdk.transforms.Filter;
+import org.apache.beam.sdk.transforms.Keys;
+import org.apache.beam.sdk.transforms.PTransform;
+import org.apache.beam.sdk.transforms.ParDo;
+import org.apache.beam.sdk.transforms.View;
+import org.apache.beam.sdk.transforms.windowing.GlobalWindows;
+import org.apache.beam.sdk.values.KV;
+import org.apache.beam.sdk.values.PCollection;
+import org.apache.beam.sdk.values.PCollection.IsBounded;
+import org.apache.beam.sdk.values.PCollectionView;
+import org.apache.beam.sdk.values.TupleTag;
+import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.collect.Sets;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * A join of two collections of KV elements that is robust to hot keys. It implements the hot key
+ * handling of the schema {@code Join} and of the join library.
+ *
+ * <p>The keys of the left collection are sampled and every key whose estimated number of
+ * occurrences reaches the hot key threshold is considered hot. Left elements with a hot key are
+ * spread randomly across {@code fanout} sub-keys and the right elements with the same key are
+ * replicated to each of these sub-keys, so that no single worker has to join all elements of a hot
+ * key. All other keys are joined as usual.
+ *
+ * <p>The hot keys of a window are only known once all elements of the window have been counted, so
+ * an unbounded collection in the global window is rejected.
+ *
+ * @param <K> Type of the key for both collections
+ * @param <V1> Type of the values for the left collection.
+ * @param <V2> Type of the values for the right collection.
+ */
+@SuppressWarnings({
+  "nullness", // TODO(https://issues.apache.org/jira/browse/BEAM-10402)
+  "rawtypes",
+  "unchecked"
+})
+@Internal
+public class HotKeyJoin<K, V1, V2>
+    extends PTransform<PCollection<KV<K, V1>>, PCollection<KV<K, KV<V1, V2>>>> {
+
+  /** The default number of occurrences after which a key is considered hot. */
+  public static final long DEFAULT_HOT_KEY_THRESHOLD = 10_000L;
+
+  /** The expected number of sampled occurrences of a key that just reaches the threshold. */
+  private static final double SAMPLES_PER_HOT_KEY = 100.0;
+
+  /** The shard of elements whose key is not hot. */
+  private static final int UNSHARDED = -1;
+
+  private final transient PCollection<KV<K, V2>> rightCollection;
+  private final int fanout;
+  private final long threshold;
+  private final boolean leftOuter;
+  private final boolean rightOuter;
+  private final @Nullable V1 leftNullValue;
+  private final @Nullable V2 rightNullValue;
+
+  /**
+   * Creates a join with the provided right collection. Unmatched elements of the left or right
+   * collection are output with the provided null value for the other side if {@code leftOuter} or
+   * {@code rightOuter} is set.
+   */
+  public HotKeyJoin(
+      PCollection<KV<K, V2>> rightCollection,
+      int fanout,
+      long threshold,
+      boolean leftOuter,
+      boolean rightOuter,
+      @Nullable V1 leftNullValue,
+      @Nullable V2 rightNullValue) {
+    checkArgument(fanout > 0, "Hot key fanout must be positive, but was %s", fanout);
+    checkArgument(threshold > 0, "Hot key threshold must be positive, but was %s", threshold);
+    this.rightCollection = rightCollection;
+    this.fanout = fanout;
+    this.threshold = threshold;
+    this.leftOuter = leftOuter;
+    this.rightOuter = rightOuter;
+    this.leftNullValue = leftNullValue;
+    this.rightNullValue = rightNullValue;
+  }
+
+  @Override
+  public PCollection<KV<K, KV<V1, V2>>> expand(PCollection<KV<K, V1>> leftCollection) {
+    checkArgument(
+        leftCollection.isBounded() == IsBounded.BOUNDED
+            || !(leftCollection.getWindowingStrategy().getWindowFn() instanceof GlobalWindows),
+        "Hot key handling requires a bounded input or a window other than the global window, as"
+            + " the hot keys of the global window of an unbounded input are never known.");
+    KvCoder<K, V1> leftCoder = (KvCoder<K, V1>) leftCollection.getCoder();
+    KvCoder<K, V2> rightCoder = (KvCoder<K, V2>) rightCollection.getCoder();
+    Coder<K> keyCoder = leftCoder.getKeyCoder();
+
+    double sampleFraction = Math.min(1.0, SAMPLES_PER_HOT_KEY / threshold);
+    long minSampledCount = (long) Math.ceil(threshold * sampleFraction);
+    PCollectionView<List<K>> hotKeys =
+        leftCollection
+            .apply("SampleKeys", ParDo.of(new SampleKeysFn<>(sampleFraction)))
+            .setCoder(keyCoder)
+            .apply("CountSampledKeys", Count.perElement())
+            .apply("FilterHotKeys", Filter.by(count -> count.getValue() >= minSampledCount))
+            .apply("HotKeys", Keys.create())
+            .apply("AsList", View.asList());
+
+    KvCoder<K, Integer> shardedKeyCoder = KvCoder.of(keyCoder, VarIntCoder.of());
+    PCollection<KV<KV<K, Integer>, V1>> shardedLeft =
+        leftCollection
+            .apply(
+                "ShardLeft",
+                ParDo.of(new ShardFn<K, V1>(keyCoder, hotKeys, fanout, false))
+                    .withSideInputs(hotKeys))
+            .setCoder(KvCoder.of(shardedKeyCoder, leftCoder.getValueCoder()));
+    PCollection<KV<KV<K, Integer>, V2>> shardedRight =
+        rightCollection
+            .apply(
+                "ReplicateRight",
+                ParDo.of(new ShardFn<K, V2>(keyCoder, hotKeys, fanout, true))
+                    .withSideInputs(hotKeys))
+            .setCoder(KvCoder.of(shardedKeyCoder, rightCoder.getValueCoder()));
+
+    final TupleTag<V1> v1Tuple = new TupleTag<>();
+    final TupleTag<V2> v2Tuple = new TupleTag<>();
+    final boolean leftOuter = this.leftOuter;
+    final boolean rightOuter = this.rightOuter;
+    final V1 leftNullValue = this.leftNullValue;
+    final V2 rightNullValue = this.rightNullValue;
+
+    return KeyedPCollectionTuple.of(v1Tuple, shardedLeft)
+        .and(v2Tuple, shardedRight)
+        .apply("CoGBK", CoGroupByKey.create())
+        .apply(
+            "Join",
+            ParDo.of(
+                new DoFn<KV<KV<K, Integer>, CoGbkResult>, KV<K, KV<V1, V2>>>() {
+                  @ProcessElement
+                  public void processElement(ProcessContext c) {
+                    KV<KV<K, Integer>, CoGbkResult> e = c.element();
+                    K key = e.getKey().getKey();
+
+                    Iterable<V1> leftValuesIterable = e.getValue().getAll(v1Tuple);
+                    Iterable<V2> rightValuesIterable = e.getValue().getAll(v2Tuple);
+
+                    if (leftValuesIterable.iterator().hasNext()) {
+                      if (rightValuesIterable.iterator().hasNext()) {
+                        for (V1 leftValue : leftValuesIterable) {
+                          for (V2 rightValue : rightValuesIterable) {
+                            c.output(KV.of(key, KV.of(leftValue, rightValue)));
+                          }
+                        }
+                      } else if (leftOuter) {
+                        for (V1 leftValue : leftValuesIterable) {
+                          c.output(KV.of(key, KV.of(leftValue, rightNullValue)));
+                        }
+                      }
+                    } else if (rightOuter && e.getKey().getValue() == UNSHARDED) {
+                      // Right values of a hot key are replicated to every shard, but as hot keys
+                      // are sampled from the left collection they always have a matching left
+                      // value in at least one of the shards.
+                      for (V2 rightValue : rightValuesIterable) {
+                        c.output(KV.of(key, KV.of(leftNullValue, rightValue)));
+                      }
+                    }
+                  }
+                }))
+        .setCoder(
+            KvCoder.of(
+                keyCoder, KvCoder.of(leftCoder.getValueCoder(), rightCoder.getValueCoder())));
+  }
+
+  /** Emits the key of a random sample of the elements. */
+  private static class SampleKeysFn<K, V> extends DoFn<KV<K, V>, K> {
+    private final double sampleFraction;
+
+    SampleKeysFn(double sampleFraction) {
+      this.sampleFraction = sampleFraction;
+    }
+
+    @ProcessElement
+    public void processElement(@Element KV<K, V> element, OutputReceiver<K> receiver) {
+      if (sampleFraction >= 1.0 || ThreadLocalRandom.current().nextDouble() < sampleFraction) {
+        receiver.output(element.getKey());
+      }
+    }
+  }
+
+  /**
+   * Adds a shard to the key of each element. Elements with a hot key are either assigned to a
+   * random shard or replicated to all shards, all other elements are left unsharded.
+   */
+  private static class ShardFn<K, V> extends DoFn<KV<K, V>, KV<KV<K, Integer>, V>> {
+    private final Coder<K> keyCoder;
+    private final PCollectionView<List<K>> hotKeysView;
+    private final int fanout;
+    private final boolean replicate;
+
+    private transient @Nullable List<K> cachedHotKeyList;
+    private transient @Nullable Set<Object> cachedHotKeys;
+
+    ShardFn(
+        Coder<K> keyCoder, PCollectionView<List<K>> hotKeysView, int fanout, boolean replicate) {
+      this.keyCoder = keyCoder;
+      this.hotKeysView = hotKeysView;
+      this.fanout = fanout;
+      this.replicate = replicate;
+    }
+
+    @ProcessElement
+    public void processElement(ProcessContext c) {
+      KV<K, V> element = c.element();
+      if (!hotKeys(c.sideInput(hotKeysView)).contains(keyCoder.structuralValue(element.getKey()))) {
+        c.output(KV.of(KV.of(element.getKey(), UNSHARDED), element.getValue()));
+      } else if (replicate) {
+        for (int shard = 0; shard < fanout; shard++) {
+          c.output(KV.of(KV.of(element.getKey(), shard), element.getValue()));
+        }
+      } else {
+        int shard = ThreadLocalRandom.current().nextInt(fanout);
+        c.output(KV.of(KV.of(element.getKey(), shard), element.getValue()));
+      }
+    }
+
+    private Set<Object> hotKeys(List<K> hotKeyList) {
+      // The side input is the same object for all elements of a window, so only rebuild the set
+      // when it changes.
+      if (hotKeyList != cachedHotKeyList) {
+        Set<Object> hotKeys = Sets.newHashSetWithExpectedSize(hotKeyList.size());
+        for (K hotKey : hotKeyList) {
+          hotKeys.add(keyCoder.structuralValue(hotKey));
+        }
+        cachedHotKeyList = hotKeyList;
+        cachedHotKeys = hotKeys;
+      }
+      return cachedHotKeys;
+    }
+  }
+}
@@ -17,11 +17,16 @@
  */
 package org.apache.beam.sdk.util;
 
+import static org.apache.beam.vendor.guava.v26_0_jre.com.google.common.base.Preconditions.checkArgument;
+
 import com.google.auto.value.AutoValue;
 import java.io.Serializable;
 import java.math.RoundingMode;
+import java.util.Arrays;
+import java.util.Objects;
 import org.apache.beam.sdk.annotations.Experimental;
 import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.math.DoubleMath;
+import org.checkerframework.checker.nullness.qual.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -78,14 +83,69 @@ public class HistogramData implements Serializable {
     return new HistogramData(LinearBuckets.of(start, width, numBuckets));
   }
 
+  /**
+   * Create a histogram with exponential buckets.
+   *
+   * @param scale Lower bound of a starting bucket.
+   * @param growthFactor The ratio between the upper and lower bound of each bucket.
+   * @param numBuckets The number of buckets. Upper bound of an ending bucket is defined by scale *
+   *     growthFactor ^ numBuckets.
+   * @return a new Histogram instance.
+   */
+  public static HistogramData exponential(double scale, double growthFactor, int numBuckets) {
+    return new HistogramData(ExponentialBuckets.of(scale, growthFactor, numBuckets));
+  }
+
+  /**
+   * Create a histogram with log-linear buckets, similar to HdrHistogram. Each power of two between
+   * {@code lowest} and {@code highest} is divided into linear buckets, so that the width of every
+   * bucket is at most {@code 10^-significantDigits} times its lower bound.
+   *
+   * @param lowest Lower bound of a starting bucket. Must be positive.
+   * @param highest The largest value which is recorded in a bounded bucket.
+   * @param significantDigits The number of significant decimal digits kept for each value, at most
+   *     {@link LogLinearBuckets#MAX_SIGNIFICANT_DIGITS}.
+   * @return a new Histogram instance.
+   */
+  public static HistogramData logLinear(double lowest, double highest, int significantDigits) {
+    return new HistogramData(LogLinearBuckets.of(lowest, highest, significantDigits));
+  }
+
   public void record(double... values) {
     for (double value : values) {
       record(value);
     }
   }
 
+  /**
+   * Returns a new histogram with the bucket counts of this histogram and {@code other}. An empty
+   * histogram is combined with any other histogram, regardless of its bucket type.
+   *
+   * @throws IllegalArgumentException if both histograms have counts but different bucket types, as
+   *     their counts cannot be combined without losing some of them
+   */
+  public HistogramData combine(HistogramData other) {
+    long otherCount = other.getTotalCount();
+    HistogramData result;
+    synchronized (this) {
+      long count = getTotalCount();
+      checkArgument(
+          count == 0 || otherCount == 0 || bucketType.equals(other.getBucketType()),
+          "Cannot combine histograms with different buckets %s and %s.",
+          bucketType,
+          other.getBucketType());
+      result = new HistogramData(count == 0 ? other.getBucketType() : bucketType);
+      result.update(this);
+    }
+    result.update(other);
+    return result;
+  }
+
   public synchronized void update(HistogramData other) {
     synchronized (other) {
+      if (other.getTotalCount() == 0) {
+        return;
+      }
       if (!this.bucketType.equals(other.bucketType)
           || this.buckets.length != other.buckets.length) {
         LOG.warn("Failed to update HistogramData from another with a different buckets");
@@ -188,6 +248,18 @@ public class HistogramData implements Serializable {
     return getLinearInterpolation(0.50);
   }
 
+  /**
+   * Returns the estimated value at the given percentile, between 0 and 1. Values below or above the
+   * bucket range are estimated as negative or positive infinity.
+   */
+  public double getPercentile(double percentile) {
+    if (percentile < 0 || percentile > 1) {
+      throw new IllegalArgumentException(
+          String.format("percentile should be between 0 and 1: %f", percentile));
+    }
+    return getLinearInterpolation(percentile);
+  }
+
   /**
    * Calculate percentile estimation based on linear interpolation. It first finds the bucket which
    * includes the target percentile and projects the estimated point in the bucket by assuming all
@@ -218,6 +290,35 @@ public class HistogramData implements Serializable {
     return bucketType.getRangeFrom() + bucketType.getAccumulatedBucketSize(index) + fracBucketSize;
   }
 
+  @Override
+  public synchronized boolean equals(@Nullable Object object) {
+    if (!(object instanceof HistogramData)) {
+      return false;
+    }
+    HistogramData other = (HistogramData) object;
+    synchronized (other) {
+      return bucketType.equals(other.bucketType)
+          && numTopRecords == other.numTopRecords
+          && numBottomRecords == other.numBottomRecords
+          && Arrays.equals(buckets, other.buckets);
+    }
+  }
+
+  @Override
+  public synchronized int hashCode() {
+    return Objects.hash(bucketType, numTopRecords, numBottomRecords, Arrays.hashCode(buckets));
+  }
+
+  @Override
+  public synchronized String toString() {
+    if (getTotalCount() == 0) {
+      return "HistogramData{count: 0}";
+    }
+    return String.format(
+        "HistogramData{count: %d, p50: %f, p90: %f, p99: %f}",
+        getTotalCount(), p50(), p90(), p99());
+  }
+
   public interface BucketType extends Serializable {
     // Lower bound of a starting bucket.
     double getRangeFrom();
@@ -281,4 +382,138 @@ public class HistogramData implements Serializable {
 
     // Note: equals() and hashCode() are implemented by the AutoValue.
   }
+
+  @AutoValue
+  public abstract static class ExponentialBuckets implements BucketType {
+    public abstract double getScale();
+
+    public abstract double getGrowthFactor();
+
+    @Override
+    public abstract int getNumBuckets();
+
+    public static ExponentialBuckets of(double scale, double growthFactor, int numBuckets) {
+      if (scale <= 0) {
+        throw new RuntimeException(String.format("scale should be greater than zero: %f", scale));
+      }
+      if (growthFactor <= 1) {
+        throw new RuntimeException(
+            String.format("growthFactor should be greater than one: %f", growthFactor));
+      }
+      if (numBuckets <= 0) {
+        throw new RuntimeException(
+            String.format("numBuckets should be greater than zero: %d", numBuckets));
+      }
+      return new AutoValue_HistogramData_ExponentialBuckets(scale, growthFactor, numBuckets);
+    }
+
+    @Override
+    public int getBucketIndex(double value) {
+      int index =
+          DoubleMath.roundToInt(
+              Math.log(value / getScale()) / Math.log(getGrowthFactor()), RoundingMode.FLOOR);
+      // Rounding errors may put values close to the bounds into a neighbouring bucket.
+      return Math.max(0, Math.min(getNumBuckets() - 1, index));
+    }
+
+    @Override
+    public double getBucketSize(int index) {
+      return getScale() * Math.pow(getGrowthFactor(), index) * (getGrowthFactor() - 1);
+    }
+
+    @Override
+    public double getAccumulatedBucketSize(int endIndex) {
+      return getScale() * Math.pow(getGrowthFactor(), endIndex) - getScale();
+    }
+
+    @Override
+    public double getRangeFrom() {
+      return getScale();
+    }
+
+    @Override
+    public double getRangeTo() {
+      return getScale() * Math.pow(getGrowthFactor(), getNumBuckets());
+    }
+
+    // Note: equals() and hashCode() are implemented by the AutoValue.
+  }
+
+  /**
+   * Buckets which divide each power of two above {@code lowest} into {@code subBucketCount} linear
+   * buckets. The bucket index of a value is computed from its binary exponent and mantissa, without
+   * logarithms.
+   */
+  @AutoValue
+  public abstract static class LogLinearBuckets implements BucketType {
+    /** The largest supported number of significant digits, i.e. 1000 buckets per power of two. */
+    public static final int MAX_SIGNIFICANT_DIGITS = 3;
+
+    public abstract double getLowest();
+
+    public abstract int getPowersOfTwoCount();
+
+    public abstract int getSubBucketCount();
+
+    public static LogLinearBuckets of(double lowest, double highest, int significantDigits) {
+      if (lowest <= 0) {
+        throw new RuntimeException(String.format("lowest should be greater than zero: %f", lowest));
+      }
+      if (highest <= lowest) {
+        throw new RuntimeException(
+            String.format("highest should be greater than lowest: %f <= %f", highest, lowest));
+      }
+      // Every bucket is an element of a single array per histogram cell, and each additional
+      // significant digit multiplies the buckets per power of two by ten.
+      if (significantDigits < 0 || significantDigits > MAX_SIGNIFICANT_DIGITS) {
+        throw new RuntimeException(
+            String.format(
+                "significantDigits should be between 0 and %d: %d",
+                MAX_SIGNIFICANT_DIGITS, significantDigits));
+      }
+      int powersOfTwo =
+          DoubleMath.roundToInt(DoubleMath.log2(highest / lowest), RoundingMode.CEILING);
+      int subBuckets = DoubleMath.roundToInt(Math.pow(10, significantDigits), RoundingMode.CEILING);
+      return new AutoValue_HistogramData_LogLinearBuckets(lowest, powersOfTwo, subBuckets);
+    }
+
+    @Override
+    public int getNumBuckets() {
+      return getPowersOfTwoCount() * getSubBucketCount();
+    }
+
+    @Override
+    public int getBucketIndex(double value) {
+      double ratio = value / getLowest();
+      int exponent = Math.getExponent(ratio);
+      double fraction = ratio / Math.scalb(1.0, exponent) - 1;
+      int index = exponent * getSubBucketCount() + (int) (fraction * getSubBucketCount());
+      return Math.max(0, Math.min(getNumBuckets() - 1, index));
+    }
+
+    @Override
+    public double getBucketSize(int index) {
+      return Math.scalb(getLowest(), index / getSubBucketCount()) / getSubBucketCount();
+    }
+
+    @Override
+    public double getAccumulatedBucketSize(int endIndex) {
+      int exponent = endIndex / getSubBucketCount();
+      int subBucket = endIndex % getSubBucketCount();
+      return Math.scalb(getLowest(), exponent) * (1 + (double) subBucket / getSubBucketCount())
+          - getLowest();
+    }
+
+    @Override
+    public double getRangeFrom() {
+      return getLowest();
+    }
+
+    @Override
+    public double getRangeTo() {
+      return Math.scalb(getLowest(), getPowersOfTwoCount());
+    }
+
+    // Note: equals() and hashCode() are implemented by the AutoValue.
+  }
 }
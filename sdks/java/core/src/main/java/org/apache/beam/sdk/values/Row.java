@@ -37,6 +37,7 @@ import java.util.stream.IntStream;
 import org.apache.beam.sdk.annotations.Experimental;
 import org.apache.beam.sdk.annotations.Experimental.Kind;
 import org.apache.beam.sdk.annotations.Internal;
+import org.apache.beam.sdk.coders.Coder;
 import org.apache.beam.sdk.schemas.Factory;
 import org.apache.beam.sdk.schemas.FieldAccessDescriptor;
 import org.apache.beam.sdk.schemas.FieldValueGetter;
@@ -835,6 +836,24 @@ public abstract class Row implements Serializable {
       return new RowWithGetters(schema, fieldValueGetterFactory, getterTarget);
     }
 
+    // Creates a row which decodes its fields from the encoded row on access. The field offsets are
+    // read on the first access, the coders of the fields are indexed by field index. The encoding
+    // identifies the coder which produced the bytes, and is null if the bytes cannot be written
+    // again as the encoding of the row.
+    @Internal
+    public Row attachEncodedBytes(
+        byte[] encodedRow,
+        RowWithEncodedBytes.FieldOffsetsReader fieldOffsetsReader,
+        Coder<?>[] fieldCoders,
+        @Nullable Object encoding) {
+      checkState(this.values.isEmpty());
+      checkArgument(
+          fieldCoders.length == schema.getFieldCount(),
+          "Expected %s field coders.",
+          schema.getFieldCount());
+      return new RowWithEncodedBytes(schema, encodedRow, fieldOffsetsReader, fieldCoders, encoding);
+    }
+
     public Row build() {
       checkNotNull(schema);
 
@@ -0,0 +1,179 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.sdk.values;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.apache.beam.sdk.annotations.Experimental;
+import org.apache.beam.sdk.annotations.Experimental.Kind;
+import org.apache.beam.sdk.annotations.Internal;
+import org.apache.beam.sdk.coders.Coder;
+import org.apache.beam.sdk.schemas.Schema;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * A Concrete subclass of {@link Row} that is backed by the encoded bytes of the row.
+ *
+ * <p>Fields are only decoded when they are accessed, which saves decoding all fields of wide rows
+ * of which only a few fields are read. The offsets of the fields are read when the first field is
+ * accessed, and decoded field values are cached. If the row is encoded again by the coder which
+ * produced the bytes, the bytes are copied without decoding any field.
+ */
+@Experimental(Kind.SCHEMAS)
+@SuppressWarnings({
+  "nullness", // TODO(https://issues.apache.org/jira/browse/BEAM-10402)
+  "rawtypes"
+})
+public class RowWithEncodedBytes extends Row {
+  /** Field offset of null fields. */
+  public static final int NULL_FIELD = -1;
+
+  /** Reads the offsets of the fields of an encoded row. */
+  @Internal
+  public interface FieldOffsetsReader extends Serializable {
+    /**
+     * Returns the offsets of the fields in the encoded row, indexed by field index. Null fields
+     * have the offset {@link #NULL_FIELD}.
+     */
+    int[] readFieldOffsets(byte[] encodedRow) throws IOException;
+  }
+
+  private static final Object NOT_DECODED = new Object();
+
+  private final byte[] encodedRow;
+  private final FieldOffsetsReader fieldOffsetsReader;
+  private final Coder[] fieldCoders;
+  // Identifies the coder which produced the bytes, or null if the bytes cannot be written again as
+  // the encoding of the row. Encodings are compared by identity, which does not survive
+  // serialization, so the encoding is not serialized.
+  private final transient @Nullable Object encoding;
+
+  private transient int @Nullable [] fieldOffsets;
+  private transient Object @Nullable [] values;
+
+  RowWithEncodedBytes(
+      Schema schema,
+      byte[] encodedRow,
+      FieldOffsetsReader fieldOffsetsReader,
+      Coder[] fieldCoders,
+      @Nullable Object encoding) {
+    super(schema);
+    this.encodedRow = encodedRow;
+    this.fieldOffsetsReader = fieldOffsetsReader;
+    this.fieldCoders = fieldCoders;
+    this.encoding = encoding;
+  }
+
+  @Override
+  @SuppressWarnings({"TypeParameterUnusedInFormals", "unchecked"})
+  public <T> @Nullable T getValue(int fieldIdx) {
+    if (fieldIdx < 0 || fieldIdx >= getFieldCount()) {
+      throw new IllegalArgumentException("No field at index " + fieldIdx);
+    }
+    if (fieldOffsets == null) {
+      fieldOffsets = readFieldOffsets();
+    }
+    if (fieldOffsets[fieldIdx] == NULL_FIELD) {
+      return null;
+    }
+    if (values == null) {
+      values = new Object[getFieldCount()];
+      Arrays.fill(values, NOT_DECODED);
+    }
+    Object value = values[fieldIdx];
+    if (value == NOT_DECODED) {
+      value = decodeField(fieldIdx);
+      values[fieldIdx] = value;
+    }
+    return (T) value;
+  }
+
+  private int[] readFieldOffsets() {
+    try {
+      return fieldOffsetsReader.readFieldOffsets(encodedRow);
+    } catch (IOException e) {
+      throw new RuntimeException("Unable to read the field offsets of the encoded row", e);
+    }
+  }
+
+  private Object decodeField(int fieldIdx) {
+    int offset = fieldOffsets[fieldIdx];
+    try {
+      return fieldCoders[fieldIdx].decode(
+          new ByteArrayInputStream(encodedRow, offset, encodedRow.length - offset));
+    } catch (IOException e) {
+      throw new RuntimeException(
+          "Unable to decode field " + getSchema().getField(fieldIdx).getName(), e);
+    }
+  }
+
+  @Override
+  public int getFieldCount() {
+    return getSchema().getFieldCount();
+  }
+
+  @Override
+  public List<Object> getValues() {
+    List<Object> values = new ArrayList<>(getFieldCount());
+    for (int i = 0; i < getFieldCount(); ++i) {
+      values.add(getValue(i));
+    }
+    return values;
+  }
+
+  /**
+   * Returns whether the row was decoded with the given encoding, in which case it can be encoded
+   * using {@link #writeEncodedRow}.
+   */
+  public boolean hasEncoding(Object encoding) {
+    return this.encoding != null && this.encoding == encoding;
+  }
+
+  /** Writes the encoded bytes of the row. */
+  public void writeEncodedRow(OutputStream outStream) throws IOException {
+    outStream.write(encodedRow);
+  }
+
+  @Override
+  public boolean equals(@Nullable Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o instanceof RowWithEncodedBytes) {
+      RowWithEncodedBytes other = (RowWithEncodedBytes) o;
+      // Equal bytes of the same encoding always decode to equal values, while different bytes
+      // might still decode to equal values, e.g. maps with a different iteration order.
+      if (encoding != null
+          && encoding == other.encoding
+          && Arrays.equals(encodedRow, other.encodedRow)) {
+        return true;
+      }
+    }
+    return super.equals(o);
+  }
+
+  @Override
+  public int hashCode() {
+    return super.hashCode();
+  }
+}
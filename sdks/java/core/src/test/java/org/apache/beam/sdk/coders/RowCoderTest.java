@@ -17,7 +17,12 @@
  */
 package org.apache.beam.sdk.coders;
 
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
@@ -33,7 +38,10 @@ import org.apache.beam.sdk.schemas.Schema.LogicalType;
 import org.apache.beam.sdk.schemas.logicaltypes.EnumerationType;
 import org.apache.beam.sdk.schemas.logicaltypes.EnumerationType.Value;
 import org.apache.beam.sdk.testing.CoderProperties;
+import org.apache.beam.sdk.util.CoderUtils;
+import org.apache.beam.sdk.util.SerializableUtils;
 import org.apache.beam.sdk.values.Row;
+import org.apache.beam.sdk.values.RowWithEncodedBytes;
 import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.collect.ImmutableList;
 import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.collect.ImmutableMap;
 import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.collect.Lists;
@@ -493,4 +501,156 @@ public class RowCoderTest {
     Row decoded = RowCoder.of(schema2).decode(new ByteArrayInputStream(os.toByteArray()));
     assertEquals(expected, decoded);
   }
+
+  @Test
+  public void testLazyDecoding() throws Exception {
+    EnumerationType enumeration = EnumerationType.create("one", "two", "three");
+    Schema nestedSchema = Schema.builder().addInt32Field("f1_int").addStringField("f1_str").build();
+    Schema schema =
+        Schema.builder()
+            .addByteField("f_byte")
+            .addInt16Field("f_int16")
+            .addInt32Field("f_int32")
+            .addInt64Field("f_int64")
+            .addDecimalField("f_decimal")
+            .addFloatField("f_float")
+            .addDoubleField("f_double")
+            .addStringField("f_string")
+            .addDateTimeField("f_datetime")
+            .addBooleanField("f_boolean")
+            .addByteArrayField("f_bytes")
+            .addNullableField("f_null", FieldType.STRING)
+            .addRowField("f_row", nestedSchema)
+            .addArrayField("f_array", FieldType.row(nestedSchema))
+            .addIterableField("f_iterable", FieldType.STRING.withNullable(true))
+            .addMapField("f_map", FieldType.STRING, FieldType.array(FieldType.INT64))
+            .addLogicalTypeField("f_enum", enumeration)
+            .build();
+
+    Row nestedRow = Row.withSchema(nestedSchema).addValues(18, "foobar").build();
+    Row row =
+        Row.withSchema(schema)
+            .addValues(
+                (byte) 0,
+                (short) 1,
+                -2,
+                3L,
+                new BigDecimal("2.3"),
+                1.2f,
+                3.0d,
+                "str",
+                new DateTime()
+                    .withDate(1979, 03, 14)
+                    .withTime(1, 2, 3, 4)
+                    .withZone(DateTimeZone.UTC),
+                false,
+                new byte[] {1, 2, 3},
+                null,
+                nestedRow,
+                ImmutableList.of(nestedRow, nestedRow),
+                Arrays.asList("one", null, "three"),
+                ImmutableMap.of("a", ImmutableList.of(1L, 2L), "b", ImmutableList.of()),
+                enumeration.valueOf("two"))
+            .build();
+
+    RowCoder coder = RowCoder.of(schema).withLazyDecoding();
+    CoderProperties.coderDecodeEncodeEqual(coder, row);
+    CoderProperties.coderSerializable(coder);
+
+    Row decoded = CoderUtils.clone(coder, row);
+    assertThat(decoded, instanceOf(RowWithEncodedBytes.class));
+    assertThat(decoded.getRow("f_row"), instanceOf(RowWithEncodedBytes.class));
+    for (int i = schema.getFieldCount() - 1; i >= 0; --i) {
+      assertTrue(
+          Row.Equals.deepEquals(
+              row.getValue(i), decoded.getValue(i), schema.getField(i).getType()));
+    }
+  }
+
+  private static class FailingLogicalType implements LogicalType<String, String> {
+    @Override
+    public String getIdentifier() {
+      return "failing";
+    }
+
+    @Override
+    public FieldType getArgumentType() {
+      return FieldType.STRING;
+    }
+
+    @Override
+    public FieldType getBaseType() {
+      return FieldType.STRING;
+    }
+
+    @Override
+    public String toBaseType(String input) {
+      return input;
+    }
+
+    @Override
+    public String toInputType(String base) {
+      throw new IllegalStateException("Field should not be decoded.");
+    }
+  }
+
+  @Test
+  public void testLazyDecodingOnlyDecodesAccessedFields() throws Exception {
+    Schema schema =
+        Schema.builder()
+            .addLogicalTypeField("f_failing", new FailingLogicalType())
+            .addStringField("f_string")
+            .addLogicalTypeField("f_failing2", new FailingLogicalType())
+            .build();
+    Row row = Row.withSchema(schema).attachValues("foo", "bar", "baz");
+    RowCoder coder = RowCoder.of(schema).withLazyDecoding();
+    byte[] encoded = CoderUtils.encodeToByteArray(coder, row);
+
+    Row decoded = CoderUtils.decodeFromByteArray(coder, encoded);
+    assertEquals("bar", decoded.getString("f_string"));
+    // Re-encoding an untouched row copies its bytes.
+    assertArrayEquals(encoded, CoderUtils.encodeToByteArray(coder, decoded));
+    assertArrayEquals(
+        encoded, CoderUtils.encodeToByteArray(RowCoder.of(coder.getSchema()), decoded));
+    assertThrows(IllegalStateException.class, () -> decoded.getValue("f_failing"));
+  }
+
+  @Test
+  public void testLazyDecodingDroppedFields() throws Exception {
+    Schema schema1 =
+        Schema.builder()
+            .addNullableField("f_int32", FieldType.INT32)
+            .addNullableField("f_string", FieldType.STRING)
+            .addNullableField("f_boolean", FieldType.BOOLEAN)
+            .build();
+    Schema schema2 =
+        Schema.builder()
+            .addNullableField("f_int32", FieldType.INT32)
+            .addNullableField("f_string", FieldType.STRING)
+            .build();
+
+    Row row = Row.withSchema(schema1).addValues(42, "hello world!", true).build();
+    Row expected = Row.withSchema(schema2).addValues(42, "hello world!").build();
+
+    byte[] encoded = CoderUtils.encodeToByteArray(RowCoder.of(schema1), row);
+    Row decoded = RowCoder.of(schema2).withLazyDecoding().decode(new ByteArrayInputStream(encoded));
+    assertEquals(expected, decoded);
+    // Rows which were encoded with a different number of fields are encoded field by field.
+    assertArrayEquals(
+        CoderUtils.encodeToByteArray(RowCoder.of(schema2), expected),
+        CoderUtils.encodeToByteArray(RowCoder.of(schema2), decoded));
+    assertEquals(expected, SerializableUtils.clone(decoded));
+  }
+
+  @Test
+  public void testLazyDecodingSerializable() throws Exception {
+    Schema schema = Schema.builder().addInt32Field("f_int32").addStringField("f_string").build();
+    Row row = Row.withSchema(schema).addValues(42, "hello world!").build();
+    RowCoder coder = RowCoder.of(schema).withLazyDecoding();
+    byte[] encoded = CoderUtils.encodeToByteArray(coder, row);
+
+    Row deserialized = SerializableUtils.clone(CoderUtils.decodeFromByteArray(coder, encoded));
+    assertEquals(row, deserialized);
+    assertArrayEquals(encoded, CoderUtils.encodeToByteArray(coder, deserialized));
+  }
 }
@@ -19,6 +19,7 @@ package org.apache.beam.sdk.schemas.transforms;
 
 import static junit.framework.TestCase.assertEquals;
 import static org.apache.beam.sdk.schemas.transforms.JoinTestUtils.innerJoin;
+import static org.junit.Assert.assertThrows;
 
 import java.util.List;
 import org.apache.beam.sdk.schemas.Schema;
@@ -415,4 +416,81 @@ public class JoinTest {
     PAssert.that(joined).containsInAnyOrder(expectedJoinedRows);
     pipeline.run();
   }
+
+  @Test
+  @Category(NeedsRunner.class)
+  public void testOuterJoinWithHotKeyFanout() {
+    List<Row> pc1Rows = Lists.newArrayList();
+    for (int i = 0; i < 20; i++) {
+      pc1Rows.add(Row.withSchema(CG_SCHEMA_1).addValues("user1", i, "us").build());
+    }
+    pc1Rows.add(Row.withSchema(CG_SCHEMA_1).addValues("user1", 20, "il").build());
+    pc1Rows.add(Row.withSchema(CG_SCHEMA_1).addValues("user2", 21, "fr").build());
+    pc1Rows.add(Row.withSchema(CG_SCHEMA_1).addValues("user3", 22, "ar").build());
+    List<Row> pc2Rows =
+        Lists.newArrayList(
+            Row.withSchema(CG_SCHEMA_2).addValues("user1", 9, "us").build(),
+            Row.withSchema(CG_SCHEMA_2).addValues("user1", 10, "us").build(),
+            Row.withSchema(CG_SCHEMA_2).addValues("user2", 11, "fr").build(),
+            Row.withSchema(CG_SCHEMA_2).addValues("user4", 12, "ar").build());
+
+    PCollection<Row> pc1 = pipeline.apply("Create1", Create.of(pc1Rows)).setRowSchema(CG_SCHEMA_1);
+    PCollection<Row> pc2 = pipeline.apply("Create2", Create.of(pc2Rows)).setRowSchema(CG_SCHEMA_2);
+
+    Schema expectedSchema =
+        Schema.builder()
+            .addNullableField(Join.LHS_TAG, Schema.FieldType.row(CG_SCHEMA_1))
+            .addNullableField(Join.RHS_TAG, Schema.FieldType.row(CG_SCHEMA_2))
+            .build();
+
+    PCollection<Row> joined =
+        pc1.apply(
+            Join.<Row, Row>fullOuterJoin(pc2)
+                .on(FieldsEqual.left("user", "country").right("user2", "country2"))
+                .withHotKeyFanout(4)
+                .withHotKeyThreshold(10));
+
+    assertEquals(expectedSchema, joined.getSchema());
+
+    List<Row> expectedJoinedRows =
+        innerJoin(
+            pc1Rows,
+            pc2Rows,
+            new String[] {"user", "country"},
+            new String[] {"user2", "country2"},
+            expectedSchema);
+    expectedJoinedRows.add(
+        Row.withSchema(expectedSchema)
+            .addValues(Row.withSchema(CG_SCHEMA_1).addValues("user1", 20, "il").build(), null)
+            .build());
+    expectedJoinedRows.add(
+        Row.withSchema(expectedSchema)
+            .addValues(Row.withSchema(CG_SCHEMA_1).addValues("user3", 22, "ar").build(), null)
+            .build());
+    expectedJoinedRows.add(
+        Row.withSchema(expectedSchema)
+            .addValues(null, Row.withSchema(CG_SCHEMA_2).addValues("user4", 12, "ar").build())
+            .build());
+
+    PAssert.that(joined).containsInAnyOrder(expectedJoinedRows);
+    pipeline.run();
+  }
+
+  @Test
+  public void testHotKeyFanoutRejectsUnboundedGlobalWindow() {
+    pipeline.enableAbandonedNodeEnforcement(false);
+    PCollection<Row> pc1 =
+        pipeline
+            .apply("Create1", Create.empty(CG_SCHEMA_1))
+            .setIsBoundedInternal(PCollection.IsBounded.UNBOUNDED);
+    PCollection<Row> pc2 = pipeline.apply("Create2", Create.empty(CG_SCHEMA_2));
+
+    assertThrows(
+        IllegalArgumentException.class,
+        () ->
+            pc1.apply(
+                Join.<Row, Row>innerJoin(pc2)
+                    .on(FieldsEqual.left("user").right("user2"))
+                    .withHotKeyFanout(4)));
+  }
 }
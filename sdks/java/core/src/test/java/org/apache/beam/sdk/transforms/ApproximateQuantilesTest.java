@@ -22,11 +22,14 @@ import static org.apache.beam.sdk.transforms.display.DisplayDataMatchers.hasDisp
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.collection.IsIterableContainingInOrder.contains;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
 
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
 import org.apache.beam.sdk.Pipeline;
@@ -37,7 +40,10 @@ import org.apache.beam.sdk.testing.NeedsRunner;
 import org.apache.beam.sdk.testing.PAssert;
 import org.apache.beam.sdk.testing.TestPipeline;
 import org.apache.beam.sdk.transforms.ApproximateQuantiles.ApproximateQuantilesCombineFn;
+import org.apache.beam.sdk.transforms.ApproximateQuantiles.KllDoublesCombineFn;
+import org.apache.beam.sdk.transforms.ApproximateQuantiles.KllLongsCombineFn;
 import org.apache.beam.sdk.transforms.display.DisplayData;
+import org.apache.beam.sdk.util.CoderUtils;
 import org.apache.beam.sdk.values.KV;
 import org.apache.beam.sdk.values.PCollection;
 import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.collect.Lists;
@@ -287,6 +293,129 @@ public class ApproximateQuantilesTest {
     }
   }
 
+  /** Tests for the {@link KllSketch} based combiners. */
+  @RunWith(JUnit4.class)
+  public static class KllTests {
+    @Rule public TestPipeline p = TestPipeline.create();
+
+    @Test
+    @Category(NeedsRunner.class)
+    public void testDoublesGlobally() {
+      List<Double> values = new ArrayList<>();
+      for (int i = 0; i <= 100; i++) {
+        values.add((double) i);
+      }
+      PCollection<List<Double>> quantiles =
+          p.apply(Create.of(values)).apply(ApproximateQuantiles.doublesGlobally(5));
+
+      PAssert.that(quantiles).containsInAnyOrder(Arrays.asList(0.0, 25.0, 50.0, 75.0, 100.0));
+      p.run();
+    }
+
+    @Test
+    @Category(NeedsRunner.class)
+    public void testLongsPerKey() {
+      PCollection<KV<String, List<Long>>> quantiles =
+          p.apply(
+                  Create.of(
+                      KV.of("a", 1L),
+                      KV.of("a", 2L),
+                      KV.of("a", 3L),
+                      KV.of("b", 1L),
+                      KV.of("b", 10L),
+                      KV.of("b", 10L),
+                      KV.of("b", 100L)))
+              .apply(ApproximateQuantiles.longsPerKey(2));
+
+      PAssert.that(quantiles)
+          .containsInAnyOrder(
+              KV.of("a", Arrays.asList(1L, 3L)), KV.of("b", Arrays.asList(1L, 100L)));
+      p.run();
+    }
+
+    @Test
+    public void testFewerValuesThanQuantiles() {
+      testCombineFn(
+          KllLongsCombineFn.create(10), Arrays.asList(3L, 1L, 2L), Arrays.asList(1L, 2L, 3L));
+    }
+
+    @Test
+    public void testNegativeDoubles() {
+      testCombineFn(
+          KllDoublesCombineFn.create(3),
+          Arrays.asList(-1.5, -0.0, 2.5, Double.NEGATIVE_INFINITY, 7.0),
+          Arrays.asList(Double.NEGATIVE_INFINITY, -0.0, 7.0));
+    }
+
+    @Test
+    public void testLargeInput() {
+      List<Long> values = new ArrayList<>();
+      for (long i = 0; i < 20000; i++) {
+        values.add(i);
+      }
+      testCombineFn(
+          KllLongsCombineFn.create(11),
+          values,
+          quantileMatcher(20000, 11, 20000 * 3 / 100 /* tolerance */));
+    }
+
+    @Test
+    public void testSketchRetainsFewItems() {
+      KllSketch sketch = KllSketch.create();
+      for (long i = 0; i < 1000000; i++) {
+        sketch.update(i);
+      }
+      assertEquals(1000000, sketch.getCount());
+      assertThat(sketch.getNumRetained(), Matchers.lessThan(3 * KllSketch.DEFAULT_K + 100));
+    }
+
+    @Test
+    public void testSketchCoder() throws Exception {
+      KllSketch sketch = KllSketch.create(50);
+      for (int i = 0; i < 10000; i++) {
+        sketch.update(i * 0.5);
+      }
+      KllSketch decoded = CoderUtils.clone(KllSketch.coder(), sketch);
+      assertEquals(sketch.getCount(), decoded.getCount());
+      assertEquals(sketch.getNumRetained(), decoded.getNumRetained());
+      assertEquals(sketch.getDoubleQuantiles(11), decoded.getDoubleQuantiles(11));
+
+      KllSketch empty = CoderUtils.clone(KllSketch.coder(), KllSketch.create());
+      assertTrue(empty.isEmpty());
+      assertEquals(Collections.emptyList(), empty.getDoubleQuantiles(2));
+    }
+
+    @Test
+    public void testMergeDifferentKFails() {
+      KllSketch sketch = KllSketch.create(50);
+      KllSketch other = KllSketch.create(100);
+      other.update(1L);
+      assertThrows(IllegalArgumentException.class, () -> sketch.merge(other));
+    }
+
+    @Test
+    public void testDisplayData() {
+      DisplayData displayData = DisplayData.from(KllDoublesCombineFn.create(20).withK(100));
+
+      assertThat(displayData, hasDisplayItem("numQuantiles", 20));
+      assertThat(displayData, hasDisplayItem("k", 100));
+    }
+
+    private Matcher<Iterable<? extends Long>> quantileMatcher(
+        long size, int numQuantiles, long absoluteError) {
+      List<Matcher<? super Long>> quantiles = new ArrayList<>();
+      quantiles.add(CoreMatchers.is(0L));
+      for (int k = 1; k < numQuantiles - 1; k++) {
+        long expected = (long) (((double) (size - 1)) * k / (numQuantiles - 1));
+        quantiles.add(
+            Matchers.both(Matchers.greaterThanOrEqualTo(expected - absoluteError))
+                .and(Matchers.lessThanOrEqualTo(expected + absoluteError)));
+      }
+      quantiles.add(CoreMatchers.is(size - 1));
+      return contains(quantiles);
+    }
+  }
+
   /** Tests to ensure we are calculating the optimal buffers. */
   @RunWith(Parameterized.class)
   public static class BufferTests {
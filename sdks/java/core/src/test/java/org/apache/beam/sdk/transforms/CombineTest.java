@@ -29,6 +29,8 @@ import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.hasItem;
 import static org.hamcrest.Matchers.not;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 import java.io.IOException;
 import java.io.InputStream;
@@ -67,9 +69,11 @@ import org.apache.beam.sdk.transforms.display.DisplayDataEvaluator;
 import org.apache.beam.sdk.transforms.windowing.AfterPane;
 import org.apache.beam.sdk.transforms.windowing.FixedWindows;
 import org.apache.beam.sdk.transforms.windowing.GlobalWindows;
+import org.apache.beam.sdk.transforms.windowing.IntervalWindow;
 import org.apache.beam.sdk.transforms.windowing.Repeatedly;
 import org.apache.beam.sdk.transforms.windowing.Sessions;
 import org.apache.beam.sdk.transforms.windowing.SlidingWindows;
+import org.apache.beam.sdk.transforms.windowing.TimestampCombiner;
 import org.apache.beam.sdk.transforms.windowing.Window;
 import org.apache.beam.sdk.transforms.windowing.Window.ClosingBehavior;
 import org.apache.beam.sdk.util.SerializableUtils;
@@ -79,6 +83,7 @@ import org.apache.beam.sdk.values.PCollection;
 import org.apache.beam.sdk.values.PCollectionView;
 import org.apache.beam.sdk.values.POutput;
 import org.apache.beam.sdk.values.TimestampedValue;
+import org.apache.beam.sdk.values.WindowingStrategy;
 import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.base.MoreObjects;
 import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.collect.ImmutableList;
 import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.collect.ImmutableSet;
@@ -1161,6 +1166,98 @@ public class CombineTest implements Serializable {
       pipeline.run();
     }
 
+    @Test
+    @Category(ValidatesRunner.class)
+    public void testSlidingWindowsCombineWithSlicing() {
+      PCollection<KV<String, Integer>> input =
+          pipeline
+              .apply(
+                  Create.timestamped(
+                          TimestampedValue.of(KV.of("a", 1), new Instant(0L)),
+                          TimestampedValue.of(KV.of("a", 2), new Instant(1L)),
+                          TimestampedValue.of(KV.of("a", 3), new Instant(2L)),
+                          TimestampedValue.of(KV.of("a", 4), new Instant(5L)),
+                          TimestampedValue.of(KV.of("b", 5), new Instant(6L)))
+                      .withCoder(KvCoder.of(StringUtf8Coder.of(), BigEndianIntegerCoder.of())))
+              .apply(Window.into(SlidingWindows.of(Duration.millis(4)).every(Duration.millis(2))));
+
+      PCollection<KV<String, String>> sliced =
+          input.apply(
+              "Sliced",
+              Combine.<String, Integer, String>perKey(new TestCombineFn())
+                  .withSlidingWindowSlicing());
+      PCollection<KV<String, Double>> slicedMean =
+          input.apply(
+              "SlicedMean",
+              Combine.<String, Integer, Double>perKey(new MeanInts()).withSlidingWindowSlicing());
+
+      List<KV<String, String>> expected =
+          Arrays.asList(
+              KV.of("a", "12"),
+              KV.of("a", "123"),
+              KV.of("a", "34"),
+              KV.of("a", "4"),
+              KV.of("b", "5"),
+              KV.of("b", "5"));
+      PAssert.that(sliced).containsInAnyOrder(expected);
+      PAssert.that(input.apply("Naive", Combine.perKey(new TestCombineFn())))
+          .containsInAnyOrder(expected);
+      PAssert.that(slicedMean)
+          .containsInAnyOrder(
+              KV.of("a", 1.5),
+              KV.of("a", 2.0),
+              KV.of("a", 3.5),
+              KV.of("a", 4.0),
+              KV.of("b", 5.0),
+              KV.of("b", 5.0));
+      PAssert.that(slicedMean)
+          .inWindow(new IntervalWindow(new Instant(0L), new Instant(4L)))
+          .containsInAnyOrder(KV.of("a", 2.0));
+      pipeline.run();
+    }
+
+    @Test
+    @Category(ValidatesRunner.class)
+    public void testSlidingWindowsCombineWithSlicingNotApplicable() {
+      // The size is not a multiple of the period, so the values are combined per window.
+      PCollection<KV<String, Integer>> input =
+          pipeline
+              .apply(
+                  Create.timestamped(
+                          TimestampedValue.of(KV.of("a", 1), new Instant(0L)),
+                          TimestampedValue.of(KV.of("a", 2), new Instant(2L)))
+                      .withCoder(KvCoder.of(StringUtf8Coder.of(), BigEndianIntegerCoder.of())))
+              .apply(Window.into(SlidingWindows.of(Duration.millis(3)).every(Duration.millis(2))));
+
+      PCollection<KV<String, String>> combined =
+          input.apply(
+              Combine.<String, Integer, String>perKey(new TestCombineFn())
+                  .withSlidingWindowSlicing());
+
+      PAssert.that(combined).containsInAnyOrder(KV.of("a", "1"), KV.of("a", "12"), KV.of("a", "2"));
+      pipeline.run();
+    }
+
+    @Test
+    public void testCanSliceSlidingWindows() {
+      SlidingWindows windowFn = SlidingWindows.of(Duration.millis(10)).every(Duration.millis(5));
+      assertTrue(Combine.PerKeyWithSlidingWindowSlicing.canSlice(WindowingStrategy.of(windowFn)));
+      assertFalse(
+          Combine.PerKeyWithSlidingWindowSlicing.canSlice(
+              WindowingStrategy.of(
+                  SlidingWindows.of(Duration.millis(10)).every(Duration.millis(3)))));
+      assertFalse(
+          Combine.PerKeyWithSlidingWindowSlicing.canSlice(
+              WindowingStrategy.of(FixedWindows.of(Duration.millis(10)))));
+      assertFalse(
+          Combine.PerKeyWithSlidingWindowSlicing.canSlice(
+              WindowingStrategy.of(windowFn)
+                  .withTrigger(Repeatedly.forever(AfterPane.elementCountAtLeast(1)))));
+      assertFalse(
+          Combine.PerKeyWithSlidingWindowSlicing.canSlice(
+              WindowingStrategy.of(windowFn).withTimestampCombiner(TimestampCombiner.EARLIEST)));
+    }
+
     @Test
     @Category({ValidatesRunner.class, UsesSideInputs.class})
     public void testSlidingWindowsCombineWithContext() {
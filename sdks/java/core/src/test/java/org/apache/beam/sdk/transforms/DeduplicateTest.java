@@ -21,6 +21,8 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertThrows;
 import static org.junit.Assert.assertTrue;
 
+import java.util.ArrayList;
+import java.util.List;
 import org.apache.beam.sdk.coders.KvCoder;
 import org.apache.beam.sdk.coders.StringUtf8Coder;
 import org.apache.beam.sdk.coders.VarIntCoder;
@@ -166,6 +168,99 @@ public class DeduplicateTest {
     p.run();
   }
 
+  @Test
+  @Category({NeedsRunner.class, UsesTestStreamWithProcessingTime.class})
+  public void testShardedStateProcessingTime() {
+    Instant base = new Instant(0);
+    TestStream.Builder<String> builder =
+        TestStream.create(StringUtf8Coder.of())
+            .advanceWatermarkTo(base)
+            .addElements(
+                TimestampedValue.of("k1", base),
+                TimestampedValue.of("k2", base.plus(Duration.standardSeconds(10))),
+                TimestampedValue.of("k3", base.plus(Duration.standardSeconds(20))),
+                TimestampedValue.of("expired", base.plus(Duration.standardSeconds(59))))
+            .advanceProcessingTime(Duration.standardMinutes(1))
+            .addElements(
+                TimestampedValue.of("k1", base.plus(Duration.standardSeconds(30))),
+                TimestampedValue.of("k2", base.plus(Duration.standardSeconds(40))),
+                TimestampedValue.of("k3", base.plus(Duration.standardSeconds(50))));
+    // Advance the processing time in steps, so that the timer can start a new bucket each time.
+    for (int i = 0; i < 20; i++) {
+      builder = builder.advanceProcessingTime(Duration.standardMinutes(1));
+    }
+    TestStream<String> values =
+        builder
+            .addElements(TimestampedValue.of("expired", base.plus(Duration.standardSeconds(59))))
+            .advanceWatermarkToInfinity();
+
+    PCollection<String> distinctValues =
+        p.apply(values).apply(Deduplicate.<String>values().withShardedState(2));
+    PAssert.that(distinctValues).containsInAnyOrder("k1", "k2", "k3", "expired", "expired");
+    p.run();
+  }
+
+  @Test
+  @Category({NeedsRunner.class, UsesTestStream.class})
+  public void testShardedStateEventTime() {
+    Instant base = new Instant(0);
+    TestStream<String> values =
+        TestStream.create(StringUtf8Coder.of())
+            .advanceWatermarkTo(base)
+            .addElements(
+                TimestampedValue.of("k1", base),
+                TimestampedValue.of("k2", base.plus(Duration.standardSeconds(10))),
+                TimestampedValue.of("k3", base.plus(Duration.standardSeconds(20))),
+                TimestampedValue.of("maybedup", base.plus(Duration.standardSeconds(59))))
+            .advanceWatermarkTo(base.plus(Duration.standardMinutes(1)))
+            .addElements(
+                TimestampedValue.of("k1", base.plus(Duration.standardSeconds(30))),
+                TimestampedValue.of("k2", base.plus(Duration.standardSeconds(40))),
+                TimestampedValue.of("k3", base.plus(Duration.standardSeconds(50))))
+            .advanceWatermarkTo(
+                base.plus(Duration.standardMinutes(1)).plus(Deduplicate.DEFAULT_DURATION))
+            .addElements(TimestampedValue.of("maybedup", base.plus(Duration.standardSeconds(59))))
+            .advanceWatermarkToInfinity();
+
+    PCollection<String> distinctValues =
+        p.apply(values)
+            .apply(
+                Deduplicate.<String>values()
+                    .withTimeDomain(TimeDomain.EVENT_TIME)
+                    .withShardedState(3));
+    PAssert.that(distinctValues)
+        .satisfies(
+            (Iterable<String> input) -> {
+              assertEquals(1, Iterables.frequency(input, "k1"));
+              assertEquals(1, Iterables.frequency(input, "k2"));
+              assertEquals(1, Iterables.frequency(input, "k3"));
+              assertTrue(
+                  Iterables.frequency(input, "maybedup") == 1
+                      || Iterables.frequency(input, "maybedup") == 2);
+              return null;
+            });
+    p.run();
+  }
+
+  @Test
+  @Category(NeedsRunner.class)
+  public void testShardedStateManyValues() {
+    List<KV<Integer, String>> input = new ArrayList<>();
+    List<KV<Integer, String>> expected = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      expected.add(KV.of(i, "v" + i));
+      for (int j = 0; j < 3; j++) {
+        input.add(KV.of(i, "v" + i));
+      }
+    }
+
+    PCollection<KV<Integer, String>> distinctValues =
+        p.apply(Create.of(input))
+            .apply(Deduplicate.<Integer, String>keyedValues().withShardedState(4));
+    PAssert.that(distinctValues).containsInAnyOrder(expected);
+    p.run();
+  }
+
   private static class Keys<T> implements SerializableFunction<KV<T, String>, T> {
     @Override
     public T apply(KV<T, String> input) {
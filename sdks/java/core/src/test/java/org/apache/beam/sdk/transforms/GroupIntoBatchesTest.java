@@ -18,6 +18,7 @@
 package org.apache.beam.sdk.transforms;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import java.io.Serializable;
@@ -304,6 +305,174 @@ public class GroupIntoBatchesTest implements Serializable {
         .waitUntilFinish();
   }
 
+  @Test
+  @Category({NeedsRunner.class, UsesTimersInParDo.class, UsesStatefulParDo.class})
+  public void testAdaptiveBatchSizeInGlobalWindow() {
+    int numElements = 1000;
+    PCollection<KV<String, Iterable<String>>> collection =
+        pipeline
+            .apply("Input data", Create.of(createTestData(numElements)))
+            .apply(
+                GroupIntoBatches.<String, String>ofSize(BATCH_SIZE)
+                    .withAdaptiveBatchSize(Duration.standardMinutes(1)))
+            .setCoder(KvCoder.of(StringUtf8Coder.of(), IterableCoder.of(StringUtf8Coder.of())));
+    PAssert.that("Incorrect batch size in one or more elements", collection)
+        .satisfies(
+            input -> {
+              for (KV<String, Iterable<String>> element : input) {
+                assertTrue(Iterables.size(element.getValue()) <= BATCH_SIZE);
+              }
+              return null;
+            });
+    PAssert.thatSingleton(
+            "Incorrect number of elements",
+            collection
+                .apply(
+                    "BatchSize",
+                    MapElements.via(
+                        new SimpleFunction<KV<String, Iterable<String>>, Integer>() {
+                          @Override
+                          public Integer apply(KV<String, Iterable<String>> input) {
+                            return Iterables.size(input.getValue());
+                          }
+                        }))
+                .apply("Sum", Sum.integersGlobally()))
+        .isEqualTo(numElements);
+    pipeline.run();
+  }
+
+  @Test
+  @Category({NeedsRunner.class, UsesTimersInParDo.class, UsesStatefulParDo.class})
+  public void testWithShardedKeyAdaptiveBatchSize() {
+    int numElements = 10000;
+    PCollection<KV<ShardedKey<String>, Iterable<String>>> collection =
+        pipeline
+            .apply("Input data", Create.of(createTestData(numElements)))
+            .apply(
+                GroupIntoBatches.<String, String>ofSize(BATCH_SIZE)
+                    .withAdaptiveBatchSize(Duration.standardMinutes(1))
+                    .withShardedKey())
+            .setCoder(
+                KvCoder.of(
+                    ShardedKey.Coder.of(StringUtf8Coder.of()),
+                    IterableCoder.of(StringUtf8Coder.of())));
+    PAssert.that("Incorrect batch size in one or more elements", collection)
+        .satisfies(
+            input -> {
+              for (KV<ShardedKey<String>, Iterable<String>> element : input) {
+                assertEquals("key", element.getKey().getKey());
+                assertTrue(Iterables.size(element.getValue()) <= BATCH_SIZE);
+              }
+              return null;
+            });
+    PAssert.thatSingleton(
+            "Incorrect number of elements",
+            collection
+                .apply(
+                    "BatchSize",
+                    MapElements.via(
+                        new SimpleFunction<KV<ShardedKey<String>, Iterable<String>>, Integer>() {
+                          @Override
+                          public Integer apply(KV<ShardedKey<String>, Iterable<String>> input) {
+                            return Iterables.size(input.getValue());
+                          }
+                        }))
+                .apply("Sum", Sum.integersGlobally()))
+        .isEqualTo(numElements);
+    pipeline.run();
+  }
+
+  @Test
+  public void testNextAdaptiveBatchSize() {
+    Duration second = Duration.standardSeconds(1);
+    Duration targetLatency = Duration.standardSeconds(2);
+    // 11 elements within one second are 10 elements per second, which give 20 elements within the
+    // target latency.
+    assertEquals(
+        Long.valueOf(20),
+        GroupIntoBatches.nextAdaptiveBatchSize(null, 100, 11, second, targetLatency));
+    // The measurement is smoothed with the current batch size.
+    assertEquals(
+        Long.valueOf(15),
+        GroupIntoBatches.nextAdaptiveBatchSize(20L, 100, 6, second, targetLatency));
+    // The batch size is bounded by the configured batch size and at least two.
+    assertEquals(
+        Long.valueOf(100),
+        GroupIntoBatches.nextAdaptiveBatchSize(null, 100, 1000, second, targetLatency));
+    assertEquals(
+        Long.valueOf(2),
+        GroupIntoBatches.nextAdaptiveBatchSize(
+            null, 100, 2, Duration.standardMinutes(1), targetLatency));
+    assertEquals(
+        Long.valueOf(1),
+        GroupIntoBatches.nextAdaptiveBatchSize(
+            null, 1, 2, Duration.standardMinutes(1), targetLatency));
+  }
+
+  @Test
+  public void testNextAdaptiveBatchSizeIgnoresSingleElementBatches() {
+    Duration targetLatency = Duration.standardSeconds(2);
+    assertNull(GroupIntoBatches.nextAdaptiveBatchSize(null, 100, 1, Duration.ZERO, targetLatency));
+    assertEquals(
+        Long.valueOf(40),
+        GroupIntoBatches.nextAdaptiveBatchSize(
+            40L, 100, 1, Duration.standardMinutes(1), targetLatency));
+  }
+
+  @Test
+  public void testAdaptedBatchSizesFollowArrivalRate() {
+    Duration targetLatency = Duration.standardSeconds(1);
+    long maxBatchSize = 1000;
+    // A key receiving 100 elements per second converges to batches of 100 elements, starting from
+    // the configured batch size.
+    long batchSize = maxBatchSize;
+    List<Long> batchSizes = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      batchSizes.add(batchSize);
+      batchSize = adaptedBatchSize(batchSize, maxBatchSize, 100, targetLatency);
+    }
+    assertEquals(Long.valueOf(maxBatchSize), batchSizes.get(0));
+    for (int i = 1; i < batchSizes.size(); i++) {
+      assertTrue(batchSizes.get(i) <= batchSizes.get(i - 1));
+    }
+    assertEquals(100, batchSize, 1);
+
+    // Once the key gets hotter, the batch size grows again until it is bounded by the configured
+    // batch size.
+    for (int i = 0; i < 10; i++) {
+      batchSize = adaptedBatchSize(batchSize, maxBatchSize, 500, targetLatency);
+    }
+    assertEquals(500, batchSize, 1);
+    for (int i = 0; i < 20; i++) {
+      batchSize = adaptedBatchSize(batchSize, maxBatchSize, 5000, targetLatency);
+    }
+    assertEquals(maxBatchSize, batchSize);
+  }
+
+  /**
+   * Returns the batch size following a batch of {@code batchSize} elements of a key receiving
+   * {@code elementsPerSecond} elements at a steady pace.
+   */
+  private static long adaptedBatchSize(
+      long batchSize, long maxBatchSize, long elementsPerSecond, Duration targetLatency) {
+    Duration fillDuration = Duration.millis((batchSize - 1) * 1000 / elementsPerSecond);
+    return GroupIntoBatches.nextAdaptiveBatchSize(
+        batchSize, maxBatchSize, batchSize, fillDuration, targetLatency);
+  }
+
+  @Test
+  public void testArrivalRate() {
+    GroupIntoBatches.ArrivalRate arrivalRate = new GroupIntoBatches.ArrivalRate();
+    double arrivalsPerSecond = 0;
+    // One arrival every millisecond.
+    for (long nanos = 0; nanos < 10_000_000_000L; nanos += 1_000_000L) {
+      arrivalsPerSecond = arrivalRate.observe(nanos);
+    }
+    assertEquals(1000, arrivalsPerSecond, 10);
+    // The estimate decays once arrivals stop.
+    assertTrue(arrivalRate.observe(20_000_000_000L) < 2);
+  }
+
   /** test behavior when the number of input elements is not evenly divisible by batch size. */
   @Test
   @Category({NeedsRunner.class, UsesTimersInParDo.class, UsesStatefulParDo.class})
@@ -20,10 +20,12 @@ package org.apache.beam.sdk.transforms;
 import static org.apache.beam.sdk.TestUtils.KvMatcher.isKv;
 import static org.apache.beam.sdk.values.TypeDescriptors.integers;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.collection.IsIterableContainingInAnyOrder.containsInAnyOrder;
 import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
 
 import java.io.Serializable;
 import java.util.List;
@@ -40,6 +42,7 @@ import org.apache.beam.sdk.transforms.Reshuffle.AssignShardFn;
 import org.apache.beam.sdk.transforms.windowing.BoundedWindow;
 import org.apache.beam.sdk.transforms.windowing.FixedWindows;
 import org.apache.beam.sdk.transforms.windowing.GlobalWindow;
+import org.apache.beam.sdk.transforms.windowing.IntervalWindow;
 import org.apache.beam.sdk.transforms.windowing.Sessions;
 import org.apache.beam.sdk.transforms.windowing.Window;
 import org.apache.beam.sdk.values.KV;
@@ -47,6 +50,7 @@ import org.apache.beam.sdk.values.PCollection;
 import org.apache.beam.sdk.values.TimestampedValue;
 import org.apache.beam.sdk.values.TypeDescriptors;
 import org.apache.beam.sdk.values.WindowingStrategy;
+import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.base.Strings;
 import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.collect.ImmutableList;
 import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.collect.Lists;
 import org.joda.time.Duration;
@@ -301,4 +305,63 @@ public class ReshuffleTest implements Serializable {
 
     pipeline.run();
   }
+
+  @Test
+  @Category(ValidatesRunner.class)
+  public void testViaRandomKeyWithTargetBatchBytes() {
+    List<String> inputs = Lists.newArrayList();
+    for (int i = 0; i < 100; i++) {
+      inputs.add("element" + i);
+    }
+    // Include an element larger than the target batch size.
+    inputs.add(Strings.repeat("x", 100));
+
+    PCollection<String> output =
+        pipeline
+            .apply(Create.of(inputs).withCoder(StringUtf8Coder.of()))
+            .apply(Reshuffle.<String>viaRandomKey().withTargetBatchBytes(50));
+
+    PAssert.that(output).containsInAnyOrder(inputs);
+    assertEquals(StringUtf8Coder.of(), output.getCoder());
+
+    pipeline.run();
+  }
+
+  @Test
+  public void testViaRandomKeyWithTargetBatchBytesRejectsMergingWindows() {
+    pipeline.enableAbandonedNodeEnforcement(false);
+    PCollection<String> input =
+        pipeline
+            .apply(Create.of("a", "b"))
+            .apply(Window.into(Sessions.withGapDuration(Duration.standardMinutes(1))));
+
+    IllegalArgumentException e =
+        assertThrows(
+            IllegalArgumentException.class,
+            () -> input.apply(Reshuffle.<String>viaRandomKey().withTargetBatchBytes(50)));
+    assertThat(e.getMessage(), containsString("merging windows"));
+  }
+
+  @Test
+  @Category(ValidatesRunner.class)
+  public void testViaRandomKeyWithTargetBatchBytesPreservesTimestampsAndWindows() {
+    List<TimestampedValue<Long>> inputs = Lists.newArrayList();
+    for (long i = 0; i < 40; i++) {
+      inputs.add(TimestampedValue.of(i, new Instant(i * 1000)));
+    }
+
+    PCollection<TimestampedValue<Long>> output =
+        pipeline
+            .apply(Create.timestamped(inputs).withCoder(VarLongCoder.of()))
+            .apply(Window.into(FixedWindows.of(Duration.standardSeconds(10))))
+            .apply(Reshuffle.<Long>viaRandomKey().withNumBuckets(3).withTargetBatchBytes(4))
+            .apply(Reify.timestamps());
+
+    PAssert.that(output).containsInAnyOrder(inputs);
+    PAssert.that(output)
+        .inWindow(new IntervalWindow(new Instant(0), Duration.standardSeconds(10)))
+        .containsInAnyOrder(inputs.subList(0, 10));
+
+    pipeline.run();
+  }
 }
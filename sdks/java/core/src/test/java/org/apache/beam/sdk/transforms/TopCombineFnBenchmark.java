@@ -0,0 +1,101 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.sdk.transforms;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.apache.beam.sdk.coders.Coder;
+import org.apache.beam.sdk.coders.CoderRegistry;
+import org.apache.beam.sdk.coders.VarLongCoder;
+import org.apache.beam.sdk.transforms.Combine.CombineFn;
+import org.apache.beam.sdk.util.CoderUtils;
+
+/**
+ * Compares {@link Top.TopCombineFn} with {@link Top.TopLongsFn} on add throughput, accumulator
+ * encoding cost and merge throughput, for the accumulators of {@code Top.largestPerKey(1000)}.
+ */
+public class TopCombineFnBenchmark {
+  private static final int COUNT = 1000;
+  private static final int NUM_SHARDS = 500;
+  private static final int ELEMENTS_PER_SHARD = 20 * 1000;
+  private static final int ITERATIONS = 5;
+
+  public static void main(String[] args) throws Exception {
+    long[] input = new long[NUM_SHARDS * ELEMENTS_PER_SHARD];
+    Random random = new Random(42);
+    for (int i = 0; i < input.length; i++) {
+      input[i] = random.nextLong();
+    }
+    for (int i = 0; i < ITERATIONS; i++) {
+      benchmark("TopCombineFn", Top.largestLongsFn(COUNT), input);
+      benchmark("TopLongsFn", Top.TopLongsFn.largest(COUNT), input);
+    }
+  }
+
+  private static <AccumT> void benchmark(
+      String name, CombineFn<Long, AccumT, List<Long>> fn, long[] input) throws Exception {
+    Coder<AccumT> accumCoder =
+        fn.getAccumulatorCoder(CoderRegistry.createDefault(), VarLongCoder.of());
+
+    long start = System.nanoTime();
+    List<AccumT> accumulators = new ArrayList<>(NUM_SHARDS);
+    for (int shard = 0; shard < NUM_SHARDS; shard++) {
+      AccumT accumulator = fn.createAccumulator();
+      for (int i = shard * ELEMENTS_PER_SHARD; i < (shard + 1) * ELEMENTS_PER_SHARD; i++) {
+        accumulator = fn.addInput(accumulator, input[i]);
+      }
+      accumulators.add(accumulator);
+    }
+    long addNanos = System.nanoTime() - start;
+
+    start = System.nanoTime();
+    long bytes = 0;
+    List<byte[]> encoded = new ArrayList<>(NUM_SHARDS);
+    for (AccumT accumulator : accumulators) {
+      byte[] encodedAccumulator = CoderUtils.encodeToByteArray(accumCoder, accumulator);
+      bytes += encodedAccumulator.length;
+      encoded.add(encodedAccumulator);
+    }
+    long encodeNanos = System.nanoTime() - start;
+
+    // Like a runner's combine after the shuffle: decode every accumulator, merge them and encode
+    // the result.
+    start = System.nanoTime();
+    List<AccumT> decoded = new ArrayList<>(NUM_SHARDS);
+    for (byte[] encodedAccumulator : encoded) {
+      decoded.add(CoderUtils.decodeFromByteArray(accumCoder, encodedAccumulator));
+    }
+    AccumT merged = fn.mergeAccumulators(decoded);
+    CoderUtils.encodeToByteArray(accumCoder, merged);
+    long mergeNanos = System.nanoTime() - start;
+
+    List<Long> output = fn.extractOutput(merged);
+    System.out.println(
+        String.format(
+            "%s: add %.1f Melem/s, encode %.1f us/accumulator (%d bytes), "
+                + "decode+merge+encode of %d accumulators in %.2fms, top value %d",
+            name,
+            input.length / (addNanos / 1e9) / 1e6,
+            encodeNanos / 1e3 / NUM_SHARDS,
+            bytes / NUM_SHARDS,
+            NUM_SHARDS,
+            mergeNanos / 1e6,
+            output.get(0)));
+  }
+}
@@ -22,19 +22,25 @@ import static org.hamcrest.MatcherAssert.assertThat;
 import static org.junit.Assert.assertEquals;
 
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Random;
 import org.apache.beam.sdk.Pipeline;
 import org.apache.beam.sdk.coders.BigEndianIntegerCoder;
+import org.apache.beam.sdk.coders.Coder;
+import org.apache.beam.sdk.coders.CoderRegistry;
 import org.apache.beam.sdk.coders.KvCoder;
 import org.apache.beam.sdk.coders.StringUtf8Coder;
+import org.apache.beam.sdk.coders.VarLongCoder;
 import org.apache.beam.sdk.testing.NeedsRunner;
 import org.apache.beam.sdk.testing.PAssert;
 import org.apache.beam.sdk.testing.TestPipeline;
 import org.apache.beam.sdk.transforms.display.DisplayData;
 import org.apache.beam.sdk.transforms.windowing.FixedWindows;
 import org.apache.beam.sdk.transforms.windowing.Window;
+import org.apache.beam.sdk.util.CoderUtils;
 import org.apache.beam.sdk.values.KV;
 import org.apache.beam.sdk.values.PCollection;
 import org.hamcrest.Matchers;
@@ -121,6 +127,71 @@ public class TopTest {
     p.run();
   }
 
+  @Test
+  @Category(NeedsRunner.class)
+  public void testPrimitiveTop() {
+    PCollection<Long> longs = p.apply("Longs", Create.of(5L, -3L, Long.MIN_VALUE, 7L, 0L, 7L));
+    PCollection<Double> doubles =
+        p.apply(
+            "Doubles",
+            Create.of(1.5, -0.0, 0.0, Double.NEGATIVE_INFINITY, -2.5, Double.NaN, 100.0));
+    PCollection<KV<String, Long>> keyedLongs =
+        p.apply("KeyedLongs", Create.of(KV.of("a", 1L), KV.of("a", 3L), KV.of("b", -1L)));
+    PCollection<KV<String, Double>> keyedDoubles =
+        p.apply("KeyedDoubles", Create.of(KV.of("a", 1.0), KV.of("a", 3.0), KV.of("b", -1.0)));
+
+    PAssert.thatSingleton(longs.apply("LargestLongs", Top.largestLongs(3)))
+        .isEqualTo(Arrays.asList(7L, 7L, 5L));
+    PAssert.thatSingleton(longs.apply("SmallestLongs", Top.smallestLongs(2)))
+        .isEqualTo(Arrays.asList(Long.MIN_VALUE, -3L));
+    PAssert.thatSingleton(doubles.apply("LargestDoubles", Top.largestDoubles(3)))
+        .isEqualTo(Arrays.asList(Double.NaN, 100.0, 1.5));
+    PAssert.thatSingleton(doubles.apply("SmallestDoubles", Top.smallestDoubles(4)))
+        .isEqualTo(Arrays.asList(Double.NEGATIVE_INFINITY, -2.5, -0.0, 0.0));
+    PAssert.that(keyedLongs.apply("LargestLongsPerKey", Top.largestLongsPerKey(1)))
+        .containsInAnyOrder(KV.of("a", Arrays.asList(3L)), KV.of("b", Arrays.asList(-1L)));
+    PAssert.that(keyedDoubles.apply("SmallestDoublesPerKey", Top.smallestDoublesPerKey(5)))
+        .containsInAnyOrder(KV.of("a", Arrays.asList(1.0, 3.0)), KV.of("b", Arrays.asList(-1.0)));
+
+    p.run();
+  }
+
+  @Test
+  public void testPrimitiveTopMergesEncodedAccumulators() throws Exception {
+    Top.TopLongsFn fn = Top.TopLongsFn.largest(10);
+    Coder<Top.PrimitiveHeap> coder =
+        fn.getAccumulatorCoder(CoderRegistry.createDefault(), VarLongCoder.of());
+    Random random = new Random(17);
+    List<Long> all = new ArrayList<>();
+    List<Top.PrimitiveHeap> accumulators = new ArrayList<>();
+    for (int shard = 0; shard < 20; shard++) {
+      Top.PrimitiveHeap accumulator = fn.createAccumulator();
+      for (int i = 0; i < shard * 3; i++) {
+        long value = random.nextInt(1000);
+        all.add(value);
+        accumulator = fn.addInput(accumulator, value);
+      }
+      // Mix encoded and decoded accumulators.
+      accumulators.add(
+          shard % 3 == 0
+              ? accumulator
+              : CoderUtils.decodeFromByteArray(
+                  coder, CoderUtils.encodeToByteArray(coder, accumulator)));
+    }
+    Top.PrimitiveHeap merged = fn.mergeAccumulators(accumulators);
+    // Adding to a merged encoded accumulator decodes it.
+    merged = fn.addInput(merged, 5000L);
+    all.add(5000L);
+
+    all.sort(Comparator.reverseOrder());
+    assertEquals(all.subList(0, 10), fn.extractOutput(merged));
+    assertEquals(
+        all.subList(0, 10),
+        fn.extractOutput(
+            CoderUtils.decodeFromByteArray(coder, CoderUtils.encodeToByteArray(coder, merged))));
+    assertEquals(1 + 10 * 8, CoderUtils.encodeToByteArray(coder, merged).length);
+  }
+
   @Test
   @Category(NeedsRunner.class)
   @SuppressWarnings("unchecked")
@@ -194,4 +194,83 @@ public class HistogramDataTest {
     assertThat(data.getTopBucketCount(), equalTo(4L));
     assertThat(data.getTotalCount(), equalTo(10L));
   }
+
+  @Test
+  public void testExponentialBuckets() {
+    HistogramData data = HistogramData.exponential(1, 2, 4);
+    data.record(0.5, 1, 1.5, 2, 3.9, 4, 15.9, 16);
+    assertThat(data.getBottomBucketCount(), equalTo(1L));
+    assertThat(data.getCount(0), equalTo(2L));
+    assertThat(data.getCount(1), equalTo(2L));
+    assertThat(data.getCount(2), equalTo(1L));
+    assertThat(data.getCount(3), equalTo(1L));
+    assertThat(data.getTopBucketCount(), equalTo(1L));
+    assertThat(data.getBucketType().getRangeTo(), equalTo(16.0));
+  }
+
+  @Test
+  public void testLogLinearBuckets() {
+    HistogramData data = HistogramData.logLinear(1, 1000, 1);
+    HistogramData.BucketType bucketType = data.getBucketType();
+    assertThat(bucketType.getNumBuckets(), equalTo(100));
+    assertThat(bucketType.getBucketIndex(1), equalTo(0));
+    assertThat(bucketType.getBucketIndex(1.15), equalTo(1));
+    assertThat(bucketType.getBucketIndex(2), equalTo(10));
+    assertThat(bucketType.getBucketIndex(3), equalTo(15));
+    assertThat(bucketType.getAccumulatedBucketSize(15), equalTo(2.0));
+    assertThat(bucketType.getBucketSize(15), equalTo(0.2));
+
+    for (int i = 1; i <= 1000; i++) {
+      data.record(i);
+    }
+    // Bucket widths are within 10% of their lower bound.
+    assertThat(Math.abs(data.p50() - 500) <= 50, equalTo(true));
+    assertThat(Math.abs(data.p99() - 990) <= 99, equalTo(true));
+  }
+
+  @Test
+  public void testLogLinearBucketsRejectTooManySignificantDigits() {
+    assertThrows(RuntimeException.class, () -> HistogramData.logLinear(1, 1000, 4));
+  }
+
+  @Test
+  public void testCombine() {
+    HistogramData first = HistogramData.linear(0, 2, 2);
+    first.record(1, 3);
+    HistogramData second = HistogramData.linear(0, 2, 2);
+    second.record(3, 5);
+
+    HistogramData combined = first.combine(second);
+    assertThat(combined.getCount(0), equalTo(1L));
+    assertThat(combined.getCount(1), equalTo(2L));
+    assertThat(combined.getTopBucketCount(), equalTo(1L));
+    // The inputs are left unchanged.
+    assertThat(first.getTotalCount(), equalTo(2L));
+    assertThat(second.getTotalCount(), equalTo(2L));
+
+    HistogramData empty = HistogramData.exponential(1, 2, 2);
+    assertThat(empty.combine(first), equalTo(first));
+    assertThat(first.combine(empty), equalTo(first));
+  }
+
+  @Test
+  public void testCombineRejectsDifferentBuckets() {
+    HistogramData first = HistogramData.linear(0, 2, 2);
+    first.record(1);
+    HistogramData second = HistogramData.exponential(1, 2, 2);
+    second.record(1);
+
+    assertThrows(IllegalArgumentException.class, () -> first.combine(second));
+  }
+
+  @Test
+  public void testGetPercentile() {
+    HistogramData data = HistogramData.linear(0, 10, 10);
+    for (int i = 0; i < 100; i++) {
+      data.record(i);
+    }
+    assertThat(data.getPercentile(0.5), equalTo(data.p50()));
+    assertThat(data.getPercentile(0.25), equalTo(25.0));
+    assertThrows(IllegalArgumentException.class, () -> data.getPercentile(1.5));
+  }
 }
@@ -28,6 +28,7 @@ import java.util.Optional;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 import javax.annotation.Nullable;
+import org.apache.arrow.memory.BufferAllocator;
 import org.apache.arrow.memory.RootAllocator;
 import org.apache.arrow.vector.FieldVector;
 import org.apache.arrow.vector.VectorLoader;
@@ -247,12 +248,31 @@ public class ArrowConversion {
     return new RecordBatchRowIterator(schema, vectorSchemaRoot);
   }
 
-  @SuppressWarnings("nullness")
   public static RecordBatchRowIterator rowsFromSerializedRecordBatch(
       org.apache.arrow.vector.types.pojo.Schema arrowSchema,
       InputStream inputStream,
       RootAllocator allocator)
       throws IOException {
+    return rowsFromSerializedRecordBatch(
+        arrowSchema, ArrowSchemaTranslator.toBeamSchema(arrowSchema), inputStream, allocator);
+  }
+
+  /**
+   * Returns a {@link RecordBatchRowIterator} over the serialized Arrow record batch read from
+   * {@code inputStream}, with {@link Row}s of the given Beam {@code schema}.
+   *
+   * <p>The schema must be the translation of {@code arrowSchema}. Passing it in allows callers
+   * which read many record batches of the same schema to translate it only once. The buffers of the
+   * record batch are allocated from {@code allocator} and released when the returned iterator is
+   * closed.
+   */
+  @SuppressWarnings("nullness")
+  public static RecordBatchRowIterator rowsFromSerializedRecordBatch(
+      org.apache.arrow.vector.types.pojo.Schema arrowSchema,
+      Schema schema,
+      InputStream inputStream,
+      BufferAllocator allocator)
+      throws IOException {
     VectorSchemaRoot vectorRoot = VectorSchemaRoot.create(arrowSchema, allocator);
     VectorLoader vectorLoader = new VectorLoader(vectorRoot);
     vectorRoot.clear();
@@ -262,7 +282,7 @@ public class ArrowConversion {
         vectorLoader.load(arrowMessage);
       }
     }
-    return rowsFromRecordBatch(ArrowSchemaTranslator.toBeamSchema(arrowSchema), vectorRoot);
+    return rowsFromRecordBatch(schema, vectorRoot);
   }
 
   public static org.apache.arrow.vector.types.pojo.Schema arrowSchemaFromInput(InputStream input)
@@ -17,6 +17,7 @@
  */
 package org.apache.beam.sdk.extensions.joinlibrary;
 
+import static org.apache.beam.vendor.guava.v26_0_jre.com.google.common.base.Preconditions.checkArgument;
 import static org.apache.beam.vendor.guava.v26_0_jre.com.google.common.base.Preconditions.checkNotNull;
 
 import org.apache.beam.sdk.coders.KvCoder;
@@ -25,6 +26,7 @@ import org.apache.beam.sdk.transforms.PTransform;
 import org.apache.beam.sdk.transforms.ParDo;
 import org.apache.beam.sdk.transforms.join.CoGbkResult;
 import org.apache.beam.sdk.transforms.join.CoGroupByKey;
+import org.apache.beam.sdk.transforms.join.HotKeyJoin;
 import org.apache.beam.sdk.transforms.join.KeyedPCollectionTuple;
 import org.apache.beam.sdk.values.KV;
 import org.apache.beam.sdk.values.PCollection;
@@ -33,6 +35,14 @@ import org.apache.beam.sdk.values.TupleTag;
 /**
  * Utility class with different versions of joins. All methods join two collections of key/value
  * pairs (KV).
+ *
+ * <p>Each join has an opt-in hot key handling, enabled by {@code withHotKeyFanout(fanout)}. Keys
+ * that occur at least {@code withHotKeyThreshold(threshold)} times in the left collection are
+ * considered hot, which is detected from a sample of the left collection. The left elements of each
+ * hot key are spread across {@code fanout} sub-keys, and the right elements with that key are
+ * replicated to all of them, so that a single hot key does not have to be joined by one worker. A
+ * fanout of 0, the default, disables hot key handling. Hot key handling is not supported for
+ * unbounded collections in the global window, whose hot keys would never be known.
  */
 public class Join {
 
@@ -47,19 +57,48 @@ public class Join {
       extends PTransform<PCollection<KV<K, V1>>, PCollection<KV<K, KV<V1, V2>>>> {
 
     private transient PCollection<KV<K, V2>> rightCollection;
+    private final int hotKeyFanout;
+    private final long hotKeyThreshold;
 
-    private InnerJoin(PCollection<KV<K, V2>> rightCollection) {
+    private InnerJoin(
+        PCollection<KV<K, V2>> rightCollection, int hotKeyFanout, long hotKeyThreshold) {
       this.rightCollection = rightCollection;
+      this.hotKeyFanout = hotKeyFanout;
+      this.hotKeyThreshold = hotKeyThreshold;
     }
 
     public static <K, V1, V2> InnerJoin<K, V1, V2> with(PCollection<KV<K, V2>> rightCollection) {
-      return new InnerJoin<>(rightCollection);
+      return new InnerJoin<>(rightCollection, 0, HotKeyJoin.DEFAULT_HOT_KEY_THRESHOLD);
+    }
+
+    /**
+     * Returns a join that spreads the elements of {@link Join hot keys} across {@code fanout}
+     * sub-keys.
+     */
+    public InnerJoin<K, V1, V2> withHotKeyFanout(int fanout) {
+      checkArgument(fanout >= 0, "Hot key fanout must not be negative, but was %s", fanout);
+      return new InnerJoin<>(rightCollection, fanout, hotKeyThreshold);
+    }
+
+    /**
+     * Returns a join that considers keys that occur at least {@code threshold} times in the left
+     * collection as {@link Join hot}.
+     */
+    public InnerJoin<K, V1, V2> withHotKeyThreshold(long threshold) {
+      checkArgument(threshold > 0, "Hot key threshold must be positive, but was %s", threshold);
+      return new InnerJoin<>(rightCollection, hotKeyFanout, threshold);
     }
 
     @Override
     public PCollection<KV<K, KV<V1, V2>>> expand(PCollection<KV<K, V1>> leftCollection) {
       checkNotNull(leftCollection);
       checkNotNull(rightCollection);
+      if (hotKeyFanout > 0) {
+        return leftCollection.apply(
+            "HotKeyJoin",
+            new HotKeyJoin<K, V1, V2>(
+                rightCollection, hotKeyFanout, hotKeyThreshold, false, false, null, null));
+      }
 
       final TupleTag<V1> v1Tuple = new TupleTag<>();
       final TupleTag<V2> v2Tuple = new TupleTag<>();
@@ -109,15 +148,42 @@ public class Join {
 
     private transient PCollection<KV<K, V2>> rightCollection;
     private V2 nullValue;
-
-    private LeftOuterJoin(PCollection<KV<K, V2>> rightCollection, V2 nullValue) {
+    private final int hotKeyFanout;
+    private final long hotKeyThreshold;
+
+    private LeftOuterJoin(
+        PCollection<KV<K, V2>> rightCollection,
+        V2 nullValue,
+        int hotKeyFanout,
+        long hotKeyThreshold) {
       this.rightCollection = rightCollection;
       this.nullValue = nullValue;
+      this.hotKeyFanout = hotKeyFanout;
+      this.hotKeyThreshold = hotKeyThreshold;
     }
 
     public static <K, V1, V2> LeftOuterJoin<K, V1, V2> with(
         PCollection<KV<K, V2>> rightCollection, V2 nullValue) {
-      return new LeftOuterJoin<>(rightCollection, nullValue);
+      return new LeftOuterJoin<>(
+          rightCollection, nullValue, 0, HotKeyJoin.DEFAULT_HOT_KEY_THRESHOLD);
+    }
+
+    /**
+     * Returns a join that spreads the elements of {@link Join hot keys} across {@code fanout}
+     * sub-keys.
+     */
+    public LeftOuterJoin<K, V1, V2> withHotKeyFanout(int fanout) {
+      checkArgument(fanout >= 0, "Hot key fanout must not be negative, but was %s", fanout);
+      return new LeftOuterJoin<>(rightCollection, nullValue, fanout, hotKeyThreshold);
+    }
+
+    /**
+     * Returns a join that considers keys that occur at least {@code threshold} times in the left
+     * collection as {@link Join hot}.
+     */
+    public LeftOuterJoin<K, V1, V2> withHotKeyThreshold(long threshold) {
+      checkArgument(threshold > 0, "Hot key threshold must be positive, but was %s", threshold);
+      return new LeftOuterJoin<>(rightCollection, nullValue, hotKeyFanout, threshold);
     }
 
     @Override
@@ -125,6 +191,12 @@ public class Join {
       checkNotNull(leftCollection);
       checkNotNull(rightCollection);
       checkNotNull(nullValue);
+      if (hotKeyFanout > 0) {
+        return leftCollection.apply(
+            "HotKeyJoin",
+            new HotKeyJoin<K, V1, V2>(
+                rightCollection, hotKeyFanout, hotKeyThreshold, true, false, null, nullValue));
+      }
       final TupleTag<V1> v1Tuple = new TupleTag<>();
       final TupleTag<V2> v2Tuple = new TupleTag<>();
 
@@ -177,15 +249,42 @@ public class Join {
 
     private transient PCollection<KV<K, V2>> rightCollection;
     private V1 nullValue;
-
-    private RightOuterJoin(PCollection<KV<K, V2>> rightCollection, V1 nullValue) {
+    private final int hotKeyFanout;
+    private final long hotKeyThreshold;
+
+    private RightOuterJoin(
+        PCollection<KV<K, V2>> rightCollection,
+        V1 nullValue,
+        int hotKeyFanout,
+        long hotKeyThreshold) {
       this.rightCollection = rightCollection;
       this.nullValue = nullValue;
+      this.hotKeyFanout = hotKeyFanout;
+      this.hotKeyThreshold = hotKeyThreshold;
     }
 
     public static <K, V1, V2> RightOuterJoin<K, V1, V2> with(
         PCollection<KV<K, V2>> rightCollection, V1 nullValue) {
-      return new RightOuterJoin<>(rightCollection, nullValue);
+      return new RightOuterJoin<>(
+          rightCollection, nullValue, 0, HotKeyJoin.DEFAULT_HOT_KEY_THRESHOLD);
+    }
+
+    /**
+     * Returns a join that spreads the elements of {@link Join hot keys} across {@code fanout}
+     * sub-keys.
+     */
+    public RightOuterJoin<K, V1, V2> withHotKeyFanout(int fanout) {
+      checkArgument(fanout >= 0, "Hot key fanout must not be negative, but was %s", fanout);
+      return new RightOuterJoin<>(rightCollection, nullValue, fanout, hotKeyThreshold);
+    }
+
+    /**
+     * Returns a join that considers keys that occur at least {@code threshold} times in the left
+     * collection as {@link Join hot}.
+     */
+    public RightOuterJoin<K, V1, V2> withHotKeyThreshold(long threshold) {
+      checkArgument(threshold > 0, "Hot key threshold must be positive, but was %s", threshold);
+      return new RightOuterJoin<>(rightCollection, nullValue, hotKeyFanout, threshold);
     }
 
     @Override
@@ -193,6 +292,12 @@ public class Join {
       checkNotNull(leftCollection);
       checkNotNull(rightCollection);
       checkNotNull(nullValue);
+      if (hotKeyFanout > 0) {
+        return leftCollection.apply(
+            "HotKeyJoin",
+            new HotKeyJoin<K, V1, V2>(
+                rightCollection, hotKeyFanout, hotKeyThreshold, false, true, nullValue, null));
+      }
 
       final TupleTag<V1> v1Tuple = new TupleTag<>();
       final TupleTag<V2> v2Tuple = new TupleTag<>();
@@ -247,17 +352,46 @@ public class Join {
     private transient PCollection<KV<K, V2>> rightCollection;
     private V1 leftNullValue;
     private V2 rightNullValue;
+    private final int hotKeyFanout;
+    private final long hotKeyThreshold;
 
     private FullOuterJoin(
-        PCollection<KV<K, V2>> rightCollection, V1 leftNullValue, V2 rightNullValue) {
+        PCollection<KV<K, V2>> rightCollection,
+        V1 leftNullValue,
+        V2 rightNullValue,
+        int hotKeyFanout,
+        long hotKeyThreshold) {
       this.rightCollection = rightCollection;
       this.leftNullValue = leftNullValue;
       this.rightNullValue = rightNullValue;
+      this.hotKeyFanout = hotKeyFanout;
+      this.hotKeyThreshold = hotKeyThreshold;
     }
 
     public static <K, V1, V2> FullOuterJoin<K, V1, V2> with(
         PCollection<KV<K, V2>> rightCollection, V1 leftNullValue, V2 rightNullValue) {
-      return new FullOuterJoin<>(rightCollection, leftNullValue, rightNullValue);
+      return new FullOuterJoin<>(
+          rightCollection, leftNullValue, rightNullValue, 0, HotKeyJoin.DEFAULT_HOT_KEY_THRESHOLD);
+    }
+
+    /**
+     * Returns a join that spreads the elements of {@link Join hot keys} across {@code fanout}
+     * sub-keys.
+     */
+    public FullOuterJoin<K, V1, V2> withHotKeyFanout(int fanout) {
+      checkArgument(fanout >= 0, "Hot key fanout must not be negative, but was %s", fanout);
+      return new FullOuterJoin<>(
+          rightCollection, leftNullValue, rightNullValue, fanout, hotKeyThreshold);
+    }
+
+    /**
+     * Returns a join that considers keys that occur at least {@code threshold} times in the left
+     * collection as {@link Join hot}.
+     */
+    public FullOuterJoin<K, V1, V2> withHotKeyThreshold(long threshold) {
+      checkArgument(threshold > 0, "Hot key threshold must be positive, but was %s", threshold);
+      return new FullOuterJoin<>(
+          rightCollection, leftNullValue, rightNullValue, hotKeyFanout, threshold);
     }
 
     @Override
@@ -266,6 +400,18 @@ public class Join {
       checkNotNull(rightCollection);
       checkNotNull(leftNullValue);
       checkNotNull(rightNullValue);
+      if (hotKeyFanout > 0) {
+        return leftCollection.apply(
+            "HotKeyJoin",
+            new HotKeyJoin<>(
+                rightCollection,
+                hotKeyFanout,
+                hotKeyThreshold,
+                true,
+                true,
+                leftNullValue,
+                rightNullValue));
+      }
 
       final TupleTag<V1> v1Tuple = new TupleTag<>();
       final TupleTag<V2> v2Tuple = new TupleTag<>();
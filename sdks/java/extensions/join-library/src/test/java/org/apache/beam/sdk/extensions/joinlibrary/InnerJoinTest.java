@@ -146,6 +146,35 @@ public class InnerJoinTest {
     p.run();
   }
 
+  @Test
+  public void testJoinWithHotKeyFanout() {
+    for (long i = 0; i < 20; i++) {
+      leftListOfKv.add(KV.of("Key1", i));
+      expectedResult.add(KV.of("Key1", KV.of(i, "foo")));
+      expectedResult.add(KV.of("Key1", KV.of(i, "bar")));
+    }
+    leftListOfKv.add(KV.of("Key2", 4L));
+    leftListOfKv.add(KV.of("Key3", 3L));
+    PCollection<KV<String, Long>> leftCollection = p.apply("CreateLeft", Create.of(leftListOfKv));
+
+    rightListOfKv.add(KV.of("Key1", "foo"));
+    rightListOfKv.add(KV.of("Key1", "bar"));
+    rightListOfKv.add(KV.of("Key2", "gazonk"));
+    rightListOfKv.add(KV.of("Key4", "baz"));
+    PCollection<KV<String, String>> rightCollection =
+        p.apply("CreateRight", Create.of(rightListOfKv));
+
+    PCollection<KV<String, KV<Long, String>>> output =
+        leftCollection.apply(
+            Join.InnerJoin.<String, Long, String>with(rightCollection)
+                .withHotKeyFanout(4)
+                .withHotKeyThreshold(10));
+
+    expectedResult.add(KV.of("Key2", KV.of(4L, "gazonk")));
+    PAssert.that(output).containsInAnyOrder(expectedResult);
+    p.run();
+  }
+
   @SuppressWarnings("nullness")
   @Test(expected = NullPointerException.class)
   public void testJoinLeftCollectionNull() {
@@ -0,0 +1,228 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.sdk.extensions.sketching;
+
+import com.google.auto.value.AutoValue;
+import java.util.Iterator;
+import org.apache.beam.sdk.annotations.Experimental;
+import org.apache.beam.sdk.coders.Coder;
+import org.apache.beam.sdk.coders.CoderRegistry;
+import org.apache.beam.sdk.transforms.ApproximateQuantiles;
+import org.apache.beam.sdk.transforms.Combine;
+import org.apache.beam.sdk.transforms.KllSketch;
+import org.apache.beam.sdk.transforms.PTransform;
+import org.apache.beam.sdk.transforms.display.DisplayData;
+import org.apache.beam.sdk.values.KV;
+import org.apache.beam.sdk.values.PCollection;
+
+/**
+ * {@code PTransform}s for getting information about quantiles in a stream.
+ *
+ * <p>This class uses the {@link KllSketch}, an implementation of the sketch introduced by Karnin,
+ * Lang and Liberty which stores primitive values and has an error guarantee that does not depend on
+ * the distribution of the input.
+ *
+ * <h2>References</h2>
+ *
+ * <p>The paper is available on <a href="https://arxiv.org/abs/1603.05346">arXiv</a>.
+ *
+ * <h2>Parameters</h2>
+ *
+ * <p>Only one parameter can be tuned in order to control the tradeoff between the estimation
+ * accuracy and the memory use. <br>
+ *
+ * <p>The parameter {@code k} bounds the number of values kept at each level of the sketch. The
+ * normalized rank error of a quantile is about {@code 1.65 / k} with high probability, and the
+ * sketch retains about {@code 3 * k} values. <br>
+ *
+ * <p>By default {@code k} is set to 200, which gives a rank error of about 1.65%.
+ *
+ * <h2>Examples</h2>
+ *
+ * <p>The simplest use is to call the {@link #globally()} or {@link #perKey()} method in order to
+ * retrieve the sketch, and then to query the structure.
+ *
+ * <pre><code>
+ * {@literal PCollection<Double>} pc = ...;
+ * {@literal PCollection<KllSketch>} sketch = pc.apply(KllQuantiles
+ *         .globally() // .perKey()
+ *         .withK(400));
+ * </code></pre>
+ *
+ * <p>The resulting sketch can then be queried with {@link KllSketch#getDoubleQuantile(double)}. If
+ * only a list of {@code N}-tiles is needed, {@link ApproximateQuantiles#doublesGlobally(int)}
+ * computes it directly.
+ *
+ * <p><b>Warning: this class is experimental.</b> <br>
+ * Its API is subject to change in future versions of Beam.
+ */
+@Experimental
+public final class KllQuantiles {
+
+  /**
+   * Compute the stream in order to build a {@link KllSketch} for keeping track of the stream
+   * distribution and returns a {@code PCollection<KllSketch>}. <br>
+   * The resulting structure can be queried in order to retrieve the approximate value at a given
+   * quantile.
+   */
+  public static GlobalSketch globally() {
+    return GlobalSketch.builder().build();
+  }
+
+  /**
+   * Like {@link #globally()}, but builds a sketch for each key in the stream.
+   *
+   * @param <K> the type of the keys
+   */
+  public static <K> PerKeySketch<K> perKey() {
+    return PerKeySketch.<K>builder().build();
+  }
+
+  /** Implementation of {@link #globally()}. */
+  @AutoValue
+  public abstract static class GlobalSketch
+      extends PTransform<PCollection<Double>, PCollection<KllSketch>> {
+
+    abstract int k();
+
+    abstract Builder toBuilder();
+
+    static Builder builder() {
+      return new AutoValue_KllQuantiles_GlobalSketch.Builder().setK(KllSketch.DEFAULT_K);
+    }
+
+    @AutoValue.Builder
+    abstract static class Builder {
+      abstract Builder setK(int k);
+
+      abstract GlobalSketch build();
+    }
+
+    /**
+     * Sets the accuracy parameter {@code k}. The normalized rank error of a quantile is about
+     * {@code 1.65 / k}.
+     */
+    public GlobalSketch withK(int k) {
+      return toBuilder().setK(k).build();
+    }
+
+    @Override
+    public PCollection<KllSketch> expand(PCollection<Double> input) {
+      return input.apply("Compute KLL Sketch", Combine.globally(KllQuantilesFn.create(k())));
+    }
+  }
+
+  /** Implementation of {@link #perKey()}. */
+  @AutoValue
+  public abstract static class PerKeySketch<K>
+      extends PTransform<PCollection<KV<K, Double>>, PCollection<KV<K, KllSketch>>> {
+
+    abstract int k();
+
+    abstract Builder<K> toBuilder();
+
+    static <K> Builder<K> builder() {
+      return new AutoValue_KllQuantiles_PerKeySketch.Builder<K>().setK(KllSketch.DEFAULT_K);
+    }
+
+    @AutoValue.Builder
+    abstract static class Builder<K> {
+      abstract Builder<K> setK(int k);
+
+      abstract PerKeySketch<K> build();
+    }
+
+    /**
+     * Sets the accuracy parameter {@code k}. The normalized rank error of a quantile is about
+     * {@code 1.65 / k}.
+     */
+    public PerKeySketch<K> withK(int k) {
+      return toBuilder().setK(k).build();
+    }
+
+    @Override
+    public PCollection<KV<K, KllSketch>> expand(PCollection<KV<K, Double>> input) {
+      return input.apply("Compute KLL Sketch", Combine.perKey(KllQuantilesFn.create(k())));
+    }
+  }
+
+  /** Implements the {@link Combine.CombineFn} of {@link KllQuantiles} transforms. */
+  public static class KllQuantilesFn extends Combine.CombineFn<Double, KllSketch, KllSketch> {
+
+    private final int k;
+
+    private KllQuantilesFn(int k) {
+      this.k = k;
+    }
+
+    /**
+     * Returns {@link KllQuantilesFn} combiner with the given accuracy parameter.
+     *
+     * @param k the number of values kept at the top level of the sketch.
+     */
+    public static KllQuantilesFn create(int k) {
+      // Fails early on an invalid k.
+      KllSketch.create(k);
+      return new KllQuantilesFn(k);
+    }
+
+    @Override
+    public KllSketch createAccumulator() {
+      return KllSketch.create(k);
+    }
+
+    @Override
+    public KllSketch addInput(KllSketch accum, Double value) {
+      accum.update(value.doubleValue());
+      return accum;
+    }
+
+    /** Output the whole structure so it can be queried, reused or stored easily. */
+    @Override
+    public KllSketch extractOutput(KllSketch accum) {
+      return accum;
+    }
+
+    @Override
+    public KllSketch mergeAccumulators(Iterable<KllSketch> accumulators) {
+      Iterator<KllSketch> it = accumulators.iterator();
+      KllSketch merged = it.next();
+      while (it.hasNext()) {
+        merged.merge(it.next());
+      }
+      return merged;
+    }
+
+    @Override
+    public Coder<KllSketch> getAccumulatorCoder(CoderRegistry registry, Coder<Double> inputCoder) {
+      return KllSketch.coder();
+    }
+
+    @Override
+    public Coder<KllSketch> getDefaultOutputCoder(
+        CoderRegistry registry, Coder<Double> inputCoder) {
+      return KllSketch.coder();
+    }
+
+    @Override
+    public void populateDisplayData(DisplayData.Builder builder) {
+      super.populateDisplayData(builder);
+      builder.add(DisplayData.item("k", k).withLabel("Sketch Accuracy Parameter"));
+    }
+  }
+}
@@ -0,0 +1,140 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.sdk.extensions.sketching;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import org.apache.beam.sdk.coders.CannotProvideCoderException;
+import org.apache.beam.sdk.coders.Coder;
+import org.apache.beam.sdk.coders.CoderException;
+import org.apache.beam.sdk.coders.CoderRegistry;
+import org.apache.beam.sdk.coders.DoubleCoder;
+import org.apache.beam.sdk.extensions.sketching.KllQuantiles.KllQuantilesFn;
+import org.apache.beam.sdk.extensions.sketching.TDigestQuantiles.TDigestQuantilesFn;
+import org.apache.beam.sdk.transforms.ApproximateQuantiles.ApproximateQuantilesCombineFn;
+import org.apache.beam.sdk.transforms.Combine.CombineFn;
+import org.apache.beam.sdk.transforms.SerializableFunction;
+import org.apache.beam.sdk.util.CoderUtils;
+
+/**
+ * Compares {@link ApproximateQuantilesCombineFn}, {@link TDigestQuantiles} and {@link KllQuantiles}
+ * on rank error, encoded accumulator size and merge throughput.
+ */
+public class KllQuantilesBenchmark {
+  private static final int N = 2 * 1000 * 1000;
+  private static final int NUM_SHARDS = 200;
+  private static final int NUM_QUANTILES = 101;
+
+  public static void main(String[] args) throws Exception {
+    List<Double> input = new ArrayList<>(N);
+    for (int i = 0; i < N; i++) {
+      input.add((double) i);
+    }
+    Collections.shuffle(input, new Random(42));
+
+    ApproximateQuantilesCombineFn<Double, ?> approximateQuantilesFn =
+        ApproximateQuantilesCombineFn.create(NUM_QUANTILES);
+    benchmark(
+        "ApproximateQuantiles",
+        approximateQuantilesFn,
+        input,
+        (quantiles) -> quantiles.stream().mapToDouble(Double::doubleValue).toArray());
+
+    benchmark(
+        "TDigestQuantiles",
+        TDigestQuantilesFn.create(100),
+        input,
+        (digest) -> {
+          double[] quantiles = new double[NUM_QUANTILES];
+          for (int i = 0; i < NUM_QUANTILES; i++) {
+            quantiles[i] = digest.quantile((double) i / (NUM_QUANTILES - 1));
+          }
+          return quantiles;
+        });
+
+    benchmark(
+        "KllQuantiles",
+        KllQuantilesFn.create(200),
+        input,
+        (sketch) -> {
+          double[] quantiles = new double[NUM_QUANTILES];
+          for (int i = 0; i < NUM_QUANTILES; i++) {
+            quantiles[i] = sketch.getDoubleQuantile((double) i / (NUM_QUANTILES - 1));
+          }
+          return quantiles;
+        });
+  }
+
+  private static <AccumT, OutputT> void benchmark(
+      String name,
+      CombineFn<Double, AccumT, OutputT> fn,
+      List<Double> input,
+      SerializableFunction<OutputT, double[]> quantilesFn)
+      throws CannotProvideCoderException, CoderException {
+    Coder<AccumT> accumCoder =
+        fn.getAccumulatorCoder(CoderRegistry.createDefault(), DoubleCoder.of());
+    int shardSize = N / NUM_SHARDS;
+
+    long start = System.nanoTime();
+    List<AccumT> accumulators = new ArrayList<>(NUM_SHARDS);
+    for (int shard = 0; shard < NUM_SHARDS; shard++) {
+      AccumT accumulator = fn.createAccumulator();
+      for (Double value : input.subList(shard * shardSize, (shard + 1) * shardSize)) {
+        accumulator = fn.addInput(accumulator, value);
+      }
+      accumulators.add(accumulator);
+    }
+    long addNanos = System.nanoTime() - start;
+
+    long shardBytes = 0;
+    List<AccumT> decoded = new ArrayList<>(NUM_SHARDS);
+    for (AccumT accumulator : accumulators) {
+      byte[] bytes = CoderUtils.encodeToByteArray(accumCoder, accumulator);
+      shardBytes += bytes.length;
+      decoded.add(CoderUtils.decodeFromByteArray(accumCoder, bytes));
+    }
+
+    start = System.nanoTime();
+    AccumT merged = fn.mergeAccumulators(decoded);
+    long mergeNanos = System.nanoTime() - start;
+    long mergedBytes = CoderUtils.encodeToByteArray(accumCoder, merged).length;
+
+    // The input is a permutation of [0, N), so the rank of a value is the value itself.
+    double[] quantiles = quantilesFn.apply(fn.extractOutput(merged));
+    double maxRankError = 0;
+    for (int i = 0; i < quantiles.length; i++) {
+      double expectedRank = (double) i / (quantiles.length - 1);
+      maxRankError = Math.max(maxRankError, Math.abs(quantiles[i] / (N - 1) - expectedRank));
+    }
+
+    System.out.println(
+        String.format(
+            "%s: add %.1f Melem/s, merge %d accumulators in %.2fms (%.0f accumulators/s), "
+                + "%d bytes per shard accumulator, %d bytes merged, max rank error %.5f",
+            name,
+            N / (addNanos / 1e9) / 1e6,
+            NUM_SHARDS,
+            mergeNanos / 1e6,
+            NUM_SHARDS / (mergeNanos / 1e9),
+            shardBytes / NUM_SHARDS,
+            mergedBytes,
+            maxRankError));
+  }
+}
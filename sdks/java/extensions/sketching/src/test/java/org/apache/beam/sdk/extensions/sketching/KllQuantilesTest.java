@@ -0,0 +1,165 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.sdk.extensions.sketching;
+
+import static org.apache.beam.sdk.transforms.display.DisplayDataMatchers.hasDisplayItem;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import org.apache.beam.sdk.extensions.sketching.KllQuantiles.KllQuantilesFn;
+import org.apache.beam.sdk.testing.PAssert;
+import org.apache.beam.sdk.testing.TestPipeline;
+import org.apache.beam.sdk.transforms.Create;
+import org.apache.beam.sdk.transforms.DoFn;
+import org.apache.beam.sdk.transforms.KllSketch;
+import org.apache.beam.sdk.transforms.ParDo;
+import org.apache.beam.sdk.transforms.SerializableFunction;
+import org.apache.beam.sdk.transforms.Values;
+import org.apache.beam.sdk.transforms.WithKeys;
+import org.apache.beam.sdk.transforms.display.DisplayData;
+import org.apache.beam.sdk.util.CoderUtils;
+import org.apache.beam.sdk.values.KV;
+import org.apache.beam.sdk.values.PCollection;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+
+/** Tests for {@link KllQuantiles}. */
+public class KllQuantilesTest {
+
+  @Rule public final transient TestPipeline tp = TestPipeline.create();
+
+  private static final List<Double> stream = generateStream();
+
+  private static final int size = 999;
+
+  private static final int k = 50;
+
+  private static final double[] quantiles = {0.25, 0.5, 0.75, 0.99};
+
+  private static List<Double> generateStream() {
+    List<Double> li = new ArrayList<>();
+    for (double i = 1D; i <= size; i++) {
+      li.add(i);
+    }
+    Collections.shuffle(li);
+    return li;
+  }
+
+  @Test
+  public void globally() {
+    PCollection<KV<Double, Double>> col =
+        tp.apply(Create.of(stream))
+            .apply(KllQuantiles.globally().withK(k))
+            .apply(ParDo.of(new RetrieveQuantiles(quantiles)));
+
+    PAssert.that("Verify Accuracy", col).satisfies(new VerifyAccuracy());
+    tp.run();
+  }
+
+  @Test
+  public void perKey() {
+    PCollection<KV<Double, Double>> col =
+        tp.apply(Create.of(stream))
+            .apply(WithKeys.of(1))
+            .apply(KllQuantiles.<Integer>perKey().withK(k))
+            .apply(Values.create())
+            .apply(ParDo.of(new RetrieveQuantiles(quantiles)));
+
+    PAssert.that("Verify Accuracy", col).satisfies(new VerifyAccuracy());
+
+    tp.run();
+  }
+
+  @Test
+  public void testCoder() throws Exception {
+    KllSketch sketch = KllSketch.create(k);
+    for (int i = 0; i < 1000; i++) {
+      sketch.update(2.4 + i);
+    }
+
+    KllSketch decoded = CoderUtils.clone(KllSketch.coder(), sketch);
+    Assert.assertEquals(sketch.getCount(), decoded.getCount());
+    Assert.assertEquals(sketch.getNumRetained(), decoded.getNumRetained());
+    for (double q : quantiles) {
+      Assert.assertEquals(sketch.getDoubleQuantile(q), decoded.getDoubleQuantile(q), 0D);
+    }
+  }
+
+  @Test
+  public void testMergeAccum() {
+    Random rd = new Random(1234);
+    List<KllSketch> accums = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      KllSketch sketch = KllSketch.create(100);
+      for (int j = 0; j < 1000; j++) {
+        sketch.update(rd.nextDouble());
+      }
+      accums.add(sketch);
+    }
+    KllQuantilesFn fn = KllQuantilesFn.create(100);
+    KllSketch res = fn.mergeAccumulators(accums);
+    Assert.assertEquals(3000, res.getCount());
+    Assert.assertEquals(0.5, res.getDoubleQuantile(0.5), 0.05);
+  }
+
+  @Test
+  public void testDisplayData() {
+    final KllQuantilesFn fn = KllQuantilesFn.create(155);
+    assertThat(DisplayData.from(fn), hasDisplayItem("k", 155));
+  }
+
+  static class RetrieveQuantiles extends DoFn<KllSketch, KV<Double, Double>> {
+    private final double[] quantiles;
+
+    RetrieveQuantiles(double[] quantiles) {
+      this.quantiles = quantiles;
+    }
+
+    @ProcessElement
+    public void processElement(ProcessContext c) {
+      for (double q : quantiles) {
+        c.output(KV.of(q, c.element().getDoubleQuantile(q)));
+      }
+    }
+  }
+
+  static class VerifyAccuracy implements SerializableFunction<Iterable<KV<Double, Double>>, Void> {
+    final double expectedError = 3D / k;
+
+    @Override
+    public Void apply(Iterable<KV<Double, Double>> input) {
+      for (KV<Double, Double> pair : input) {
+        double expectedValue = pair.getKey() * (size + 1);
+        boolean isAccurate = Math.abs(pair.getValue() - expectedValue) / size <= expectedError;
+        Assert.assertTrue(
+            "not accurate enough : \nQuantile "
+                + pair.getKey()
+                + " is "
+                + pair.getValue()
+                + " and not "
+                + expectedValue,
+            isAccurate);
+      }
+      return null;
+    }
+  }
+}
@@ -221,6 +221,24 @@ SqlCreate SqlCreateFunction() :
     }
 }
 
+/**
+ * ANALYZE TABLE ( database_name '.' )? table_name
+ */
+SqlCall SqlAnalyzeTable() :
+{
+    final Span s = Span.of();
+    final SqlIdentifier id;
+}
+{
+    <ANALYZE> <TABLE> {
+        s.add(this);
+    }
+    id = CompoundIdentifier()
+    {
+        return new SqlAnalyzeTable(s.end(this), id);
+    }
+}
+
 SqlCreate SqlCreateTableNotSupportedMessage(Span s, boolean replace) :
 {
 }
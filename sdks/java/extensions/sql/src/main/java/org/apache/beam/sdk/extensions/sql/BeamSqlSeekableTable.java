@@ -18,6 +18,7 @@
 package org.apache.beam.sdk.extensions.sql;
 
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.List;
 import org.apache.beam.sdk.annotations.Experimental;
 import org.apache.beam.sdk.values.Row;
@@ -34,6 +35,21 @@ public interface BeamSqlSeekableTable extends Serializable {
   /** return a list of {@code Row} with given key set. */
   List<Row> seekRow(Row lookupSubRow);
 
+  /**
+   * return the lists of {@code Row} for many key sets at once, in the order of the given key sets.
+   *
+   * <p>Tables backed by an external service should override this to look up all the keys in a
+   * single request. If the join is configured with more than one concurrent batch, this may be
+   * called from several threads at once.
+   */
+  default List<List<Row>> seekRows(List<Row> lookupSubRows) {
+    List<List<Row>> result = new ArrayList<>(lookupSubRows.size());
+    for (Row lookupSubRow : lookupSubRows) {
+      result.add(seekRow(lookupSubRow));
+    }
+    return result;
+  }
+
   /** cleanup resources of the instance. */
   default void tearDown() {};
 }
@@ -24,6 +24,7 @@ import java.util.Map;
 import java.util.Set;
 import org.apache.beam.sdk.extensions.sql.meta.Table;
 import org.apache.beam.sdk.extensions.sql.meta.provider.TableProvider;
+import org.apache.beam.sdk.extensions.sql.meta.store.MetaStore;
 import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.linq4j.tree.Expression;
 import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.rel.type.RelProtoDataType;
 import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.schema.Function;
@@ -107,10 +108,15 @@ public class BeamCalciteSchema implements Schema {
     if (table == null) {
       return null;
     }
+    BeamTableStatistics statistics =
+        tableProvider instanceof MetaStore
+            ? ((MetaStore) tableProvider).getTableStatistics(name)
+            : null;
     return new BeamCalciteTable(
         tableProvider.buildBeamSqlTable(table),
         getPipelineOptions(),
-        connection.getPipelineOptions());
+        connection.getPipelineOptions(),
+        statistics);
   }
 
   @Override
@@ -42,6 +42,7 @@ import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.rex.RexNode;
 import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.schema.ModifiableTable;
 import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.schema.SchemaPlus;
 import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.schema.TranslatableTable;
+import org.checkerframework.checker.nullness.qual.Nullable;
 
 /** Adapter from {@link BeamSqlTable} to a calcite Table. */
 @SuppressWarnings({
@@ -55,15 +56,26 @@ public class BeamCalciteTable extends AbstractQueryableTable
   // https://issues.apache.org/jira/projects/BEAM/issues/BEAM-7590
   private final Map<String, String> pipelineOptionsMap;
   private PipelineOptions pipelineOptions;
+  // Statistics computed by ANALYZE TABLE, which take precedence over the ones of the table.
+  private final @Nullable BeamTableStatistics analyzedStatistics;
 
   BeamCalciteTable(
       BeamSqlTable beamTable,
       Map<String, String> pipelineOptionsMap,
       PipelineOptions pipelineOptions) {
+    this(beamTable, pipelineOptionsMap, pipelineOptions, null);
+  }
+
+  BeamCalciteTable(
+      BeamSqlTable beamTable,
+      Map<String, String> pipelineOptionsMap,
+      PipelineOptions pipelineOptions,
+      @Nullable BeamTableStatistics analyzedStatistics) {
     super(Object[].class);
     this.beamTable = beamTable;
     this.pipelineOptionsMap = pipelineOptionsMap;
     this.pipelineOptions = pipelineOptions;
+    this.analyzedStatistics = analyzedStatistics;
   }
 
   public static BeamCalciteTable of(BeamSqlTable table) {
@@ -86,6 +98,9 @@ public class BeamCalciteTable extends AbstractQueryableTable
 
   @Override
   public BeamTableStatistics getStatistic() {
+    if (analyzedStatistics != null && !analyzedStatistics.isUnknown()) {
+      return analyzedStatistics;
+    }
     /*
      Changing class loader is required for the JDBC path. It is similar to what done in
      {@link BeamEnumerableConverter#toRowList} and {@link BeamEnumerableConverter#toEnumerable }.
@@ -20,6 +20,7 @@ package org.apache.beam.sdk.extensions.sql.impl;
 import org.apache.beam.sdk.options.Default;
 import org.apache.beam.sdk.options.Description;
 import org.apache.beam.sdk.options.PipelineOptions;
+import org.checkerframework.checker.nullness.qual.Nullable;
 
 /** Options used to configure BeamSQL. */
 public interface BeamSqlPipelineOptions extends PipelineOptions {
@@ -43,4 +44,108 @@ public interface BeamSqlPipelineOptions extends PipelineOptions {
   Boolean getVerifyRowValues();
 
   void setVerifyRowValues(Boolean verifyRowValues);
+
+  @Description(
+      "Maximum number of rows per window a ZetaSQL Calc has in flight in the ZetaSQL expression "
+          + "evaluator before it waits for results. Larger values allow larger batches; has no "
+          + "effect on CalciteSQL.")
+  @Default.Integer(1024)
+  Integer getZetaSqlCalcMaxPendingRows();
+
+  void setZetaSqlCalcMaxPendingRows(Integer maxPendingRows);
+
+  @Description(
+      "Number of ranges an ORDER BY without a LIMIT is partitioned into. Each range is sorted by a "
+          + "single worker, spilling to local disk if it does not fit in memory.")
+  @Default.Integer(64)
+  Integer getOrderByNumPartitions();
+
+  void setOrderByNumPartitions(Integer numPartitions);
+
+  @Description(
+      "If set, each range of an ORDER BY without a LIMIT is also written in order as a CSV file "
+          + "named <prefix>-sort<id>-<range>-of-<numRanges>.csv, where <id> identifies the ORDER BY "
+          + "within the query, so that the files of an ORDER BY read in name order hold its sorted "
+          + "result.")
+  @Nullable
+  String getOrderByOutputPrefix();
+
+  void setOrderByOutputPrefix(@Nullable String outputPrefix);
+
+  @Description(
+      "Maximum number of distinct join keys looked up in a single call to "
+          + "BeamSqlSeekableTable#seekRows by a lookup join.")
+  @Default.Integer(100)
+  Integer getLookupJoinBatchSize();
+
+  void setLookupJoinBatchSize(Integer batchSize);
+
+  @Description(
+      "Maximum number of batches a lookup join looks up concurrently on each worker thread. "
+          + "Values greater than 1 require a BeamSqlSeekableTable whose seekRows is thread-safe.")
+  @Default.Integer(1)
+  Integer getLookupJoinMaxConcurrentBatches();
+
+  void setLookupJoinMaxConcurrentBatches(Integer maxConcurrentBatches);
+
+  @Description(
+      "Maximum number of join keys whose lookup results are cached on each worker by a lookup "
+          + "join. 0 disables the cache.")
+  @Default.Long(0)
+  Long getLookupJoinCacheSize();
+
+  void setLookupJoinCacheSize(Long cacheSize);
+
+  @Description("Time in milliseconds after which a cached lookup join result expires.")
+  @Default.Long(60000)
+  Long getLookupJoinCacheTtlMillis();
+
+  void setLookupJoinCacheTtlMillis(Long cacheTtlMillis);
+
+  @Description(
+      "Whether MATCH_RECOGNIZE over an unbounded input buffers rows in an OrderedListState. "
+          + "Disable it on runners which do not support OrderedListState; rows are then buffered "
+          + "in a BagState and sorted when they are matched.")
+  @Default.Boolean(true)
+  Boolean getMatchRecognizeUseOrderedListState();
+
+  void setMatchRecognizeUseOrderedListState(Boolean useOrderedListState);
+
+  @Description(
+      "Maximum estimated size in bytes of a bounded join input which is broadcast to the other "
+          + "input as a side input instead of shuffling both. Sizes are only known for tables "
+          + "analyzed with ANALYZE TABLE. 0 disables broadcast joins of bounded inputs.")
+  @Default.Long(10485760)
+  Long getBroadcastJoinThresholdBytes();
+
+  void setBroadcastJoinThresholdBytes(Long thresholdBytes);
+
+  @Description(
+      "Whether GROUPING SETS, ROLLUP and CUBE aggregations first aggregate the input by all of "
+          + "their grouping columns, and then compute the grouping sets from the partial "
+          + "aggregates. This adds a shuffle, which pays off when grouping by all columns reduces "
+          + "the input a lot. Only applies when all aggregate functions are COUNT, SUM, MIN or MAX "
+          + "without DISTINCT or FILTER.")
+  @Default.Boolean(false)
+  Boolean getPreAggregateGroupingSets();
+
+  void setPreAggregateGroupingSets(Boolean preAggregateGroupingSets);
+
+  @Description(
+      "Location under which the results of bounded queries which only read files are cached, for "
+          + "example gs://bucket/sql-cache. A cached result is read instead of running the query "
+          + "again as long as none of the files read by the query changed. If unset, no results "
+          + "are cached.")
+  @Nullable
+  String getMaterializationCacheLocation();
+
+  void setMaterializationCacheLocation(@Nullable String location);
+
+  @Description(
+      "Whether COUNT(DISTINCT x) is computed like APPROX_COUNT_DISTINCT(x), with a HyperLogLog++ "
+          + "sketch. Beam SQL does not compute exact distinct counts.")
+  @Default.Boolean(false)
+  Boolean getApproximateCountDistinct();
+
+  void setApproximateCountDistinct(Boolean approximateCountDistinct);
 }
@@ -19,17 +19,23 @@ package org.apache.beam.sdk.extensions.sql.impl;
 
 import java.io.Serializable;
 import java.util.List;
+import java.util.Map;
 import org.apache.beam.sdk.annotations.Experimental;
 import org.apache.beam.sdk.annotations.Internal;
 import org.apache.beam.vendor.calcite.v1_20_0.com.google.common.collect.ImmutableList;
+import org.apache.beam.vendor.calcite.v1_20_0.com.google.common.collect.ImmutableMap;
 import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.rel.RelCollation;
 import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.rel.RelDistribution;
 import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.rel.RelDistributionTraitDef;
 import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.rel.RelReferentialConstraint;
 import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.schema.Statistic;
 import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.util.ImmutableBitSet;
+import org.checkerframework.checker.nullness.qual.Nullable;
 
-/** This class stores row count statistics. */
+/**
+ * This class stores row count statistics, and for analyzed bounded tables also their size in bytes
+ * and the number of distinct values of their columns.
+ */
 @Experimental
 @Internal
 public class BeamTableStatistics implements Serializable, Statistic {
@@ -39,11 +45,24 @@ public class BeamTableStatistics implements Serializable, Statistic {
   private final boolean unknown;
   private final Double rowCount;
   private final Double rate;
+  private final @Nullable Double byteSize;
+  private final Map<String, Double> distinctCounts;
 
-  private BeamTableStatistics(Double rowCount, Double rate, boolean isUnknown) {
+  private BeamTableStatistics(
+      Double rowCount,
+      Double rate,
+      boolean isUnknown,
+      @Nullable Double byteSize,
+      Map<String, Double> distinctCounts) {
     this.rowCount = rowCount;
     this.rate = rate;
     this.unknown = isUnknown;
+    this.byteSize = byteSize;
+    this.distinctCounts = ImmutableMap.copyOf(distinctCounts);
+  }
+
+  private BeamTableStatistics(Double rowCount, Double rate, boolean isUnknown) {
+    this(rowCount, rate, isUnknown, null, ImmutableMap.of());
   }
 
   private BeamTableStatistics(Double rowCount, Double rate) {
@@ -54,6 +73,15 @@ public class BeamTableStatistics implements Serializable, Statistic {
     return new BeamTableStatistics(rowCount, 0d);
   }
 
+  /**
+   * Creates the statistics of a bounded table whose rows take {@code byteSize} bytes in total, with
+   * the number of distinct values of (some of) its columns by column name.
+   */
+  public static BeamTableStatistics createBoundedTableStatistics(
+      Double rowCount, Double byteSize, Map<String, Double> distinctCounts) {
+    return new BeamTableStatistics(rowCount, 0d, false, byteSize, distinctCounts);
+  }
+
   public static BeamTableStatistics createUnboundedTableStatistics(Double rate) {
     return new BeamTableStatistics(0d, rate);
   }
@@ -71,6 +99,20 @@ public class BeamTableStatistics implements Serializable, Statistic {
     return rowCount;
   }
 
+  /** Returns the total size of the rows in bytes, or null if it is not known. */
+  public @Nullable Double getByteSize() {
+    return byteSize;
+  }
+
+  /** Returns the number of distinct values of a column, or null if it is not known. */
+  public @Nullable Double getDistinctCount(String columnName) {
+    return distinctCounts.get(columnName);
+  }
+
+  public Map<String, Double> getDistinctCounts() {
+    return distinctCounts;
+  }
+
   @Override
   public boolean isKey(ImmutableBitSet columns) {
     return false;
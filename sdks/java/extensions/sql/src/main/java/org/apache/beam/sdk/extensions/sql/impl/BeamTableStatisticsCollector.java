@@ -0,0 +1,210 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.sdk.extensions.sql.impl;
+
+import static org.apache.beam.vendor.guava.v26_0_jre.com.google.common.base.Preconditions.checkArgument;
+import static org.apache.beam.vendor.guava.v26_0_jre.com.google.common.base.Preconditions.checkState;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import org.apache.beam.sdk.Pipeline;
+import org.apache.beam.sdk.PipelineResult;
+import org.apache.beam.sdk.annotations.Internal;
+import org.apache.beam.sdk.coders.Coder;
+import org.apache.beam.sdk.coders.CoderException;
+import org.apache.beam.sdk.coders.RowCoder;
+import org.apache.beam.sdk.extensions.sql.impl.rel.BeamEnumerableConverter;
+import org.apache.beam.sdk.extensions.sql.meta.BeamSqlTable;
+import org.apache.beam.sdk.options.PipelineOptions;
+import org.apache.beam.sdk.schemas.Schema;
+import org.apache.beam.sdk.schemas.SchemaCoder;
+import org.apache.beam.sdk.transforms.ApproximateUnique.ApproximateUniqueCombineFn;
+import org.apache.beam.sdk.transforms.Combine;
+import org.apache.beam.sdk.transforms.CombineFns;
+import org.apache.beam.sdk.transforms.CombineFns.CoCombineResult;
+import org.apache.beam.sdk.transforms.CombineFns.ComposedCombineFn;
+import org.apache.beam.sdk.transforms.DoFn;
+import org.apache.beam.sdk.transforms.ParDo;
+import org.apache.beam.sdk.transforms.SimpleFunction;
+import org.apache.beam.sdk.transforms.Sum;
+import org.apache.beam.sdk.util.CoderUtils;
+import org.apache.beam.sdk.values.PBegin;
+import org.apache.beam.sdk.values.PCollection;
+import org.apache.beam.sdk.values.Row;
+import org.apache.beam.sdk.values.TupleTag;
+
+/**
+ * Computes the {@link BeamTableStatistics} of a bounded table by reading it in a pipeline: the
+ * number of rows, their encoded size in bytes, and an estimate of the number of distinct values of
+ * every column.
+ *
+ * <p>The distinct counts are estimated with {@link ApproximateUniqueCombineFn}, so they can be
+ * computed for all columns in a single pass with bounded memory. Unlike the HyperLogLog++ sketch
+ * used by {@code APPROX_COUNT_DISTINCT}, it hashes the encoded values without requiring a
+ * deterministic coder, so it also covers {@code FLOAT} and {@code DOUBLE} columns.
+ */
+@Internal
+@SuppressWarnings({
+  "nullness" // TODO(https://issues.apache.org/jira/browse/BEAM-10402)
+})
+public class BeamTableStatisticsCollector {
+  /** Sample size of the distinct count sketches, for an estimation error of about 6%. */
+  static final long DISTINCT_COUNT_SAMPLE_SIZE = 1000;
+
+  private static final String ROWS = "rows";
+  private static final String BYTES = "bytes";
+  private static final String DISTINCT_PREFIX = "distinct_";
+
+  private BeamTableStatisticsCollector() {}
+
+  /**
+   * Runs a pipeline reading {@code table} and returns its statistics. The statistics are collected
+   * from the output of the pipeline, which is only supported in the direct runner.
+   */
+  public static BeamTableStatistics collect(BeamSqlTable table, PipelineOptions options) {
+    if (table.isBounded() != PCollection.IsBounded.BOUNDED) {
+      throw new UnsupportedOperationException(
+          "Statistics can only be collected for bounded tables.");
+    }
+    final ClassLoader originalClassLoader = Thread.currentThread().getContextClassLoader();
+    try {
+      Thread.currentThread().setContextClassLoader(BeamEnumerableConverter.class.getClassLoader());
+      return run(table, options);
+    } finally {
+      Thread.currentThread().setContextClassLoader(originalClassLoader);
+    }
+  }
+
+  private static BeamTableStatistics run(BeamSqlTable table, PipelineOptions options) {
+    checkArgument(
+        options
+            .getRunner()
+            .getCanonicalName()
+            .equals("org.apache.beam.runners.direct.DirectRunner"),
+        "Table statistics can only be collected in the direct runner.");
+    Schema schema = table.getSchema();
+    Pipeline pipeline = Pipeline.create(options);
+    table
+        .buildIOReader(PBegin.in(pipeline))
+        .apply("CollectStatistics", Combine.globally(statistics(schema)))
+        .apply("Report", ParDo.of(new Collector()));
+
+    long id = options.getOptionsId();
+    Queue<CoCombineResult> results = new ConcurrentLinkedQueue<>();
+    Collector.globalValues.put(id, results);
+    try {
+      PipelineResult result = pipeline.run();
+      if (PipelineResult.State.FAILED.equals(result.waitUntilFinish())) {
+        throw new RuntimeException("Pipeline collecting table statistics failed.");
+      }
+    } finally {
+      Collector.globalValues.remove(id);
+    }
+    checkState(
+        results.size() == 1,
+        "Expected a single statistics result for the table, got %s.",
+        results.size());
+
+    CoCombineResult result = results.remove();
+    double rowCount = result.get(new TupleTag<Long>(ROWS));
+    Map<String, Double> distinctCounts = new HashMap<>();
+    for (Schema.Field field : schema.getFields()) {
+      long distinct = result.get(new TupleTag<Long>(DISTINCT_PREFIX + field.getName()));
+      // The estimate may exceed the row count for small tables.
+      distinctCounts.put(field.getName(), Math.min((double) distinct, rowCount));
+    }
+    return BeamTableStatistics.createBoundedTableStatistics(
+        rowCount, (double) result.get(new TupleTag<Long>(BYTES)), distinctCounts);
+  }
+
+  private static ComposedCombineFn<Row> statistics(Schema schema) {
+    ComposedCombineFn<Row> combineFn =
+        CombineFns.compose()
+            .with(new One(), Sum.ofLongs(), new TupleTag<Long>(ROWS))
+            .with(new EncodedSize(schema), Sum.ofLongs(), new TupleTag<Long>(BYTES));
+    for (int i = 0; i < schema.getFieldCount(); i++) {
+      Coder<Object> coder =
+          SchemaCoder.coderForFieldType(schema.getField(i).getType().withNullable(true));
+      combineFn =
+          combineFn.with(
+              new FieldValue(i),
+              coder,
+              new ApproximateUniqueCombineFn<>(DISTINCT_COUNT_SAMPLE_SIZE, coder),
+              new TupleTag<Long>(DISTINCT_PREFIX + schema.getField(i).getName()));
+    }
+    return combineFn;
+  }
+
+  private static class One extends SimpleFunction<Row, Long> {
+    @Override
+    public Long apply(Row row) {
+      return 1L;
+    }
+  }
+
+  private static class EncodedSize extends SimpleFunction<Row, Long> {
+    private final RowCoder coder;
+
+    EncodedSize(Schema schema) {
+      this.coder = RowCoder.of(schema);
+    }
+
+    @Override
+    public Long apply(Row row) {
+      try {
+        return (long) CoderUtils.encodeToByteArray(coder, row).length;
+      } catch (CoderException e) {
+        throw new IllegalStateException("Unable to encode row " + row, e);
+      }
+    }
+  }
+
+  private static class FieldValue extends SimpleFunction<Row, Object> {
+    private final int index;
+
+    FieldValue(int index) {
+      this.index = index;
+    }
+
+    @Override
+    public Object apply(Row row) {
+      return row.getValue(index);
+    }
+  }
+
+  private static class Collector extends DoFn<CoCombineResult, Void> {
+
+    // This will only work on the direct runner.
+    private static final Map<Long, Queue<CoCombineResult>> globalValues = new ConcurrentHashMap<>();
+
+    private volatile Queue<CoCombineResult> values;
+
+    @StartBundle
+    public void startBundle(StartBundleContext context) {
+      values = globalValues.get(context.getPipelineOptions().getOptionsId());
+    }
+
+    @ProcessElement
+    public void processElement(@Element CoCombineResult result) {
+      values.add(result);
+    }
+  }
+}
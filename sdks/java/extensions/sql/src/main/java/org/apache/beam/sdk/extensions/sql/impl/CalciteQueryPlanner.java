@@ -29,6 +29,9 @@ import org.apache.beam.sdk.extensions.sql.impl.planner.BeamCostModel;
 import org.apache.beam.sdk.extensions.sql.impl.planner.RelMdNodeStats;
 import org.apache.beam.sdk.extensions.sql.impl.rel.BeamLogicalConvention;
 import org.apache.beam.sdk.extensions.sql.impl.rel.BeamRelNode;
+import org.apache.beam.sdk.extensions.sql.impl.rel.BeamSqlRelUtils;
+import org.apache.beam.sdk.extensions.sql.impl.rel.MaterializationCache;
+import org.apache.beam.sdk.extensions.sql.impl.transform.BeamBuiltinAggregations;
 import org.apache.beam.sdk.extensions.sql.impl.udf.BeamBuiltinFunctionProvider;
 import org.apache.beam.vendor.calcite.v1_20_0.com.google.common.collect.ImmutableList;
 import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.config.CalciteConnectionConfig;
@@ -52,6 +55,7 @@ import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.rel.metadata.Re
 import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.rel.metadata.RelMetadataProvider;
 import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.rel.metadata.RelMetadataQuery;
 import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.schema.SchemaPlus;
+import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.sql.SqlKind;
 import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.sql.SqlNode;
 import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.sql.SqlOperatorTable;
 import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.sql.fun.SqlStdOperatorTable;
@@ -108,6 +112,10 @@ public class CalciteQueryPlanner implements QueryPlanner {
               }
             }
           }
+          for (Map.Entry<String, UdafImpl<?, ?, ?>> entry :
+              BeamBuiltinAggregations.BUILTIN_UDAFS.entrySet()) {
+            jdbcConnection.getCurrentSchemaPlus().add(entry.getKey(), entry.getValue());
+          }
         }
       };
 
@@ -144,7 +152,7 @@ public class CalciteQueryPlanner implements QueryPlanner {
         .parserConfig(parserConfig.build())
         .defaultSchema(defaultSchema)
         .traitDefs(traitDefs)
-        .context(Contexts.of(connection.config()))
+        .context(Contexts.of(connection.config(), connection))
         .ruleSets(ruleSets.toArray(new RuleSet[0]))
         .costFactory(BeamCostModel.FACTORY)
         .typeSystem(connection.getTypeFactory().getTypeSystem())
@@ -187,6 +195,18 @@ public class CalciteQueryPlanner implements QueryPlanner {
       RelRoot root = planner.rel(validated);
       LOG.info("SQLPlan>\n" + RelOptUtil.toString(root.rel));
 
+      MaterializationCache cache =
+          root.kind.belongsTo(SqlKind.QUERY)
+              ? MaterializationCache.of(BeamSqlRelUtils.getPipelineOptions(connection))
+              : null;
+      String fingerprint = cache == null ? null : cache.fingerprint(root.rel);
+      if (fingerprint != null) {
+        BeamRelNode cached = cache.scan(fingerprint, root.rel);
+        if (cached != null) {
+          return cached;
+        }
+      }
+
       RelTraitSet desiredTraits =
           root.rel
               .getTraitSet()
@@ -206,6 +226,9 @@ public class CalciteQueryPlanner implements QueryPlanner {
           JaninoRelMetadataProvider.of(root.rel.getCluster().getMetadataProvider()));
       root.rel.getCluster().invalidateMetadataQuery();
       beamRelNode = (BeamRelNode) planner.transform(0, desiredTraits, root.rel);
+      if (fingerprint != null) {
+        beamRelNode = cache.materialize(fingerprint, beamRelNode);
+      }
       LOG.info("BEAMPlan>\n" + RelOptUtil.toString(beamRelNode));
     } catch (RelConversionException | CannotPlanException e) {
       throw new SqlConversionException(
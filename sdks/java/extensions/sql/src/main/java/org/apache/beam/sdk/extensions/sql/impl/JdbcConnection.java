@@ -89,7 +89,7 @@ public class JdbcConnection extends CalciteConnectionWrapper {
         .collect(Collectors.toMap(KV::getKey, KV::getValue));
   }
 
-  Map<String, String> getPipelineOptionsMap() {
+  public Map<String, String> getPipelineOptionsMap() {
     return pipelineOptionsMap;
   }
 
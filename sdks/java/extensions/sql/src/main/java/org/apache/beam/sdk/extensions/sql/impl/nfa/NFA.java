@@ -18,11 +18,15 @@
 package org.apache.beam.sdk.extensions.sql.impl.nfa;
 
 import java.io.Serializable;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Predicate;
 import javax.annotation.Nullable;
 import org.apache.beam.sdk.extensions.sql.impl.cep.CEPCall;
 import org.apache.beam.sdk.extensions.sql.impl.cep.CEPFieldRef;
@@ -77,7 +81,7 @@ public class NFA implements Serializable {
     ArrayList<StateLocator> nextStateLocators = new ArrayList<>();
     // add a start state locator to the array
     EventPointer nullPtr = new EventPointer(new ArrayList<>(), "");
-    currentRuns.add(new StateLocator(nullPtr, startState, startState, 0, null));
+    currentRuns.add(new StateLocator(nullPtr, startState, startState, 0, null, null));
     // scan for kleene plus locator, if exits, add the next next state
     ArrayList<StateLocator> kleenePlusLocators = new ArrayList<>();
     for (StateLocator locator : currentRuns) {
@@ -108,7 +112,7 @@ public class NFA implements Serializable {
             iterState.reset();
             iterState = iterState.getNextState();
           }
-          currentRuns.add(new StateLocator(nullPtr, startState, startState, 0, null));
+          currentRuns.add(new StateLocator(nullPtr, startState, startState, 0, null, null));
 
           return processOutput(proceedLocator);
         } else {
@@ -126,6 +130,177 @@ public class NFA implements Serializable {
     return null;
   }
 
+  // drop the partial matches whose first row satisfies the predicate,
+  // e.g. the ones that can no longer complete within the WITHIN interval
+  public void pruneRuns(Predicate<Row> isExpired) {
+    currentRuns.removeIf(
+        locator -> locator.getStartRow() != null && isExpired.test(locator.getStartRow()));
+  }
+
+  // returns true if there is a partial match in progress
+  public boolean hasActiveRuns() {
+    for (StateLocator locator : currentRuns) {
+      if (locator.getStartRow() != null) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static final Schema POINTER_SCHEMA =
+      Schema.builder()
+          .addArrayField("values", Schema.FieldType.INT32)
+          .addStringField("patternVar")
+          .build();
+
+  /**
+   * Returns the schema of the rows which hold the state of an {@code NFA} over rows of {@code
+   * upstreamSchema}, as written by {@link #toRow()}.
+   *
+   * <p>The shared buffer is flattened into a list of events, which refer to their previous events
+   * and are referred to by the runs by their position in the list. States are referred to by their
+   * position in the chain of states starting at the start state.
+   */
+  public static Schema stateSchema(Schema upstreamSchema) {
+    return Schema.builder()
+        .addArrayField("stateIndices", Schema.FieldType.INT32)
+        .addArrayField("events", Schema.FieldType.row(eventSchema(upstreamSchema)))
+        .addArrayField("runs", Schema.FieldType.row(runSchema(upstreamSchema)))
+        .build();
+  }
+
+  private static Schema eventSchema(Schema upstreamSchema) {
+    return Schema.builder()
+        .addRowField("row", upstreamSchema)
+        .addArrayField("prevPointers", Schema.FieldType.row(POINTER_SCHEMA))
+        .addArrayField("prevEvents", Schema.FieldType.INT32)
+        .build();
+  }
+
+  private static Schema runSchema(Schema upstreamSchema) {
+    return Schema.builder()
+        .addRowField("pointer", POINTER_SCHEMA)
+        .addInt32Field("state")
+        .addInt32Field("takeCount")
+        .addInt32Field("event")
+        .addNullableField("startRow", Schema.FieldType.row(upstreamSchema))
+        .build();
+  }
+
+  // returns the partial matches of this NFA as a row of the stateSchema
+  public Row toRow() {
+    Schema eventSchema = eventSchema(upstreamSchema);
+    Schema runSchema = runSchema(upstreamSchema);
+    List<State> states = states();
+
+    List<Integer> stateIndices = new ArrayList<>();
+    for (State state : states) {
+      stateIndices.add(state.index);
+    }
+
+    // number the events of the shared buffer which the runs can still reach
+    Map<Event, Integer> eventIds = new IdentityHashMap<>();
+    List<Event> events = new ArrayList<>();
+    Deque<Event> pending = new ArrayDeque<>();
+    for (StateLocator locator : currentRuns) {
+      if (locator.getCurrentEvent() != null) {
+        pending.push(locator.getCurrentEvent());
+      }
+    }
+    while (!pending.isEmpty()) {
+      Event event = pending.pop();
+      if (eventIds.containsKey(event)) {
+        continue;
+      }
+      eventIds.put(event, events.size());
+      events.add(event);
+      for (Event prevEvent : event.prevEvents.values()) {
+        if (prevEvent != null) {
+          pending.push(prevEvent);
+        }
+      }
+    }
+
+    List<Row> eventRows = new ArrayList<>();
+    for (Event event : events) {
+      List<Row> prevPointers = new ArrayList<>();
+      List<Integer> prevEvents = new ArrayList<>();
+      for (Map.Entry<EventPointer, Event> prev : event.prevEvents.entrySet()) {
+        prevPointers.add(prev.getKey().toRow());
+        prevEvents.add(prev.getValue() == null ? -1 : eventIds.get(prev.getValue()));
+      }
+      eventRows.add(
+          Row.withSchema(eventSchema).addValues(event.getRow(), prevPointers, prevEvents).build());
+    }
+
+    List<Row> runRows = new ArrayList<>();
+    for (StateLocator locator : currentRuns) {
+      runRows.add(
+          Row.withSchema(runSchema)
+              .addValues(
+                  locator.getPointer().toRow(),
+                  states.indexOf(locator.getCurState()),
+                  locator.takeCount,
+                  locator.getCurrentEvent() == null ? -1 : eventIds.get(locator.getCurrentEvent()),
+                  locator.getStartRow())
+              .build());
+    }
+    return Row.withSchema(stateSchema(upstreamSchema))
+        .addValues(stateIndices, eventRows, runRows)
+        .build();
+  }
+
+  // restores an NFA with the partial matches of a row written by toRow
+  public static NFA fromRow(List<CEPPattern> patterns, Schema upstreamSchema, Row state) {
+    NFA nfa = compile(patterns, upstreamSchema);
+    List<State> states = nfa.states();
+
+    List<Integer> stateIndices = new ArrayList<>(state.<Integer>getArray("stateIndices"));
+    for (int i = 0; i < states.size(); ++i) {
+      states.get(i).index = stateIndices.get(i);
+    }
+
+    List<Row> eventRows = new ArrayList<>(state.<Row>getArray("events"));
+    List<Event> events = new ArrayList<>();
+    for (Row eventRow : eventRows) {
+      events.add(new Event(eventRow.getRow("row"), upstreamSchema));
+    }
+    for (int i = 0; i < eventRows.size(); ++i) {
+      List<Row> prevPointers = new ArrayList<>(eventRows.get(i).<Row>getArray("prevPointers"));
+      List<Integer> prevEvents = new ArrayList<>(eventRows.get(i).<Integer>getArray("prevEvents"));
+      for (int j = 0; j < prevPointers.size(); ++j) {
+        int prevEvent = prevEvents.get(j);
+        events
+            .get(i)
+            .addPrevEvent(
+                EventPointer.fromRow(prevPointers.get(j)),
+                prevEvent < 0 ? null : events.get(prevEvent));
+      }
+    }
+
+    for (Row runRow : state.<Row>getArray("runs")) {
+      int event = runRow.getInt32("event");
+      nfa.currentRuns.add(
+          new StateLocator(
+              EventPointer.fromRow(runRow.getRow("pointer")),
+              nfa.startState,
+              states.get(runRow.getInt32("state")),
+              runRow.getInt32("takeCount"),
+              event < 0 ? null : events.get(event),
+              runRow.getRow("startRow")));
+    }
+    return nfa;
+  }
+
+  // returns the states in the order of the chain starting at the start state
+  private List<State> states() {
+    List<State> states = new ArrayList<>();
+    for (State state = startState; state != null; state = state.getNextState()) {
+      states.add(state);
+    }
+    return states;
+  }
+
   // returns a row with the output schema once a locator reaches the final state
   private Map<String, ArrayList<Row>> processOutput(StateLocator locator) {
     HashMap<String, ArrayList<Row>> rows = new HashMap<>();
@@ -333,6 +508,17 @@ public class NFA implements Serializable {
       return new EventPointer(newPtrValue, patternVar);
     }
 
+    Row toRow() {
+      return Row.withSchema(POINTER_SCHEMA)
+          .addValues(new ArrayList<>(ptrValues), patternVar)
+          .build();
+    }
+
+    static EventPointer fromRow(Row row) {
+      return new EventPointer(
+          new ArrayList<>(row.<Integer>getArray("values")), row.getString("patternVar"));
+    }
+
     public EventPointer getNewProceedPointer(int value, String patternVar) {
       ArrayList<Integer> newPtrValue = new ArrayList<>(ptrValues);
       newPtrValue.add(value);
@@ -363,14 +549,25 @@ public class NFA implements Serializable {
     private State curState;
     private int takeCount = 0; // counts the number of events taken
     private Event curEvent = null;
+    private Row startRow = null; // the row that started this run
 
     StateLocator(
-        EventPointer ptr, State startState, State curState, int takeCount, Event curEvent) {
+        EventPointer ptr,
+        State startState,
+        State curState,
+        int takeCount,
+        Event curEvent,
+        Row startRow) {
       this.ptr = ptr;
       this.startState = startState;
       this.curState = curState;
       this.takeCount = takeCount;
       this.curEvent = curEvent;
+      this.startRow = startRow;
+    }
+
+    public Row getStartRow() {
+      return startRow;
     }
 
     public State getCurState() {
@@ -398,7 +595,7 @@ public class NFA implements Serializable {
     public StateLocator proceedIgnore() {
       if (isKleenePlusSecondary()) {
         EventPointer newPtr = ptr.getNewProceedPointer(0, curState.getPatternVar());
-        return new StateLocator(newPtr, startState, curState.getNextState(), 0, curEvent);
+        return new StateLocator(newPtr, startState, curState.getNextState(), 0, curEvent, startRow);
       } else {
         return null;
       }
@@ -423,12 +620,18 @@ public class NFA implements Serializable {
             EventPointer eventPointer = new EventPointer(ptrArray, patternVar);
             inputEvent.addPrevEvent(eventPointer, null);
             return new StateLocator(
-                eventPointer, startState, curState.getNextState(), 0, inputEvent);
+                eventPointer,
+                startState,
+                curState.getNextState(),
+                0,
+                inputEvent,
+                inputEvent.getRow());
           }
           // for the other cases, add a zero in the event pointer
           EventPointer newPtr = ptr.getNewProceedPointer(0, patternVar);
           inputEvent.addPrevEvent(newPtr, curEvent);
-          return new StateLocator(newPtr, startState, curState.getNextState(), 0, inputEvent);
+          return new StateLocator(
+              newPtr, startState, curState.getNextState(), 0, inputEvent, startRow);
         } else {
           return null;
         }
@@ -448,11 +651,13 @@ public class NFA implements Serializable {
             int ptrValue = curState.assignIndex();
             EventPointer newPtr = ptr.getNewTakePointer(ptrValue);
             inputEvent.addPrevEvent(newPtr, curEvent);
-            return new StateLocator(newPtr, startState, curState, takeCount + 1, inputEvent);
+            return new StateLocator(
+                newPtr, startState, curState, takeCount + 1, inputEvent, startRow);
           } else {
             EventPointer newPtr = ptr.copy();
             inputEvent.addPrevEvent(newPtr, curEvent);
-            return new StateLocator(newPtr, startState, curState, takeCount + 1, inputEvent);
+            return new StateLocator(
+                newPtr, startState, curState, takeCount + 1, inputEvent, startRow);
           }
         } else {
           return null;
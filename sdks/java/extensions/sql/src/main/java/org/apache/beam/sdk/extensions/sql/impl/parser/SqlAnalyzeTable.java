@@ -0,0 +1,110 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.sdk.extensions.sql.impl.parser;
+
+import static org.apache.beam.vendor.calcite.v1_20_0.com.google.common.base.Preconditions.checkNotNull;
+import static org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.util.Static.RESOURCE;
+
+import java.util.List;
+import org.apache.beam.sdk.extensions.sql.impl.BeamCalciteSchema;
+import org.apache.beam.sdk.extensions.sql.impl.BeamTableStatistics;
+import org.apache.beam.sdk.extensions.sql.impl.BeamTableStatisticsCollector;
+import org.apache.beam.sdk.extensions.sql.impl.rel.BeamEnumerableConverter;
+import org.apache.beam.sdk.extensions.sql.meta.BeamSqlTable;
+import org.apache.beam.sdk.extensions.sql.meta.Table;
+import org.apache.beam.sdk.extensions.sql.meta.store.MetaStore;
+import org.apache.beam.sdk.values.PCollection;
+import org.apache.beam.vendor.calcite.v1_20_0.com.google.common.collect.ImmutableList;
+import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.jdbc.CalcitePrepare;
+import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.jdbc.CalciteSchema;
+import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.sql.SqlCall;
+import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.sql.SqlExecutableStatement;
+import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.sql.SqlIdentifier;
+import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.sql.SqlKind;
+import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.sql.SqlNode;
+import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.sql.SqlOperator;
+import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.sql.SqlSpecialOperator;
+import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.sql.SqlUtil;
+import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.sql.SqlWriter;
+import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.sql.parser.SqlParserPos;
+import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.util.Pair;
+
+/**
+ * Parse tree for {@code ANALYZE TABLE} statement. It reads the table, computes its {@link
+ * BeamTableStatistics} and stores them in the {@link MetaStore}, where the planner picks them up.
+ */
+public class SqlAnalyzeTable extends SqlCall implements SqlExecutableStatement {
+  private final SqlIdentifier name;
+
+  private static final SqlOperator OPERATOR =
+      new SqlSpecialOperator("ANALYZE TABLE", SqlKind.OTHER_DDL);
+
+  /** Creates a SqlAnalyzeTable. */
+  public SqlAnalyzeTable(SqlParserPos pos, SqlIdentifier name) {
+    super(pos);
+    this.name = checkNotNull(name);
+  }
+
+  @Override
+  public SqlOperator getOperator() {
+    return OPERATOR;
+  }
+
+  @Override
+  public List<SqlNode> getOperandList() {
+    return ImmutableList.of(name);
+  }
+
+  @Override
+  public void unparse(SqlWriter writer, int leftPrec, int rightPrec) {
+    writer.keyword("ANALYZE TABLE");
+    name.unparse(writer, leftPrec, rightPrec);
+  }
+
+  @Override
+  public void execute(CalcitePrepare.Context context) {
+    final Pair<CalciteSchema, String> pair = SqlDdlNodes.schema(context, true, name);
+    if (!(pair.left.schema instanceof BeamCalciteSchema)) {
+      throw SqlUtil.newContextException(
+          name.getParserPosition(),
+          RESOURCE.internal("Schema is not instanceof BeamCalciteSchema"));
+    }
+    BeamCalciteSchema schema = (BeamCalciteSchema) pair.left.schema;
+    if (!(schema.getTableProvider() instanceof MetaStore)) {
+      throw SqlUtil.newContextException(
+          name.getParserPosition(),
+          RESOURCE.internal("ANALYZE TABLE is only supported for tables of a MetaStore"));
+    }
+    MetaStore metaStore = (MetaStore) schema.getTableProvider();
+    Table table = metaStore.getTable(pair.right);
+    if (table == null) {
+      throw SqlUtil.newContextException(
+          name.getParserPosition(), RESOURCE.tableNotFound(pair.right));
+    }
+    BeamSqlTable beamTable = metaStore.buildBeamSqlTable(table);
+    if (beamTable.isBounded() != PCollection.IsBounded.BOUNDED) {
+      throw SqlUtil.newContextException(
+          name.getParserPosition(),
+          RESOURCE.internal("ANALYZE TABLE is only supported for bounded tables"));
+    }
+    BeamTableStatistics statistics =
+        BeamTableStatisticsCollector.collect(
+            beamTable, BeamEnumerableConverter.createPipelineOptions(schema.getPipelineOptions()));
+    metaStore.setTableStatistics(pair.right, statistics);
+  }
+}
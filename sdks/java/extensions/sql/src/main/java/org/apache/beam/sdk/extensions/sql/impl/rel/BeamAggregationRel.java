@@ -23,6 +23,7 @@ import static org.apache.beam.vendor.calcite.v1_20_0.com.google.common.base.Prec
 
 import java.io.Serializable;
 import java.util.List;
+import java.util.stream.IntStream;
 import org.apache.beam.sdk.extensions.sql.impl.BeamSqlPipelineOptions;
 import org.apache.beam.sdk.extensions.sql.impl.planner.BeamCostModel;
 import org.apache.beam.sdk.extensions.sql.impl.planner.NodeStats;
@@ -58,6 +59,7 @@ import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.rel.RelWriter;
 import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.rel.core.Aggregate;
 import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.rel.core.AggregateCall;
 import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.rel.metadata.RelMetadataQuery;
+import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.sql.SqlKind;
 import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.util.ImmutableBitSet;
 import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.collect.Lists;
 import org.checkerframework.checker.nullness.qual.Nullable;
@@ -83,7 +85,6 @@ public class BeamAggregationRel extends Aggregate implements BeamRelNode {
       int windowFieldIndex) {
 
     super(cluster, traits, child, groupSet, groupSets, aggCalls);
-    assert getGroupType() == Group.SIMPLE;
 
     this.windowFn = windowFn;
     this.windowFieldIndex = windowFieldIndex;
@@ -94,6 +95,8 @@ public class BeamAggregationRel extends Aggregate implements BeamRelNode {
 
     NodeStats inputStat = BeamSqlRelUtils.getNodeStats(this.input, mq);
     inputStat = computeWindowingCostEffect(inputStat);
+    // Each input row is aggregated once for every grouping set.
+    inputStat = inputStat.multiply(groupSets.size());
 
     // Aggregates with more aggregate functions cost a bit more
     float multiplier = 1f + (float) aggCalls.size() * 0.125f;
@@ -116,9 +119,18 @@ public class BeamAggregationRel extends Aggregate implements BeamRelNode {
 
     inputEstimate = computeWindowingCostEffect(inputEstimate);
 
-    NodeStats estimate;
+    // The output of GROUPING SETS holds the output of an aggregation by each of the grouping sets.
+    NodeStats estimate = null;
+    for (ImmutableBitSet groupingSet : groupSets) {
+      NodeStats groupingSetEstimate = estimateGroupingSet(inputEstimate, groupingSet);
+      estimate = estimate == null ? groupingSetEstimate : estimate.plus(groupingSetEstimate);
+    }
+    return estimate;
+  }
+
+  private NodeStats estimateGroupingSet(NodeStats inputEstimate, ImmutableBitSet groupingSet) {
     // groupCount shows how many columns do we have in group by. One of them might be the windowing.
-    int groupCount = groupSet.cardinality() - (windowFn == null ? 0 : 1);
+    int groupCount = groupingSet.cardinality() - (windowFn == null ? 0 : 1);
     // This is similar to what Calcite does.If groupCount is zero then then we have only one value
     // per window for unbounded and we have only one value for bounded. e.g select count(*) from A
     // If group count is none zero then more column we include in the group by, more rows will be
@@ -186,13 +198,157 @@ public class BeamAggregationRel extends Aggregate implements BeamRelNode {
   @Override
   public PTransform<PCollectionList<Row>, PCollection<Row>> buildPTransform() {
     Schema outputSchema = CalciteUtils.toSchema(getRowType());
+    Schema inputSchema = CalciteUtils.toSchema(getInput().getRowType());
     List<FieldAggregation> aggregationAdapters =
         getNamedAggCalls().stream()
-            .map(aggCall -> new FieldAggregation(aggCall.getKey(), aggCall.getValue()))
+            .filter(aggCall -> !isGroupingFunction(aggCall.getKey()))
+            .map(aggCall -> new FieldAggregation(aggCall.getKey(), aggCall.getValue(), inputSchema))
             .collect(toList());
 
     return new Transform(
-        windowFn, windowFieldIndex, getGroupSet(), aggregationAdapters, outputSchema);
+        windowFn,
+        windowFieldIndex,
+        getGroupSet(),
+        getGroupType() == Group.SIMPLE
+            ? null
+            : new GroupingSets(getGroupSet(), getGroupSets(), windowFieldIndex, aggCalls),
+        aggregationAdapters,
+        outputSchema);
+  }
+
+  /**
+   * Whether {@code aggCall} is {@code GROUPING}, {@code GROUPING_ID} or {@code GROUP_ID}. Their
+   * values only depend on the grouping set a row is aggregated for.
+   */
+  public static boolean isGroupingFunction(AggregateCall aggCall) {
+    SqlKind kind = aggCall.getAggregation().getKind();
+    return kind == SqlKind.GROUPING || kind == SqlKind.GROUPING_ID || kind == SqlKind.GROUP_ID;
+  }
+
+  /**
+   * Replaces exact {@code COUNT(DISTINCT x)} calls by {@code APPROX_COUNT_DISTINCT(x)}, see {@link
+   * org.apache.beam.sdk.extensions.sql.impl.BeamSqlPipelineOptions#getApproximateCountDistinct()}.
+   */
+  public static List<AggregateCall> approximateCountDistinct(List<AggregateCall> aggCalls) {
+    return aggCalls.stream()
+        .map(
+            aggCall ->
+                aggCall.isDistinct()
+                        && !aggCall.isApproximate()
+                        && aggCall.getAggregation().getKind() == SqlKind.COUNT
+                        && aggCall.getArgList().size() == 1
+                    ? AggregateCall.create(
+                        aggCall.getAggregation(),
+                        true,
+                        true,
+                        aggCall.getArgList(),
+                        aggCall.filterArg,
+                        aggCall.getCollation(),
+                        aggCall.getType(),
+                        aggCall.getName())
+                    : aggCall)
+        .collect(toList());
+  }
+
+  /**
+   * The grouping sets of a {@code GROUPING SETS}, {@code ROLLUP} or {@code CUBE} aggregation.
+   *
+   * <p>Rather than aggregating the input once for every grouping set, which shuffles it as many
+   * times, every input row is expanded into one row per grouping set. The expanded row holds the
+   * grouping columns of its grouping set, nulls for the other grouping columns and the index of the
+   * grouping set, and all of them are aggregated in a single combine per key.
+   */
+  private static class GroupingSets implements Serializable {
+    // The grouping columns, i.e. the union of all grouping sets, without the window field.
+    final int[] keyFieldIds;
+    // Whether a grouping column is part of a grouping set, by grouping set and key field.
+    final boolean[][] isGrouped;
+    // The values of the grouping functions, by grouping set and aggregate call, null for the
+    // aggregate
+    // calls which are not grouping functions.
+    final Long[][] groupingFunctionValues;
+
+    GroupingSets(
+        ImmutableBitSet groupSet,
+        List<ImmutableBitSet> groupSets,
+        int windowFieldIndex,
+        List<AggregateCall> aggCalls) {
+      keyFieldIds =
+          groupSet.asList().stream().filter(i -> i != windowFieldIndex).mapToInt(i -> i).toArray();
+      isGrouped = new boolean[groupSets.size()][keyFieldIds.length];
+      groupingFunctionValues = new Long[groupSets.size()][aggCalls.size()];
+      for (int groupingSetId = 0; groupingSetId < groupSets.size(); groupingSetId++) {
+        ImmutableBitSet groupingSet = groupSets.get(groupingSetId);
+        for (int i = 0; i < keyFieldIds.length; i++) {
+          isGrouped[groupingSetId][i] = groupingSet.get(keyFieldIds[i]);
+        }
+        for (int i = 0; i < aggCalls.size(); i++) {
+          AggregateCall aggCall = aggCalls.get(i);
+          if (isGroupingFunction(aggCall)) {
+            groupingFunctionValues[groupingSetId][i] = groupingFunctionValue(aggCall, groupingSet);
+          }
+        }
+      }
+    }
+
+    /**
+     * The bit vector of {@code GROUPING(a, b, ...)} has a bit for each argument, the most
+     * significant one for the first argument, which is set if the argument is not grouped by. The
+     * grouping sets are distinct, so {@code GROUP_ID()} is always 0.
+     */
+    private static long groupingFunctionValue(AggregateCall aggCall, ImmutableBitSet groupingSet) {
+      if (aggCall.getAggregation().getKind() == SqlKind.GROUP_ID) {
+        return 0L;
+      }
+      long value = 0L;
+      for (int arg : aggCall.getArgList()) {
+        value = (value << 1) | (groupingSet.get(arg) ? 0L : 1L);
+      }
+      return value;
+    }
+
+    int size() {
+      return isGrouped.length;
+    }
+
+    /**
+     * Returns the schema of the expanded rows: the input fields, followed by the grouping columns
+     * and the index of the grouping set.
+     */
+    Schema expandedSchema(Schema inputSchema) {
+      Schema.Builder builder = Schema.builder().addFields(inputSchema.getFields());
+      for (int i = 0; i < keyFieldIds.length; i++) {
+        builder.addField(
+            uniqueName(inputSchema, "$grouping_key" + i),
+            inputSchema.getField(keyFieldIds[i]).getType().withNullable(true));
+      }
+      builder.addField(uniqueName(inputSchema, "$grouping_id"), FieldType.INT32);
+      return builder.build();
+    }
+
+    private static String uniqueName(Schema schema, String name) {
+      while (schema.hasField(name)) {
+        name = name + "_";
+      }
+      return name;
+    }
+
+    DoFn<Row, Row> expandFn(Schema expandedSchema) {
+      return new DoFn<Row, Row>() {
+        @ProcessElement
+        public void processElement(@Element Row row, OutputReceiver<Row> o) {
+          for (int groupingSetId = 0; groupingSetId < size(); groupingSetId++) {
+            List<Object> values = Lists.newArrayListWithCapacity(expandedSchema.getFieldCount());
+            values.addAll(row.getValues());
+            for (int i = 0; i < keyFieldIds.length; i++) {
+              values.add(isGrouped[groupingSetId][i] ? row.getValue(keyFieldIds[i]) : null);
+            }
+            values.add(groupingSetId);
+            o.output(Row.withSchema(expandedSchema).attachValues(values));
+          }
+        }
+      };
+    }
   }
 
   private static class FieldAggregation implements Serializable {
@@ -200,18 +356,19 @@ public class BeamAggregationRel extends Aggregate implements BeamRelNode {
     final CombineFn combineFn;
     final Field outputField;
 
-    FieldAggregation(AggregateCall call, String alias) {
+    FieldAggregation(AggregateCall call, String alias, Schema inputSchema) {
       inputs = call.getArgList();
       outputField = CalciteUtils.toField(alias, call.getType());
       combineFn =
           AggregationCombineFnAdapter.createCombineFn(
-              call, outputField, call.getAggregation().getName());
+              call, outputField, call.getAggregation().getName(), inputSchema);
     }
   }
 
   private static class Transform extends PTransform<PCollectionList<Row>, PCollection<Row>> {
 
     private final List<Integer> keyFieldsIds;
+    private final @Nullable GroupingSets groupingSets;
     private Schema outputSchema;
     private WindowFn<Row, IntervalWindow> windowFn;
     private int windowFieldIndex;
@@ -221,9 +378,11 @@ public class BeamAggregationRel extends Aggregate implements BeamRelNode {
         WindowFn<Row, IntervalWindow> windowFn,
         int windowFieldIndex,
         ImmutableBitSet groupSet,
+        @Nullable GroupingSets groupingSets,
         List<FieldAggregation> fieldAggregations,
         Schema outputSchema) {
       this.windowFn = windowFn;
+      this.groupingSets = groupingSets;
       this.windowFieldIndex = windowFieldIndex;
       this.fieldAggregations = fieldAggregations;
       this.outputSchema = outputSchema;
@@ -246,6 +405,21 @@ public class BeamAggregationRel extends Aggregate implements BeamRelNode {
 
       validateWindowIsSupported(windowedStream);
 
+      List<Integer> keyFieldsIds = this.keyFieldsIds;
+      if (groupingSets != null) {
+        // Group by the grouping columns of the expanded rows and the index of the grouping set.
+        Schema inputSchema = windowedStream.getSchema();
+        Schema expandedSchema = groupingSets.expandedSchema(inputSchema);
+        windowedStream =
+            windowedStream
+                .apply("expandGroupingSets", ParDo.of(groupingSets.expandFn(expandedSchema)))
+                .setRowSchema(expandedSchema);
+        keyFieldsIds =
+            IntStream.range(inputSchema.getFieldCount(), expandedSchema.getFieldCount())
+                .boxed()
+                .collect(toList());
+      }
+
       org.apache.beam.sdk.schemas.transforms.Group.ByFields<Row> byFields =
           org.apache.beam.sdk.schemas.transforms.Group.byFieldIds(keyFieldsIds);
       org.apache.beam.sdk.schemas.transforms.Group.CombineFieldsByFields<Row> combined = null;
@@ -290,7 +464,9 @@ public class BeamAggregationRel extends Aggregate implements BeamRelNode {
           .apply(combiner)
           .apply(
               "mergeRecord",
-              ParDo.of(mergeRecord(outputSchema, windowFieldIndex, ignoreValues, verifyRowValues)))
+              ParDo.of(
+                  mergeRecord(
+                      outputSchema, windowFieldIndex, ignoreValues, verifyRowValues, groupingSets)))
           .setRowSchema(outputSchema);
     }
 
@@ -335,19 +511,32 @@ public class BeamAggregationRel extends Aggregate implements BeamRelNode {
         Schema outputSchema,
         int windowStartFieldIndex,
         boolean ignoreValues,
-        boolean verifyRowValues) {
+        boolean verifyRowValues,
+        @Nullable GroupingSets groupingSets) {
       return new DoFn<Row, Row>() {
         @ProcessElement
         public void processElement(
             @Element Row kvRow, BoundedWindow window, OutputReceiver<Row> o) {
-          int capacity =
-              kvRow.getRow(0).getFieldCount()
-                  + (!ignoreValues ? kvRow.getRow(1).getFieldCount() : 0);
-          List<Object> fieldValues = Lists.newArrayListWithCapacity(capacity);
-
-          fieldValues.addAll(kvRow.getRow(0).getValues());
-          if (!ignoreValues) {
-            fieldValues.addAll(kvRow.getRow(1).getValues());
+          List<Object> fieldValues = Lists.newArrayListWithCapacity(outputSchema.getFieldCount());
+
+          if (groupingSets == null) {
+            fieldValues.addAll(kvRow.getRow(0).getValues());
+            if (!ignoreValues) {
+              fieldValues.addAll(kvRow.getRow(1).getValues());
+            }
+          } else {
+            // The last key field is the index of the grouping set, which determines the values of
+            // the grouping functions in between the other aggregate values.
+            List<Object> keyValues = kvRow.getRow(0).getValues();
+            int groupingSetId = (Integer) keyValues.get(keyValues.size() - 1);
+            fieldValues.addAll(keyValues.subList(0, keyValues.size() - 1));
+            int valueIndex = 0;
+            for (Long groupingFunctionValue : groupingSets.groupingFunctionValues[groupingSetId]) {
+              fieldValues.add(
+                  groupingFunctionValue != null
+                      ? groupingFunctionValue
+                      : kvRow.getRow(1).getValue(valueIndex++));
+            }
           }
 
           if (windowStartFieldIndex != -1) {
@@ -37,6 +37,7 @@ import org.apache.beam.sdk.Pipeline;
 import org.apache.beam.sdk.Pipeline.PipelineVisitor;
 import org.apache.beam.sdk.PipelineResult;
 import org.apache.beam.sdk.PipelineResult.State;
+import org.apache.beam.sdk.extensions.sql.impl.BeamSqlPipelineOptions;
 import org.apache.beam.sdk.extensions.sql.impl.utils.CalciteUtils.CharType;
 import org.apache.beam.sdk.io.FileSystems;
 import org.apache.beam.sdk.metrics.Counter;
@@ -119,7 +120,9 @@ public class BeamEnumerableConverter extends ConverterImpl implements Enumerable
     try {
       Thread.currentThread().setContextClassLoader(BeamEnumerableConverter.class.getClassLoader());
       final PipelineOptions options = createPipelineOptions(node.getPipelineOptions());
-      return toEnumerable(options, node);
+      final MaterializationCache cache =
+          MaterializationCache.of(options.as(BeamSqlPipelineOptions.class));
+      return toEnumerable(options, cache == null ? node : cache.apply(node));
     } finally {
       Thread.currentThread().setContextClassLoader(originalClassLoader);
     }
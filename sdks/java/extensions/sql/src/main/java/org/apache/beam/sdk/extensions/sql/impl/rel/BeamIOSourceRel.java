@@ -135,6 +135,11 @@ public class BeamIOSourceRel extends TableScan implements BeamRelNode {
     return BeamCostModel.FACTORY.makeCost(estimates.getRowCount(), estimates.getRate());
   }
 
+  /** Returns the statistics of the table, including the ones computed by ANALYZE TABLE. */
+  public BeamTableStatistics getTableStatistics() {
+    return calciteTable.getStatistic();
+  }
+
   public BeamSqlTable getBeamSqlTable() {
     return beamTable;
   }
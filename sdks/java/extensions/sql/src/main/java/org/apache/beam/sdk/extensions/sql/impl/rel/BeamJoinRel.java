@@ -19,29 +19,36 @@ package org.apache.beam.sdk.extensions.sql.impl.rel;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 import java.util.Set;
 import org.apache.beam.sdk.extensions.sql.BeamSqlSeekableTable;
+import org.apache.beam.sdk.extensions.sql.impl.BeamTableStatistics;
 import org.apache.beam.sdk.extensions.sql.impl.planner.BeamCostModel;
 import org.apache.beam.sdk.extensions.sql.impl.planner.NodeStats;
 import org.apache.beam.sdk.extensions.sql.meta.BeamSqlTable;
 import org.apache.beam.sdk.values.PCollection;
-import org.apache.beam.vendor.calcite.v1_20_0.com.google.common.base.Optional;
 import org.apache.beam.vendor.calcite.v1_20_0.com.google.common.collect.ImmutableList;
 import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.plan.RelOptCluster;
 import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.plan.RelOptPlanner;
 import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.plan.RelTraitSet;
 import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.plan.volcano.RelSubset;
 import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.rel.RelNode;
+import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.rel.core.Calc;
 import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.rel.core.CorrelationId;
+import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.rel.core.Filter;
 import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.rel.core.Join;
 import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.rel.core.JoinRelType;
+import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.rel.core.Project;
+import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.rel.core.Values;
 import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.rel.metadata.RelMetadataQuery;
 import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.rex.RexCall;
 import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.rex.RexFieldAccess;
 import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.rex.RexInputRef;
 import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.rex.RexLiteral;
 import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.rex.RexNode;
+import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.rex.RexProgram;
 import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.util.Pair;
+import org.checkerframework.checker.nullness.qual.Nullable;
 
 /**
  * An abstract {@code BeamRelNode} to implement Join Rels.
@@ -87,7 +94,7 @@ public abstract class BeamJoinRel extends Join implements BeamRelNode {
     BeamRelNode rightRelNode = BeamSqlRelUtils.getBeamRelInput(right);
     return seekable(leftRelNode)
         ? Optional.of(0)
-        : seekable(rightRelNode) ? Optional.of(1) : Optional.absent();
+        : seekable(rightRelNode) ? Optional.of(1) : Optional.empty();
   }
 
   protected Optional<Integer> nonSeekableInputIndex() {
@@ -95,7 +102,7 @@ public abstract class BeamJoinRel extends Join implements BeamRelNode {
     BeamRelNode rightRelNode = BeamSqlRelUtils.getBeamRelInput(right);
     return !seekable(leftRelNode)
         ? Optional.of(0)
-        : !seekable(rightRelNode) ? Optional.of(1) : Optional.absent();
+        : !seekable(rightRelNode) ? Optional.of(1) : Optional.empty();
   }
 
   /** check if {@code BeamRelNode} implements {@code BeamSeekableTable}. */
@@ -121,7 +128,10 @@ public abstract class BeamJoinRel extends Join implements BeamRelNode {
 
   @Override
   public NodeStats estimateNodeStats(RelMetadataQuery mq) {
-    double selectivity = mq.getSelectivity(this, getCondition());
+    Double selectivity = estimateEquiJoinSelectivity(mq);
+    if (selectivity == null) {
+      selectivity = mq.getSelectivity(this, getCondition());
+    }
     NodeStats leftEstimates = BeamSqlRelUtils.getNodeStats(this.left, mq);
     NodeStats rightEstimates = BeamSqlRelUtils.getNodeStats(this.right, mq);
 
@@ -141,6 +151,147 @@ public abstract class BeamJoinRel extends Join implements BeamRelNode {
         leftEstimates.getWindow() * rightEstimates.getWindow() * selectivity);
   }
 
+  /**
+   * Estimates the selectivity of the equi-join condition from the number of distinct values of the
+   * join keys, assuming that the keys of the side with fewer distinct values are contained in the
+   * other side: each conjunct {@code l = r} keeps {@code 1 / max(ndv(l), ndv(r))} of the pairs of
+   * rows. Returns null when a distinct count is unknown, i.e. unless the tables were analyzed.
+   */
+  private @Nullable Double estimateEquiJoinSelectivity(RelMetadataQuery mq) {
+    List<Pair<RexNode, RexNode>> pairs;
+    try {
+      pairs = extractJoinRexNodes(getCondition());
+    } catch (UnsupportedOperationException e) {
+      return null;
+    }
+    int leftFieldCount = left.getRowType().getFieldCount();
+    double selectivity = 1.0;
+    for (Pair<RexNode, RexNode> pair : pairs) {
+      if (!(pair.left instanceof RexInputRef) || !(pair.right instanceof RexInputRef)) {
+        return null;
+      }
+      Double leftDistinct = getDistinctCount(left, ((RexInputRef) pair.left).getIndex(), mq);
+      Double rightDistinct =
+          getDistinctCount(right, ((RexInputRef) pair.right).getIndex() - leftFieldCount, mq);
+      if (leftDistinct == null || rightDistinct == null) {
+        return null;
+      }
+      selectivity /= Math.max(1.0, Math.max(leftDistinct, rightDistinct));
+    }
+    return selectivity;
+  }
+
+  /**
+   * Returns the number of distinct values of a column of {@code relNode}, traced back to the
+   * statistics of the table it is read from, or null if it is not known.
+   */
+  static @Nullable Double getDistinctCount(RelNode relNode, int column, RelMetadataQuery mq) {
+    relNode = BeamSqlRelUtils.getInput(relNode);
+    if (column < 0 || column >= relNode.getRowType().getFieldCount()) {
+      return null;
+    }
+    if (relNode instanceof BeamIOSourceRel) {
+      BeamTableStatistics statistics = ((BeamIOSourceRel) relNode).getTableStatistics();
+      Double distinct =
+          statistics.getDistinctCount(relNode.getRowType().getFieldNames().get(column));
+      return distinct == null ? null : Math.min(distinct, statistics.getRowCount());
+    } else if (relNode instanceof Calc) {
+      RexProgram program = ((Calc) relNode).getProgram();
+      RexNode project = program.expandLocalRef(program.getProjectList().get(column));
+      return project instanceof RexInputRef
+          ? getDistinctCount(relNode.getInput(0), ((RexInputRef) project).getIndex(), mq)
+          : null;
+    } else if (relNode instanceof Project) {
+      RexNode project = ((Project) relNode).getProjects().get(column);
+      return project instanceof RexInputRef
+          ? getDistinctCount(relNode.getInput(0), ((RexInputRef) project).getIndex(), mq)
+          : null;
+    } else if (relNode instanceof Filter) {
+      return getDistinctCount(relNode.getInput(0), column, mq);
+    } else if (relNode instanceof Join) {
+      int leftFieldCount = ((Join) relNode).getLeft().getRowType().getFieldCount();
+      return column < leftFieldCount
+          ? getDistinctCount(((Join) relNode).getLeft(), column, mq)
+          : getDistinctCount(((Join) relNode).getRight(), column - leftFieldCount, mq);
+    }
+    return null;
+  }
+
+  /**
+   * Estimates the size in bytes of the output of a bounded {@code relNode}, from its estimated row
+   * count and the average row size of the tables it reads. Returns null unless the size of all
+   * these tables is known, i.e. they were analyzed.
+   */
+  static @Nullable Double estimateByteSize(RelNode relNode, RelMetadataQuery mq) {
+    Double rowSize = estimateRowSize(relNode, mq);
+    if (rowSize == null) {
+      return null;
+    }
+    return mq.getRowCount(relNode) * rowSize;
+  }
+
+  private static @Nullable Double estimateRowSize(RelNode relNode, RelMetadataQuery mq) {
+    relNode = BeamSqlRelUtils.getInput(relNode);
+    if (relNode instanceof BeamIOSourceRel) {
+      BeamTableStatistics statistics = ((BeamIOSourceRel) relNode).getTableStatistics();
+      Double byteSize = statistics.getByteSize();
+      if (byteSize == null) {
+        return null;
+      }
+      return statistics.getRowCount() > 0 ? byteSize / statistics.getRowCount() : 0.0;
+    } else if (relNode instanceof Values) {
+      return mq.getAverageRowSize(relNode);
+    } else if (relNode.getInputs().isEmpty()) {
+      return null;
+    }
+    // The output of a join holds the fields of both inputs, other operators are assumed to output
+    // rows no wider than their widest input.
+    double rowSize = 0.0;
+    for (RelNode input : relNode.getInputs()) {
+      Double inputRowSize = estimateRowSize(input, mq);
+      if (inputRowSize == null) {
+        return null;
+      }
+      rowSize = relNode instanceof Join ? rowSize + inputRowSize : Math.max(rowSize, inputRowSize);
+    }
+    return rowSize;
+  }
+
+  /**
+   * Returns the index of the input of a join of two bounded inputs which should be broadcast to the
+   * other input as a side input, if any: the smaller of the inputs whose estimated size is at most
+   * {@code thresholdBytes}. The input on the outer side of an outer join cannot be broadcast.
+   *
+   * @param join the join
+   * @param left the left input of the join, which may be more specific than {@code join.getLeft()}
+   * @param right the right input of the join, which may be more specific than {@code
+   *     join.getRight()}
+   */
+  public static Optional<Integer> getBroadcastInputIndex(
+      Join join, RelNode left, RelNode right, RelMetadataQuery mq, long thresholdBytes) {
+    if (thresholdBytes <= 0
+        || join.getJoinType() == JoinRelType.FULL
+        || !isJoinLegal(join)
+        || getBoundednessOfRelNode(left) != PCollection.IsBounded.BOUNDED
+        || getBoundednessOfRelNode(right) != PCollection.IsBounded.BOUNDED) {
+      return Optional.empty();
+    }
+    Double leftSize = join.getJoinType() == JoinRelType.LEFT ? null : estimateByteSize(left, mq);
+    Double rightSize = join.getJoinType() == JoinRelType.RIGHT ? null : estimateByteSize(right, mq);
+    if (leftSize != null && leftSize > thresholdBytes) {
+      leftSize = null;
+    }
+    if (rightSize != null && rightSize > thresholdBytes) {
+      rightSize = null;
+    }
+    if (leftSize != null && (rightSize == null || leftSize < rightSize)) {
+      return Optional.of(0);
+    } else if (rightSize != null) {
+      return Optional.of(1);
+    }
+    return Optional.empty();
+  }
+
   /**
    * This method checks if a join is legal and can be converted into Beam SQL. It is used during
    * planning and applying {@link
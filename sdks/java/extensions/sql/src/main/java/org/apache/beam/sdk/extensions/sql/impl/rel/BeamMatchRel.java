@@ -20,12 +20,15 @@ package org.apache.beam.sdk.extensions.sql.impl.rel;
 import static org.apache.beam.sdk.extensions.sql.impl.cep.CEPUtils.makeOrderKeysFromCollation;
 import static org.apache.beam.vendor.calcite.v1_20_0.com.google.common.base.Preconditions.checkArgument;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.SortedSet;
+import org.apache.beam.sdk.coders.InstantCoder;
 import org.apache.beam.sdk.coders.KvCoder;
 import org.apache.beam.sdk.coders.RowCoder;
+import org.apache.beam.sdk.extensions.sql.impl.BeamSqlPipelineOptions;
 import org.apache.beam.sdk.extensions.sql.impl.cep.CEPCall;
 import org.apache.beam.sdk.extensions.sql.impl.cep.CEPFieldRef;
 import org.apache.beam.sdk.extensions.sql.impl.cep.CEPKind;
@@ -39,15 +42,29 @@ import org.apache.beam.sdk.extensions.sql.impl.nfa.NFA;
 import org.apache.beam.sdk.extensions.sql.impl.planner.BeamCostModel;
 import org.apache.beam.sdk.extensions.sql.impl.planner.NodeStats;
 import org.apache.beam.sdk.extensions.sql.impl.utils.CalciteUtils;
+import org.apache.beam.sdk.metrics.Counter;
+import org.apache.beam.sdk.metrics.Metrics;
 import org.apache.beam.sdk.schemas.Schema;
+import org.apache.beam.sdk.state.BagState;
+import org.apache.beam.sdk.state.OrderedListState;
+import org.apache.beam.sdk.state.StateSpec;
+import org.apache.beam.sdk.state.StateSpecs;
+import org.apache.beam.sdk.state.TimeDomain;
+import org.apache.beam.sdk.state.Timer;
+import org.apache.beam.sdk.state.TimerSpec;
+import org.apache.beam.sdk.state.TimerSpecs;
+import org.apache.beam.sdk.state.ValueState;
 import org.apache.beam.sdk.transforms.DoFn;
 import org.apache.beam.sdk.transforms.GroupByKey;
 import org.apache.beam.sdk.transforms.PTransform;
 import org.apache.beam.sdk.transforms.ParDo;
+import org.apache.beam.sdk.transforms.windowing.BoundedWindow;
 import org.apache.beam.sdk.values.KV;
 import org.apache.beam.sdk.values.PCollection;
 import org.apache.beam.sdk.values.PCollectionList;
 import org.apache.beam.sdk.values.Row;
+import org.apache.beam.sdk.values.TimestampedValue;
+import org.apache.beam.sdk.values.TimestampedValue.TimestampedValueCoder;
 import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.plan.RelOptCluster;
 import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.plan.RelOptPlanner;
 import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.plan.RelTraitSet;
@@ -58,15 +75,23 @@ import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.rel.metadata.Re
 import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.rel.type.RelDataType;
 import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.rex.RexCall;
 import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.rex.RexInputRef;
+import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.rex.RexLiteral;
 import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.rex.RexNode;
 import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.sql.SqlKind;
+import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.sql.type.SqlTypeName;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.joda.time.Duration;
+import org.joda.time.Instant;
 
 /**
  * {@code BeamRelNode} to replace a {@code Match} node.
  *
  * <p>The {@code BeamMatchRel} is the Beam implementation of {@code MATCH_RECOGNIZE} in SQL.
  *
- * <p>For now, the underline implementation is based on java.util.regex.
+ * <p>A bounded input is grouped by the partition keys and each partition is sorted and matched as a
+ * whole. An unbounded input is matched incrementally by a stateful {@code DoFn} as the watermark
+ * advances, which requires the first {@code ORDER BY} key to be the ascending event time column of
+ * the rows. The {@code WITHIN} interval, if any, bounds how long partial matches are kept.
  */
 @SuppressWarnings({
   "rawtypes", // TODO(https://issues.apache.org/jira/browse/BEAM-10556)
@@ -177,22 +202,11 @@ public class BeamMatchRel extends Match implements BeamRelNode {
 
       // partition according to the partition keys
       PCollection<KV<Row, Row>> keyedUpstream =
-          upstream.apply(ParDo.of(new MapKeys(partitionKeySchema)));
+          upstream
+              .apply(ParDo.of(new MapKeys(partitionKeySchema)))
+              .setCoder(KvCoder.of(RowCoder.of(partitionKeySchema), RowCoder.of(upstreamSchema)));
 
-      // group by keys
-      PCollection<KV<Row, Iterable<Row>>> groupedUpstream =
-          keyedUpstream
-              .setCoder(KvCoder.of(RowCoder.of(partitionKeySchema), RowCoder.of(upstreamSchema)))
-              .apply(GroupByKey.create());
-
-      // sort within each keyed partition
       ArrayList<OrderKey> orderKeyList = makeOrderKeysFromCollation(orderKeys);
-      // This will rely on an assumption that Fusion will fuse
-      // operators here so the sorted result will be preserved
-      // for the next match transform.
-      // In most of the runners (if not all) this should be true.
-      PCollection<KV<Row, Iterable<Row>>> orderedUpstream =
-          groupedUpstream.apply(ParDo.of(new SortPerKey(orderKeyList)));
 
       // apply the pattern match in each partition
       ArrayList<CEPPattern> cepPattern =
@@ -218,16 +232,70 @@ public class BeamMatchRel extends Match implements BeamRelNode {
       // for now, support FINAL only
       // TODO: add support for FINAL/RUNNING
       List<CEPFieldRef> cepParKeys = CEPUtils.getCEPFieldRefFromParKeys(parKeys);
+      MatchOutput matchOutput =
+          new MatchOutput(upstreamSchema, cepParKeys, cepMeasures, allRows, outSchema);
+
+      if (upstream.isBounded() == PCollection.IsBounded.UNBOUNDED) {
+        return keyedUpstream
+            .apply(
+                ParDo.of(
+                    streamingMatchPattern(
+                        upstream, upstreamSchema, cepPattern, orderKeyList, matchOutput)))
+            .setRowSchema(outSchema);
+      }
+
+      // group by keys
+      PCollection<KV<Row, Iterable<Row>>> groupedUpstream =
+          keyedUpstream.apply(GroupByKey.create());
+
+      // sort within each keyed partition
+      // This will rely on an assumption that Fusion will fuse
+      // operators here so the sorted result will be preserved
+      // for the next match transform.
+      // In most of the runners (if not all) this should be true.
+      PCollection<KV<Row, Iterable<Row>>> orderedUpstream =
+          groupedUpstream.apply(ParDo.of(new SortPerKey(orderKeyList)));
+
       PCollection<Row> outStream =
           orderedUpstream
-              .apply(
-                  ParDo.of(
-                      new MatchPattern(
-                          upstreamSchema, cepParKeys, cepPattern, cepMeasures, allRows, outSchema)))
+              .apply(ParDo.of(new MatchPattern(upstreamSchema, cepPattern, matchOutput)))
               .setRowSchema(outSchema);
 
       return outStream;
     }
+
+    private StreamingMatchPattern streamingMatchPattern(
+        PCollection<Row> upstream,
+        Schema upstreamSchema,
+        ArrayList<CEPPattern> cepPattern,
+        ArrayList<OrderKey> orderKeyList,
+        MatchOutput matchOutput) {
+      if (orderKeyList.isEmpty()
+          || upstreamSchema.getField(orderKeyList.get(0).getIndex()).getType().getTypeName()
+              != Schema.TypeName.DATETIME
+          || !orderKeyList.get(0).getDir()) {
+        throw new UnsupportedOperationException(
+            "MATCH_RECOGNIZE over an unbounded input must be ordered by an ascending event time"
+                + " column first.");
+      }
+      Duration within = null;
+      if (interval != null) {
+        if (!(interval instanceof RexLiteral)
+            || !SqlTypeName.DAY_INTERVAL_TYPES.contains(interval.getType().getSqlTypeName())) {
+          throw new UnsupportedOperationException(
+              "WITHIN must be a constant day-time interval: " + interval);
+        }
+        within = Duration.millis(((RexLiteral) interval).getValueAs(Long.class));
+      }
+      BeamSqlPipelineOptions options =
+          upstream.getPipeline().getOptions().as(BeamSqlPipelineOptions.class);
+      if (options.getMatchRecognizeUseOrderedListState()) {
+        return new OrderedListMatchPattern(
+            upstreamSchema, cepPattern, orderKeyList, within, matchOutput);
+      } else {
+        return new BagMatchPattern(upstreamSchema, cepPattern, orderKeyList, within, matchOutput);
+      }
+    }
   }
 
   // TODO: support both ALL ROWS PER MATCH and ONE ROW PER MATCH.
@@ -235,25 +303,13 @@ public class BeamMatchRel extends Match implements BeamRelNode {
   private static class MatchPattern extends DoFn<KV<Row, Iterable<Row>>, Row> {
 
     private final Schema upstreamSchema;
-    private final Schema outSchema;
-    private final List<CEPFieldRef> parKeys;
     private final ArrayList<CEPPattern> pattern;
-    private final List<CEPMeasure> measures;
-    private final boolean allRows;
+    private final MatchOutput matchOutput;
 
-    MatchPattern(
-        Schema upstreamSchema,
-        List<CEPFieldRef> parKeys,
-        ArrayList<CEPPattern> pattern,
-        List<CEPMeasure> measures,
-        boolean allRows,
-        Schema outSchema) {
+    MatchPattern(Schema upstreamSchema, ArrayList<CEPPattern> pattern, MatchOutput matchOutput) {
       this.upstreamSchema = upstreamSchema;
-      this.parKeys = parKeys;
       this.pattern = pattern;
-      this.measures = measures;
-      this.allRows = allRows;
-      this.outSchema = outSchema;
+      this.matchOutput = matchOutput;
     }
 
     @ProcessElement
@@ -269,109 +325,134 @@ public class BeamMatchRel extends Match implements BeamRelNode {
           // if there isn't match
           continue;
         }
+        matchOutput.output(keyRows.getKey(), result, out);
+      }
+    }
+  }
 
-        if (allRows) {
-          for (ArrayList<Row> i : result.values()) {
-            for (Row j : i) {
-              out.output(j);
-            }
+  /** Builds the output rows of a match as specified by the measures clause. */
+  private static class MatchOutput implements Serializable {
+
+    private final Schema upstreamSchema;
+    private final Schema outSchema;
+    private final List<CEPFieldRef> parKeys;
+    private final List<CEPMeasure> measures;
+    private final boolean allRows;
+
+    MatchOutput(
+        Schema upstreamSchema,
+        List<CEPFieldRef> parKeys,
+        List<CEPMeasure> measures,
+        boolean allRows,
+        Schema outSchema) {
+      this.upstreamSchema = upstreamSchema;
+      this.parKeys = parKeys;
+      this.measures = measures;
+      this.allRows = allRows;
+      this.outSchema = outSchema;
+    }
+
+    void output(
+        Row partitionKey, Map<String, ArrayList<Row>> result, DoFn.OutputReceiver<Row> out) {
+      if (allRows) {
+        for (ArrayList<Row> i : result.values()) {
+          for (Row j : i) {
+            out.output(j);
           }
-        } else {
+        }
+      } else {
 
-          // output corresponding columns according to the measures schema
-          Row.Builder newRowBuilder = Row.withSchema(outSchema);
-          Row.FieldValueBuilder newFieldBuilder = null;
-
-          // add partition key columns
-          for (CEPFieldRef i : parKeys) {
-            int colIndex = i.getIndex();
-            Schema.Field parSchema = upstreamSchema.getField(colIndex);
-            String fieldName = parSchema.getName();
-            if (!result.isEmpty()) {
-              Row parKeyRow = keyRows.getKey();
-              if (newFieldBuilder == null) {
-                newFieldBuilder =
-                    newRowBuilder.withFieldValue(fieldName, parKeyRow.getValue(fieldName));
-              } else {
-                newFieldBuilder =
-                    newFieldBuilder.withFieldValue(fieldName, parKeyRow.getValue(fieldName));
-              }
+        // output corresponding columns according to the measures schema
+        Row.Builder newRowBuilder = Row.withSchema(outSchema);
+        Row.FieldValueBuilder newFieldBuilder = null;
+
+        // add partition key columns
+        for (CEPFieldRef i : parKeys) {
+          int colIndex = i.getIndex();
+          Schema.Field parSchema = upstreamSchema.getField(colIndex);
+          String fieldName = parSchema.getName();
+          if (!result.isEmpty()) {
+            Row parKeyRow = partitionKey;
+            if (newFieldBuilder == null) {
+              newFieldBuilder =
+                  newRowBuilder.withFieldValue(fieldName, parKeyRow.getValue(fieldName));
             } else {
-              break;
+              newFieldBuilder =
+                  newFieldBuilder.withFieldValue(fieldName, parKeyRow.getValue(fieldName));
             }
+          } else {
+            break;
           }
+        }
 
-          // add measure columns
-          for (CEPMeasure i : measures) {
-            String outName = i.getName();
-            CEPFieldRef patternRef = i.getField();
-            String patternVar = patternRef.getAlpha();
-            List<Row> patternRows = result.get(patternVar);
-
-            // implement CEPOperation as functions
-            CEPOperation opr = i.getOperation();
-            if (opr.getClass() == CEPCall.class) {
-              CEPCall call = (CEPCall) opr;
-              CEPKind funcName = call.getOperator().getCepKind();
-              switch (funcName) {
-                case FIRST:
-                  CEPFieldRef colFirstField = (CEPFieldRef) call.getOperands().get(0);
-                  CEPLiteral colFirstIndex = (CEPLiteral) call.getOperands().get(1);
-                  Row rowFirstToProc = patternRows.get(colFirstIndex.getDecimal().intValue());
-                  if (newFieldBuilder == null) {
-                    newFieldBuilder =
-                        newRowBuilder.withFieldValue(
-                            outName, rowFirstToProc.getValue(colFirstField.getIndex()));
-                  } else {
-                    newFieldBuilder =
-                        newFieldBuilder.withFieldValue(
-                            outName, rowFirstToProc.getValue(colFirstField.getIndex()));
-                  }
-                  break;
-                case LAST:
-                  CEPFieldRef colLastField = (CEPFieldRef) call.getOperands().get(0);
-                  CEPLiteral colLastIndex = (CEPLiteral) call.getOperands().get(1);
-                  Row rowLastToProc =
-                      patternRows.get(
-                          patternRows.size() - 1 - colLastIndex.getDecimal().intValue());
-                  if (newFieldBuilder == null) {
-                    newFieldBuilder =
-                        newRowBuilder.withFieldValue(
-                            outName, rowLastToProc.getValue(colLastField.getIndex()));
-                  } else {
-                    newFieldBuilder =
-                        newFieldBuilder.withFieldValue(
-                            outName, rowLastToProc.getValue(colLastField.getIndex()));
-                  }
-                  break;
-                default:
-                  throw new UnsupportedOperationException(
-                      "The measure function is not recognized: " + funcName.name());
-              }
-            } else if (opr.getClass() == CEPFieldRef.class) {
-              Row rowToProc = patternRows.get(0);
-              CEPFieldRef fieldRef = (CEPFieldRef) opr;
-              if (newFieldBuilder == null) {
-                newFieldBuilder =
-                    newRowBuilder.withFieldValue(outName, rowToProc.getValue(fieldRef.getIndex()));
-              } else {
-                newFieldBuilder =
-                    newFieldBuilder.withFieldValue(
-                        outName, rowToProc.getValue(fieldRef.getIndex()));
-              }
+        // add measure columns
+        for (CEPMeasure i : measures) {
+          String outName = i.getName();
+          CEPFieldRef patternRef = i.getField();
+          String patternVar = patternRef.getAlpha();
+          List<Row> patternRows = result.get(patternVar);
+
+          // implement CEPOperation as functions
+          CEPOperation opr = i.getOperation();
+          if (opr.getClass() == CEPCall.class) {
+            CEPCall call = (CEPCall) opr;
+            CEPKind funcName = call.getOperator().getCepKind();
+            switch (funcName) {
+              case FIRST:
+                CEPFieldRef colFirstField = (CEPFieldRef) call.getOperands().get(0);
+                CEPLiteral colFirstIndex = (CEPLiteral) call.getOperands().get(1);
+                Row rowFirstToProc = patternRows.get(colFirstIndex.getDecimal().intValue());
+                if (newFieldBuilder == null) {
+                  newFieldBuilder =
+                      newRowBuilder.withFieldValue(
+                          outName, rowFirstToProc.getValue(colFirstField.getIndex()));
+                } else {
+                  newFieldBuilder =
+                      newFieldBuilder.withFieldValue(
+                          outName, rowFirstToProc.getValue(colFirstField.getIndex()));
+                }
+                break;
+              case LAST:
+                CEPFieldRef colLastField = (CEPFieldRef) call.getOperands().get(0);
+                CEPLiteral colLastIndex = (CEPLiteral) call.getOperands().get(1);
+                Row rowLastToProc =
+                    patternRows.get(patternRows.size() - 1 - colLastIndex.getDecimal().intValue());
+                if (newFieldBuilder == null) {
+                  newFieldBuilder =
+                      newRowBuilder.withFieldValue(
+                          outName, rowLastToProc.getValue(colLastField.getIndex()));
+                } else {
+                  newFieldBuilder =
+                      newFieldBuilder.withFieldValue(
+                          outName, rowLastToProc.getValue(colLastField.getIndex()));
+                }
+                break;
+              default:
+                throw new UnsupportedOperationException(
+                    "The measure function is not recognized: " + funcName.name());
+            }
+          } else if (opr.getClass() == CEPFieldRef.class) {
+            Row rowToProc = patternRows.get(0);
+            CEPFieldRef fieldRef = (CEPFieldRef) opr;
+            if (newFieldBuilder == null) {
+              newFieldBuilder =
+                  newRowBuilder.withFieldValue(outName, rowToProc.getValue(fieldRef.getIndex()));
             } else {
-              throw new UnsupportedOperationException(
-                  "CEP operation is not recognized: " + opr.getClass().getName());
+              newFieldBuilder =
+                  newFieldBuilder.withFieldValue(outName, rowToProc.getValue(fieldRef.getIndex()));
             }
-          }
-          Row newRow;
-          if (newFieldBuilder == null) {
-            newRow = newRowBuilder.build();
           } else {
-            newRow = newFieldBuilder.build();
+            throw new UnsupportedOperationException(
+                "CEP operation is not recognized: " + opr.getClass().getName());
           }
-          out.output(newRow);
         }
+        Row newRow;
+        if (newFieldBuilder == null) {
+          newRow = newRowBuilder.build();
+        } else {
+          newRow = newFieldBuilder.build();
+        }
+        out.output(newRow);
       }
     }
   }
@@ -392,21 +473,512 @@ public class BeamMatchRel extends Match implements BeamRelNode {
         rows.add(i);
       }
 
-      ArrayList<Integer> fIndexList = new ArrayList<>();
-      ArrayList<Boolean> dirList = new ArrayList<>();
-      ArrayList<Boolean> nullDirList = new ArrayList<>();
+      rows.sort(rowComparator(orderKeys));
+
+      out.output(KV.of(keyRows.getKey(), rows));
+    }
+  }
+
+  private static BeamSortRel.BeamSqlRowComparator rowComparator(ArrayList<OrderKey> orderKeys) {
+    ArrayList<Integer> fIndexList = new ArrayList<>();
+    ArrayList<Boolean> dirList = new ArrayList<>();
+    ArrayList<Boolean> nullDirList = new ArrayList<>();
+
+    // reversely traverse the order key list
+    for (int i = (orderKeys.size() - 1); i >= 0; --i) {
+      OrderKey thisKey = orderKeys.get(i);
+      fIndexList.add(thisKey.getIndex());
+      dirList.add(thisKey.getDir());
+      nullDirList.add(thisKey.getNullFirst());
+    }
 
-      // reversely traverse the order key list
-      for (int i = (orderKeys.size() - 1); i >= 0; --i) {
-        OrderKey thisKey = orderKeys.get(i);
-        fIndexList.add(thisKey.getIndex());
-        dirList.add(thisKey.getDir());
-        nullDirList.add(thisKey.getNullFirst());
+    return new BeamSortRel.BeamSqlRowComparator(fIndexList, dirList, nullDirList);
+  }
+
+  /**
+   * Matches the pattern over an unbounded partition.
+   *
+   * <p>Rows are buffered in state until the watermark passes their timestamp, and the rows released
+   * together are then fed to the {@link NFA} of their partition in {@code ORDER BY} order. Timers
+   * are driven by the timestamps of the elements rather than by the event time column, so that they
+   * never fire behind the timestamp of the row which set them. The partial matches are kept in
+   * state between firings as rows, so a partition is never materialized as a whole. If the pattern
+   * has a {@code WITHIN} interval, the partial matches whose first row is older than the interval
+   * by the event time column are dropped, and the state of an idle partition is cleared once the
+   * watermark passed the interval of all of them. Rows arriving after the watermark passed their
+   * timestamp are dropped.
+   */
+  private abstract static class StreamingMatchPattern extends DoFn<KV<Row, Row>, Row> {
+
+    // state and timers may only be referenced in the class declaring them, so the subclasses
+    // declare them and call into bufferRow and flush
+
+    static final String NFA_STATE = "nfa";
+    static final String BUFFER_STATE = "buffer";
+    static final String EARLIEST_STATE = "earliest";
+    static final String PROCESSED_UNTIL_STATE = "processedUntil";
+    static final String FLUSH_AT_STATE = "flushAt";
+    static final String FLUSH_TIMER = "flush";
+    static final String EXPIRY_TIMER = "expiry";
+
+    private final Counter droppedLateRows =
+        Metrics.counter(BeamMatchRel.class, "matchRecognizeDroppedLateRows");
+
+    private final Schema upstreamSchema;
+    private final ArrayList<CEPPattern> pattern;
+    private final ArrayList<OrderKey> orderKeys;
+    private final int timestampIndex;
+    private final @Nullable Duration within;
+    private final MatchOutput matchOutput;
+
+    StreamingMatchPattern(
+        Schema upstreamSchema,
+        ArrayList<CEPPattern> pattern,
+        ArrayList<OrderKey> orderKeys,
+        @Nullable Duration within,
+        MatchOutput matchOutput) {
+      this.upstreamSchema = upstreamSchema;
+      this.pattern = pattern;
+      this.orderKeys = orderKeys;
+      this.timestampIndex = orderKeys.get(0).getIndex();
+      this.within = within;
+      this.matchOutput = matchOutput;
+    }
+
+    /**
+     * Buffers the rows of a partition which are not yet matched, by timestamp. The earliest
+     * timestamp in the buffer is kept in a separate {@link ValueState}, so that it is known without
+     * reading the buffer.
+     */
+    abstract static class RowBuffer {
+      private final ValueState<Instant> earliest;
+
+      RowBuffer(ValueState<Instant> earliest) {
+        this.earliest = earliest;
       }
 
-      rows.sort(new BeamSortRel.BeamSqlRowComparator(fIndexList, dirList, nullDirList));
+      void add(Instant timestamp, Row row) {
+        addToBuffer(timestamp, row);
+        Instant current = earliest.read();
+        if (current == null || timestamp.isBefore(current)) {
+          earliest.write(timestamp);
+        }
+      }
 
-      out.output(KV.of(keyRows.getKey(), rows));
+      /** Removes and returns the rows with a timestamp no later than {@code limit}. */
+      List<Row> removeUntil(Instant limit) {
+        List<Row> rows = new ArrayList<>();
+        Instant current = earliest.read();
+        if (current == null || current.isAfter(limit)) {
+          return rows;
+        }
+        Instant next = removeFromBuffer(limit, rows);
+        if (next == null) {
+          earliest.clear();
+        } else {
+          earliest.write(next);
+        }
+        return rows;
+      }
+
+      /** Returns the earliest timestamp in the buffer, or null if it is empty. */
+      @Nullable
+      Instant earliest() {
+        return earliest.read();
+      }
+
+      abstract void addToBuffer(Instant timestamp, Row row);
+
+      /**
+       * Moves the rows with a timestamp no later than {@code limit} to {@code rows}, and returns
+       * the earliest timestamp left in the buffer, or null if it is empty.
+       */
+      abstract @Nullable Instant removeFromBuffer(Instant limit, List<Row> rows);
+    }
+
+    private @Nullable Instant timestampOf(Row row) {
+      return row.getValue(timestampIndex) == null
+          ? null
+          : row.getDateTime(timestampIndex).toInstant();
+    }
+
+    void bufferRow(
+        Row row,
+        Instant timestamp,
+        BoundedWindow window,
+        RowBuffer buffer,
+        ValueState<Instant> processedUntil,
+        ValueState<Instant> flushAt,
+        Timer flushTimer,
+        Timer expiryTimer) {
+      Instant processed = processedUntil.read();
+      if (processed != null && !timestamp.isAfter(processed)) {
+        droppedLateRows.inc();
+        return;
+      }
+      buffer.add(timestamp, row);
+
+      Instant fireAt =
+          timestamp.isBefore(window.maxTimestamp()) ? timestamp : window.maxTimestamp();
+      Instant scheduled = flushAt.read();
+      if (processed == null && scheduled == null) {
+        // the flush timer is set again by every firing, which may be ordered after the garbage
+        // collection of the window once the watermark passed its end, so the remaining rows are
+        // also flushed by a timer set in advance for the end of the window
+        expiryTimer.set(window.maxTimestamp());
+      }
+      if (scheduled == null || fireAt.isBefore(scheduled)) {
+        flushTimer.set(fireAt);
+        flushAt.write(fireAt);
+      }
+    }
+
+    void flush(
+        Row partitionKey,
+        Instant fireTimestamp,
+        BoundedWindow window,
+        RowBuffer buffer,
+        ValueState<Row> nfaState,
+        ValueState<Instant> processedUntil,
+        ValueState<Instant> flushAt,
+        Timer flushTimer,
+        OutputReceiver<Row> out) {
+      // no more rows arrive once the window expired
+      boolean windowExpired = !fireTimestamp.isBefore(window.maxTimestamp());
+      List<Row> rows =
+          buffer.removeUntil(windowExpired ? BoundedWindow.TIMESTAMP_MAX_VALUE : fireTimestamp);
+      // the rows released together are matched in the order of the ORDER BY keys
+      rows.sort(rowComparator(orderKeys));
+
+      Row nfaRow = nfaState.read();
+      NFA nfa =
+          nfaRow == null
+              ? NFA.compile(pattern, upstreamSchema)
+              : NFA.fromRow(pattern, upstreamSchema, nfaRow);
+      for (Row row : rows) {
+        Instant timestamp = timestampOf(row);
+        if (timestamp != null) {
+          pruneExpiredRuns(nfa, timestamp);
+        }
+        Map<String, ArrayList<Row>> result = nfa.processNewRow(row);
+        if (result != null) {
+          matchOutput.output(partitionKey, result, out);
+        }
+      }
+      // the watermark passed the timer, so later rows up to it are late
+      processedUntil.write(fireTimestamp);
+
+      if (windowExpired) {
+        nfaState.clear();
+        flushAt.clear();
+        return;
+      }
+      if (rows.isEmpty()) {
+        // an idle partition drops its partial matches once the watermark passed their interval
+        pruneExpiredRuns(nfa, fireTimestamp.plus(Duration.millis(1)));
+      }
+
+      Instant next = buffer.earliest();
+      if (next == null && within != null && nfa.hasActiveRuns()) {
+        // wake up once the partial matches expired to clear the state
+        next = fireTimestamp.plus(within).plus(Duration.millis(1));
+      }
+      if (next == null) {
+        flushAt.clear();
+      } else {
+        next = next.isBefore(window.maxTimestamp()) ? next : window.maxTimestamp();
+        flushTimer.set(next);
+        flushAt.write(next);
+      }
+      if (nfa.hasActiveRuns()) {
+        nfaState.write(nfa.toRow());
+      } else {
+        nfaState.clear();
+      }
+    }
+
+    private void pruneExpiredRuns(NFA nfa, Instant timestamp) {
+      if (within != null) {
+        Instant expiry = timestamp.minus(within);
+        nfa.pruneRuns(
+            startRow -> timestampOf(startRow) != null && timestampOf(startRow).isBefore(expiry));
+      }
+    }
+  }
+
+  /** A {@link StreamingMatchPattern} which keeps the buffered rows sorted in state. */
+  private static class OrderedListMatchPattern extends StreamingMatchPattern {
+
+    @StateId(BUFFER_STATE)
+    private final StateSpec<OrderedListState<Row>> bufferSpec;
+
+    @StateId(NFA_STATE)
+    private final StateSpec<ValueState<Row>> nfaSpec;
+
+    @StateId(EARLIEST_STATE)
+    private final StateSpec<ValueState<Instant>> earliestSpec = StateSpecs.value(InstantCoder.of());
+
+    @StateId(PROCESSED_UNTIL_STATE)
+    private final StateSpec<ValueState<Instant>> processedUntilSpec =
+        StateSpecs.value(InstantCoder.of());
+
+    @StateId(FLUSH_AT_STATE)
+    private final StateSpec<ValueState<Instant>> flushAtSpec = StateSpecs.value(InstantCoder.of());
+
+    @TimerId(FLUSH_TIMER)
+    private final TimerSpec flushTimerSpec = TimerSpecs.timer(TimeDomain.EVENT_TIME);
+
+    @TimerId(EXPIRY_TIMER)
+    private final TimerSpec expiryTimerSpec = TimerSpecs.timer(TimeDomain.EVENT_TIME);
+
+    OrderedListMatchPattern(
+        Schema upstreamSchema,
+        ArrayList<CEPPattern> pattern,
+        ArrayList<OrderKey> orderKeys,
+        @Nullable Duration within,
+        MatchOutput matchOutput) {
+      super(upstreamSchema, pattern, orderKeys, within, matchOutput);
+      this.bufferSpec = StateSpecs.rowOrderedList(upstreamSchema);
+      this.nfaSpec = StateSpecs.value(RowCoder.of(NFA.stateSchema(upstreamSchema)));
+    }
+
+    @ProcessElement
+    public void processElement(
+        @Element KV<Row, Row> keyRow,
+        @Timestamp Instant timestamp,
+        BoundedWindow window,
+        @StateId(BUFFER_STATE) OrderedListState<Row> buffer,
+        @StateId(EARLIEST_STATE) ValueState<Instant> earliest,
+        @StateId(PROCESSED_UNTIL_STATE) ValueState<Instant> processedUntil,
+        @StateId(FLUSH_AT_STATE) ValueState<Instant> flushAt,
+        @TimerId(FLUSH_TIMER) Timer flushTimer,
+        @TimerId(EXPIRY_TIMER) Timer expiryTimer) {
+      bufferRow(
+          keyRow.getValue(),
+          timestamp,
+          window,
+          rowBuffer(buffer, earliest),
+          processedUntil,
+          flushAt,
+          flushTimer,
+          expiryTimer);
+    }
+
+    @OnTimer(FLUSH_TIMER)
+    public void onFlush(
+        OnTimerContext context,
+        @Key Row partitionKey,
+        BoundedWindow window,
+        @StateId(BUFFER_STATE) OrderedListState<Row> buffer,
+        @StateId(EARLIEST_STATE) ValueState<Instant> earliest,
+        @StateId(NFA_STATE) ValueState<Row> nfaState,
+        @StateId(PROCESSED_UNTIL_STATE) ValueState<Instant> processedUntil,
+        @StateId(FLUSH_AT_STATE) ValueState<Instant> flushAt,
+        @TimerId(FLUSH_TIMER) Timer flushTimer,
+        OutputReceiver<Row> out) {
+      flush(
+          partitionKey,
+          context.fireTimestamp(),
+          window,
+          rowBuffer(buffer, earliest),
+          nfaState,
+          processedUntil,
+          flushAt,
+          flushTimer,
+          out);
+    }
+
+    @OnTimer(EXPIRY_TIMER)
+    public void onExpiry(
+        OnTimerContext context,
+        @Key Row partitionKey,
+        BoundedWindow window,
+        @StateId(BUFFER_STATE) OrderedListState<Row> buffer,
+        @StateId(EARLIEST_STATE) ValueState<Instant> earliest,
+        @StateId(NFA_STATE) ValueState<Row> nfaState,
+        @StateId(PROCESSED_UNTIL_STATE) ValueState<Instant> processedUntil,
+        @StateId(FLUSH_AT_STATE) ValueState<Instant> flushAt,
+        @TimerId(FLUSH_TIMER) Timer flushTimer,
+        OutputReceiver<Row> out) {
+      onFlush(
+          context,
+          partitionKey,
+          window,
+          buffer,
+          earliest,
+          nfaState,
+          processedUntil,
+          flushAt,
+          flushTimer,
+          out);
+    }
+
+    private static RowBuffer rowBuffer(OrderedListState<Row> buffer, ValueState<Instant> earliest) {
+      return new RowBuffer(earliest) {
+        @Override
+        void addToBuffer(Instant timestamp, Row row) {
+          buffer.add(TimestampedValue.of(row, timestamp));
+        }
+
+        @Override
+        @Nullable
+        Instant removeFromBuffer(Instant limit, List<Row> rows) {
+          // the buffer is read in order up to the first row which is left in it
+          Instant next = null;
+          for (TimestampedValue<Row> row : buffer.read()) {
+            if (row.getTimestamp().isAfter(limit)) {
+              next = row.getTimestamp();
+              break;
+            }
+            rows.add(row.getValue());
+          }
+          Instant end =
+              next == null ? BoundedWindow.TIMESTAMP_MAX_VALUE.plus(Duration.millis(1)) : next;
+          buffer.clearRange(BoundedWindow.TIMESTAMP_MIN_VALUE, end);
+          return next;
+        }
+      };
+    }
+  }
+
+  /**
+   * A {@link StreamingMatchPattern} for runners without {@link OrderedListState}, which sorts the
+   * buffered rows when they are matched.
+   */
+  private static class BagMatchPattern extends StreamingMatchPattern {
+
+    @StateId(BUFFER_STATE)
+    private final StateSpec<BagState<TimestampedValue<Row>>> bufferSpec;
+
+    @StateId(NFA_STATE)
+    private final StateSpec<ValueState<Row>> nfaSpec;
+
+    @StateId(EARLIEST_STATE)
+    private final StateSpec<ValueState<Instant>> earliestSpec = StateSpecs.value(InstantCoder.of());
+
+    @StateId(PROCESSED_UNTIL_STATE)
+    private final StateSpec<ValueState<Instant>> processedUntilSpec =
+        StateSpecs.value(InstantCoder.of());
+
+    @StateId(FLUSH_AT_STATE)
+    private final StateSpec<ValueState<Instant>> flushAtSpec = StateSpecs.value(InstantCoder.of());
+
+    @TimerId(FLUSH_TIMER)
+    private final TimerSpec flushTimerSpec = TimerSpecs.timer(TimeDomain.EVENT_TIME);
+
+    @TimerId(EXPIRY_TIMER)
+    private final TimerSpec expiryTimerSpec = TimerSpecs.timer(TimeDomain.EVENT_TIME);
+
+    BagMatchPattern(
+        Schema upstreamSchema,
+        ArrayList<CEPPattern> pattern,
+        ArrayList<OrderKey> orderKeys,
+        @Nullable Duration within,
+        MatchOutput matchOutput) {
+      super(upstreamSchema, pattern, orderKeys, within, matchOutput);
+      this.bufferSpec = StateSpecs.bag(TimestampedValueCoder.of(RowCoder.of(upstreamSchema)));
+      this.nfaSpec = StateSpecs.value(RowCoder.of(NFA.stateSchema(upstreamSchema)));
+    }
+
+    @ProcessElement
+    public void processElement(
+        @Element KV<Row, Row> keyRow,
+        @Timestamp Instant timestamp,
+        BoundedWindow window,
+        @StateId(BUFFER_STATE) BagState<TimestampedValue<Row>> buffer,
+        @StateId(EARLIEST_STATE) ValueState<Instant> earliest,
+        @StateId(PROCESSED_UNTIL_STATE) ValueState<Instant> processedUntil,
+        @StateId(FLUSH_AT_STATE) ValueState<Instant> flushAt,
+        @TimerId(FLUSH_TIMER) Timer flushTimer,
+        @TimerId(EXPIRY_TIMER) Timer expiryTimer) {
+      bufferRow(
+          keyRow.getValue(),
+          timestamp,
+          window,
+          rowBuffer(buffer, earliest),
+          processedUntil,
+          flushAt,
+          flushTimer,
+          expiryTimer);
+    }
+
+    @OnTimer(FLUSH_TIMER)
+    public void onFlush(
+        OnTimerContext context,
+        @Key Row partitionKey,
+        BoundedWindow window,
+        @StateId(BUFFER_STATE) BagState<TimestampedValue<Row>> buffer,
+        @StateId(EARLIEST_STATE) ValueState<Instant> earliest,
+        @StateId(NFA_STATE) ValueState<Row> nfaState,
+        @StateId(PROCESSED_UNTIL_STATE) ValueState<Instant> processedUntil,
+        @StateId(FLUSH_AT_STATE) ValueState<Instant> flushAt,
+        @TimerId(FLUSH_TIMER) Timer flushTimer,
+        OutputReceiver<Row> out) {
+      flush(
+          partitionKey,
+          context.fireTimestamp(),
+          window,
+          rowBuffer(buffer, earliest),
+          nfaState,
+          processedUntil,
+          flushAt,
+          flushTimer,
+          out);
+    }
+
+    @OnTimer(EXPIRY_TIMER)
+    public void onExpiry(
+        OnTimerContext context,
+        @Key Row partitionKey,
+        BoundedWindow window,
+        @StateId(BUFFER_STATE) BagState<TimestampedValue<Row>> buffer,
+        @StateId(EARLIEST_STATE) ValueState<Instant> earliest,
+        @StateId(NFA_STATE) ValueState<Row> nfaState,
+        @StateId(PROCESSED_UNTIL_STATE) ValueState<Instant> processedUntil,
+        @StateId(FLUSH_AT_STATE) ValueState<Instant> flushAt,
+        @TimerId(FLUSH_TIMER) Timer flushTimer,
+        OutputReceiver<Row> out) {
+      onFlush(
+          context,
+          partitionKey,
+          window,
+          buffer,
+          earliest,
+          nfaState,
+          processedUntil,
+          flushAt,
+          flushTimer,
+          out);
+    }
+
+    private static RowBuffer rowBuffer(
+        BagState<TimestampedValue<Row>> buffer, ValueState<Instant> earliest) {
+      return new RowBuffer(earliest) {
+        @Override
+        void addToBuffer(Instant timestamp, Row row) {
+          buffer.add(TimestampedValue.of(row, timestamp));
+        }
+
+        @Override
+        @Nullable
+        Instant removeFromBuffer(Instant limit, List<Row> rows) {
+          Instant next = null;
+          List<TimestampedValue<Row>> remaining = new ArrayList<>();
+          for (TimestampedValue<Row> row : buffer.read()) {
+            if (row.getTimestamp().isAfter(limit)) {
+              remaining.add(row);
+              if (next == null || row.getTimestamp().isBefore(next)) {
+                next = row.getTimestamp();
+              }
+            } else {
+              rows.add(row.getValue());
+            }
+          }
+          buffer.clear();
+          remaining.forEach(buffer::add);
+          return next;
+        }
+      };
     }
   }
 
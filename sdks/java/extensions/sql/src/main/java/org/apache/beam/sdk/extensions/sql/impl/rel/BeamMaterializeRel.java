@@ -0,0 +1,190 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.sdk.extensions.sql.impl.rel;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.apache.beam.vendor.calcite.v1_20_0.com.google.common.base.Preconditions.checkArgument;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.util.List;
+import java.util.UUID;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.beam.sdk.coders.AvroCoder;
+import org.apache.beam.sdk.extensions.sql.impl.planner.BeamCostModel;
+import org.apache.beam.sdk.extensions.sql.impl.planner.NodeStats;
+import org.apache.beam.sdk.io.AvroIO;
+import org.apache.beam.sdk.io.FileIO;
+import org.apache.beam.sdk.io.FileSystems;
+import org.apache.beam.sdk.io.fs.ResolveOptions.StandardResolveOptions;
+import org.apache.beam.sdk.io.fs.ResourceId;
+import org.apache.beam.sdk.schemas.Schema;
+import org.apache.beam.sdk.schemas.utils.AvroUtils;
+import org.apache.beam.sdk.transforms.Create;
+import org.apache.beam.sdk.transforms.DoFn;
+import org.apache.beam.sdk.transforms.MapElements;
+import org.apache.beam.sdk.transforms.PTransform;
+import org.apache.beam.sdk.transforms.ParDo;
+import org.apache.beam.sdk.transforms.SimpleFunction;
+import org.apache.beam.sdk.transforms.Values;
+import org.apache.beam.sdk.transforms.View;
+import org.apache.beam.sdk.util.MimeTypes;
+import org.apache.beam.sdk.values.PCollection;
+import org.apache.beam.sdk.values.PCollectionList;
+import org.apache.beam.sdk.values.PCollectionView;
+import org.apache.beam.sdk.values.Row;
+import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.plan.RelOptCluster;
+import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.plan.RelOptPlanner;
+import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.plan.RelTraitSet;
+import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.rel.RelNode;
+import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.rel.RelWriter;
+import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.rel.SingleRel;
+import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.rel.metadata.RelMetadataQuery;
+
+/**
+ * {@code BeamRelNode} which passes on the rows of its input and also writes them to a {@link
+ * MaterializationCache}.
+ */
+@SuppressWarnings({
+  "nullness" // TODO(https://issues.apache.org/jira/browse/BEAM-10402)
+})
+public class BeamMaterializeRel extends SingleRel implements BeamRelNode {
+  private final String directory;
+
+  public BeamMaterializeRel(
+      RelOptCluster cluster, RelTraitSet traits, RelNode input, String directory) {
+    super(cluster, traits, input);
+    this.directory = directory;
+  }
+
+  @Override
+  public RelNode copy(RelTraitSet traitSet, List<RelNode> inputs) {
+    return new BeamMaterializeRel(getCluster(), traitSet, sole(inputs), directory);
+  }
+
+  @Override
+  public RelWriter explainTerms(RelWriter pw) {
+    return super.explainTerms(pw).item("location", directory);
+  }
+
+  @Override
+  public PTransform<PCollectionList<Row>, PCollection<Row>> buildPTransform() {
+    return new Transform();
+  }
+
+  private class Transform extends PTransform<PCollectionList<Row>, PCollection<Row>> {
+
+    @Override
+    public PCollection<Row> expand(PCollectionList<Row> pinput) {
+      checkArgument(
+          pinput.size() == 1,
+          "Wrong number of inputs for %s: %s",
+          BeamMaterializeRel.class.getSimpleName(),
+          pinput);
+      PCollection<Row> rows = pinput.get(0);
+
+      Schema storageSchema = storageSchema(rows.getSchema());
+      org.apache.avro.Schema avroSchema = AvroUtils.toAvroSchema(storageSchema);
+      // Each run writes files with a new prefix, so that files of earlier runs which failed
+      // before writing the _SUCCESS file are neither read nor overwritten.
+      PCollectionView<List<String>> files =
+          rows.apply("ToAvro", MapElements.via(new ToStorageRecord(storageSchema)))
+              .setCoder(AvroCoder.of(GenericRecord.class, avroSchema))
+              .apply(
+                  "WriteAvro",
+                  FileIO.<GenericRecord>write()
+                      .via(AvroIO.sink(avroSchema))
+                      .to(directory)
+                      .withPrefix("part-" + UUID.randomUUID())
+                      .withSuffix(".avro"))
+              .getPerDestinationOutputFilenames()
+              .apply(Values.create())
+              .apply(View.asList());
+      rows.getPipeline()
+          .apply("Directory", Create.of(directory))
+          .apply("WriteSuccessFile", ParDo.of(new WriteSuccessFile(files)).withSideInputs(files));
+      return rows;
+    }
+  }
+
+  /**
+   * Returns the schema results are stored with. Its fields are named by position, as field names
+   * generated by Calcite, like {@code EXPR$0}, are not valid Avro names.
+   */
+  static Schema storageSchema(Schema schema) {
+    Schema.Builder builder = Schema.builder();
+    for (int i = 0; i < schema.getFieldCount(); i++) {
+      builder.addField("f" + i, schema.getField(i).getType());
+    }
+    return builder.build();
+  }
+
+  private static class ToStorageRecord extends SimpleFunction<Row, GenericRecord> {
+    private final Schema storageSchema;
+    private transient org.apache.avro.Schema avroSchema;
+
+    ToStorageRecord(Schema storageSchema) {
+      this.storageSchema = storageSchema;
+    }
+
+    @Override
+    public GenericRecord apply(Row row) {
+      if (avroSchema == null) {
+        avroSchema = AvroUtils.toAvroSchema(storageSchema);
+      }
+      return AvroUtils.toGenericRecord(
+          Row.withSchema(storageSchema).attachValues(row.getValues()), avroSchema);
+    }
+  }
+
+  private static class WriteSuccessFile extends DoFn<String, Void> {
+    private final PCollectionView<List<String>> files;
+
+    WriteSuccessFile(PCollectionView<List<String>> files) {
+      this.files = files;
+    }
+
+    @ProcessElement
+    public void processElement(ProcessContext c) throws IOException {
+      ResourceId successFile =
+          FileSystems.matchNewResource(c.element(), true)
+              .resolve(MaterializationCache.SUCCESS_FILE, StandardResolveOptions.RESOLVE_FILE);
+      try (Writer writer =
+          new OutputStreamWriter(
+              Channels.newOutputStream(FileSystems.create(successFile, MimeTypes.TEXT)), UTF_8)) {
+        for (String file : c.sideInput(files)) {
+          writer.write(file);
+          writer.write('\n');
+        }
+      }
+    }
+  }
+
+  @Override
+  public NodeStats estimateNodeStats(RelMetadataQuery mq) {
+    return BeamSqlRelUtils.getNodeStats(this.input, mq);
+  }
+
+  @Override
+  public BeamCostModel beamComputeSelfCost(RelOptPlanner planner, RelMetadataQuery mq) {
+    NodeStats inputStat = BeamSqlRelUtils.getNodeStats(this.input, mq);
+    return BeamCostModel.FACTORY.makeCost(inputStat.getRowCount(), inputStat.getRate());
+  }
+}
@@ -19,6 +19,8 @@ package org.apache.beam.sdk.extensions.sql.impl.rel;
 
 import java.util.List;
 import java.util.Set;
+import org.apache.beam.sdk.extensions.sql.impl.planner.BeamCostModel;
+import org.apache.beam.sdk.extensions.sql.impl.planner.NodeStats;
 import org.apache.beam.sdk.extensions.sql.impl.transform.BeamJoinTransforms;
 import org.apache.beam.sdk.extensions.sql.impl.utils.CalciteUtils;
 import org.apache.beam.sdk.schemas.FieldAccessDescriptor;
@@ -33,14 +35,18 @@ import org.apache.beam.sdk.values.PCollection.IsBounded;
 import org.apache.beam.sdk.values.PCollectionList;
 import org.apache.beam.sdk.values.Row;
 import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.plan.RelOptCluster;
+import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.plan.RelOptPlanner;
 import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.plan.RelTraitSet;
 import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.rel.RelNode;
+import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.rel.RelWriter;
 import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.rel.core.CorrelationId;
 import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.rel.core.Join;
 import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.rel.core.JoinRelType;
+import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.rel.metadata.RelMetadataQuery;
 import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.rex.RexNode;
 import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.util.Pair;
 import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.base.Preconditions;
+import org.checkerframework.checker.nullness.qual.Nullable;
 
 /**
  * A {@code BeamJoinRel} which does sideinput Join
@@ -49,6 +55,7 @@ import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.base.Preconditio
  *
  * <ul>
  *   <li>BoundedTable JOIN UnboundedTable
+ *   <li>BoundedTable JOIN BoundedTable, when one of the tables is small enough to be broadcast
  * </ul>
  *
  * <p>{@code sideInput} is utilized to implement the join, so there are some constraints:
@@ -57,6 +64,7 @@ import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.base.Preconditio
  *   <li>{@code FULL OUTER JOIN} is not supported.
  *   <li>If it's a {@code LEFT OUTER JOIN}, the unbounded table should on the left side.
  *   <li>If it's a {@code RIGHT OUTER JOIN}, the unbounded table should on the right side.
+ *   <li>If both tables are bounded, the broadcast table must not be on the outer side.
  * </ul>
  *
  * <p>General constraints:
@@ -67,6 +75,9 @@ import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.base.Preconditio
  * </ul>
  */
 public class BeamSideInputJoinRel extends BeamJoinRel {
+  // Whether the left input is broadcast when both inputs are bounded, null if the bounded input
+  // of a bounded and an unbounded input is broadcast.
+  private final @Nullable Boolean broadcastLeft;
 
   public BeamSideInputJoinRel(
       RelOptCluster cluster,
@@ -76,7 +87,21 @@ public class BeamSideInputJoinRel extends BeamJoinRel {
       RexNode condition,
       Set<CorrelationId> variablesSet,
       JoinRelType joinType) {
+    this(cluster, traitSet, left, right, condition, variablesSet, joinType, null);
+  }
+
+  /** Creates a join of two bounded inputs which broadcasts the left or the right input. */
+  public BeamSideInputJoinRel(
+      RelOptCluster cluster,
+      RelTraitSet traitSet,
+      RelNode left,
+      RelNode right,
+      RexNode condition,
+      Set<CorrelationId> variablesSet,
+      JoinRelType joinType,
+      @Nullable Boolean broadcastLeft) {
     super(cluster, traitSet, left, right, condition, variablesSet, joinType);
+    this.broadcastLeft = broadcastLeft;
   }
 
   @Override
@@ -88,7 +113,28 @@ public class BeamSideInputJoinRel extends BeamJoinRel {
       JoinRelType joinType,
       boolean semiJoinDone) {
     return new BeamSideInputJoinRel(
-        getCluster(), traitSet, left, right, conditionExpr, variablesSet, joinType);
+        getCluster(), traitSet, left, right, conditionExpr, variablesSet, joinType, broadcastLeft);
+  }
+
+  @Override
+  public RelWriter explainTerms(RelWriter pw) {
+    return super.explainTerms(pw)
+        .itemIf(
+            "broadcast",
+            Boolean.TRUE.equals(broadcastLeft) ? "left" : "right",
+            broadcastLeft != null);
+  }
+
+  @Override
+  public BeamCostModel beamComputeSelfCost(RelOptPlanner planner, RelMetadataQuery mq) {
+    if (broadcastLeft == null) {
+      return super.beamComputeSelfCost(planner, mq);
+    }
+    // Only the broadcast input is materialized, the other input is not shuffled.
+    NodeStats broadcastEstimates =
+        BeamSqlRelUtils.getNodeStats(broadcastLeft ? this.left : this.right, mq);
+    NodeStats summation = BeamSqlRelUtils.getNodeStats(this, mq).plus(broadcastEstimates);
+    return BeamCostModel.FACTORY.makeCost(summation.getRowCount(), summation.getRate());
   }
 
   @Override
@@ -107,6 +153,14 @@ public class BeamSideInputJoinRel extends BeamJoinRel {
     BeamRelNode leftRelNode = BeamSqlRelUtils.getBeamRelInput(left);
     BeamRelNode rightRelNode = BeamSqlRelUtils.getBeamRelInput(right);
 
+    if (broadcastLeft != null) {
+      if ((joinType == JoinRelType.LEFT && broadcastLeft)
+          || (joinType == JoinRelType.RIGHT && !broadcastLeft)) {
+        throw new UnsupportedOperationException(
+            String.format("%s side of an OUTER JOIN cannot be broadcast.", joinType.name()));
+      }
+      return new SideInputJoin();
+    }
     if ((joinType == JoinRelType.LEFT && leftRelNode.isBounded() == PCollection.IsBounded.BOUNDED)
         || (joinType == JoinRelType.RIGHT
             && rightRelNode.isBounded() == PCollection.IsBounded.BOUNDED)) {
@@ -157,9 +211,12 @@ public class BeamSideInputJoinRel extends BeamJoinRel {
       PCollection<Row> rightRows,
       FieldAccessDescriptor leftKeyFields,
       FieldAccessDescriptor rightKeyFields) {
-    // we always make the Unbounded table on the left to do the sideInput join
-    // (will convert the result accordingly before return)
-    boolean swapped = (leftRows.isBounded() == PCollection.IsBounded.BOUNDED);
+    // we always make the Unbounded (or the not broadcast) table on the left to do the sideInput
+    // join (will convert the result accordingly before return)
+    boolean swapped =
+        broadcastLeft != null
+            ? broadcastLeft
+            : (leftRows.isBounded() == PCollection.IsBounded.BOUNDED);
     JoinRelType realJoinType = joinType;
     if (swapped && joinType != JoinRelType.INNER) {
       Preconditions.checkArgument(realJoinType != JoinRelType.LEFT);
@@ -30,9 +30,13 @@ import org.apache.beam.sdk.coders.KvCoder;
 import org.apache.beam.sdk.coders.ListCoder;
 import org.apache.beam.sdk.coders.StringUtf8Coder;
 import org.apache.beam.sdk.coders.VarIntCoder;
+import org.apache.beam.sdk.extensions.sql.impl.BeamSqlPipelineOptions;
 import org.apache.beam.sdk.extensions.sql.impl.planner.BeamCostModel;
 import org.apache.beam.sdk.extensions.sql.impl.planner.NodeStats;
+import org.apache.beam.sdk.extensions.sql.impl.transform.BeamSortTransforms.GlobalSort;
+import org.apache.beam.sdk.extensions.sql.impl.transform.BeamSortTransforms.SortKeyEncoder;
 import org.apache.beam.sdk.extensions.sql.impl.utils.CalciteUtils;
+import org.apache.beam.sdk.schemas.Schema;
 import org.apache.beam.sdk.schemas.Schema.FieldType;
 import org.apache.beam.sdk.state.StateSpec;
 import org.apache.beam.sdk.state.StateSpecs;
@@ -67,26 +71,33 @@ import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.sql.type.SqlTyp
 /**
  * {@code BeamRelNode} to replace a {@code Sort} node.
  *
- * <p>Since Beam does not fully support global sort, it uses {@link Top} to implement the {@code
- * Sort} algebra. The following types of ORDER BY are supported:
+ * <p>An ORDER BY with a LIMIT uses {@link Top} to implement the {@code Sort} algebra:
  *
  * <pre>{@code
  * SELECT * FROM t ORDER BY id DESC LIMIT 10;
  * SELECT * FROM t ORDER BY id DESC LIMIT 10 OFFSET 5;
  * }</pre>
  *
- * <p>but an ORDER BY without a LIMIT is NOT supported. For example, the following will throw an
- * exception:
+ * <p>An ORDER BY without a LIMIT on a bounded input is implemented by {@link GlobalSort}, which
+ * partitions the rows into sampled key ranges and sorts each range with an external sorter:
  *
  * <pre>{@code
  * SELECT * FROM t ORDER BY id DESC;
  * }</pre>
  *
+ * <p>Since a {@code PCollection} is unordered, the sorted order of such a query is only observable
+ * through the ordered CSV files written when {@link BeamSqlPipelineOptions#getOrderByOutputPrefix}
+ * is set. Each such ORDER BY of a query writes its files under the prefix followed by {@code
+ * -sort<id>}, where {@code <id>} identifies the node.
+ *
  * <h3>Constraints</h3>
  *
  * <ul>
  *   <li>Due to the constraints of {@link Top}, the result of a ORDER BY LIMIT must fit into the
  *       memory of a single machine.
+ *   <li>An ORDER BY without a LIMIT requires a bounded input, does not support an OFFSET, and only
+ *       supports integral, floating point, string and timestamp sort fields, or logical types based
+ *       on them. Other sort fields are rejected when the query is planned.
  *   <li>Since WINDOW (HOP, TUMBLE, SESSION, etc.) is always associated with `GroupBy`, it does not
  *       make much sense to use ORDER BY with WINDOW.
  * </ul>
@@ -129,7 +140,20 @@ public class BeamSortRel extends Sort implements BeamRelNode {
     }
 
     if (fetch == null) {
-      throw new UnsupportedOperationException("ORDER BY without a LIMIT is not supported!");
+      if (offset != null) {
+        throw new UnsupportedOperationException("OFFSET without a LIMIT is not supported!");
+      }
+      Schema inputSchema = CalciteUtils.toSchema(child.getRowType());
+      for (int fieldIndex : fieldIndices) {
+        Schema.Field field = inputSchema.getField(fieldIndex);
+        if (!SortKeyEncoder.supports(field.getType())) {
+          throw new UnsupportedOperationException(
+              String.format(
+                  "ORDER BY without a LIMIT is not supported for field %s of type %s",
+                  field.getName(), field.getType()));
+        }
+      }
+      return;
     }
 
     RexLiteral fetchLiteral = (RexLiteral) fetch;
@@ -204,6 +228,10 @@ public class BeamSortRel extends Sort implements BeamRelNode {
                   GlobalWindows.class.getSimpleName(), windowingStrategy));
         }
 
+        if (fetch == null) {
+          return expandGlobalSort(upstream);
+        }
+
         ReversedBeamSqlRowComparator comparator =
             new ReversedBeamSqlRowComparator(fieldIndices, orientation, nullsFirst);
 
@@ -232,6 +260,28 @@ public class BeamSortRel extends Sort implements BeamRelNode {
     }
   }
 
+  private PCollection<Row> expandGlobalSort(PCollection<Row> upstream) {
+    if (upstream.isBounded() != PCollection.IsBounded.BOUNDED) {
+      throw new UnsupportedOperationException(
+          "ORDER BY without a LIMIT is only supported for bounded inputs!");
+    }
+    BeamSqlPipelineOptions options =
+        upstream.getPipeline().getOptions().as(BeamSqlPipelineOptions.class);
+    // Each ORDER BY of a query writes its own files.
+    String outputPrefix =
+        options.getOrderByOutputPrefix() == null
+            ? null
+            : String.format("%s-sort%d", options.getOrderByOutputPrefix(), getId());
+    return upstream
+        .apply(
+            "globalSort",
+            new GlobalSort(
+                new SortKeyEncoder(fieldIndices, orientation, nullsFirst),
+                options.getOrderByNumPartitions(),
+                outputPrefix))
+        .setRowSchema(CalciteUtils.toSchema(getRowType()));
+  }
+
   private class LimitTransform<T> extends PTransform<PCollection<T>, PCollection<T>> {
     private final int startIndex;
 
@@ -22,12 +22,17 @@ import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
 import org.apache.beam.sdk.Pipeline;
+import org.apache.beam.sdk.extensions.sql.impl.BeamSqlPipelineOptions;
+import org.apache.beam.sdk.extensions.sql.impl.JdbcConnection;
 import org.apache.beam.sdk.extensions.sql.impl.planner.NodeStats;
 import org.apache.beam.sdk.extensions.sql.impl.planner.NodeStatsMetadata;
+import org.apache.beam.sdk.options.PipelineOptions;
+import org.apache.beam.sdk.options.PipelineOptionsFactory;
 import org.apache.beam.sdk.transforms.PTransform;
 import org.apache.beam.sdk.values.PCollection;
 import org.apache.beam.sdk.values.PCollectionList;
 import org.apache.beam.sdk.values.Row;
+import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.plan.RelOptPlanner;
 import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.plan.volcano.RelSubset;
 import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.rel.RelNode;
 import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.rel.metadata.RelMetadataQuery;
@@ -94,6 +99,31 @@ public class BeamSqlRelUtils {
     return result;
   }
 
+  /**
+   * Returns the {@link BeamSqlPipelineOptions} of the connection a query is planned for, so rules
+   * can depend on them. Options set on a JDBC connection without {@link PipelineOptions} are parsed
+   * from its options map.
+   */
+  public static BeamSqlPipelineOptions getPipelineOptions(RelOptPlanner planner) {
+    return getPipelineOptions(planner.getContext().unwrap(JdbcConnection.class));
+  }
+
+  public static BeamSqlPipelineOptions getPipelineOptions(JdbcConnection connection) {
+    if (connection == null) {
+      return PipelineOptionsFactory.as(BeamSqlPipelineOptions.class);
+    }
+    if (connection.getPipelineOptions() != null) {
+      return connection.getPipelineOptions().as(BeamSqlPipelineOptions.class);
+    }
+    String[] args =
+        connection.getPipelineOptionsMap().entrySet().stream()
+            .map(entry -> "--" + entry.getKey() + "=" + entry.getValue())
+            .toArray(String[]::new);
+    return PipelineOptionsFactory.fromArgs(args)
+        .withoutStrictParsing()
+        .as(BeamSqlPipelineOptions.class);
+  }
+
   public static NodeStats getNodeStats(RelNode input, RelMetadataQuery mq) {
     input = getInput(input);
     return input.metadata(NodeStatsMetadata.class, mq).getNodeStats();
@@ -19,21 +19,28 @@ package org.apache.beam.sdk.extensions.sql.impl.rel;
 
 import java.io.Serializable;
 import java.math.BigDecimal;
-import java.util.Collections;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
 import java.util.List;
-import java.util.NavigableMap;
-import java.util.TreeMap;
+import java.util.NoSuchElementException;
+import org.apache.beam.sdk.coders.ByteArrayCoder;
 import org.apache.beam.sdk.coders.Coder;
-import org.apache.beam.sdk.coders.IterableCoder;
-import org.apache.beam.sdk.coders.ListCoder;
+import org.apache.beam.sdk.coders.KvCoder;
+import org.apache.beam.sdk.coders.RowCoder;
+import org.apache.beam.sdk.extensions.sorter.BufferedExternalSorter;
+import org.apache.beam.sdk.extensions.sorter.ExternalSorter.Options.SorterType;
+import org.apache.beam.sdk.extensions.sorter.SortValues;
 import org.apache.beam.sdk.extensions.sql.impl.planner.BeamCostModel;
 import org.apache.beam.sdk.extensions.sql.impl.planner.NodeStats;
 import org.apache.beam.sdk.extensions.sql.impl.transform.BeamBuiltinAnalyticFunctions;
+import org.apache.beam.sdk.extensions.sql.impl.transform.BeamSortTransforms.SortKeyEncoder;
 import org.apache.beam.sdk.extensions.sql.impl.transform.agg.AggregationCombineFnAdapter;
 import org.apache.beam.sdk.extensions.sql.impl.utils.CalciteUtils;
 import org.apache.beam.sdk.schemas.Schema;
 import org.apache.beam.sdk.transforms.Combine;
 import org.apache.beam.sdk.transforms.DoFn;
+import org.apache.beam.sdk.transforms.GroupByKey;
 import org.apache.beam.sdk.transforms.PTransform;
 import org.apache.beam.sdk.transforms.ParDo;
 import org.apache.beam.sdk.values.KV;
@@ -52,6 +59,8 @@ import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.rel.type.RelDat
 import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.rex.RexInputRef;
 import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.rex.RexLiteral;
 import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.rex.RexNode;
+import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.sql.SqlKind;
+import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.collect.Iterables;
 import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.collect.Lists;
 
 /**
@@ -65,10 +74,14 @@ import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.collect.Lists;
  * SELECT agg(c1) over (PARTITION BY c2 ORDER BY c3 RANGE BETWEEN 1 PRECEDING AND 1 FOLLOWING) FROM t
  * }</pre>
  *
+ * <p>Each partition is sorted with an external sorter and evaluated in a single pass over the
+ * sorted rows, keeping only the rows of the current frame in memory.
+ *
  * <h3>Constraints</h3>
  *
  * <ul>
  *   <li>Only Aggregate Analytic Functions are available.
+ *   <li>RANGE frames with offsets require a single numeric ORDER BY field.
  * </ul>
  */
 @SuppressWarnings({
@@ -103,8 +116,12 @@ public class BeamWindowRel extends Window implements BeamRelNode {
                         orderByKeys.add(fc.getFieldIndex());
                         orderByDirections.add(
                             fc.direction == RelFieldCollation.Direction.ASCENDING);
+                        RelFieldCollation.NullDirection nullDirection = fc.nullDirection;
+                        if (nullDirection == RelFieldCollation.NullDirection.UNSPECIFIED) {
+                          nullDirection = fc.direction.defaultNullDirection();
+                        }
                         orderByNullDirections.add(
-                            fc.nullDirection == RelFieldCollation.NullDirection.FIRST);
+                            nullDirection == RelFieldCollation.NullDirection.FIRST);
                       });
               BigDecimal lowerB = null; // Unbounded by default
               BigDecimal upperB = null; // Unbounded by default
@@ -155,6 +172,7 @@ public class BeamWindowRel extends Window implements BeamRelNode {
                                 anAnalyticGroup.isRows,
                                 argList,
                                 combineFn,
+                                FrameFunction.of(anAggCall),
                                 field);
                         analyticFields.add(fieldAggregation);
                       });
@@ -168,6 +186,26 @@ public class BeamWindowRel extends Window implements BeamRelNode {
     return (BigDecimal) this.constants.get(idx).getValue();
   }
 
+  /** How the value of a frame is computed from the rows it holds. */
+  private enum FrameFunction {
+    /** Combines the rows of the frame, merging accumulators when the frame slides. */
+    AGGREGATE,
+    /** Returns the value of the first row of the frame. */
+    FIRST_VALUE,
+    /** Returns the value of the last row of the frame. */
+    LAST_VALUE;
+
+    static FrameFunction of(AggregateCall call) {
+      SqlKind kind = call.getAggregation().getKind();
+      if (kind == SqlKind.FIRST_VALUE) {
+        return FIRST_VALUE;
+      } else if (kind == SqlKind.LAST_VALUE) {
+        return LAST_VALUE;
+      }
+      return AGGREGATE;
+    }
+  }
+
   private static class FieldAggregation implements Serializable {
 
     private List<Integer> partitionKeys;
@@ -179,6 +217,7 @@ public class BeamWindowRel extends Window implements BeamRelNode {
     private boolean rows = true;
     private List<Integer> inputFields;
     private Combine.CombineFn combineFn;
+    private FrameFunction frameFunction;
     private Schema.Field outputField;
 
     public FieldAggregation(
@@ -191,6 +230,7 @@ public class BeamWindowRel extends Window implements BeamRelNode {
         boolean rows,
         List<Integer> inputFields,
         Combine.CombineFn combineFn,
+        FrameFunction frameFunction,
         Schema.Field outputField) {
       this.partitionKeys = partitionKeys;
       this.orderKeys = orderKeys;
@@ -201,6 +241,7 @@ public class BeamWindowRel extends Window implements BeamRelNode {
       this.rows = rows;
       this.inputFields = inputFields;
       this.combineFn = combineFn;
+      this.frameFunction = frameFunction;
       this.outputField = outputField;
     }
   }
@@ -244,183 +285,380 @@ public class BeamWindowRel extends Window implements BeamRelNode {
         ids++;
         String prefix = "transform_" + ids;
         Coder<Row> rowCoder = inputData.getCoder();
-        PCollection<Iterable<Row>> partitioned = null;
-        if (af.partitionKeys.isEmpty()) {
-          partitioned =
-              inputData.apply(
-                  prefix + "globalPartition",
-                  org.apache.beam.sdk.schemas.transforms.Group.globally());
-        } else {
-          org.apache.beam.sdk.schemas.transforms.Group.ByFields<Row> myg =
-              org.apache.beam.sdk.schemas.transforms.Group.byFieldIds(af.partitionKeys);
-          PCollection<KV<Row, Iterable<Row>>> partitionBy =
-              inputData.apply(prefix + "partitionBy", myg.getToKvs());
-          partitioned =
-              partitionBy
-                  .apply(prefix + "selectOnlyValues", ParDo.of(new SelectOnlyValues()))
-                  .setCoder(IterableCoder.of(rowCoder));
+        Schema.Builder partitionSchema = Schema.builder();
+        for (int partitionKey : af.partitionKeys) {
+          partitionSchema.addField(inputSchema.getField(partitionKey));
         }
-        // Migrate to a SortedValues transform.
-        PCollection<List<Row>> sortedPartition =
-            partitioned
-                .apply(prefix + "orderBy", ParDo.of(sortPartition(af)))
-                .setCoder(ListCoder.of(rowCoder));
+        Schema partitionKeySchema = partitionSchema.build();
+        // Each partition is sorted by the external sorter, so that partitions larger than memory
+        // spill to disk, and the sorted rows are then streamed through the frame evaluator.
+        PCollection<KV<Row, Iterable<KV<byte[], Row>>>> sortedPartition =
+            inputData
+                .apply(
+                    prefix + "partitionBy", ParDo.of(new KeyByPartitionFn(af, partitionKeySchema)))
+                .setCoder(
+                    KvCoder.of(
+                        RowCoder.of(partitionKeySchema), KvCoder.of(ByteArrayCoder.of(), rowCoder)))
+                .apply(prefix + "groupByPartition", GroupByKey.create())
+                .apply(
+                    prefix + "orderBy",
+                    SortValues.create(
+                        BufferedExternalSorter.options()
+                            .withExternalSorterType(SorterType.NATIVE)));
 
         inputSchema =
             Schema.builder().addFields(inputSchema.getFields()).addFields(af.outputField).build();
         inputData =
             sortedPartition
-                .apply(prefix + "aggCall", ParDo.of(aggField(inputSchema, af)))
+                .apply(prefix + "aggCall", ParDo.of(new AnalyticFieldFn(inputSchema, af)))
                 .setRowSchema(inputSchema);
       }
       return inputData.setRowSchema(this.outputSchema);
     }
   }
 
-  private static DoFn<List<Row>, Row> aggField(
-      final Schema expectedSchema, final FieldAggregation fieldAgg) {
-    return new DoFn<List<Row>, Row>() {
-      @ProcessElement
-      public void processElement(
-          @Element List<Row> inputPartition, OutputReceiver<Row> out, ProcessContext c) {
-        List<Row> sortedRowsAsList = inputPartition;
-        NavigableMap<BigDecimal, List<Row>> indexRange = null;
-        if (!fieldAgg.rows) {
-          indexRange = indexRows(sortedRowsAsList);
-        }
-        for (int idx = 0; idx < sortedRowsAsList.size(); idx++) {
-          List<Row> aggRange = null;
-          if (fieldAgg.rows) {
-            aggRange = getRows(sortedRowsAsList, idx);
-          } else {
-            aggRange = getRange(indexRange, sortedRowsAsList.get(idx));
-          }
-          Object accumulator = fieldAgg.combineFn.createAccumulator();
-          // if not inputs are needed, put a mock Field index
-          final int aggFieldIndex =
-              fieldAgg.inputFields.isEmpty() ? -1 : fieldAgg.inputFields.get(0);
-          long count = 0;
-          for (Row aggRow : aggRange) {
-            if (fieldAgg.combineFn instanceof BeamBuiltinAnalyticFunctions.PositionAwareCombineFn) {
-              BeamBuiltinAnalyticFunctions.PositionAwareCombineFn fn =
-                  (BeamBuiltinAnalyticFunctions.PositionAwareCombineFn) fieldAgg.combineFn;
-              accumulator =
-                  fn.addInput(
-                      accumulator,
-                      getOrderByValue(aggRow),
-                      count,
-                      (long) idx,
-                      (long) sortedRowsAsList.size());
-            } else {
-              accumulator =
-                  fieldAgg.combineFn.addInput(accumulator, aggRow.getBaseValue(aggFieldIndex));
-            }
-            count++;
-          }
-          Object result = fieldAgg.combineFn.extractOutput(accumulator);
-          Row processingRow = sortedRowsAsList.get(idx);
-          List<Object> fieldValues = Lists.newArrayListWithCapacity(processingRow.getFieldCount());
-          fieldValues.addAll(processingRow.getValues());
-          fieldValues.add(result);
-          Row build = Row.withSchema(expectedSchema).addValues(fieldValues).build();
-          out.output(build);
-        }
+  /** Keys each row by its partition and encodes its ORDER BY fields as a sortable secondary key. */
+  static class KeyByPartitionFn extends DoFn<Row, KV<Row, KV<byte[], Row>>> {
+    private final List<Integer> partitionKeys;
+    private final Schema partitionKeySchema;
+    private final SortKeyEncoder orderKeyEncoder;
+
+    KeyByPartitionFn(FieldAggregation fieldAgg, Schema partitionKeySchema) {
+      this.partitionKeys = fieldAgg.partitionKeys;
+      this.partitionKeySchema = partitionKeySchema;
+      this.orderKeyEncoder =
+          new SortKeyEncoder(fieldAgg.orderKeys, fieldAgg.orderOrientations, fieldAgg.orderNulls);
+    }
+
+    @ProcessElement
+    public void processElement(@Element Row row, OutputReceiver<KV<Row, KV<byte[], Row>>> out) {
+      List<Object> partitionValues = Lists.newArrayListWithCapacity(partitionKeys.size());
+      for (int partitionKey : partitionKeys) {
+        partitionValues.add(row.getValue(partitionKey));
+      }
+      Row partition = Row.withSchema(partitionKeySchema).addValues(partitionValues).build();
+      out.output(KV.of(partition, KV.of(orderKeyEncoder.encode(row), row)));
+    }
+  }
+
+  /**
+   * Evaluates an analytic function over a sorted partition in a single pass.
+   *
+   * <p>The frame of every row is bounded by a start and an end which never move backwards while the
+   * partition is traversed in order, so rows enter the frame through a cursor running ahead of the
+   * current row and leave it from the front of a buffer holding only the rows of the current frame:
+   *
+   * <ul>
+   *   <li>Frames starting at UNBOUNDED PRECEDING keep a single running accumulator.
+   *   <li>Sliding frames keep a queue of accumulators built from two stacks, so that every row is
+   *       added and merged a constant number of times.
+   *   <li>FIRST_VALUE and LAST_VALUE over a sliding frame read the first or last buffered row.
+   *   <li>Numbering functions only depend on the position of the row, and are evaluated with a
+   *       single running accumulator once the size of the partition is known.
+   * </ul>
+   */
+  static class AnalyticFieldFn extends DoFn<KV<Row, Iterable<KV<byte[], Row>>>, Row> {
+    private final Schema expectedSchema;
+    private final FieldAggregation fieldAgg;
+
+    AnalyticFieldFn(Schema expectedSchema, FieldAggregation fieldAgg) {
+      this.expectedSchema = expectedSchema;
+      this.fieldAgg = fieldAgg;
+    }
+
+    @ProcessElement
+    public void processElement(
+        @Element KV<Row, Iterable<KV<byte[], Row>>> partition, OutputReceiver<Row> out) {
+      Iterable<Row> sortedRows = Iterables.transform(partition.getValue(), KV::getValue);
+      if (fieldAgg.combineFn instanceof BeamBuiltinAnalyticFunctions.PositionAwareCombineFn) {
+        evaluateNumbering(sortedRows, out);
+      } else {
+        evaluateFrames(sortedRows, out);
       }
+    }
+
+    private void evaluateNumbering(Iterable<Row> sortedRows, OutputReceiver<Row> out) {
+      BeamBuiltinAnalyticFunctions.PositionAwareCombineFn fn =
+          (BeamBuiltinAnalyticFunctions.PositionAwareCombineFn) fieldAgg.combineFn;
+      long partitionSize = Iterables.size(sortedRows);
+      Object accumulator = fn.createAccumulator();
+      long idx = 0;
+      for (Row row : sortedRows) {
+        accumulator = fn.addInput(accumulator, getOrderByValue(row), idx, idx, partitionSize);
+        out.output(withResult(row, fn.extractOutput(accumulator)));
+        idx++;
+      }
+    }
 
-      private NavigableMap<BigDecimal, List<Row>> indexRows(List<Row> input) {
-        NavigableMap<BigDecimal, List<Row>> map = new TreeMap<BigDecimal, List<Row>>();
-        for (Row r : input) {
-          BigDecimal orderByValue = getOrderByValue(r);
-          if (orderByValue == null) {
-            /** Special case agg(X) OVER () set dummy value. */
-            orderByValue = BigDecimal.ZERO;
+    private void evaluateFrames(Iterable<Row> sortedRows, OutputReceiver<Row> out) {
+      FrameAggregator frame;
+      if (fieldAgg.lowerLimit == null) {
+        frame = new RunningFrameAggregator(fieldAgg.combineFn);
+      } else if (fieldAgg.frameFunction == FrameFunction.AGGREGATE) {
+        frame = new SlidingFrameAggregator(fieldAgg.combineFn);
+      } else {
+        frame = new NavigationFrameAggregator(fieldAgg.frameFunction == FrameFunction.LAST_VALUE);
+      }
+      Iterator<Row> frameEndCursor = sortedRows.iterator();
+      FrameEntry nextEntry = null;
+      long frameEndIdx = 0;
+      long idx = 0;
+      for (Row row : sortedRows) {
+        BigDecimal position = getFramePosition(row);
+        while (true) {
+          if (nextEntry == null) {
+            if (!frameEndCursor.hasNext()) {
+              break;
+            }
+            Row next = frameEndCursor.next();
+            nextEntry =
+                new FrameEntry(frameEndIdx, getFramePosition(next), getAggregatedValue(next));
           }
-          if (!map.containsKey(orderByValue)) {
-            map.put(orderByValue, Lists.newArrayList());
+          if (!isBeforeFrameEnd(nextEntry, idx, position)) {
+            break;
           }
-          map.get(orderByValue).add(r);
+          frame.add(nextEntry);
+          nextEntry = null;
+          frameEndIdx++;
         }
-        return map;
+        while (!frame.isEmpty() && isBeforeFrameStart(frame.first(), idx, position)) {
+          frame.removeFirst();
+        }
+        out.output(withResult(row, frame.getResult()));
+        idx++;
       }
+    }
 
-      private List<Row> getRange(NavigableMap<BigDecimal, List<Row>> indexRanges, Row aRow) {
-        NavigableMap<BigDecimal, List<Row>> subMap;
-        BigDecimal currentRowValue = getOrderByValue(aRow);
-        if (currentRowValue != null && fieldAgg.lowerLimit != null && fieldAgg.upperLimit != null) {
-          BigDecimal ll = currentRowValue.subtract(fieldAgg.lowerLimit);
-          BigDecimal ul = currentRowValue.add(fieldAgg.upperLimit);
-          subMap = indexRanges.subMap(ll, true, ul, true);
-        } else if (currentRowValue != null
-            && fieldAgg.lowerLimit != null
-            && fieldAgg.upperLimit == null) {
-          BigDecimal ll = currentRowValue.subtract(fieldAgg.lowerLimit);
-          subMap = indexRanges.tailMap(ll, true);
-        } else if (currentRowValue != null
-            && fieldAgg.lowerLimit == null
-            && fieldAgg.upperLimit != null) {
-          BigDecimal ul = currentRowValue.add(fieldAgg.upperLimit);
-          subMap = indexRanges.headMap(ul, true);
-        } else {
-          subMap = indexRanges;
-        }
-        List<Row> result = Lists.newArrayList();
-        for (List<Row> partialList : subMap.values()) {
-          result.addAll(partialList);
-        }
-        return result;
+    private boolean isBeforeFrameEnd(FrameEntry entry, long idx, BigDecimal position) {
+      if (fieldAgg.upperLimit == null) {
+        return true;
+      } else if (fieldAgg.rows) {
+        return entry.index <= idx + fieldAgg.upperLimit.longValue();
+      } else if (position == null || entry.position == null) {
+        // NULL order values are peers of each other, and precede or follow all other rows.
+        return position == null ? entry.position == null : nullsFirst();
       }
+      return entry.position.compareTo(position.add(fieldAgg.upperLimit)) <= 0;
+    }
 
-      private BigDecimal getOrderByValue(Row r) {
-        /**
-         * Special Case: This query is transformed by calcite as follows: agg(X) over () -> agg(X)
-         * over (RANGE BETWEEN UNBOUNDED PRECEDING AND UNBOUNDED FOLLOWING) No orderKeys, so return
-         * null.
-         */
-        if (fieldAgg.orderKeys.size() == 0) {
-          return null;
-        } else {
-          return new BigDecimal(((Number) r.getBaseValue(fieldAgg.orderKeys.get(0))).toString());
-        }
+    private boolean isBeforeFrameStart(FrameEntry entry, long idx, BigDecimal position) {
+      if (fieldAgg.rows) {
+        return entry.index < idx - fieldAgg.lowerLimit.longValue();
+      } else if (position == null || entry.position == null) {
+        return position == null ? entry.position != null : nullsFirst();
       }
+      return entry.position.compareTo(position.subtract(fieldAgg.lowerLimit)) < 0;
+    }
+
+    private boolean nullsFirst() {
+      return fieldAgg.orderNulls.get(0);
+    }
+
+    /**
+     * Returns the value of the first ORDER BY field, negated for a descending order so that the
+     * offsets of a RANGE frame always point in the order of the partition.
+     */
+    private BigDecimal getFramePosition(Row row) {
+      if (fieldAgg.rows || fieldAgg.orderKeys.isEmpty()) {
+        return null;
+      }
+      BigDecimal value = getOrderByValue(row);
+      if (value == null) {
+        return null;
+      }
+      return fieldAgg.orderOrientations.get(0) ? value : value.negate();
+    }
 
-      private List<Row> getRows(List<Row> input, int index) {
-        Integer ll =
-            fieldAgg.lowerLimit != null ? fieldAgg.lowerLimit.intValue() : Integer.MAX_VALUE;
-        Integer ul =
-            fieldAgg.upperLimit != null ? fieldAgg.upperLimit.intValue() : Integer.MAX_VALUE;
-        int lowerIndex = ll == Integer.MAX_VALUE ? Integer.MIN_VALUE : index - ll;
-        int upperIndex = ul == Integer.MAX_VALUE ? Integer.MAX_VALUE : index + ul + 1;
-        lowerIndex = lowerIndex < 0 ? 0 : lowerIndex;
-        upperIndex = upperIndex > input.size() ? input.size() : upperIndex;
-        List<Row> out = input.subList(lowerIndex, upperIndex);
-        return out;
+    private BigDecimal getOrderByValue(Row row) {
+      /**
+       * Special Case: This query is transformed by calcite as follows: agg(X) over () -> agg(X)
+       * over (RANGE BETWEEN UNBOUNDED PRECEDING AND UNBOUNDED FOLLOWING) No orderKeys, so return
+       * null.
+       */
+      if (fieldAgg.orderKeys.isEmpty()) {
+        return null;
       }
-    };
+      Object value = row.getBaseValue(fieldAgg.orderKeys.get(0));
+      return value == null ? null : new BigDecimal(((Number) value).toString());
+    }
+
+    private Object getAggregatedValue(Row row) {
+      // if not inputs are needed, put a mock Field index
+      final int aggFieldIndex = fieldAgg.inputFields.isEmpty() ? -1 : fieldAgg.inputFields.get(0);
+      return row.getBaseValue(aggFieldIndex);
+    }
+
+    private Row withResult(Row row, Object result) {
+      List<Object> fieldValues = Lists.newArrayListWithCapacity(row.getFieldCount() + 1);
+      fieldValues.addAll(row.getValues());
+      fieldValues.add(result);
+      return Row.withSchema(expectedSchema).addValues(fieldValues).build();
+    }
   }
 
-  static class SelectOnlyValues extends DoFn<KV<Row, Iterable<Row>>, Iterable<Row>> {
-    @ProcessElement
-    public void processElement(
-        @Element KV<Row, Iterable<Row>> inputPartition,
-        OutputReceiver<Iterable<Row>> out,
-        ProcessContext c) {
-      out.output(inputPartition.getValue());
+  /** A row of the current frame, reduced to what the frame bounds and aggregation need. */
+  private static class FrameEntry {
+    private final long index;
+    private final BigDecimal position;
+    private final Object value;
+
+    FrameEntry(long index, BigDecimal position, Object value) {
+      this.index = index;
+      this.position = position;
+      this.value = value;
+    }
+  }
+
+  /** Aggregates the rows of a frame which grows at its end and shrinks at its start. */
+  private interface FrameAggregator {
+    void add(FrameEntry entry);
+
+    boolean isEmpty();
+
+    FrameEntry first();
+
+    void removeFirst();
+
+    Object getResult();
+  }
+
+  /** Aggregates a frame starting at UNBOUNDED PRECEDING, which never shrinks. */
+  private static class RunningFrameAggregator implements FrameAggregator {
+    private final Combine.CombineFn combineFn;
+    private Object accumulator;
+
+    RunningFrameAggregator(Combine.CombineFn combineFn) {
+      this.combineFn = combineFn;
+      this.accumulator = combineFn.createAccumulator();
+    }
+
+    @Override
+    public void add(FrameEntry entry) {
+      accumulator = combineFn.addInput(accumulator, entry.value);
+    }
+
+    @Override
+    public boolean isEmpty() {
+      return true;
+    }
+
+    @Override
+    public FrameEntry first() {
+      throw new NoSuchElementException();
+    }
+
+    @Override
+    public void removeFirst() {
+      throw new NoSuchElementException();
+    }
+
+    @Override
+    public Object getResult() {
+      return combineFn.extractOutput(accumulator);
     }
   }
 
-  private static DoFn<Iterable<Row>, List<Row>> sortPartition(final FieldAggregation fieldAgg) {
-    return new DoFn<Iterable<Row>, List<Row>>() {
-      @ProcessElement
-      public void processElement(
-          @Element Iterable<Row> inputPartition, OutputReceiver<List<Row>> out, ProcessContext c) {
-        List<Row> partitionRows = Lists.newArrayList(inputPartition);
-        BeamSortRel.BeamSqlRowComparator beamSqlRowComparator =
-            new BeamSortRel.BeamSqlRowComparator(
-                fieldAgg.orderKeys, fieldAgg.orderOrientations, fieldAgg.orderNulls);
-        Collections.sort(partitionRows, beamSqlRowComparator);
-        out.output(partitionRows);
+  /** Evaluates FIRST_VALUE or LAST_VALUE over a sliding frame from the buffered rows. */
+  private static class NavigationFrameAggregator implements FrameAggregator {
+    private final boolean last;
+    private final Deque<FrameEntry> entries = new ArrayDeque<>();
+
+    NavigationFrameAggregator(boolean last) {
+      this.last = last;
+    }
+
+    @Override
+    public void add(FrameEntry entry) {
+      entries.addLast(entry);
+    }
+
+    @Override
+    public boolean isEmpty() {
+      return entries.isEmpty();
+    }
+
+    @Override
+    public FrameEntry first() {
+      return entries.getFirst();
+    }
+
+    @Override
+    public void removeFirst() {
+      entries.removeFirst();
+    }
+
+    @Override
+    public Object getResult() {
+      if (entries.isEmpty()) {
+        return null;
       }
-    };
+      return last ? entries.getLast().value : entries.getFirst().value;
+    }
+  }
+
+  /**
+   * Aggregates a sliding frame as a queue built from two stacks. New rows are added to a single
+   * back accumulator. When the front row is removed and the front stack is empty, the back rows are
+   * moved to the front stack as suffix accumulators, so that the aggregate of the frame is the
+   * merge of the top of the front stack with the back accumulator.
+   *
+   * <p>Accumulators are always merged into a fresh accumulator, so that the accumulators kept on
+   * the stacks are never modified.
+   */
+  private static class SlidingFrameAggregator implements FrameAggregator {
+    private final Combine.CombineFn combineFn;
+    private final Deque<FrameEntry> entries = new ArrayDeque<>();
+    private final Deque<Object> frontSuffixes = new ArrayDeque<>();
+    private Object backAccumulator;
+
+    SlidingFrameAggregator(Combine.CombineFn combineFn) {
+      this.combineFn = combineFn;
+      this.backAccumulator = combineFn.createAccumulator();
+    }
+
+    @Override
+    public void add(FrameEntry entry) {
+      entries.addLast(entry);
+      backAccumulator = combineFn.addInput(backAccumulator, entry.value);
+    }
+
+    @Override
+    public boolean isEmpty() {
+      return entries.isEmpty();
+    }
+
+    @Override
+    public FrameEntry first() {
+      return entries.getFirst();
+    }
+
+    @Override
+    public void removeFirst() {
+      if (frontSuffixes.isEmpty()) {
+        Object suffix = null;
+        for (Iterator<FrameEntry> it = entries.descendingIterator(); it.hasNext(); ) {
+          Object single = combineFn.addInput(combineFn.createAccumulator(), it.next().value);
+          suffix = suffix == null ? single : merge(single, suffix);
+          frontSuffixes.push(suffix);
+        }
+        backAccumulator = combineFn.createAccumulator();
+      }
+      frontSuffixes.pop();
+      entries.removeFirst();
+    }
+
+    @Override
+    public Object getResult() {
+      if (frontSuffixes.isEmpty()) {
+        return combineFn.extractOutput(backAccumulator);
+      }
+      return combineFn.extractOutput(merge(frontSuffixes.peek(), backAccumulator));
+    }
+
+    private Object merge(Object first, Object second) {
+      return combineFn.mergeAccumulators(
+          Lists.newArrayList(combineFn.createAccumulator(), first, second));
+    }
   }
 
   @Override
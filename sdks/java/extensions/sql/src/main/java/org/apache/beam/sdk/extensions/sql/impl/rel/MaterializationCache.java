@@ -0,0 +1,227 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.sdk.extensions.sql.impl.rel;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.BufferedReader;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.apache.beam.sdk.extensions.sql.impl.BeamSqlPipelineOptions;
+import org.apache.beam.sdk.extensions.sql.impl.utils.CalciteUtils;
+import org.apache.beam.sdk.extensions.sql.meta.BeamSqlTable;
+import org.apache.beam.sdk.io.FileSystems;
+import org.apache.beam.sdk.io.fs.EmptyMatchTreatment;
+import org.apache.beam.sdk.io.fs.MatchResult;
+import org.apache.beam.sdk.io.fs.ResolveOptions.StandardResolveOptions;
+import org.apache.beam.sdk.io.fs.ResourceId;
+import org.apache.beam.sdk.schemas.utils.AvroUtils;
+import org.apache.beam.sdk.values.PCollection;
+import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.plan.RelOptUtil;
+import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.rel.RelNode;
+import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.rel.core.TableModify;
+import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.rel.core.TableScan;
+import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.rel.core.Values;
+import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.rex.RexCall;
+import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.rex.RexNode;
+import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.rex.RexShuttle;
+import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.hash.Hasher;
+import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.hash.Hashing;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Caches the results of bounded queries which only read files, see {@link
+ * BeamSqlPipelineOptions#getMaterializationCacheLocation()}.
+ *
+ * <p>Results are keyed by a fingerprint of the query plan and of the names, sizes and modification
+ * times of all files the query reads. A query whose result is not cached yet runs as usual and
+ * additionally writes its result as Avro files to {@code <location>/<fingerprint>/} (see {@link
+ * BeamMaterializeRel}). Once all of them are written, their names are recorded in a {@code
+ * _SUCCESS} file next to them. From then on, plans of the query are replaced by a {@link
+ * BeamMaterializedScanRel} which reads these files, until any of the files read by the query is
+ * added, removed or modified. Stale results are not deleted.
+ */
+@SuppressWarnings({
+  "nullness" // TODO(https://issues.apache.org/jira/browse/BEAM-10402)
+})
+public class MaterializationCache {
+  private static final Logger LOG = LoggerFactory.getLogger(MaterializationCache.class);
+
+  static final String SUCCESS_FILE = "_SUCCESS";
+
+  private final String location;
+
+  private MaterializationCache(String location) {
+    this.location = location;
+  }
+
+  /** Returns the cache configured by {@code options}, or null if no results are cached. */
+  public static @Nullable MaterializationCache of(BeamSqlPipelineOptions options) {
+    String location = options.getMaterializationCacheLocation();
+    return location == null || location.isEmpty() ? null : new MaterializationCache(location);
+  }
+
+  /**
+   * Replaces {@code node} by a scan of its cached result, or makes it cache its result if it is not
+   * cached yet. Returns {@code node} unchanged if its result cannot be cached.
+   */
+  public BeamRelNode apply(BeamRelNode node) {
+    String fingerprint = fingerprint(node);
+    if (fingerprint == null) {
+      return node;
+    }
+    BeamRelNode cached = scan(fingerprint, node);
+    return cached != null ? cached : materialize(fingerprint, node);
+  }
+
+  /**
+   * Returns the fingerprint of the result of {@code plan}, or null if it cannot be cached. The
+   * result of a plan can be cached if it is deterministic, bounded and only reads from tables with
+   * {@link BeamSqlTable#getSourceFilePatterns() source files}.
+   */
+  public @Nullable String fingerprint(RelNode plan) {
+    List<BeamSqlTable> sources = new ArrayList<>();
+    if (!collectSources(plan, sources)) {
+      return null;
+    }
+    try {
+      AvroUtils.toAvroSchema(
+          BeamMaterializeRel.storageSchema(CalciteUtils.toSchema(plan.getRowType())));
+    } catch (RuntimeException e) {
+      LOG.debug("Not caching a result which cannot be stored as Avro", e);
+      return null;
+    }
+
+    Hasher hasher = Hashing.sha256().newHasher();
+    hasher.putString(RelOptUtil.toString(plan), UTF_8);
+    hasher.putString(plan.getRowType().getFullTypeString(), UTF_8);
+    for (BeamSqlTable source : sources) {
+      for (String filePattern : source.getSourceFilePatterns()) {
+        hasher.putString(filePattern, UTF_8);
+        List<MatchResult.Metadata> files;
+        try {
+          MatchResult match =
+              FileSystems.match(Collections.singletonList(filePattern), EmptyMatchTreatment.ALLOW)
+                  .get(0);
+          files =
+              match.status() == MatchResult.Status.NOT_FOUND
+                  ? Collections.emptyList()
+                  : match.metadata();
+        } catch (IOException e) {
+          LOG.warn("Not caching a result because {} could not be matched", filePattern, e);
+          return null;
+        }
+        files = new ArrayList<>(files);
+        files.sort(Comparator.comparing(file -> file.resourceId().toString()));
+        for (MatchResult.Metadata file : files) {
+          hasher.putString(file.resourceId().toString(), UTF_8);
+          hasher.putLong(file.sizeBytes());
+          hasher.putLong(file.lastModifiedMillis());
+        }
+      }
+    }
+    return hasher.hash().toString();
+  }
+
+  /**
+   * Returns a plan which reads the cached result of {@code plan}, or null if there is no cached
+   * result with the given fingerprint.
+   */
+  public @Nullable BeamRelNode scan(String fingerprint, RelNode plan) {
+    ResourceId directory = directory(fingerprint);
+    ResourceId successFile = directory.resolve(SUCCESS_FILE, StandardResolveOptions.RESOLVE_FILE);
+    List<String> files;
+    try (BufferedReader reader =
+        new BufferedReader(
+            new InputStreamReader(Channels.newInputStream(FileSystems.open(successFile)), UTF_8))) {
+      files = reader.lines().filter(line -> !line.isEmpty()).collect(Collectors.toList());
+    } catch (FileNotFoundException e) {
+      return null;
+    } catch (IOException e) {
+      LOG.warn("Could not read the cached result {}", successFile, e);
+      return null;
+    }
+    LOG.info("Reading the cached result {}", directory);
+    return new BeamMaterializedScanRel(
+        plan.getCluster(),
+        plan.getTraitSet().replace(BeamLogicalConvention.INSTANCE),
+        plan.getRowType(),
+        directory.toString(),
+        files);
+  }
+
+  /** Returns a plan which runs {@code node} and caches its result under {@code fingerprint}. */
+  public BeamRelNode materialize(String fingerprint, BeamRelNode node) {
+    return new BeamMaterializeRel(
+        node.getCluster(), node.getTraitSet(), node, directory(fingerprint).toString());
+  }
+
+  private ResourceId directory(String fingerprint) {
+    return FileSystems.matchNewResource(location, true)
+        .resolve(fingerprint, StandardResolveOptions.RESOLVE_DIRECTORY);
+  }
+
+  private static boolean collectSources(RelNode node, List<BeamSqlTable> sources) {
+    if (node instanceof BeamIOSourceRel) {
+      BeamSqlTable table = ((BeamIOSourceRel) node).getBeamSqlTable();
+      if (table.isBounded() != PCollection.IsBounded.BOUNDED
+          || table.getSourceFilePatterns().isEmpty()) {
+        return false;
+      }
+      sources.add(table);
+      return true;
+    }
+    if (node instanceof TableScan
+        || node instanceof TableModify
+        || node instanceof BeamMaterializeRel
+        || (node.getInputs().isEmpty() && !(node instanceof Values))
+        || !isDeterministic(node)) {
+      return false;
+    }
+    for (RelNode input : node.getInputs()) {
+      if (!collectSources(input, sources)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean isDeterministic(RelNode node) {
+    boolean[] deterministic = {true};
+    node.accept(
+        new RexShuttle() {
+          @Override
+          public RexNode visitCall(RexCall call) {
+            if (!call.getOperator().isDeterministic() || call.getOperator().isDynamicFunction()) {
+              deterministic[0] = false;
+            }
+            return super.visitCall(call);
+          }
+        });
+    return deterministic[0];
+  }
+}
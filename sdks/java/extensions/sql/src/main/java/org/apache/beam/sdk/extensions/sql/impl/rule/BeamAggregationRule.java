@@ -21,6 +21,7 @@ import java.util.ArrayList;
 import java.util.List;
 import org.apache.beam.sdk.extensions.sql.impl.rel.BeamAggregationRel;
 import org.apache.beam.sdk.extensions.sql.impl.rel.BeamLogicalConvention;
+import org.apache.beam.sdk.extensions.sql.impl.rel.BeamSqlRelUtils;
 import org.apache.beam.sdk.transforms.windowing.FixedWindows;
 import org.apache.beam.sdk.transforms.windowing.Sessions;
 import org.apache.beam.sdk.transforms.windowing.SlidingWindows;
@@ -61,10 +62,6 @@ public class BeamAggregationRule extends RelOptRule {
     final Aggregate aggregate = call.rel(0);
     final Project project = call.rel(1);
 
-    if (aggregate.getGroupType() != Aggregate.Group.SIMPLE) {
-      return;
-    }
-
     RelNode x = updateWindow(call, aggregate, project);
     if (x == null) {
       // Non-windowed case should be handled by the BeamBasicAggregationRule
@@ -98,6 +95,12 @@ public class BeamAggregationRule extends RelOptRule {
     if (windowFn == null) {
       return null;
     }
+    // Rows are grouped by window in every grouping set.
+    for (ImmutableBitSet groupingSet : aggregate.getGroupSets()) {
+      if (!groupingSet.get(windowFieldIndex)) {
+        return null;
+      }
+    }
 
     final Project newProject =
         project.copy(project.getTraitSet(), project.getInput(), projects, project.getRowType());
@@ -108,7 +111,9 @@ public class BeamAggregationRule extends RelOptRule {
         convert(newProject, newProject.getTraitSet().replace(BeamLogicalConvention.INSTANCE)),
         aggregate.getGroupSet(),
         aggregate.getGroupSets(),
-        aggregate.getAggCallList(),
+        BeamSqlRelUtils.getPipelineOptions(call.getPlanner()).getApproximateCountDistinct()
+            ? BeamAggregationRel.approximateCountDistinct(aggregate.getAggCallList())
+            : aggregate.getAggCallList(),
         windowFn,
         windowFieldIndex);
   }
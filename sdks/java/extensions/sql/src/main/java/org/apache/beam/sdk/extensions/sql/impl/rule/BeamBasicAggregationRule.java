@@ -18,29 +18,45 @@
 package org.apache.beam.sdk.extensions.sql.impl.rule;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
+import org.apache.beam.sdk.extensions.sql.impl.BeamSqlPipelineOptions;
 import org.apache.beam.sdk.extensions.sql.impl.rel.BeamAggregationRel;
 import org.apache.beam.sdk.extensions.sql.impl.rel.BeamLogicalConvention;
+import org.apache.beam.sdk.extensions.sql.impl.rel.BeamSqlRelUtils;
+import org.apache.beam.vendor.calcite.v1_20_0.com.google.common.collect.ImmutableList;
 import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.plan.RelOptRule;
 import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.plan.RelOptRuleCall;
+import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.plan.RelTraitSet;
 import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.plan.volcano.RelSubset;
+import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.rel.RelCollations;
 import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.rel.RelNode;
 import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.rel.core.Aggregate;
+import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.rel.core.AggregateCall;
 import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.rel.core.Calc;
 import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.rel.core.Filter;
 import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.rel.core.Project;
 import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.rel.core.RelFactories;
 import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.rex.RexCall;
 import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.rex.RexNode;
+import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.sql.SqlAggFunction;
 import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.sql.SqlKind;
+import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.sql.fun.SqlStdOperatorTable;
 import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.tools.RelBuilderFactory;
+import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.util.ImmutableBitSet;
+import org.checkerframework.checker.nullness.qual.Nullable;
 
 /**
  * Aggregation rule that doesn't include projection.
  *
  * <p>Doesn't support windowing, as we extract window information from projection node.
  *
+ * <p>Aggregations by {@code GROUPING SETS} can be split into an aggregation by all of the grouping
+ * columns and an aggregation of the partial aggregates by the grouping sets, see {@link
+ * org.apache.beam.sdk.extensions.sql.impl.BeamSqlPipelineOptions#getPreAggregateGroupingSets()}.
+ *
  * <p>{@link BeamAggregationRule} supports projection and windowing.
  */
 @SuppressWarnings({
@@ -60,10 +76,6 @@ public class BeamBasicAggregationRule extends RelOptRule {
     Aggregate aggregate = call.rel(0);
     RelNode relNode = call.rel(1);
 
-    if (aggregate.getGroupType() != Aggregate.Group.SIMPLE) {
-      return;
-    }
-
     if (relNode instanceof Project || relNode instanceof Calc || relNode instanceof Filter) {
       if (isWindowed(relNode) || hasWindowedParents(relNode)) {
         // This case is expected to get handled by the 'BeamAggregationRule'
@@ -72,20 +84,118 @@ public class BeamBasicAggregationRule extends RelOptRule {
     }
 
     RelNode newTableScan = relNode.copy(relNode.getTraitSet(), relNode.getInputs());
+    RelNode input =
+        convert(newTableScan, newTableScan.getTraitSet().replace(BeamLogicalConvention.INSTANCE));
+
+    BeamSqlPipelineOptions options = BeamSqlRelUtils.getPipelineOptions(call.getPlanner());
+    List<AggregateCall> aggCalls =
+        options.getApproximateCountDistinct()
+            ? BeamAggregationRel.approximateCountDistinct(aggregate.getAggCallList())
+            : aggregate.getAggCallList();
+
+    // The final aggregation of a split aggregation is not split again.
+    if (aggregate.getGroupType() != Aggregate.Group.SIMPLE
+        && !(aggregate instanceof BeamAggregationRel)
+        && options.getPreAggregateGroupingSets()) {
+      RelNode preAggregated = preAggregate(aggregate, input);
+      if (preAggregated != null) {
+        call.transformTo(preAggregated);
+        return;
+      }
+    }
 
     call.transformTo(
         new BeamAggregationRel(
             aggregate.getCluster(),
             aggregate.getTraitSet().replace(BeamLogicalConvention.INSTANCE),
-            convert(
-                newTableScan, newTableScan.getTraitSet().replace(BeamLogicalConvention.INSTANCE)),
+            input,
             aggregate.getGroupSet(),
             aggregate.getGroupSets(),
-            aggregate.getAggCallList(),
+            aggCalls,
             null,
             -1));
   }
 
+  /**
+   * Splits an aggregation by grouping sets into an aggregation by all of the grouping columns,
+   * followed by the aggregation of its partial aggregates by the grouping sets. Returns null if one
+   * of the aggregate functions cannot be computed from partial aggregates.
+   */
+  private static @Nullable RelNode preAggregate(Aggregate aggregate, RelNode input) {
+    ImmutableBitSet groupSet = aggregate.getGroupSet();
+    int groupCount = groupSet.cardinality();
+    Map<Integer, Integer> groupFieldMapping = new HashMap<>();
+    for (int i = 0; i < groupCount; i++) {
+      groupFieldMapping.put(groupSet.nth(i), i);
+    }
+
+    List<AggregateCall> partialAggCalls = new ArrayList<>();
+    List<AggregateCall> finalAggCalls = new ArrayList<>();
+    for (AggregateCall aggCall : aggregate.getAggCallList()) {
+      if (BeamAggregationRel.isGroupingFunction(aggCall)) {
+        List<Integer> args =
+            aggCall.getArgList().stream().map(groupFieldMapping::get).collect(Collectors.toList());
+        finalAggCalls.add(aggCall.copy(args, -1, aggCall.getCollation()));
+        continue;
+      }
+      SqlAggFunction rollup = rollupFunction(aggCall.getAggregation().getKind());
+      if (rollup == null || aggCall.isDistinct() || aggCall.filterArg >= 0) {
+        return null;
+      }
+      finalAggCalls.add(
+          AggregateCall.create(
+              rollup,
+              false,
+              aggCall.isApproximate(),
+              ImmutableList.of(groupCount + partialAggCalls.size()),
+              -1,
+              RelCollations.EMPTY,
+              aggCall.getType(),
+              aggCall.getName()));
+      partialAggCalls.add(aggCall);
+    }
+
+    RelTraitSet traitSet = aggregate.getTraitSet().replace(BeamLogicalConvention.INSTANCE);
+    BeamAggregationRel partial =
+        new BeamAggregationRel(
+            aggregate.getCluster(),
+            traitSet,
+            input,
+            groupSet,
+            ImmutableList.of(groupSet),
+            partialAggCalls,
+            null,
+            -1);
+    return new BeamAggregationRel(
+        aggregate.getCluster(),
+        traitSet,
+        partial,
+        ImmutableBitSet.range(groupCount),
+        aggregate.getGroupSets().stream()
+            .map(groupingSet -> groupingSet.permute(groupFieldMapping))
+            .collect(Collectors.toList()),
+        finalAggCalls,
+        null,
+        -1);
+  }
+
+  /** Returns the function aggregating partial aggregates of {@code kind}, if there is one. */
+  private static @Nullable SqlAggFunction rollupFunction(SqlKind kind) {
+    switch (kind) {
+      case COUNT:
+      case SUM0:
+        return SqlStdOperatorTable.SUM0;
+      case SUM:
+        return SqlStdOperatorTable.SUM;
+      case MIN:
+        return SqlStdOperatorTable.MIN;
+      case MAX:
+        return SqlStdOperatorTable.MAX;
+      default:
+        return null;
+    }
+  }
+
   private static boolean isWindowed(RelNode node) {
     List<RexNode> projects = null;
 
@@ -17,9 +17,11 @@
  */
 package org.apache.beam.sdk.extensions.sql.impl.rule;
 
+import java.util.Optional;
 import org.apache.beam.sdk.extensions.sql.impl.rel.BeamJoinRel;
 import org.apache.beam.sdk.extensions.sql.impl.rel.BeamLogicalConvention;
 import org.apache.beam.sdk.extensions.sql.impl.rel.BeamSideInputJoinRel;
+import org.apache.beam.sdk.extensions.sql.impl.rel.BeamSqlRelUtils;
 import org.apache.beam.sdk.values.PCollection;
 import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.plan.RelOptRule;
 import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.plan.RelOptRuleCall;
@@ -32,7 +34,10 @@ import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.rel.logical.Log
  * Rule to convert {@code LogicalJoin} node to {@code BeamSideInputJoinRel} node.
  *
  * <p>This rule is matched when one of the input to {@code LogicalJoin} node is {@code
- * PCollection.IsBounded.BOUNDED} and the other node is {@code PCollection.IsBounded.UNBOUNDED}
+ * PCollection.IsBounded.BOUNDED} and the other node is {@code PCollection.IsBounded.UNBOUNDED}, or
+ * when both inputs are bounded and one of them is estimated to be smaller than {@link
+ * org.apache.beam.sdk.extensions.sql.impl.BeamSqlPipelineOptions#getBroadcastJoinThresholdBytes()}.
+ * In the latter case the planner chooses between this join and a {@code BeamCoGBKJoinRel} by cost.
  *
  * <p>As {@code BeamSideInputLookupJoinRel} also matches this condition, to avoid conflicts, this
  * rule is not matched when any of the inputs to {@code LogicalJoin} node are Seekable.
@@ -55,14 +60,16 @@ public class BeamSideInputJoinRule extends RelOptRule {
     }
     PCollection.IsBounded boundednessOfLeftRel = BeamJoinRel.getBoundednessOfRelNode(call.rel(1));
     PCollection.IsBounded boundednessOfRightRel = BeamJoinRel.getBoundednessOfRelNode(call.rel(2));
-    return (boundednessOfLeftRel == PCollection.IsBounded.BOUNDED
-        ? boundednessOfRightRel == PCollection.IsBounded.UNBOUNDED
-        : boundednessOfRightRel == PCollection.IsBounded.BOUNDED);
+    if (boundednessOfLeftRel != boundednessOfRightRel) {
+      return true;
+    }
+    return getBroadcastInputIndex(call).isPresent();
   }
 
   @Override
   public void onMatch(RelOptRuleCall call) {
     Join join = (Join) call.rel(0);
+    Optional<Integer> broadcastInputIndex = getBroadcastInputIndex(call);
 
     BeamSideInputJoinRel rel =
         new BeamSideInputJoinRel(
@@ -76,7 +83,17 @@ public class BeamSideInputJoinRule extends RelOptRule {
                 join.getRight().getTraitSet().replace(BeamLogicalConvention.INSTANCE)),
             join.getCondition(),
             join.getVariablesSet(),
-            join.getJoinType());
+            join.getJoinType(),
+            broadcastInputIndex.isPresent() ? broadcastInputIndex.get() == 0 : null);
     call.transformTo(rel);
   }
+
+  private static Optional<Integer> getBroadcastInputIndex(RelOptRuleCall call) {
+    return BeamJoinRel.getBroadcastInputIndex(
+        call.rel(0),
+        call.rel(1),
+        call.rel(2),
+        call.getMetadataQuery(),
+        BeamSqlRelUtils.getPipelineOptions(call.getPlanner()).getBroadcastJoinThresholdBytes());
+  }
 }
@@ -91,7 +91,8 @@ public final class BeamTableUtils {
     StringWriter writer = new StringWriter();
     try (CSVPrinter printer = csvFormat.print(writer)) {
       for (int i = 0; i < row.getFieldCount(); i++) {
-        printer.print(row.getBaseValue(i, Object.class).toString());
+        Object value = row.getBaseValue(i, Object.class);
+        printer.print(value == null ? null : value.toString());
       }
       printer.println();
     } catch (IOException e) {
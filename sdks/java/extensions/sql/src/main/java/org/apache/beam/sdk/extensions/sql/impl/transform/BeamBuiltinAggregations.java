@@ -27,6 +27,9 @@ import org.apache.beam.sdk.coders.BigEndianIntegerCoder;
 import org.apache.beam.sdk.coders.Coder;
 import org.apache.beam.sdk.coders.CoderRegistry;
 import org.apache.beam.sdk.coders.KvCoder;
+import org.apache.beam.sdk.extensions.sql.impl.UdafImpl;
+import org.apache.beam.sdk.extensions.sql.impl.transform.agg.ApproxCountDistinct;
+import org.apache.beam.sdk.extensions.sql.impl.transform.agg.ApproxQuantiles;
 import org.apache.beam.sdk.extensions.sql.impl.transform.agg.CountIf;
 import org.apache.beam.sdk.extensions.sql.impl.transform.agg.CovarianceFn;
 import org.apache.beam.sdk.extensions.sql.impl.transform.agg.VarianceFn;
@@ -45,7 +48,10 @@ import org.apache.beam.sdk.values.KV;
 import org.apache.beam.vendor.calcite.v1_20_0.com.google.common.collect.ImmutableMap;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
-/** Built-in aggregations functions for COUNT/MAX/MIN/SUM/AVG/VAR_POP/VAR_SAMP. */
+/**
+ * Built-in aggregations functions for COUNT/MAX/MIN/SUM/AVG/VAR_POP/VAR_SAMP and the approximate
+ * APPROX_COUNT_DISTINCT/APPROX_QUANTILES.
+ */
 @SuppressWarnings({
   "rawtypes", // TODO(https://issues.apache.org/jira/browse/BEAM-10556)
   "nullness" // TODO(https://issues.apache.org/jira/browse/BEAM-10402)
@@ -71,8 +77,17 @@ public class BeamBuiltinAggregations {
               .put("COVAR_POP", t -> CovarianceFn.newPopulation(t.getTypeName()))
               .put("COVAR_SAMP", t -> CovarianceFn.newSample(t.getTypeName()))
               .put("COUNTIF", typeName -> CountIf.combineFn())
+              // Takes the type of the input rather than of the output.
+              .put("APPROX_COUNT_DISTINCT", ApproxCountDistinct::combineFn)
               .build();
 
+  /**
+   * Built-in aggregation functions which the Calcite dialect does not define. They are registered
+   * like UDAFs.
+   */
+  public static final Map<String, UdafImpl<?, ?, ?>> BUILTIN_UDAFS =
+      ImmutableMap.of("APPROX_QUANTILES", ApproxQuantiles.udaf());
+
   private static MathContext mc = new MathContext(10, RoundingMode.HALF_UP);
 
   public static CombineFn<?, ?, ?> create(String functionName, Schema.FieldType fieldType) {
@@ -18,25 +18,48 @@
 package org.apache.beam.sdk.extensions.sql.impl.transform;
 
 import static java.util.stream.Collectors.toList;
+import static org.apache.beam.vendor.guava.v26_0_jre.com.google.common.base.Preconditions.checkArgument;
+import static org.apache.beam.vendor.guava.v26_0_jre.com.google.common.base.Preconditions.checkState;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import org.apache.beam.sdk.extensions.sql.BeamSqlSeekableTable;
+import org.apache.beam.sdk.extensions.sql.impl.BeamSqlPipelineOptions;
 import org.apache.beam.sdk.extensions.sql.impl.utils.SerializableRexFieldAccess;
 import org.apache.beam.sdk.extensions.sql.impl.utils.SerializableRexInputRef;
 import org.apache.beam.sdk.extensions.sql.impl.utils.SerializableRexNode;
+import org.apache.beam.sdk.metrics.Counter;
+import org.apache.beam.sdk.metrics.Metrics;
 import org.apache.beam.sdk.schemas.FieldAccessDescriptor;
 import org.apache.beam.sdk.schemas.Schema;
 import org.apache.beam.sdk.transforms.DoFn;
 import org.apache.beam.sdk.transforms.PTransform;
 import org.apache.beam.sdk.transforms.ParDo;
+import org.apache.beam.sdk.transforms.windowing.BoundedWindow;
 import org.apache.beam.sdk.values.PCollection;
 import org.apache.beam.sdk.values.Row;
 import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.rex.RexCall;
 import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.rex.RexInputRef;
 import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.rex.RexNode;
 import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.util.Pair;
+import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.cache.Cache;
+import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.cache.CacheBuilder;
+import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.collect.MapMaker;
+import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.joda.time.Instant;
 
 /** Collections of {@code PTransform} and {@code DoFn} used to perform JOIN operation. */
 @SuppressWarnings({
@@ -145,42 +168,295 @@ public class BeamJoinTransforms {
 
     @Override
     public PCollection<Row> expand(PCollection<Row> input) {
+      BeamSqlPipelineOptions options =
+          input.getPipeline().getOptions().as(BeamSqlPipelineOptions.class);
       return input
           .apply(
               "join_as_lookup",
               ParDo.of(
-                  new DoFn<Row, Row>() {
-                    @Setup
-                    public void setup() {
-                      seekableTable.setUp();
-                    }
-
-                    @ProcessElement
-                    public void processElement(ProcessContext context) {
-                      Row factRow = context.element();
-                      Row joinSubRow = extractJoinSubRow(factRow);
-                      List<Row> lookupRows = seekableTable.seekRow(joinSubRow);
-                      for (Row lr : lookupRows) {
-                        context.output(
-                            combineTwoRowsIntoOne(factRow, lr, factColOffset != 0, outputSchema));
-                      }
-                    }
-
-                    @Teardown
-                    public void teardown() {
-                      seekableTable.tearDown();
-                    }
-
-                    private Row extractJoinSubRow(Row factRow) {
-                      List<Object> joinSubsetValues =
-                          factJoinIdx.stream()
-                              .map(i -> factRow.getBaseValue(i, Object.class))
-                              .collect(toList());
-
-                      return Row.withSchema(joinSubsetType).addValues(joinSubsetValues).build();
-                    }
-                  }))
+                  new LookupFn(
+                      seekableTable,
+                      joinSubsetType,
+                      factJoinIdx,
+                      outputSchema,
+                      factColOffset != 0,
+                      options.getLookupJoinBatchSize(),
+                      options.getLookupJoinMaxConcurrentBatches(),
+                      UUID.randomUUID().toString(),
+                      options.getLookupJoinCacheSize(),
+                      options.getLookupJoinCacheTtlMillis())))
           .setRowSchema(joinSubsetType);
     }
   }
+
+  /**
+   * Looks up the join keys of a bundle in batches of distinct keys, with a bounded number of
+   * batches in flight. Results are optionally kept in a cache shared by all the threads of a
+   * worker, so that only keys missing from the cache are looked up.
+   *
+   * <p>The results of a batch are emitted as soon as the batch completes for the fact rows which
+   * can be output from the element being processed, that is the rows in the same window and with a
+   * timestamp no earlier than its own. This covers all the rows of a bounded input in the global
+   * window. The remaining rows are emitted when the bundle finishes.
+   */
+  static class LookupFn extends DoFn<Row, Row> {
+    // Weak values release the cache of a query once no instance of its DoFn is left on the worker.
+    private static final ConcurrentMap<String, Cache<Row, List<Row>>> CACHES =
+        new MapMaker().weakValues().makeMap();
+
+    private final Counter cacheHits = Metrics.counter(JoinAsLookup.class, "lookupCacheHits");
+    private final Counter cacheMisses = Metrics.counter(JoinAsLookup.class, "lookupCacheMisses");
+    private final Counter lookupBatches = Metrics.counter(JoinAsLookup.class, "lookupBatches");
+
+    private final BeamSqlSeekableTable seekableTable;
+    private final Schema joinSubsetType;
+    private final List<Integer> factJoinIdx;
+    private final Schema outputSchema;
+    private final boolean swap;
+    private final int batchSize;
+    private final int maxConcurrentBatches;
+    private final String cacheId;
+    private final long cacheSize;
+    private final long cacheTtlMillis;
+
+    private transient @Nullable Cache<Row, List<Row>> cache;
+    private transient @Nullable ExecutorService executor;
+    private transient Map<Row, List<PendingRow>> pendingRows;
+    private transient Deque<LookupBatch> inFlightBatches;
+    // Looked up rows which could not be output from the element which completed their batch.
+    private transient List<PendingRow> deferredRows;
+
+    LookupFn(
+        BeamSqlSeekableTable seekableTable,
+        Schema joinSubsetType,
+        List<Integer> factJoinIdx,
+        Schema outputSchema,
+        boolean swap,
+        int batchSize,
+        int maxConcurrentBatches,
+        String cacheId,
+        long cacheSize,
+        long cacheTtlMillis) {
+      checkArgument(batchSize > 0, "lookupJoinBatchSize must be positive, got %s", batchSize);
+      checkArgument(
+          maxConcurrentBatches > 0,
+          "lookupJoinMaxConcurrentBatches must be positive, got %s",
+          maxConcurrentBatches);
+      this.seekableTable = seekableTable;
+      this.joinSubsetType = joinSubsetType;
+      this.factJoinIdx = factJoinIdx;
+      this.outputSchema = outputSchema;
+      this.swap = swap;
+      this.batchSize = batchSize;
+      this.maxConcurrentBatches = maxConcurrentBatches;
+      this.cacheId = cacheId;
+      this.cacheSize = cacheSize;
+      this.cacheTtlMillis = cacheTtlMillis;
+    }
+
+    @Setup
+    public void setup() {
+      seekableTable.setUp();
+      if (cacheSize > 0) {
+        cache =
+            CACHES.computeIfAbsent(
+                cacheId,
+                id ->
+                    CacheBuilder.newBuilder()
+                        .maximumSize(cacheSize)
+                        .expireAfterWrite(cacheTtlMillis, TimeUnit.MILLISECONDS)
+                        .build());
+      }
+      if (maxConcurrentBatches > 1) {
+        executor =
+            Executors.newFixedThreadPool(
+                maxConcurrentBatches,
+                new ThreadFactoryBuilder()
+                    .setDaemon(true)
+                    .setNameFormat("sql-lookup-join-%d")
+                    .build());
+      }
+      inFlightBatches = new ArrayDeque<>();
+      deferredRows = new ArrayList<>();
+    }
+
+    @StartBundle
+    public void startBundle() {
+      pendingRows = new LinkedHashMap<>();
+    }
+
+    @ProcessElement
+    public void processElement(
+        @Element Row factRow,
+        @Timestamp Instant timestamp,
+        BoundedWindow window,
+        OutputReceiver<Row> out) {
+      Row joinSubRow = extractJoinSubRow(factRow);
+      if (cache != null) {
+        List<Row> lookupRows = cache.getIfPresent(joinSubRow);
+        if (lookupRows != null) {
+          cacheHits.inc();
+          for (Row lr : lookupRows) {
+            out.output(combineTwoRowsIntoOne(factRow, lr, swap, outputSchema));
+          }
+          return;
+        }
+      }
+      pendingRows
+          .computeIfAbsent(joinSubRow, key -> new ArrayList<>())
+          .add(new PendingRow(factRow, timestamp, window));
+      if (pendingRows.size() >= batchSize) {
+        lookupPendingRows(timestamp, window, out);
+      }
+      while (!inFlightBatches.isEmpty() && inFlightBatches.peek().isDone()) {
+        emit(inFlightBatches.poll().await(), timestamp, window, out);
+      }
+    }
+
+    @FinishBundle
+    public void finishBundle(FinishBundleContext context) {
+      if (!pendingRows.isEmpty()) {
+        lookupPendingRows(null, null, null);
+      }
+      while (!inFlightBatches.isEmpty()) {
+        emit(inFlightBatches.poll().await(), null, null, null);
+      }
+      for (PendingRow pending : deferredRows) {
+        for (Row lr : pending.lookupRows) {
+          context.output(
+              combineTwoRowsIntoOne(pending.factRow, lr, swap, outputSchema),
+              pending.timestamp,
+              pending.window);
+        }
+      }
+      deferredRows.clear();
+    }
+
+    @Teardown
+    public void teardown() {
+      if (executor != null) {
+        executor.shutdownNow();
+      }
+      seekableTable.tearDown();
+    }
+
+    /**
+     * Looks up the pending join keys as one batch. The arguments describe the element being
+     * processed, and are null when called from {@link FinishBundle}.
+     */
+    private void lookupPendingRows(
+        @Nullable Instant timestamp,
+        @Nullable BoundedWindow window,
+        @Nullable OutputReceiver<Row> out) {
+      List<Row> joinSubRows = new ArrayList<>(pendingRows.keySet());
+      LookupBatch batch = new LookupBatch(joinSubRows, pendingRows);
+      pendingRows = new LinkedHashMap<>();
+      lookupBatches.inc();
+      if (cache != null) {
+        cacheMisses.inc(joinSubRows.size());
+      }
+      if (executor == null) {
+        batch.complete(seekableTable.seekRows(joinSubRows));
+        emit(batch, timestamp, window, out);
+        return;
+      }
+      while (inFlightBatches.size() >= maxConcurrentBatches) {
+        emit(inFlightBatches.poll().await(), timestamp, window, out);
+      }
+      batch.future = executor.submit(() -> seekableTable.seekRows(joinSubRows));
+      inFlightBatches.add(batch);
+    }
+
+    /**
+     * Outputs the joined rows of a completed batch which can be output from the element being
+     * processed, and defers the others until the bundle finishes.
+     */
+    private void emit(
+        LookupBatch batch,
+        @Nullable Instant timestamp,
+        @Nullable BoundedWindow window,
+        @Nullable OutputReceiver<Row> out) {
+      for (int i = 0; i < batch.joinSubRows.size(); i++) {
+        List<Row> lookupRows = batch.results.get(i);
+        for (PendingRow pending : batch.pendingRows.get(batch.joinSubRows.get(i))) {
+          if (out != null
+              && pending.window.equals(window)
+              && !pending.timestamp.isBefore(timestamp)) {
+            for (Row lr : lookupRows) {
+              out.outputWithTimestamp(
+                  combineTwoRowsIntoOne(pending.factRow, lr, swap, outputSchema),
+                  pending.timestamp);
+            }
+          } else {
+            pending.lookupRows = lookupRows;
+            deferredRows.add(pending);
+          }
+        }
+      }
+    }
+
+    private Row extractJoinSubRow(Row factRow) {
+      List<Object> joinSubsetValues =
+          factJoinIdx.stream().map(i -> factRow.getBaseValue(i, Object.class)).collect(toList());
+
+      return Row.withSchema(joinSubsetType).addValues(joinSubsetValues).build();
+    }
+
+    /** A fact row waiting for the lookup of its join key. */
+    private static class PendingRow {
+      private final Row factRow;
+      private final Instant timestamp;
+      private final BoundedWindow window;
+      private List<Row> lookupRows;
+
+      PendingRow(Row factRow, Instant timestamp, BoundedWindow window) {
+        this.factRow = factRow;
+        this.timestamp = timestamp;
+        this.window = window;
+      }
+    }
+
+    /** The distinct join keys of one call to {@link BeamSqlSeekableTable#seekRows}. */
+    private class LookupBatch {
+      private final List<Row> joinSubRows;
+      private final Map<Row, List<PendingRow>> pendingRows;
+      private @Nullable Future<List<List<Row>>> future;
+      private List<List<Row>> results;
+
+      LookupBatch(List<Row> joinSubRows, Map<Row, List<PendingRow>> pendingRows) {
+        this.joinSubRows = joinSubRows;
+        this.pendingRows = pendingRows;
+      }
+
+      boolean isDone() {
+        return future == null || future.isDone();
+      }
+
+      LookupBatch await() {
+        try {
+          complete(future.get());
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+          throw new RuntimeException(e.getCause());
+        }
+        return this;
+      }
+
+      void complete(List<List<Row>> results) {
+        checkState(
+            results.size() == joinSubRows.size(),
+            "seekRows returned %s results for %s join keys",
+            results.size(),
+            joinSubRows.size());
+        this.results = results;
+        if (cache != null) {
+          for (int i = 0; i < joinSubRows.size(); i++) {
+            cache.put(joinSubRows.get(i), results.get(i));
+          }
+        }
+      }
+    }
+  }
 }
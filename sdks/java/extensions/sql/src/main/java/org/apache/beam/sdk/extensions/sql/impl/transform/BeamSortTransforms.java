@@ -0,0 +1,363 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.sdk.extensions.sql.impl.transform;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import org.apache.beam.sdk.coders.ByteArrayCoder;
+import org.apache.beam.sdk.coders.Coder;
+import org.apache.beam.sdk.coders.IterableCoder;
+import org.apache.beam.sdk.coders.KvCoder;
+import org.apache.beam.sdk.coders.ListCoder;
+import org.apache.beam.sdk.coders.RowCoder;
+import org.apache.beam.sdk.coders.VarIntCoder;
+import org.apache.beam.sdk.extensions.sorter.BufferedExternalSorter;
+import org.apache.beam.sdk.extensions.sorter.ExternalSorter.Options.SorterType;
+import org.apache.beam.sdk.extensions.sorter.SortValues;
+import org.apache.beam.sdk.extensions.sql.impl.schema.BeamTableUtils;
+import org.apache.beam.sdk.io.FileSystems;
+import org.apache.beam.sdk.io.fs.MoveOptions.StandardMoveOptions;
+import org.apache.beam.sdk.io.fs.ResourceId;
+import org.apache.beam.sdk.schemas.Schema;
+import org.apache.beam.sdk.transforms.DoFn;
+import org.apache.beam.sdk.transforms.GroupByKey;
+import org.apache.beam.sdk.transforms.Keys;
+import org.apache.beam.sdk.transforms.PTransform;
+import org.apache.beam.sdk.transforms.ParDo;
+import org.apache.beam.sdk.transforms.Sample;
+import org.apache.beam.sdk.transforms.View;
+import org.apache.beam.sdk.util.MimeTypes;
+import org.apache.beam.sdk.values.KV;
+import org.apache.beam.sdk.values.PCollection;
+import org.apache.beam.sdk.values.PCollectionView;
+import org.apache.beam.sdk.values.Row;
+import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.primitives.UnsignedBytes;
+import org.apache.commons.csv.CSVFormat;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.joda.time.ReadableInstant;
+
+/** Collections of {@code PTransform} and {@code DoFn} used to perform a global ORDER BY. */
+@SuppressWarnings({
+  "nullness" // TODO(https://issues.apache.org/jira/browse/BEAM-10402)
+})
+public abstract class BeamSortTransforms {
+
+  /**
+   * Encodes the ORDER BY fields of a {@link Row} into bytes whose unsigned lexicographical order is
+   * the order of the rows, so that rows can be sorted as bytes by the {@code sorter} extension.
+   *
+   * <p>Every field starts with a marker byte which places nulls first or last. Integral values and
+   * timestamps are encoded as big-endian longs with a flipped sign bit, floating point values as
+   * their IEEE 754 bits with all bits but the sign flipped for negative values, and strings as
+   * UTF-8 with escaped zero bytes and a zero terminator. Descending fields have all the bytes of
+   * their value inverted, which reverses their order since all the encodings are prefix-free.
+   */
+  public static class SortKeyEncoder implements Serializable {
+    private static final int NULL_FIRST = 0x00;
+    private static final int NOT_NULL = 0x01;
+    private static final int NULL_LAST = 0x02;
+
+    private final List<Integer> fieldIndices;
+    private final List<Boolean> orientation;
+    private final List<Boolean> nullsFirst;
+
+    public SortKeyEncoder(
+        List<Integer> fieldIndices, List<Boolean> orientation, List<Boolean> nullsFirst) {
+      this.fieldIndices = new ArrayList<>(fieldIndices);
+      this.orientation = new ArrayList<>(orientation);
+      this.nullsFirst = new ArrayList<>(nullsFirst);
+    }
+
+    /**
+     * Returns whether values of the given type can be encoded. Logical types are supported if their
+     * base type is.
+     */
+    public static boolean supports(Schema.FieldType type) {
+      while (type.getTypeName().isLogicalType()) {
+        type = type.getLogicalType().getBaseType();
+      }
+      switch (type.getTypeName()) {
+        case BYTE:
+        case INT16:
+        case INT32:
+        case INT64:
+        case FLOAT:
+        case DOUBLE:
+        case DATETIME:
+        case STRING:
+          return true;
+        default:
+          return false;
+      }
+    }
+
+    public byte[] encode(Row row) {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      for (int i = 0; i < fieldIndices.size(); i++) {
+        int fieldIndex = fieldIndices.get(i);
+        Object value = row.getBaseValue(fieldIndex, Object.class);
+        if (value == null) {
+          out.write(nullsFirst.get(i) ? NULL_FIRST : NULL_LAST);
+          continue;
+        }
+        out.write(NOT_NULL);
+        byte[] encoded = encodeValue(row.getSchema().getField(fieldIndex), value);
+        if (!orientation.get(i)) {
+          for (int j = 0; j < encoded.length; j++) {
+            encoded[j] = (byte) ~encoded[j];
+          }
+        }
+        out.write(encoded, 0, encoded.length);
+      }
+      return out.toByteArray();
+    }
+
+    private static byte[] encodeValue(Schema.Field field, Object value) {
+      if (value instanceof Float || value instanceof Double) {
+        long bits = Double.doubleToLongBits(((Number) value).doubleValue());
+        return encodeLong(bits ^ ((bits >> 63) & Long.MAX_VALUE));
+      } else if (value instanceof Byte
+          || value instanceof Short
+          || value instanceof Integer
+          || value instanceof Long) {
+        return encodeLong(((Number) value).longValue());
+      } else if (value instanceof ReadableInstant) {
+        return encodeLong(((ReadableInstant) value).getMillis());
+      } else if (value instanceof String) {
+        return encodeString((String) value);
+      }
+      throw new UnsupportedOperationException(
+          String.format(
+              "ORDER BY without LIMIT is not supported for field %s of type %s",
+              field.getName(), field.getType()));
+    }
+
+    private static byte[] encodeLong(long value) {
+      long flipped = value ^ Long.MIN_VALUE;
+      byte[] bytes = new byte[Long.BYTES];
+      for (int i = Long.BYTES - 1; i >= 0; i--) {
+        bytes[i] = (byte) flipped;
+        flipped >>>= 8;
+      }
+      return bytes;
+    }
+
+    private static byte[] encodeString(String value) {
+      byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+      ByteArrayOutputStream out = new ByteArrayOutputStream(utf8.length + 2);
+      for (byte b : utf8) {
+        out.write(b);
+        if (b == 0) {
+          // An escaped zero sorts after the terminator, so that shorter strings sort first.
+          out.write(0xFF);
+        }
+      }
+      out.write(0);
+      out.write(0);
+      return out.toByteArray();
+    }
+  }
+
+  /**
+   * Sorts a bounded {@code PCollection<Row>}, by sampling sort keys to compute range partition
+   * boundaries, shuffling the rows by range, and sorting each range with the {@link
+   * BufferedExternalSorter}, which spills to local disk when a range does not fit in memory.
+   *
+   * <p>A {@code PCollection} has no order, so the sorted order only survives within each range. If
+   * an output prefix is set, each range is also written in order as a CSV file named {@code
+   * <prefix>-<range>-of-<numRanges>.csv}, so that reading the files in name order yields the sorted
+   * result.
+   */
+  public static class GlobalSort extends PTransform<PCollection<Row>, PCollection<Row>> {
+    private static final int SAMPLES_PER_PARTITION = 100;
+
+    private final SortKeyEncoder encoder;
+    private final int numPartitions;
+    private final @Nullable String outputPrefix;
+
+    public GlobalSort(SortKeyEncoder encoder, int numPartitions, @Nullable String outputPrefix) {
+      this.encoder = encoder;
+      this.numPartitions = numPartitions;
+      this.outputPrefix = outputPrefix;
+    }
+
+    @Override
+    public PCollection<Row> expand(PCollection<Row> input) {
+      // The rows are only encoded and decoded by the shuffle and the sorter, so their fields are
+      // decoded lazily, which also lets encoding them again copy their bytes.
+      Coder<Row> rowCoder =
+          input.getCoder() instanceof RowCoder
+              ? ((RowCoder) input.getCoder()).withLazyDecoding()
+              : input.getCoder();
+      PCollection<KV<byte[], Row>> keyed =
+          input
+              .apply("EncodeSortKeys", ParDo.of(new EncodeSortKeyFn(encoder)))
+              .setCoder(KvCoder.of(ByteArrayCoder.of(), rowCoder));
+
+      PCollectionView<List<byte[]>> boundaries =
+          keyed
+              .apply("SortKeys", Keys.create())
+              .apply(
+                  "SampleSortKeys", Sample.fixedSizeGlobally(numPartitions * SAMPLES_PER_PARTITION))
+              .apply("ComputeBoundaries", ParDo.of(new ComputeBoundariesFn(numPartitions)))
+              .setCoder(ListCoder.of(ByteArrayCoder.of()))
+              .apply(View.asSingleton());
+
+      PCollection<KV<Integer, Iterable<KV<byte[], Row>>>> sortedRanges =
+          keyed
+              .apply(
+                  "AssignRanges",
+                  ParDo.of(new AssignRangeFn(boundaries)).withSideInputs(boundaries))
+              .setCoder(KvCoder.of(VarIntCoder.of(), keyed.getCoder()))
+              .apply(GroupByKey.create())
+              .setCoder(KvCoder.of(VarIntCoder.of(), IterableCoder.of(keyed.getCoder())))
+              .apply(
+                  "SortRanges",
+                  SortValues.create(
+                      BufferedExternalSorter.options().withExternalSorterType(SorterType.NATIVE)));
+
+      if (outputPrefix != null) {
+        sortedRanges.apply(
+            "WriteOrderedShards", ParDo.of(new WriteOrderedShardFn(outputPrefix, numPartitions)));
+      }
+
+      return sortedRanges
+          .apply("ExtractRows", ParDo.of(new ExtractRowsFn()))
+          .setCoder(input.getCoder());
+    }
+  }
+
+  /** Keys each row by its encoded sort key. */
+  static class EncodeSortKeyFn extends DoFn<Row, KV<byte[], Row>> {
+    private final SortKeyEncoder encoder;
+
+    EncodeSortKeyFn(SortKeyEncoder encoder) {
+      this.encoder = encoder;
+    }
+
+    @ProcessElement
+    public void processElement(@Element Row row, OutputReceiver<KV<byte[], Row>> r) {
+      r.output(KV.of(encoder.encode(row), row));
+    }
+  }
+
+  /** Picks {@code numPartitions - 1} evenly spaced boundaries from the sampled sort keys. */
+  static class ComputeBoundariesFn extends DoFn<Iterable<byte[]>, List<byte[]>> {
+    private final int numPartitions;
+
+    ComputeBoundariesFn(int numPartitions) {
+      this.numPartitions = numPartitions;
+    }
+
+    @ProcessElement
+    public void processElement(@Element Iterable<byte[]> samples, OutputReceiver<List<byte[]>> r) {
+      List<byte[]> sorted = new ArrayList<>();
+      samples.forEach(sorted::add);
+      sorted.sort(UnsignedBytes.lexicographicalComparator());
+      List<byte[]> boundaries = new ArrayList<>();
+      if (!sorted.isEmpty()) {
+        for (int i = 1; i < numPartitions; i++) {
+          byte[] boundary = sorted.get((int) ((long) i * sorted.size() / numPartitions));
+          // Skip duplicate boundaries, which would leave ranges empty.
+          if (boundaries.isEmpty()
+              || UnsignedBytes.lexicographicalComparator()
+                      .compare(boundaries.get(boundaries.size() - 1), boundary)
+                  < 0) {
+            boundaries.add(boundary);
+          }
+        }
+      }
+      r.output(boundaries);
+    }
+  }
+
+  /** Assigns each row the index of the range its sort key falls into. */
+  static class AssignRangeFn extends DoFn<KV<byte[], Row>, KV<Integer, KV<byte[], Row>>> {
+    private final PCollectionView<List<byte[]>> boundariesView;
+
+    AssignRangeFn(PCollectionView<List<byte[]>> boundariesView) {
+      this.boundariesView = boundariesView;
+    }
+
+    @ProcessElement
+    public void processElement(ProcessContext c) {
+      List<byte[]> boundaries = c.sideInput(boundariesView);
+      Comparator<byte[]> comparator = UnsignedBytes.lexicographicalComparator();
+      int index = Collections.binarySearch(boundaries, c.element().getKey(), comparator);
+      // Keys equal to a boundary start the range of that boundary.
+      int range = index >= 0 ? index + 1 : -index - 1;
+      c.output(KV.of(range, c.element()));
+    }
+  }
+
+  /** Outputs the rows of the sorted ranges. */
+  static class ExtractRowsFn extends DoFn<KV<Integer, Iterable<KV<byte[], Row>>>, Row> {
+    @ProcessElement
+    public void processElement(
+        @Element KV<Integer, Iterable<KV<byte[], Row>>> range, OutputReceiver<Row> r) {
+      for (KV<byte[], Row> row : range.getValue()) {
+        r.output(row.getValue());
+      }
+    }
+  }
+
+  /**
+   * Writes each sorted range to its own CSV file. A range is first written to a temporary file and
+   * then renamed, so that a retried bundle replaces the file instead of leaving a partial one.
+   */
+  static class WriteOrderedShardFn extends DoFn<KV<Integer, Iterable<KV<byte[], Row>>>, Void> {
+    private final String outputPrefix;
+    private final int numPartitions;
+
+    WriteOrderedShardFn(String outputPrefix, int numPartitions) {
+      this.outputPrefix = outputPrefix;
+      this.numPartitions = numPartitions;
+    }
+
+    @ProcessElement
+    public void processElement(@Element KV<Integer, Iterable<KV<byte[], Row>>> range)
+        throws IOException {
+      String shardName =
+          String.format("%s-%05d-of-%05d.csv", outputPrefix, range.getKey(), numPartitions);
+      ResourceId shard = FileSystems.matchNewResource(shardName, false);
+      ResourceId tempShard =
+          FileSystems.matchNewResource(shardName + ".tmp-" + UUID.randomUUID(), false);
+      try (OutputStream out =
+          Channels.newOutputStream(FileSystems.create(tempShard, MimeTypes.TEXT))) {
+        for (KV<byte[], Row> row : range.getValue()) {
+          out.write(
+              BeamTableUtils.beamRow2CsvLine(row.getValue(), CSVFormat.DEFAULT)
+                  .getBytes(StandardCharsets.UTF_8));
+        }
+      }
+      FileSystems.rename(
+          Collections.singletonList(tempShard),
+          Collections.singletonList(shard),
+          StandardMoveOptions.IGNORE_MISSING_FILES);
+    }
+  }
+}
@@ -28,6 +28,7 @@ import org.apache.beam.sdk.schemas.SchemaCoder;
 import org.apache.beam.sdk.transforms.Combine.CombineFn;
 import org.apache.beam.sdk.values.Row;
 import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.rel.core.AggregateCall;
+import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.sql.SqlKind;
 import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.sql.validate.SqlUserDefinedAggFunction;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
@@ -141,16 +142,26 @@ public class AggregationCombineFnAdapter<T> {
     }
   }
 
-  /** Creates either a UDAF or a built-in {@link CombineFn}. */
+  /**
+   * Creates either a UDAF or a built-in {@link CombineFn}. Of the distinct aggregations, only
+   * approximate counts of a single expression are supported.
+   */
   public static CombineFn<?, ?, ?> createCombineFn(
-      AggregateCall call, Schema.Field field, String functionName) {
-    if (call.isDistinct()) {
+      AggregateCall call, Schema.Field field, String functionName, Schema inputSchema) {
+    if (call.isDistinct()
+        && !(call.isApproximate()
+            && call.getAggregation().getKind() == SqlKind.COUNT
+            && call.getArgList().size() == 1)) {
       throw new UnsupportedOperationException(
           "Does not support " + call.getAggregation().getName() + " DISTINCT");
     }
 
     CombineFn combineFn;
-    if (call.getAggregation() instanceof SqlUserDefinedAggFunction) {
+    if (call.isDistinct()) {
+      combineFn =
+          BeamBuiltinAggregations.create(
+              "APPROX_COUNT_DISTINCT", inputSchema.getField(call.getArgList().get(0)).getType());
+    } else if (call.getAggregation() instanceof SqlUserDefinedAggFunction) {
       combineFn = getUdafCombineFn(call);
     } else {
       combineFn = BeamBuiltinAggregations.create(functionName, field.getType());
@@ -0,0 +1,88 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.sdk.extensions.sql.impl.transform.agg;
+
+import com.clearspring.analytics.stream.cardinality.HyperLogLogPlus;
+import org.apache.beam.sdk.coders.Coder;
+import org.apache.beam.sdk.coders.CoderRegistry;
+import org.apache.beam.sdk.extensions.sketching.ApproximateDistinct.ApproximateDistinctFn;
+import org.apache.beam.sdk.extensions.sketching.ApproximateDistinct.HyperLogLogPlusCoder;
+import org.apache.beam.sdk.schemas.Schema.FieldType;
+import org.apache.beam.sdk.schemas.SchemaCoder;
+import org.apache.beam.sdk.transforms.Combine;
+
+/**
+ * Returns the approximate number of distinct non-NULL values of expression, estimated with the
+ * HyperLogLog++ sketch of {@link org.apache.beam.sdk.extensions.sketching.ApproximateDistinct}.
+ * Returns 0 if there are zero input rows, or if expression evaluates to NULL for all rows.
+ */
+public class ApproxCountDistinct {
+  // The precisions BigQuery uses for APPROX_COUNT_DISTINCT.
+  private static final int PRECISION = 15;
+  private static final int SPARSE_PRECISION = 20;
+
+  private ApproxCountDistinct() {}
+
+  /** Returns the {@link Combine.CombineFn} counting the distinct values of {@code inputType}. */
+  public static <T> ApproxCountDistinctFn<T> combineFn(FieldType inputType) {
+    Coder<T> coder = SchemaCoder.coderForFieldType(inputType.withNullable(false));
+    try {
+      return new ApproxCountDistinctFn<>(
+          ApproximateDistinctFn.create(coder)
+              .withPrecision(PRECISION)
+              .withSparseRepresentation(SPARSE_PRECISION));
+    } catch (IllegalArgumentException e) {
+      // Values whose encoding is not deterministic cannot be counted.
+      throw new UnsupportedOperationException(
+          "APPROX_COUNT_DISTINCT does not support " + inputType.getTypeName(), e);
+    }
+  }
+
+  public static class ApproxCountDistinctFn<T> extends Combine.CombineFn<T, HyperLogLogPlus, Long> {
+    private final ApproximateDistinctFn<T> sketchFn;
+
+    private ApproxCountDistinctFn(ApproximateDistinctFn<T> sketchFn) {
+      this.sketchFn = sketchFn;
+    }
+
+    @Override
+    public HyperLogLogPlus createAccumulator() {
+      return sketchFn.createAccumulator();
+    }
+
+    @Override
+    public HyperLogLogPlus addInput(HyperLogLogPlus accum, T input) {
+      return sketchFn.addInput(accum, input);
+    }
+
+    @Override
+    public HyperLogLogPlus mergeAccumulators(Iterable<HyperLogLogPlus> accums) {
+      return sketchFn.mergeAccumulators(accums);
+    }
+
+    @Override
+    public Long extractOutput(HyperLogLogPlus accum) {
+      return accum.cardinality();
+    }
+
+    @Override
+    public Coder<HyperLogLogPlus> getAccumulatorCoder(CoderRegistry registry, Coder<T> inputCoder) {
+      return HyperLogLogPlusCoder.of();
+    }
+  }
+}
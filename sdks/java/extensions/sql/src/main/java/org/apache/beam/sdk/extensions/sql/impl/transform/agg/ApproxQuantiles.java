@@ -0,0 +1,164 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.sdk.extensions.sql.impl.transform.agg;
+
+import static org.apache.beam.vendor.calcite.v1_20_0.com.google.common.base.Preconditions.checkArgument;
+
+import com.tdunning.math.stats.MergingDigest;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.beam.sdk.coders.CannotProvideCoderException;
+import org.apache.beam.sdk.coders.Coder;
+import org.apache.beam.sdk.coders.CoderRegistry;
+import org.apache.beam.sdk.coders.DoubleCoder;
+import org.apache.beam.sdk.coders.KvCoder;
+import org.apache.beam.sdk.coders.VarIntCoder;
+import org.apache.beam.sdk.extensions.sketching.TDigestQuantiles.TDigestQuantilesFn;
+import org.apache.beam.sdk.extensions.sql.impl.UdafImpl;
+import org.apache.beam.sdk.transforms.Combine;
+import org.apache.beam.sdk.values.KV;
+import org.apache.beam.sdk.values.Row;
+import org.apache.beam.vendor.calcite.v1_20_0.com.google.common.collect.ImmutableList;
+import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.rel.type.RelDataType;
+import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.rel.type.RelDataTypeFactory;
+import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.schema.FunctionParameter;
+import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.sql.type.SqlTypeName;
+
+/**
+ * {@code APPROX_QUANTILES(expression, number)} returns the approximate minimum, the {@code number -
+ * 1} boundaries between {@code number} quantiles and the maximum of the non-NULL values of
+ * expression, estimated with the t-digest sketch of {@link
+ * org.apache.beam.sdk.extensions.sketching.TDigestQuantiles}. Returns NULL if there are zero input
+ * rows, or if expression evaluates to NULL for all rows.
+ */
+@SuppressWarnings({
+  "nullness" // TODO(https://issues.apache.org/jira/browse/BEAM-10402)
+})
+public class ApproxQuantiles {
+  private static final double COMPRESSION = 100;
+
+  private ApproxQuantiles() {}
+
+  /**
+   * Returns the function to register {@code APPROX_QUANTILES} with. Unlike UDAFs it takes two
+   * parameters.
+   */
+  public static UdafImpl<Row, KV<Integer, MergingDigest>, List<Double>> udaf() {
+    return new Udaf();
+  }
+
+  /**
+   * Combines rows of the expression and the number of quantiles. The accumulator holds the number
+   * of quantiles next to the sketch, as it is only known once there is an input row.
+   */
+  public static class ApproxQuantilesFn
+      extends Combine.CombineFn<Row, KV<Integer, MergingDigest>, List<Double>> {
+    private final TDigestQuantilesFn sketchFn = TDigestQuantilesFn.create(COMPRESSION);
+
+    @Override
+    public KV<Integer, MergingDigest> createAccumulator() {
+      return KV.of(0, sketchFn.createAccumulator());
+    }
+
+    @Override
+    public KV<Integer, MergingDigest> addInput(KV<Integer, MergingDigest> accum, Row input) {
+      int number = ((Number) input.getValue(1)).intValue();
+      checkArgument(number > 0, "APPROX_QUANTILES requires a positive number, got %s", number);
+      sketchFn.addInput(accum.getValue(), ((Number) input.getValue(0)).doubleValue());
+      return accum.getKey() == number ? accum : KV.of(number, accum.getValue());
+    }
+
+    @Override
+    public KV<Integer, MergingDigest> mergeAccumulators(
+        Iterable<KV<Integer, MergingDigest>> accums) {
+      int number = 0;
+      List<MergingDigest> sketches = new ArrayList<>();
+      for (KV<Integer, MergingDigest> accum : accums) {
+        number = Math.max(number, accum.getKey());
+        sketches.add(accum.getValue());
+      }
+      return KV.of(
+          number,
+          sketches.isEmpty() ? sketchFn.createAccumulator() : sketchFn.mergeAccumulators(sketches));
+    }
+
+    @Override
+    public List<Double> extractOutput(KV<Integer, MergingDigest> accum) {
+      int number = accum.getKey();
+      MergingDigest sketch = accum.getValue();
+      if (sketch.size() == 0) {
+        return null;
+      }
+      // The quantiles at 0 and 1 are the exact minimum and maximum, unlike getMin() and getMax()
+      // which are only maintained once the digest has been compressed.
+      List<Double> boundaries = new ArrayList<>(number + 1);
+      for (int i = 0; i <= number; i++) {
+        boundaries.add(sketch.quantile((double) i / number));
+      }
+      return boundaries;
+    }
+
+    @Override
+    public Coder<KV<Integer, MergingDigest>> getAccumulatorCoder(
+        CoderRegistry registry, Coder<Row> inputCoder) throws CannotProvideCoderException {
+      return KvCoder.of(VarIntCoder.of(), sketchFn.getAccumulatorCoder(registry, DoubleCoder.of()));
+    }
+  }
+
+  private static class Udaf extends UdafImpl<Row, KV<Integer, MergingDigest>, List<Double>> {
+    Udaf() {
+      super(new ApproxQuantilesFn());
+    }
+
+    @Override
+    public List<FunctionParameter> getParameters() {
+      return ImmutableList.of(parameter(0, SqlTypeName.DOUBLE), parameter(1, SqlTypeName.INTEGER));
+    }
+
+    @Override
+    public RelDataType getReturnType(RelDataTypeFactory typeFactory) {
+      return typeFactory.createTypeWithNullability(
+          typeFactory.createArrayType(typeFactory.createSqlType(SqlTypeName.DOUBLE), -1), true);
+    }
+
+    private static FunctionParameter parameter(int ordinal, SqlTypeName typeName) {
+      return new FunctionParameter() {
+        @Override
+        public int getOrdinal() {
+          return ordinal;
+        }
+
+        @Override
+        public String getName() {
+          // not used as Beam SQL uses its own execution engine
+          return null;
+        }
+
+        @Override
+        public RelDataType getType(RelDataTypeFactory typeFactory) {
+          return typeFactory.createSqlType(typeName);
+        }
+
+        @Override
+        public boolean isOptional() {
+          return false;
+        }
+      };
+    }
+  }
+}
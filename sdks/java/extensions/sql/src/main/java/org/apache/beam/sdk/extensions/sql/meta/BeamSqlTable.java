@@ -17,6 +17,7 @@
  */
 package org.apache.beam.sdk.extensions.sql.meta;
 
+import java.util.Collections;
 import java.util.List;
 import org.apache.beam.sdk.extensions.sql.impl.BeamTableStatistics;
 import org.apache.beam.sdk.options.PipelineOptions;
@@ -55,4 +56,13 @@ public interface BeamSqlTable {
    * estimate the row count or rate it will return BeamTableStatistics.BOUNDED_UNKNOWN.
    */
   BeamTableStatistics getTableStatistics(PipelineOptions options);
+
+  /**
+   * Returns the patterns of the files this table is read from, or an empty list if it is not read
+   * from files. Query results over tables which are read from files can be cached until the matched
+   * files change.
+   */
+  default List<String> getSourceFilePatterns() {
+    return Collections.emptyList();
+  }
 }
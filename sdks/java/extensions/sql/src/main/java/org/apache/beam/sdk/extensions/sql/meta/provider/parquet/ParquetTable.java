@@ -19,6 +19,7 @@ package org.apache.beam.sdk.extensions.sql.meta.provider.parquet;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import org.apache.avro.Schema;
@@ -125,6 +126,11 @@ class ParquetTable extends SchemaBaseBeamTable implements Serializable {
     return BeamTableStatistics.BOUNDED_UNKNOWN;
   }
 
+  @Override
+  public List<String> getSourceFilePatterns() {
+    return Collections.singletonList(table.getLocation() + "/*");
+  }
+
   @Override
   public ProjectSupport supportsProjects() {
     return ProjectSupport.WITH_FIELD_REORDERING;
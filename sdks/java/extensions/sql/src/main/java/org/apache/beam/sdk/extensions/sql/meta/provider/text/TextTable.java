@@ -18,6 +18,8 @@
 package org.apache.beam.sdk.extensions.sql.meta.provider.text;
 
 import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
 import org.apache.beam.sdk.annotations.Internal;
 import org.apache.beam.sdk.extensions.sql.impl.BeamTableStatistics;
 import org.apache.beam.sdk.extensions.sql.meta.BeamSqlTable;
@@ -103,6 +105,11 @@ public class TextTable extends SchemaBaseBeamTable {
     return PCollection.IsBounded.BOUNDED;
   }
 
+  @Override
+  public List<String> getSourceFilePatterns() {
+    return Collections.singletonList(filePattern);
+  }
+
   @Override
   public PCollection<Row> buildIOReader(PBegin begin) {
     return begin
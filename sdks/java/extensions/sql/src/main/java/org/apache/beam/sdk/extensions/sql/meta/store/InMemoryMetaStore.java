@@ -19,6 +19,7 @@ package org.apache.beam.sdk.extensions.sql.meta.store;
 
 import java.util.HashMap;
 import java.util.Map;
+import org.apache.beam.sdk.extensions.sql.impl.BeamTableStatistics;
 import org.apache.beam.sdk.extensions.sql.meta.BeamSqlTable;
 import org.apache.beam.sdk.extensions.sql.meta.Table;
 import org.apache.beam.sdk.extensions.sql.meta.provider.TableProvider;
@@ -37,6 +38,7 @@ import org.apache.beam.vendor.calcite.v1_20_0.com.google.common.collect.Immutabl
 public class InMemoryMetaStore implements MetaStore {
   private Map<String, Table> tables = new HashMap<>();
   private Map<String, TableProvider> providers = new HashMap<>();
+  private Map<String, BeamTableStatistics> statistics = new HashMap<>();
 
   @Override
   public String getTableType() {
@@ -57,6 +59,7 @@ public class InMemoryMetaStore implements MetaStore {
 
     // store to the global metastore
     tables.put(table.getName(), table);
+    statistics.remove(table.getName());
   }
 
   @Override
@@ -68,6 +71,7 @@ public class InMemoryMetaStore implements MetaStore {
     Table table = tables.get(tableName);
     providers.get(table.getType()).dropTable(tableName);
     tables.remove(tableName);
+    statistics.remove(tableName);
   }
 
   @Override
@@ -82,6 +86,19 @@ public class InMemoryMetaStore implements MetaStore {
     return provider.buildBeamSqlTable(table);
   }
 
+  @Override
+  public void setTableStatistics(String tableName, BeamTableStatistics statistics) {
+    if (!tables.containsKey(tableName)) {
+      throw new IllegalArgumentException("No such table: " + tableName);
+    }
+    this.statistics.put(tableName, statistics);
+  }
+
+  @Override
+  public BeamTableStatistics getTableStatistics(String tableName) {
+    return statistics.getOrDefault(tableName, BeamTableStatistics.BOUNDED_UNKNOWN);
+  }
+
   private void validateTableType(Table table) {
     if (!providers.containsKey(table.getType())) {
       throw new IllegalArgumentException("Table type: " + table.getType() + " not supported!");
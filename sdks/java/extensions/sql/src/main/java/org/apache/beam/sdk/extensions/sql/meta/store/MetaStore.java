@@ -17,6 +17,7 @@
  */
 package org.apache.beam.sdk.extensions.sql.meta.store;
 
+import org.apache.beam.sdk.extensions.sql.impl.BeamTableStatistics;
 import org.apache.beam.sdk.extensions.sql.meta.provider.TableProvider;
 
 /** The interface to handle CRUD of {@code BeamSql} table metadata. */
@@ -27,4 +28,19 @@ public interface MetaStore extends TableProvider {
    * @param provider
    */
   void registerProvider(TableProvider provider);
+
+  /**
+   * Stores the statistics computed for a table, e.g. by {@code ANALYZE TABLE}. They are used by the
+   * planner instead of the statistics reported by the table until it is dropped. Meta stores which
+   * do not keep statistics ignore them.
+   */
+  default void setTableStatistics(String tableName, BeamTableStatistics statistics) {}
+
+  /**
+   * Returns the statistics stored for a table, or {@link BeamTableStatistics#BOUNDED_UNKNOWN} if
+   * there are none, in which case the planner uses the statistics reported by the table.
+   */
+  default BeamTableStatistics getTableStatistics(String tableName) {
+    return BeamTableStatistics.BOUNDED_UNKNOWN;
+  }
 }
@@ -485,6 +485,118 @@ public class BeamAnalyticFunctionsTest extends BeamSqlDslBase {
     pipeline.run();
   }
 
+  @Test
+  public void testOverRowsSlidingSum() throws Exception {
+    pipeline.enableAbandonedNodeEnforcement(false);
+    PCollection<Row> inputRows = inputData2();
+    String sql =
+        "SELECT x, SUM(x) over (ORDER BY x ROWS BETWEEN 2 PRECEDING AND CURRENT ROW) as agg "
+            + " FROM PCOLLECTION";
+    PCollection<Row> result = inputRows.apply("sql", SqlTransform.query(sql));
+
+    Schema overResultSchema = Schema.builder().addInt32Field("x").addInt32Field("agg").build();
+
+    List<Row> overResult =
+        TestUtils.RowsBuilder.of(overResultSchema)
+            .addRows(
+                1, 1,
+                2, 3,
+                2, 5,
+                5, 9,
+                8, 15,
+                10, 23,
+                10, 28)
+            .getRows();
+
+    PAssert.that(result).containsInAnyOrder(overResult);
+
+    pipeline.run();
+  }
+
+  @Test
+  public void testOverRangeSlidingSumOrderByDesc() throws Exception {
+    pipeline.enableAbandonedNodeEnforcement(false);
+    PCollection<Row> inputRows = inputData2();
+    String sql =
+        "SELECT x, SUM(x) over (ORDER BY x DESC RANGE BETWEEN 2 PRECEDING AND CURRENT ROW) as agg "
+            + " FROM PCOLLECTION";
+    PCollection<Row> result = inputRows.apply("sql", SqlTransform.query(sql));
+
+    Schema overResultSchema = Schema.builder().addInt32Field("x").addInt32Field("agg").build();
+
+    List<Row> overResult =
+        TestUtils.RowsBuilder.of(overResultSchema)
+            .addRows(
+                1, 5,
+                2, 4,
+                2, 4,
+                5, 5,
+                8, 28,
+                10, 20,
+                10, 20)
+            .getRows();
+
+    PAssert.that(result).containsInAnyOrder(overResult);
+
+    pipeline.run();
+  }
+
+  @Test
+  public void testFirstValueSlidingFunction() throws Exception {
+    pipeline.enableAbandonedNodeEnforcement(false);
+    PCollection<Row> inputRows = inputData2();
+    String sql =
+        "SELECT x, FIRST_VALUE(x) over (ORDER BY x ROWS BETWEEN 2 PRECEDING AND CURRENT ROW) "
+            + "as agg  FROM PCOLLECTION";
+    PCollection<Row> result = inputRows.apply("sql", SqlTransform.query(sql));
+
+    Schema overResultSchema = Schema.builder().addInt32Field("x").addInt32Field("agg").build();
+
+    List<Row> overResult =
+        TestUtils.RowsBuilder.of(overResultSchema)
+            .addRows(
+                1, 1,
+                2, 1,
+                2, 1,
+                5, 2,
+                8, 2,
+                10, 5,
+                10, 8)
+            .getRows();
+
+    PAssert.that(result).containsInAnyOrder(overResult);
+
+    pipeline.run();
+  }
+
+  @Test
+  public void testLastValueSlidingFunction() throws Exception {
+    pipeline.enableAbandonedNodeEnforcement(false);
+    PCollection<Row> inputRows = inputData2();
+    String sql =
+        "SELECT x, LAST_VALUE(x) over (ORDER BY x ROWS BETWEEN 2 PRECEDING AND 1 FOLLOWING) "
+            + "as agg  FROM PCOLLECTION";
+    PCollection<Row> result = inputRows.apply("sql", SqlTransform.query(sql));
+
+    Schema overResultSchema = Schema.builder().addInt32Field("x").addInt32Field("agg").build();
+
+    List<Row> overResult =
+        TestUtils.RowsBuilder.of(overResultSchema)
+            .addRows(
+                1, 2,
+                2, 2,
+                2, 5,
+                5, 8,
+                8, 10,
+                10, 10,
+                10, 10)
+            .getRows();
+
+    PAssert.that(result).containsInAnyOrder(overResult);
+
+    pipeline.run();
+  }
+
   @Test
   public void testRowNumberFunction() throws Exception {
     pipeline.enableAbandonedNodeEnforcement(false);
@@ -31,8 +31,8 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import org.apache.beam.sdk.extensions.sql.impl.BeamSqlPipelineOptions;
 import org.apache.beam.sdk.extensions.sql.impl.ParseException;
-import org.apache.beam.sdk.extensions.sql.impl.SqlConversionException;
 import org.apache.beam.sdk.extensions.sql.impl.transform.agg.CountIf;
 import org.apache.beam.sdk.schemas.Schema;
 import org.apache.beam.sdk.testing.PAssert;
@@ -150,11 +150,25 @@ public class BeamSqlDslAggregationTest extends BeamSqlDslBase {
   }
 
   private void runAggregationRollup(PCollection<Row> input) throws Exception {
-    String sql = "SELECT f_int2 FROM PCOLLECTION GROUP BY ROLLUP(f_int2)";
+    String sql =
+        "SELECT f_int2, COUNT(*) AS `getFieldCount`, GROUPING(f_int2) AS `grouping` "
+            + "FROM PCOLLECTION GROUP BY ROLLUP(f_int2)";
 
-    exceptions.expect(SqlConversionException.class);
-    pipeline.enableAbandonedNodeEnforcement(false);
-    input.apply(SqlTransform.query(sql));
+    PCollection<Row> result = input.apply("testAggregationRollup", SqlTransform.query(sql));
+
+    Schema resultType =
+        Schema.builder()
+            .addNullableField("f_int2", Schema.FieldType.INT32)
+            .addInt64Field("size")
+            .addInt64Field("grouping")
+            .build();
+
+    PAssert.that(result)
+        .containsInAnyOrder(
+            Row.withSchema(resultType).addValues(0, 4L, 0L).build(),
+            Row.withSchema(resultType).addValues(null, 4L, 1L).build());
+
+    pipeline.run().waitUntilFinish();
   }
 
   /** GROUP-BY with multiple aggregation functions with bounded PCollection. */
@@ -1028,4 +1042,76 @@ public class BeamSqlDslAggregationTest extends BeamSqlDslBase {
     PAssert.that(result).containsInAnyOrder(rowResult);
     pipeline.run().waitUntilFinish();
   }
+
+  @Test
+  public void testApproxCountDistinct() throws Exception {
+    pipeline.enableAbandonedNodeEnforcement(false);
+
+    Schema resultType = Schema.builder().addInt64Field("f_int2").addInt64Field("size").build();
+    String sql =
+        "SELECT f_int2, APPROX_COUNT_DISTINCT(f_string) AS `size` "
+            + "FROM PCOLLECTION GROUP BY f_int2";
+    PCollection<Row> result =
+        longStringInput().apply("testApproxCountDistinct", SqlTransform.query(sql));
+
+    PAssert.that(result)
+        .containsInAnyOrder(
+            Row.withSchema(resultType).addValues(0L, 2L).build(),
+            Row.withSchema(resultType).addValues(1L, 1L).build());
+    pipeline.run().waitUntilFinish();
+  }
+
+  @Test
+  public void testCountDistinctWithApproximateCountDistinctOption() throws Exception {
+    pipeline.enableAbandonedNodeEnforcement(false);
+    pipeline.getOptions().as(BeamSqlPipelineOptions.class).setApproximateCountDistinct(true);
+
+    Schema resultType = Schema.builder().addInt64Field("f_int2").addInt64Field("size").build();
+    String sql =
+        "SELECT f_int2, COUNT(DISTINCT f_string) AS `size` FROM PCOLLECTION GROUP BY f_int2";
+    PCollection<Row> result =
+        longStringInput().apply("testCountDistinctApproximately", SqlTransform.query(sql));
+
+    PAssert.that(result)
+        .containsInAnyOrder(
+            Row.withSchema(resultType).addValues(0L, 2L).build(),
+            Row.withSchema(resultType).addValues(1L, 1L).build());
+    pipeline.run().waitUntilFinish();
+  }
+
+  private PCollection<Row> longStringInput() {
+    Schema schema = Schema.builder().addInt64Field("f_int2").addStringField("f_string").build();
+    List<Row> rows =
+        TestUtils.RowsBuilder.of(schema)
+            .addRows(
+                0L, "a",
+                0L, "b",
+                0L, "a",
+                1L, "c",
+                1L, "c")
+            .getRows();
+    return pipeline.apply("longStringVals", Create.of(rows).withRowSchema(schema));
+  }
+
+  @Test
+  public void testApproxQuantiles() throws Exception {
+    pipeline.enableAbandonedNodeEnforcement(false);
+
+    Schema schema = Schema.builder().addDoubleField("f_double").build();
+    List<Row> rows = TestUtils.RowsBuilder.of(schema).addRows(3.0, 1.0, 5.0, 2.0, 4.0).getRows();
+    String sql = "SELECT APPROX_QUANTILES(f_double, 2) AS quantiles FROM PCOLLECTION";
+    PCollection<Row> result =
+        pipeline
+            .apply("doubleVals", Create.of(rows).withRowSchema(schema))
+            .apply("testApproxQuantiles", SqlTransform.query(sql));
+
+    Schema resultType =
+        Schema.builder()
+            .addNullableField("quantiles", Schema.FieldType.array(Schema.FieldType.DOUBLE))
+            .build();
+    PAssert.that(result)
+        .containsInAnyOrder(
+            Row.withSchema(resultType).addValue(Arrays.asList(1.0, 3.0, 5.0)).build());
+    pipeline.run().waitUntilFinish();
+  }
 }
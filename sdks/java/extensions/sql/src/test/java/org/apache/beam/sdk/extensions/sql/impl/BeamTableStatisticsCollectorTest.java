@@ -0,0 +1,92 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.sdk.extensions.sql.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.beam.sdk.extensions.sql.meta.provider.test.TestBoundedTable;
+import org.apache.beam.sdk.extensions.sql.meta.provider.test.TestUnboundedTable;
+import org.apache.beam.sdk.options.PipelineOptionsFactory;
+import org.apache.beam.sdk.schemas.Schema;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link BeamTableStatisticsCollector}. */
+@RunWith(JUnit4.class)
+public class BeamTableStatisticsCollectorTest {
+
+  @Test
+  public void testCollect() {
+    TestBoundedTable table =
+        TestBoundedTable.of(
+            Schema.builder()
+                .addInt32Field("id")
+                .addNullableField("name", Schema.FieldType.STRING)
+                .addInt32Field("constant")
+                .build());
+    for (int i = 0; i < 200; i++) {
+      table.addRows(i, i % 2 == 0 ? null : "name" + (i % 10), 1);
+    }
+
+    BeamTableStatistics statistics =
+        BeamTableStatisticsCollector.collect(table, PipelineOptionsFactory.create());
+
+    assertEquals(200d, statistics.getRowCount(), 0.0);
+    assertTrue(statistics.getByteSize() > 200);
+    // The distinct counts are exact below the sample size of the sketch.
+    assertEquals(200d, statistics.getDistinctCount("id"), 0.0);
+    assertEquals(6d, statistics.getDistinctCount("name"), 0.0);
+    assertEquals(1d, statistics.getDistinctCount("constant"), 0.0);
+  }
+
+  @Test
+  public void testCollectLargeTableEstimatesDistinctCount() {
+    TestBoundedTable table =
+        TestBoundedTable.of(Schema.builder().addInt64Field("id").addInt64Field("key").build());
+    for (long i = 0; i < 20000; i++) {
+      table.addRows(i, i % 5000);
+    }
+
+    BeamTableStatistics statistics =
+        BeamTableStatisticsCollector.collect(table, PipelineOptionsFactory.create());
+
+    assertEquals(20000d, statistics.getRowCount(), 0.0);
+    assertEquals(20000d, statistics.getDistinctCount("id"), 20000 * 0.2);
+    assertEquals(5000d, statistics.getDistinctCount("key"), 5000 * 0.2);
+  }
+
+  @Test
+  public void testCollectEmptyTable() {
+    TestBoundedTable table = TestBoundedTable.of(Schema.builder().addInt32Field("id").build());
+
+    BeamTableStatistics statistics =
+        BeamTableStatisticsCollector.collect(table, PipelineOptionsFactory.create());
+
+    assertEquals(0d, statistics.getRowCount(), 0.0);
+    assertEquals(0d, statistics.getByteSize(), 0.0);
+    assertEquals(0d, statistics.getDistinctCount("id"), 0.0);
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testCollectUnboundedTableFails() {
+    BeamTableStatisticsCollector.collect(
+        TestUnboundedTable.of(Schema.FieldType.INT32, "id"), PipelineOptionsFactory.create());
+  }
+}
@@ -21,6 +21,7 @@ import static org.apache.beam.sdk.schemas.Schema.toSchema;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 import com.alibaba.fastjson.JSONArray;
 import com.alibaba.fastjson.JSONObject;
@@ -32,8 +33,10 @@ import org.apache.beam.sdk.extensions.sql.impl.utils.CalciteUtils;
 import org.apache.beam.sdk.extensions.sql.meta.Table;
 import org.apache.beam.sdk.extensions.sql.meta.provider.bigquery.BeamBigQuerySqlDialect;
 import org.apache.beam.sdk.extensions.sql.meta.provider.test.TestTableProvider;
+import org.apache.beam.sdk.extensions.sql.meta.store.InMemoryMetaStore;
 import org.apache.beam.sdk.options.PipelineOptionsFactory;
 import org.apache.beam.sdk.schemas.Schema;
+import org.apache.beam.sdk.values.Row;
 import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.sql.SqlIdentifier;
 import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.sql.SqlLiteral;
 import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.sql.SqlNode;
@@ -220,6 +223,35 @@ public class BeamDDLTest {
     assertNull(tableProvider.getTables().get("person"));
   }
 
+  @Test
+  public void testParseAnalyzeTable() throws Exception {
+    TestTableProvider tableProvider = new TestTableProvider();
+    InMemoryMetaStore metaStore = new InMemoryMetaStore();
+    metaStore.registerProvider(tableProvider);
+    BeamSqlEnv env = BeamSqlEnv.withTableProvider(metaStore);
+    env.executeDdl("CREATE EXTERNAL TABLE person (id int, name varchar) TYPE 'test'");
+    tableProvider.addRows(
+        "person",
+        Row.withSchema(tableProvider.getTables().get("person").getSchema())
+            .addValues(1, "james")
+            .build());
+
+    assertTrue(metaStore.getTableStatistics("person").isUnknown());
+    env.executeDdl("ANALYZE TABLE person");
+    assertEquals(1d, metaStore.getTableStatistics("person").getRowCount(), 0.0);
+  }
+
+  @Test
+  public void unparseAnalyzeTable() {
+    SqlAnalyzeTable analyzeTable =
+        new SqlAnalyzeTable(SqlParserPos.ZERO, new SqlIdentifier("foo", SqlParserPos.ZERO));
+    SqlWriter sqlWriter = new SqlPrettyWriter(BeamBigQuerySqlDialect.DEFAULT);
+
+    analyzeTable.unparse(sqlWriter, 0, 0);
+
+    assertEquals("ANALYZE TABLE `foo`", sqlWriter.toSqlString().getSql());
+  }
+
   @Test
   public void unparseScalarFunction() {
     SqlIdentifier name = new SqlIdentifier("foo", SqlParserPos.ZERO);
@@ -18,16 +18,26 @@
 package org.apache.beam.sdk.extensions.sql.impl.rel;
 
 import java.math.BigDecimal;
+import org.apache.beam.sdk.extensions.sql.impl.BeamSqlEnv;
+import org.apache.beam.sdk.extensions.sql.impl.BeamSqlPipelineOptions;
 import org.apache.beam.sdk.extensions.sql.impl.BeamTableStatistics;
 import org.apache.beam.sdk.extensions.sql.impl.planner.NodeStats;
+import org.apache.beam.sdk.extensions.sql.meta.provider.ReadOnlyTableProvider;
 import org.apache.beam.sdk.extensions.sql.meta.provider.test.TestBoundedTable;
 import org.apache.beam.sdk.extensions.sql.meta.provider.test.TestUnboundedTable;
+import org.apache.beam.sdk.options.PipelineOptionsFactory;
 import org.apache.beam.sdk.schemas.Schema;
+import org.apache.beam.sdk.testing.PAssert;
+import org.apache.beam.sdk.testing.TestPipeline;
+import org.apache.beam.sdk.values.PCollection;
+import org.apache.beam.sdk.values.Row;
 import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.rel.RelNode;
+import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.collect.ImmutableMap;
 import org.joda.time.DateTime;
 import org.joda.time.Duration;
 import org.junit.Assert;
 import org.junit.BeforeClass;
+import org.junit.Rule;
 import org.junit.Test;
 
 /** Tests related to {@code BeamAggregationRel}. */
@@ -37,6 +47,8 @@ public class BeamAggregationRelTest extends BaseRelTest {
 
   private static final Duration WINDOW_SIZE = Duration.standardHours(1);
 
+  @Rule public final TestPipeline pipeline = TestPipeline.create();
+
   @BeforeClass
   public static void prepare() {
     registerTable(
@@ -96,6 +108,14 @@ public class BeamAggregationRelTest extends BaseRelTest {
             .setStatistics(BeamTableStatistics.createUnboundedTableStatistics(2d)));
   }
 
+  private static int countAggregations(RelNode root) {
+    int count = root instanceof BeamAggregationRel ? 1 : 0;
+    for (RelNode input : root.getInputs()) {
+      count += countAggregations(input);
+    }
+    return count;
+  }
+
   private NodeStats getEstimateOf(String sql) {
     RelNode root = env.parseQuery(sql);
 
@@ -149,4 +169,76 @@ public class BeamAggregationRelTest extends BaseRelTest {
     NodeStats estimate1 = getEstimateOf(sql);
     Assert.assertEquals(3d, estimate1.getRate(), 0.01);
   }
+
+  @Test
+  public void testNodeStatsEffectOfGroupingSets() {
+    String sql1 = "SELECT order_id, site_id FROM ORDER_DETAILS_BOUNDED GROUP BY order_id, site_id";
+    String sql2 =
+        "SELECT order_id, site_id FROM ORDER_DETAILS_BOUNDED GROUP BY ROLLUP(order_id, site_id)";
+
+    NodeStats estimate1 = getEstimateOf(sql1);
+
+    NodeStats estimate2 = getEstimateOf(sql2);
+
+    Assert.assertTrue(estimate1.getRowCount() < estimate2.getRowCount());
+  }
+
+  @Test
+  public void testRollup() {
+    String sql =
+        "SELECT order_id, site_id, COUNT(*) AS c, SUM(site_id) AS s, "
+            + "GROUPING(order_id, site_id) AS g FROM ORDER_DETAILS_BOUNDED "
+            + "GROUP BY ROLLUP(order_id, site_id)";
+
+    BeamRelNode root = env.parseQuery(sql);
+    Assert.assertEquals(1, countAggregations(root));
+
+    PCollection<Row> result = BeamSqlRelUtils.toPCollection(pipeline, root);
+    Schema schema = result.getSchema();
+    PAssert.that(result)
+        .containsInAnyOrder(
+            Row.withSchema(schema).addValues(1L, 1, 2L, 2, 0L).build(),
+            Row.withSchema(schema).addValues(2L, 2, 1L, 2, 0L).build(),
+            Row.withSchema(schema).addValues(4L, 4, 2L, 8, 0L).build(),
+            Row.withSchema(schema).addValues(1L, null, 2L, 2, 1L).build(),
+            Row.withSchema(schema).addValues(2L, null, 1L, 2, 1L).build(),
+            Row.withSchema(schema).addValues(4L, null, 2L, 8, 1L).build(),
+            Row.withSchema(schema).addValues(null, null, 5L, 12, 3L).build());
+    pipeline.run();
+  }
+
+  @Test
+  public void testCubeWithPreAggregation() {
+    BeamSqlPipelineOptions options = PipelineOptionsFactory.as(BeamSqlPipelineOptions.class);
+    options.setPreAggregateGroupingSets(true);
+    BeamSqlEnv preAggregatingEnv =
+        BeamSqlEnv.builder(
+                new ReadOnlyTableProvider(
+                    "test",
+                    ImmutableMap.of("ORDER_DETAILS_BOUNDED", getTable("ORDER_DETAILS_BOUNDED"))))
+            .setPipelineOptions(options)
+            .build();
+    String sql =
+        "SELECT order_id, site_id, COUNT(*) AS c, MAX(site_id) AS m, GROUPING(site_id) AS g "
+            + "FROM ORDER_DETAILS_BOUNDED GROUP BY CUBE(order_id, site_id)";
+
+    BeamRelNode root = preAggregatingEnv.parseQuery(sql);
+    Assert.assertEquals(2, countAggregations(root));
+
+    PCollection<Row> result = BeamSqlRelUtils.toPCollection(pipeline, root);
+    Schema schema = result.getSchema();
+    PAssert.that(result)
+        .containsInAnyOrder(
+            Row.withSchema(schema).addValues(1L, 1, 2L, 1, 0L).build(),
+            Row.withSchema(schema).addValues(2L, 2, 1L, 2, 0L).build(),
+            Row.withSchema(schema).addValues(4L, 4, 2L, 4, 0L).build(),
+            Row.withSchema(schema).addValues(1L, null, 2L, 1, 1L).build(),
+            Row.withSchema(schema).addValues(2L, null, 1L, 2, 1L).build(),
+            Row.withSchema(schema).addValues(4L, null, 2L, 4, 1L).build(),
+            Row.withSchema(schema).addValues(null, 1, 2L, 1, 0L).build(),
+            Row.withSchema(schema).addValues(null, 2, 1L, 2, 0L).build(),
+            Row.withSchema(schema).addValues(null, 4, 2L, 4, 0L).build(),
+            Row.withSchema(schema).addValues(null, null, 5L, 4, 1L).build());
+    pipeline.run();
+  }
 }
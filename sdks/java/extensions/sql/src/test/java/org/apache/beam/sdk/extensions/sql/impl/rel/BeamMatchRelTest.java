@@ -21,12 +21,16 @@ import static org.apache.beam.sdk.extensions.sql.impl.rel.BaseRelTest.compilePip
 import static org.apache.beam.sdk.extensions.sql.impl.rel.BaseRelTest.registerTable;
 
 import org.apache.beam.sdk.extensions.sql.TestUtils;
+import org.apache.beam.sdk.extensions.sql.impl.BeamSqlPipelineOptions;
 import org.apache.beam.sdk.extensions.sql.meta.provider.test.TestBoundedTable;
+import org.apache.beam.sdk.extensions.sql.meta.provider.test.TestUnboundedTable;
 import org.apache.beam.sdk.schemas.Schema;
 import org.apache.beam.sdk.testing.PAssert;
 import org.apache.beam.sdk.testing.TestPipeline;
 import org.apache.beam.sdk.values.PCollection;
 import org.apache.beam.sdk.values.Row;
+import org.joda.time.DateTime;
+import org.joda.time.Duration;
 import org.junit.Ignore;
 import org.junit.Rule;
 import org.junit.Test;
@@ -201,6 +205,170 @@ public class BeamMatchRelTest {
     pipeline.run().waitUntilFinish();
   }
 
+  private static void registerUnboundedTransactions() {
+    // rows of a partition arrive out of event time order
+    registerTable(
+        "Transactions",
+        TestUnboundedTable.of(
+                Schema.FieldType.INT32, "id",
+                Schema.FieldType.STRING, "name",
+                Schema.FieldType.INT32, "amount",
+                Schema.FieldType.DATETIME, "event_time")
+            .timestampColumnIndex(3)
+            .addRows(
+                Duration.ZERO,
+                1,
+                "a",
+                10,
+                new DateTime(1000),
+                1,
+                "c",
+                30,
+                new DateTime(5000),
+                2,
+                "a",
+                40,
+                new DateTime(2000))
+            .addRows(
+                Duration.millis(500),
+                1,
+                "b",
+                20,
+                new DateTime(3000),
+                2,
+                "b",
+                50,
+                new DateTime(4000),
+                2,
+                "c",
+                60,
+                new DateTime(8000)));
+  }
+
+  private static final String UNBOUNDED_MATCH_SQL =
+      "SELECT * "
+          + "FROM Transactions "
+          + "MATCH_RECOGNIZE ("
+          + "PARTITION BY id "
+          + "ORDER BY event_time "
+          + "MEASURES "
+          + "A.amount AS aamount, "
+          + "B.amount AS bamount, "
+          + "C.amount AS camount "
+          + "PATTERN (A B C) %s"
+          + "DEFINE "
+          + "A AS name = 'a', "
+          + "B AS name = 'b', "
+          + "C AS name = 'c' "
+          + ") AS T";
+
+  @Test
+  public void matchUnboundedTest() {
+    registerUnboundedTransactions();
+
+    PCollection<Row> result = compilePipeline(String.format(UNBOUNDED_MATCH_SQL, ""), pipeline);
+
+    PAssert.that(result)
+        .containsInAnyOrder(
+            TestUtils.RowsBuilder.of(
+                    Schema.FieldType.INT32, "id",
+                    Schema.FieldType.INT32, "T.aamount",
+                    Schema.FieldType.INT32, "T.bamount",
+                    Schema.FieldType.INT32, "T.camount")
+                .addRows(1, 10, 20, 30, 2, 40, 50, 60)
+                .getRows());
+
+    pipeline.run().waitUntilFinish();
+  }
+
+  @Test
+  public void matchUnboundedWithinTest() {
+    registerUnboundedTransactions();
+
+    // the match of partition 2 spans 6 seconds
+    PCollection<Row> result =
+        compilePipeline(
+            String.format(UNBOUNDED_MATCH_SQL, "WITHIN INTERVAL '5' SECOND "), pipeline);
+
+    PAssert.that(result)
+        .containsInAnyOrder(
+            TestUtils.RowsBuilder.of(
+                    Schema.FieldType.INT32, "id",
+                    Schema.FieldType.INT32, "T.aamount",
+                    Schema.FieldType.INT32, "T.bamount",
+                    Schema.FieldType.INT32, "T.camount")
+                .addRows(1, 10, 20, 30)
+                .getRows());
+
+    pipeline.run().waitUntilFinish();
+  }
+
+  @Test
+  public void matchUnboundedWithBagStateTest() {
+    registerUnboundedTransactions();
+    pipeline
+        .getOptions()
+        .as(BeamSqlPipelineOptions.class)
+        .setMatchRecognizeUseOrderedListState(false);
+
+    PCollection<Row> result =
+        compilePipeline(
+            String.format(UNBOUNDED_MATCH_SQL, "WITHIN INTERVAL '5' SECOND "), pipeline);
+
+    PAssert.that(result)
+        .containsInAnyOrder(
+            TestUtils.RowsBuilder.of(
+                    Schema.FieldType.INT32, "id",
+                    Schema.FieldType.INT32, "T.aamount",
+                    Schema.FieldType.INT32, "T.bamount",
+                    Schema.FieldType.INT32, "T.camount")
+                .addRows(1, 10, 20, 30)
+                .getRows());
+
+    pipeline.run().waitUntilFinish();
+  }
+
+  @Test
+  public void matchUnboundedTimestampedByArrivalTest() {
+    // the rows are timestamped when they arrive, ten seconds after their event time
+    registerTable(
+        "Transactions",
+        TestUnboundedTable.of(
+                Schema.FieldType.INT32, "id",
+                Schema.FieldType.STRING, "name",
+                Schema.FieldType.INT32, "amount",
+                Schema.FieldType.DATETIME, "event_time",
+                Schema.FieldType.DATETIME, "arrival_time")
+            .timestampColumnIndex(4)
+            .addRows(
+                Duration.ZERO,
+                1,
+                "a",
+                10,
+                new DateTime(1000),
+                new DateTime(11000),
+                1,
+                "c",
+                30,
+                new DateTime(5000),
+                new DateTime(15000))
+            .addRows(Duration.millis(500), 1, "b", 20, new DateTime(3000), new DateTime(13000)));
+
+    PCollection<Row> result = compilePipeline(String.format(UNBOUNDED_MATCH_SQL, ""), pipeline);
+
+    PAssert.that(result)
+        .containsInAnyOrder(
+            TestUtils.RowsBuilder.of(
+                    Schema.FieldType.INT32, "id",
+                    Schema.FieldType.INT32, "T.aamount",
+                    Schema.FieldType.INT32, "T.bamount",
+                    Schema.FieldType.INT32, "T.camount")
+                .addRows(1, 10, 20, 30)
+                .getRows());
+
+    pipeline.run().waitUntilFinish();
+  }
+
   @Ignore("NFA has not been fully implemented for now.")
   @Test
   public void matchNFATest() {
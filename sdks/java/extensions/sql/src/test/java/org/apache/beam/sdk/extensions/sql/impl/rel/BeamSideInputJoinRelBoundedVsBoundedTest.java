@@ -0,0 +1,157 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.sdk.extensions.sql.impl.rel;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.beam.sdk.extensions.sql.impl.BeamSqlEnv;
+import org.apache.beam.sdk.extensions.sql.impl.BeamSqlPipelineOptions;
+import org.apache.beam.sdk.extensions.sql.impl.parser.SqlAnalyzeTable;
+import org.apache.beam.sdk.extensions.sql.meta.Table;
+import org.apache.beam.sdk.extensions.sql.meta.provider.test.TestTableProvider;
+import org.apache.beam.sdk.extensions.sql.meta.store.InMemoryMetaStore;
+import org.apache.beam.sdk.options.PipelineOptionsFactory;
+import org.apache.beam.sdk.schemas.Schema;
+import org.apache.beam.sdk.testing.PAssert;
+import org.apache.beam.sdk.testing.TestPipeline;
+import org.apache.beam.sdk.values.PCollection;
+import org.apache.beam.sdk.values.Row;
+import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.rel.RelNode;
+import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.sql.SqlIdentifier;
+import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.sql.parser.SqlParserPos;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+/** Bounded + Bounded Test for {@code BeamSideInputJoinRel} broadcasting an analyzed table. */
+public class BeamSideInputJoinRelBoundedVsBoundedTest {
+  @Rule public final TestPipeline pipeline = TestPipeline.create();
+
+  private static final Schema ORDERS_SCHEMA =
+      Schema.builder().addInt32Field("order_id").addInt32Field("site_id").build();
+  private static final Schema SITES_SCHEMA =
+      Schema.builder().addInt32Field("site_id").addStringField("name").build();
+
+  private InMemoryMetaStore metaStore;
+
+  @Before
+  public void setUp() {
+    TestTableProvider tableProvider = new TestTableProvider();
+    metaStore = new InMemoryMetaStore();
+    metaStore.registerProvider(tableProvider);
+    metaStore.createTable(
+        Table.builder().name("orders").type("test").schema(ORDERS_SCHEMA).build());
+    metaStore.createTable(Table.builder().name("sites").type("test").schema(SITES_SCHEMA).build());
+    for (int i = 0; i < 1000; i++) {
+      tableProvider.addRows("orders", Row.withSchema(ORDERS_SCHEMA).addValues(i, i % 4).build());
+    }
+    tableProvider.addRows(
+        "sites",
+        Row.withSchema(SITES_SCHEMA).addValues(1, "one").build(),
+        Row.withSchema(SITES_SCHEMA).addValues(2, "two").build());
+  }
+
+  private BeamSqlEnv createEnv(long broadcastJoinThresholdBytes) {
+    BeamSqlPipelineOptions options = PipelineOptionsFactory.as(BeamSqlPipelineOptions.class);
+    options.setBroadcastJoinThresholdBytes(broadcastJoinThresholdBytes);
+    return BeamSqlEnv.builder(metaStore).setPipelineOptions(options).build();
+  }
+
+  private static void analyze(BeamSqlEnv env, String tableName) {
+    new SqlAnalyzeTable(SqlParserPos.ZERO, new SqlIdentifier(tableName, SqlParserPos.ZERO))
+        .execute(env.getContext());
+  }
+
+  private static RelNode findJoin(RelNode node) {
+    while (!(node instanceof BeamJoinRel)) {
+      node = node.getInput(0);
+    }
+    return node;
+  }
+
+  @Test
+  public void testUnanalyzedTablesAreNotBroadcast() {
+    BeamSqlEnv env = createEnv(10 * 1024 * 1024);
+    RelNode join =
+        findJoin(env.parseQuery("SELECT * FROM orders o JOIN sites s ON o.site_id = s.site_id"));
+    assertTrue(join instanceof BeamCoGBKJoinRel);
+  }
+
+  @Test
+  public void testAnalyzedSmallTableIsBroadcast() {
+    BeamSqlEnv env = createEnv(10 * 1024 * 1024);
+    analyze(env, "sites");
+    assertEquals(2d, metaStore.getTableStatistics("sites").getRowCount(), 0.0);
+    assertEquals(2d, metaStore.getTableStatistics("sites").getDistinctCount("site_id"), 0.0);
+
+    BeamRelNode root =
+        env.parseQuery(
+            "SELECT o.order_id, s.name FROM orders o JOIN sites s ON o.site_id = s.site_id "
+                + "WHERE o.order_id < 6");
+    assertTrue(findJoin(root) instanceof BeamSideInputJoinRel);
+
+    PCollection<Row> rows = BeamSqlRelUtils.toPCollection(pipeline, root);
+    Schema outputSchema = Schema.builder().addInt32Field("order_id").addStringField("name").build();
+    PAssert.that(rows)
+        .containsInAnyOrder(
+            Row.withSchema(outputSchema).addValues(1, "one").build(),
+            Row.withSchema(outputSchema).addValues(5, "one").build(),
+            Row.withSchema(outputSchema).addValues(2, "two").build());
+    pipeline.run();
+  }
+
+  @Test
+  public void testOuterSideIsNotBroadcast() {
+    BeamSqlEnv env = createEnv(10 * 1024 * 1024);
+    analyze(env, "sites");
+
+    RelNode leftJoin =
+        findJoin(
+            env.parseQuery("SELECT * FROM orders o LEFT JOIN sites s ON o.site_id = s.site_id"));
+    assertTrue(leftJoin instanceof BeamSideInputJoinRel);
+
+    RelNode rightJoin =
+        findJoin(
+            env.parseQuery("SELECT * FROM orders o RIGHT JOIN sites s ON o.site_id = s.site_id"));
+    assertTrue(rightJoin instanceof BeamCoGBKJoinRel);
+  }
+
+  @Test
+  public void testBroadcastDisabled() {
+    BeamSqlEnv env = createEnv(0);
+    analyze(env, "sites");
+    RelNode join =
+        findJoin(env.parseQuery("SELECT * FROM orders o JOIN sites s ON o.site_id = s.site_id"));
+    assertTrue(join instanceof BeamCoGBKJoinRel);
+  }
+
+  @Test
+  public void testDistinctCountsDriveJoinSelectivity() {
+    BeamSqlEnv env = createEnv(0);
+    analyze(env, "orders");
+    analyze(env, "sites");
+    RelNode join =
+        findJoin(env.parseQuery("SELECT * FROM orders o JOIN sites s ON o.site_id = s.site_id"));
+    // Each of the 1000 orders matches one of the 4 possible sites, so 1000 * 2 / 4 rows.
+    assertEquals(
+        500d,
+        BeamSqlRelUtils.getNodeStats(join, join.getCluster().getMetadataQuery()).getRowCount(),
+        0.01);
+  }
+}
@@ -18,14 +18,25 @@
 package org.apache.beam.sdk.extensions.sql.impl.rel;
 
 import static org.apache.beam.sdk.extensions.sql.impl.rel.BeamCoGBKJoinRelBoundedVsBoundedTest.ORDER_DETAILS1;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.beam.sdk.PipelineResult;
 import org.apache.beam.sdk.extensions.sql.BeamSqlSeekableTable;
 import org.apache.beam.sdk.extensions.sql.TestUtils;
+import org.apache.beam.sdk.extensions.sql.impl.BeamSqlPipelineOptions;
 import org.apache.beam.sdk.extensions.sql.impl.BeamTableStatistics;
+import org.apache.beam.sdk.extensions.sql.impl.transform.BeamJoinTransforms;
 import org.apache.beam.sdk.extensions.sql.meta.SchemaBaseBeamTable;
+import org.apache.beam.sdk.extensions.sql.meta.provider.test.TestBoundedTable;
 import org.apache.beam.sdk.extensions.sql.meta.provider.test.TestTableUtils;
+import org.apache.beam.sdk.metrics.MetricNameFilter;
+import org.apache.beam.sdk.metrics.MetricQueryResults;
+import org.apache.beam.sdk.metrics.MetricResult;
+import org.apache.beam.sdk.metrics.MetricsFilter;
 import org.apache.beam.sdk.options.PipelineOptions;
 import org.apache.beam.sdk.schemas.Schema;
 import org.apache.beam.sdk.testing.PAssert;
@@ -83,6 +94,40 @@ public class BeamSideInputLookupJoinRelTest extends BaseRelTest {
     }
   }
 
+  /**
+   * Test table for JOIN-AS-LOOKUP which simulates the latency of an external service and counts the
+   * keys it is asked for.
+   */
+  public static class SlowSiteLookupTable extends SiteLookupTable {
+    private static final AtomicInteger SEEK_ROWS_CALLS = new AtomicInteger();
+    private static final AtomicInteger SEEKED_KEYS = new AtomicInteger();
+    private static final AtomicInteger MAX_BATCH_SIZE = new AtomicInteger();
+
+    public SlowSiteLookupTable(Schema schema) {
+      super(schema);
+    }
+
+    @Override
+    public List<Row> seekRow(Row lookupSubRow) {
+      int siteId = lookupSubRow.getInt32("site_id");
+      return Arrays.asList(Row.withSchema(getSchema()).addValues(siteId, "SITE" + siteId).build());
+    }
+
+    @Override
+    public List<List<Row>> seekRows(List<Row> lookupSubRows) {
+      SEEK_ROWS_CALLS.incrementAndGet();
+      SEEKED_KEYS.addAndGet(lookupSubRows.size());
+      MAX_BATCH_SIZE.accumulateAndGet(lookupSubRows.size(), Math::max);
+      try {
+        Thread.sleep(50);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new RuntimeException(e);
+      }
+      return super.seekRows(lookupSubRows);
+    }
+  }
+
   @BeforeClass
   public static void prepare() {
     BeamSideInputJoinRelTest.registerUnboundedTable();
@@ -97,6 +142,22 @@ public class BeamSideInputLookupJoinRelTest extends BaseRelTest {
                 Schema.FieldType.STRING,
                 "site_name",
                 nullable)));
+    registerTable(
+        "SLOW_SITE_LKP",
+        new SlowSiteLookupTable(
+            TestTableUtils.buildBeamSqlNullableSchema(
+                Schema.FieldType.INT32,
+                "site_id",
+                nullable,
+                Schema.FieldType.STRING,
+                "site_name",
+                nullable)));
+    registerTable(
+        "ORDERS_WITH_REPEATED_SITES",
+        TestBoundedTable.of(
+                Schema.FieldType.INT32, "order_id",
+                Schema.FieldType.INT32, "site_id")
+            .addRows(1, 1, 2, 2, 3, 1, 4, 3, 5, 2, 6, 1, 7, 4, 8, 3));
   }
 
   @Test
@@ -119,6 +180,60 @@ public class BeamSideInputLookupJoinRelTest extends BaseRelTest {
     pipeline.run();
   }
 
+  @Test
+  public void testBatchedCachedLookupJoin() throws Exception {
+    BeamSqlPipelineOptions options = pipeline.getOptions().as(BeamSqlPipelineOptions.class);
+    options.setLookupJoinBatchSize(2);
+    options.setLookupJoinMaxConcurrentBatches(2);
+    options.setLookupJoinCacheSize(100L);
+    SlowSiteLookupTable.SEEK_ROWS_CALLS.set(0);
+    SlowSiteLookupTable.SEEKED_KEYS.set(0);
+    SlowSiteLookupTable.MAX_BATCH_SIZE.set(0);
+
+    String sql =
+        "SELECT o1.order_id, o2.site_name FROM "
+            + " ORDERS_WITH_REPEATED_SITES o1 "
+            + " JOIN SLOW_SITE_LKP o2 "
+            + " on "
+            + " o1.site_id=o2.site_id ";
+    PCollection<Row> rows = compilePipeline(sql, pipeline);
+    PAssert.that(rows.apply(ParDo.of(new TestUtils.BeamSqlRow2StringDoFn())))
+        .containsInAnyOrder(
+            TestUtils.RowsBuilder.of(
+                    Schema.FieldType.INT32, "order_id",
+                    Schema.FieldType.STRING, "site_name")
+                .addRows(
+                    1, "SITE1", 2, "SITE2", 3, "SITE1", 4, "SITE3", 5, "SITE2", 6, "SITE1", 7,
+                    "SITE4", 8, "SITE3")
+                .getStringRows());
+    PipelineResult result = pipeline.run();
+    result.waitUntilFinish();
+
+    MetricQueryResults metrics =
+        result
+            .metrics()
+            .queryMetrics(
+                MetricsFilter.builder()
+                    .addNameFilter(
+                        MetricNameFilter.inNamespace(BeamJoinTransforms.JoinAsLookup.class))
+                    .build());
+    long hits = 0;
+    long misses = 0;
+    for (MetricResult<Long> counter : metrics.getCounters()) {
+      if ("lookupCacheHits".equals(counter.getName().getName())) {
+        hits += counter.getAttempted();
+      } else if ("lookupCacheMisses".equals(counter.getName().getName())) {
+        misses += counter.getAttempted();
+      }
+    }
+    // Misses count the looked up keys, and a batch never asks for the same key twice, so a fact row
+    // is either served from the cache or shares a looked up key with other rows.
+    assertEquals(SlowSiteLookupTable.SEEKED_KEYS.get(), misses);
+    assertTrue(hits + misses <= 8);
+    assertTrue(SlowSiteLookupTable.SEEK_ROWS_CALLS.get() > 0);
+    assertTrue(SlowSiteLookupTable.MAX_BATCH_SIZE.get() <= 2);
+  }
+
   @Test
   public void testLookupTableInnerJoinWithBoundedTable() throws Exception {
     String sql =
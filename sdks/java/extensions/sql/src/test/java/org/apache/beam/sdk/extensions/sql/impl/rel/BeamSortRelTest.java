@@ -17,7 +17,21 @@
  */
 package org.apache.beam.sdk.extensions.sql.impl.rel;
 
+import static org.hamcrest.Matchers.allOf;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.hasProperty;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import org.apache.beam.sdk.extensions.sql.TestUtils;
+import org.apache.beam.sdk.extensions.sql.impl.BeamSqlPipelineOptions;
 import org.apache.beam.sdk.extensions.sql.impl.planner.NodeStats;
 import org.apache.beam.sdk.extensions.sql.meta.provider.test.TestBoundedTable;
 import org.apache.beam.sdk.schemas.Schema;
@@ -32,6 +46,7 @@ import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
 
 /** Test for {@code BeamSortRel}. */
 public class BeamSortRelTest extends BaseRelTest {
@@ -39,6 +54,8 @@ public class BeamSortRelTest extends BaseRelTest {
 
   @Rule public final ExpectedException thrown = ExpectedException.none();
 
+  @Rule public final TemporaryFolder tmpFolder = new TemporaryFolder();
+
   @Before
   public void prepare() {
     registerTable(
@@ -292,6 +309,99 @@ public class BeamSortRelTest extends BaseRelTest {
     compilePipeline(sql, pipeline);
   }
 
+  @Test
+  public void testOrderBy_withoutLimit() {
+    String sql =
+        "SELECT order_id, site_id, price "
+            + "FROM ORDER_DETAILS "
+            + "ORDER BY order_id asc, site_id desc";
+
+    PCollection<Row> rows = compilePipeline(sql, pipeline);
+    PAssert.that(rows)
+        .containsInAnyOrder(
+            TestUtils.RowsBuilder.of(
+                    Schema.FieldType.INT64, "order_id",
+                    Schema.FieldType.INT32, "site_id",
+                    Schema.FieldType.DOUBLE, "price")
+                .addRows(
+                    1L, 2, 1.0, 1L, 1, 2.0, 2L, 4, 3.0, 2L, 1, 4.0, 5L, 5, 5.0, 6L, 6, 6.0, 7L, 7,
+                    7.0, 8L, 8888, 8.0, 8L, 999, 9.0, 10L, 100, 10.0)
+                .getRows());
+    pipeline.run().waitUntilFinish();
+  }
+
+  @Test
+  public void testOrderBy_withoutLimitWritesOrderedShards() throws Exception {
+    Schema schema =
+        Schema.builder()
+            .addField("order_id", Schema.FieldType.INT64)
+            .addNullableField("site_id", Schema.FieldType.INT32)
+            .addField("name", Schema.FieldType.STRING)
+            .build();
+    registerTable(
+        "ORDER_DETAILS",
+        TestBoundedTable.of(schema)
+            .addRows(
+                2L, 1, "b", 1L, null, "a", 3L, 7, "ab", 2L, null, "a", 1L, 5, "", -4L, 3, "c", 2L,
+                1, "a"));
+
+    BeamSqlPipelineOptions options = pipeline.getOptions().as(BeamSqlPipelineOptions.class);
+    options.setOrderByNumPartitions(3);
+    options.setOrderByOutputPrefix(tmpFolder.getRoot().getAbsolutePath() + "/sorted");
+
+    String sql =
+        "SELECT order_id, site_id, name "
+            + "FROM ORDER_DETAILS "
+            + "ORDER BY order_id desc, site_id asc NULLS FIRST, name asc";
+    compilePipeline(sql, pipeline);
+    pipeline.run().waitUntilFinish();
+
+    File[] shards = tmpFolder.getRoot().listFiles((dir, name) -> name.endsWith(".csv"));
+    Arrays.sort(shards);
+    for (File shard : shards) {
+      assertTrue(shard.getName(), shard.getName().startsWith("sorted-sort"));
+    }
+    List<String> lines = new ArrayList<>();
+    for (File shard : shards) {
+      lines.addAll(Files.readAllLines(shard.toPath(), StandardCharsets.UTF_8));
+    }
+    assertEquals(
+        Arrays.asList("3,7,ab", "2,,a", "2,1,a", "2,1,b", "1,,a", "1,5,", "-4,3,c"), lines);
+  }
+
+  @Test
+  public void testOrderBy_withoutLimitUnsupportedType() {
+    thrown.expectCause(
+        allOf(
+            instanceOf(UnsupportedOperationException.class),
+            hasProperty(
+                "message",
+                containsString("ORDER BY without a LIMIT is not supported for field flag"))));
+
+    Schema schema =
+        Schema.builder()
+            .addField("order_id", Schema.FieldType.INT64)
+            .addField("flag", Schema.FieldType.BOOLEAN)
+            .build();
+    registerTable("FLAGS", TestBoundedTable.of(schema).addRows(1L, true, 2L, false));
+
+    String sql = "SELECT order_id, flag FROM FLAGS ORDER BY flag asc";
+
+    compilePipeline(sql, pipeline);
+  }
+
+  @Test
+  public void testOrderBy_withoutLimitWithOffset() {
+    thrown.expectCause(
+        allOf(
+            instanceOf(UnsupportedOperationException.class),
+            hasProperty("message", containsString("OFFSET without a LIMIT is not supported!"))));
+
+    String sql = "SELECT order_id FROM ORDER_DETAILS ORDER BY order_id asc OFFSET 2";
+
+    compilePipeline(sql, pipeline);
+  }
+
   @Test
   public void testNodeStatsEstimation() {
     String sql =
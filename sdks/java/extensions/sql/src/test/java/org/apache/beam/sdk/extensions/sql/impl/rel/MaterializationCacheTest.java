@@ -0,0 +1,101 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.sdk.extensions.sql.impl.rel;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.not;
+
+import java.io.File;
+import java.nio.file.Files;
+import org.apache.beam.sdk.extensions.sql.impl.BeamSqlEnv;
+import org.apache.beam.sdk.extensions.sql.impl.BeamSqlPipelineOptions;
+import org.apache.beam.sdk.extensions.sql.impl.utils.CalciteUtils;
+import org.apache.beam.sdk.extensions.sql.meta.provider.text.TextTableProvider;
+import org.apache.beam.sdk.extensions.sql.meta.store.InMemoryMetaStore;
+import org.apache.beam.sdk.options.PipelineOptionsFactory;
+import org.apache.beam.sdk.schemas.Schema;
+import org.apache.beam.sdk.values.Row;
+import org.apache.beam.vendor.calcite.v1_20_0.com.google.common.base.Charsets;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link MaterializationCache}. */
+@RunWith(JUnit4.class)
+public class MaterializationCacheTest {
+  @Rule public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  private File input;
+  private BeamSqlEnv env;
+
+  @Before
+  public void setUp() throws Exception {
+    input = tempFolder.newFile("input.csv");
+    Files.write(input.toPath(), "a,1\nb,2\n".getBytes(Charsets.UTF_8));
+
+    BeamSqlPipelineOptions options = PipelineOptionsFactory.as(BeamSqlPipelineOptions.class);
+    options.setMaterializationCacheLocation(tempFolder.newFolder("cache").getPath());
+    InMemoryMetaStore metaStore = new InMemoryMetaStore();
+    metaStore.registerProvider(new TextTableProvider());
+    env = BeamSqlEnv.builder(metaStore).setPipelineOptions(options).build();
+    env.executeDdl(
+        String.format(
+            "CREATE EXTERNAL TABLE test (f_string VARCHAR, f_int INTEGER) TYPE text LOCATION '%s'",
+            input.getPath()));
+  }
+
+  @Test
+  public void testReadsCachedResultUntilSourceChanges() throws Exception {
+    String sql = "SELECT f_string, f_int * 2 FROM test WHERE f_int > 1";
+
+    BeamRelNode first = env.parseQuery(sql);
+    assertThat(first, instanceOf(BeamMaterializeRel.class));
+    Schema schema = CalciteUtils.toSchema(first.getRowType());
+    assertThat(
+        BeamEnumerableConverter.toRowList(first),
+        containsInAnyOrder(Row.withSchema(schema).addValues("b", 4).build()));
+
+    BeamRelNode second = env.parseQuery(sql);
+    assertThat(second, instanceOf(BeamMaterializedScanRel.class));
+    assertThat(
+        BeamEnumerableConverter.toRowList(second),
+        containsInAnyOrder(Row.withSchema(schema).addValues("b", 4).build()));
+
+    Files.write(input.toPath(), "a,1\nb,2\nc,3\n".getBytes(Charsets.UTF_8));
+
+    BeamRelNode third = env.parseQuery(sql);
+    assertThat(third, instanceOf(BeamMaterializeRel.class));
+    assertThat(
+        BeamEnumerableConverter.toRowList(third),
+        containsInAnyOrder(
+            Row.withSchema(schema).addValues("b", 4).build(),
+            Row.withSchema(schema).addValues("c", 6).build()));
+  }
+
+  @Test
+  public void testDoesNotCacheNondeterministicResult() throws Exception {
+    BeamRelNode node = env.parseQuery("SELECT f_string, CURRENT_TIMESTAMP FROM test");
+
+    assertThat(node, not(instanceOf(BeamMaterializeRel.class)));
+  }
+}
@@ -21,16 +21,19 @@ import static org.apache.beam.sdk.schemas.Schema.toSchema;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 
 import com.alibaba.fastjson.JSONObject;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.stream.Stream;
+import org.apache.beam.sdk.extensions.sql.impl.BeamTableStatistics;
 import org.apache.beam.sdk.extensions.sql.meta.BeamSqlTable;
 import org.apache.beam.sdk.extensions.sql.meta.Table;
 import org.apache.beam.sdk.extensions.sql.meta.provider.TableProvider;
 import org.apache.beam.sdk.extensions.sql.meta.provider.text.TextTableProvider;
 import org.apache.beam.sdk.schemas.Schema;
+import org.apache.beam.vendor.calcite.v1_20_0.com.google.common.collect.ImmutableMap;
 import org.hamcrest.Matchers;
 import org.junit.Before;
 import org.junit.Test;
@@ -91,6 +94,26 @@ public class InMemoryMetaStoreTest {
         actualSqlTable.getSchema());
   }
 
+  @Test
+  public void testTableStatistics() throws Exception {
+    store.createTable(mockTable("hello"));
+    assertTrue(store.getTableStatistics("hello").isUnknown());
+
+    BeamTableStatistics statistics =
+        BeamTableStatistics.createBoundedTableStatistics(10d, 100d, ImmutableMap.of("id", 5d));
+    store.setTableStatistics("hello", statistics);
+    assertEquals(statistics, store.getTableStatistics("hello"));
+
+    store.dropTable("hello");
+    store.createTable(mockTable("hello"));
+    assertTrue(store.getTableStatistics("hello").isUnknown());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testTableStatistics_unknownTable() throws Exception {
+    store.setTableStatistics("hello", BeamTableStatistics.createBoundedTableStatistics(10d));
+  }
+
   @Test
   public void testRegisterProvider() throws Exception {
     store.registerProvider(new MockTableProvider("mock", "hello", "world"));
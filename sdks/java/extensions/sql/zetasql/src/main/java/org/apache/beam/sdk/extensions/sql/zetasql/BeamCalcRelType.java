@@ -36,6 +36,7 @@ import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.rex.RexLocalRef
 import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.rex.RexNode;
 import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.rex.RexProgram;
 import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.sql.SqlOperator;
+import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.sql.type.SqlTypeName;
 import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.sql.validate.SqlUserDefinedFunction;
 import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.tools.RelBuilder;
 import org.slf4j.Logger;
@@ -105,12 +106,58 @@ class BeamCalcRelType extends CalcRelSplitter.RelType {
         return false;
       }
     } else {
-      // Reject Calcite implementations
-      return false;
+      // Reject Calcite implementations which behave differently than their ZetaSQL counterparts
+      return canImplementBuiltin(call);
     }
     return true;
   }
 
+  /**
+   * Returns true only if {@code call} is a builtin operator that {@link BeamCalcRel} evaluates
+   * exactly like the ZetaSQL function it was translated from. Such calls are compiled to Java by
+   * {@link BeamCalcRel} rather than interpreted by ZetaSQL.
+   */
+  private boolean canImplementBuiltin(RexCall call) {
+    for (RexNode operand : call.getOperands()) {
+      if (!supportsType(operand.getType())) {
+        return false;
+      }
+    }
+    switch (call.getKind()) {
+      case AND:
+      case OR:
+      case NOT:
+      case IS_NULL:
+      case IS_NOT_NULL:
+        return true;
+      case EQUALS:
+      case NOT_EQUALS:
+        // Strings are equal in Java if and only if their UTF-8 encodings are equal.
+        return call.getOperands().stream()
+            .allMatch(
+                operand ->
+                    isOrdered(operand.getType())
+                        || operand.getType().getSqlTypeName() == SqlTypeName.VARCHAR);
+      case LESS_THAN:
+      case LESS_THAN_OR_EQUAL:
+      case GREATER_THAN:
+      case GREATER_THAN_OR_EQUAL:
+        // Strings are ordered by UTF-16 code units in Java, but by bytes in ZetaSQL.
+        return call.getOperands().stream().allMatch(operand -> isOrdered(operand.getType()));
+      default:
+        return false;
+    }
+  }
+
+  /**
+   * Returns true if values of the type are ordered the same way in Java and in ZetaSQL. Floating
+   * point types are excluded because of the ordering of NaN.
+   */
+  private static boolean isOrdered(RelDataType type) {
+    return type.getSqlTypeName() == SqlTypeName.BIGINT
+        || type.getSqlTypeName() == SqlTypeName.BOOLEAN;
+  }
+
   @Override
   protected RelNode makeRel(
       RelOptCluster cluster,
@@ -130,7 +177,7 @@ class BeamCalcRelType extends CalcRelSplitter.RelType {
    * Returns true only if the data type can be correctly implemented by {@link
    * org.apache.beam.sdk.extensions.sql.impl.rel.BeamCalcRel} in ZetaSQL.
    */
-  private boolean supportsType(RelDataType type) {
+  static boolean supportsType(RelDataType type) {
     switch (type.getSqlTypeName()) {
       case BIGINT:
       case BINARY:
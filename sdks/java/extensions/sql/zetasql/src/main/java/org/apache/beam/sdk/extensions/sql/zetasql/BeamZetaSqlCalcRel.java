@@ -35,7 +35,10 @@ import java.util.function.IntFunction;
 import org.apache.beam.sdk.annotations.Internal;
 import org.apache.beam.sdk.extensions.sql.impl.BeamSqlPipelineOptions;
 import org.apache.beam.sdk.extensions.sql.impl.QueryPlanner.QueryParameters;
+import org.apache.beam.sdk.extensions.sql.impl.planner.BeamCostModel;
+import org.apache.beam.sdk.extensions.sql.impl.planner.NodeStats;
 import org.apache.beam.sdk.extensions.sql.impl.rel.AbstractBeamCalcRel;
+import org.apache.beam.sdk.extensions.sql.impl.rel.BeamSqlRelUtils;
 import org.apache.beam.sdk.extensions.sql.impl.utils.CalciteUtils;
 import org.apache.beam.sdk.extensions.sql.meta.provider.bigquery.BeamBigQuerySqlDialect;
 import org.apache.beam.sdk.extensions.sql.meta.provider.bigquery.BeamSqlUnparseContext;
@@ -48,9 +51,11 @@ import org.apache.beam.sdk.values.PCollection;
 import org.apache.beam.sdk.values.PCollectionList;
 import org.apache.beam.sdk.values.Row;
 import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.plan.RelOptCluster;
+import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.plan.RelOptPlanner;
 import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.plan.RelTraitSet;
 import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.rel.RelNode;
 import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.rel.core.Calc;
+import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.rel.metadata.RelMetadataQuery;
 import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.rel.type.RelDataType;
 import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.rex.RexBuilder;
 import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.rex.RexNode;
@@ -75,7 +80,13 @@ import org.joda.time.Instant;
 public class BeamZetaSqlCalcRel extends AbstractBeamCalcRel {
 
   private static final SqlDialect DIALECT = BeamBigQuerySqlDialect.DEFAULT;
-  private static final int MAX_PENDING_WINDOW = 32;
+  /**
+   * Cost of evaluating a row with ZetaSQL, which marshals it to and from ZetaSQL values, relative
+   * to evaluating it with the code generated by {@link
+   * org.apache.beam.sdk.extensions.sql.impl.rel.BeamCalcRel}.
+   */
+  private static final double ZETASQL_ROW_COST = 4;
+
   private final BeamSqlUnparseContext context;
 
   private static String columnName(int i) {
@@ -99,6 +110,13 @@ public class BeamZetaSqlCalcRel extends AbstractBeamCalcRel {
     return new Transform();
   }
 
+  @Override
+  public BeamCostModel beamComputeSelfCost(RelOptPlanner planner, RelMetadataQuery mq) {
+    NodeStats inputStat = BeamSqlRelUtils.getNodeStats(this.input, mq);
+    return BeamCostModel.FACTORY.makeCost(
+        inputStat.getRowCount() * ZETASQL_ROW_COST, inputStat.getRate() * ZETASQL_ROW_COST);
+  }
+
   @AutoValue
   abstract static class TimestampedFuture {
     private static TimestampedFuture create(Instant t, Future<Value> f) {
@@ -140,7 +158,8 @@ public class BeamZetaSqlCalcRel extends AbstractBeamCalcRel {
               upstream.getSchema(),
               outputSchema,
               options.getZetaSqlDefaultTimezone(),
-              options.getVerifyRowValues());
+              options.getVerifyRowValues(),
+              options.getZetaSqlCalcMaxPendingRows());
 
       // validate prepared expressions
       calcFn.setup();
@@ -162,6 +181,11 @@ public class BeamZetaSqlCalcRel extends AbstractBeamCalcRel {
   /**
    * {@code CalcFn} is the executor for a {@link BeamZetaSqlCalcRel} step. The implementation is
    * based on the {@code ZetaSQL} expression evaluator.
+   *
+   * <p>Rows are sent to the evaluator through a {@link PreparedExpression.Stream}, which batches
+   * them while earlier batches are evaluated. Up to {@code maxPendingRows} rows per window are in
+   * flight before {@code CalcFn} waits for a result, and the remaining rows of a bundle are flushed
+   * together when it finishes.
    */
   @SuppressFBWarnings("SE_TRANSIENT_FIELD_NOT_RESTORED")
   private static class CalcFn extends DoFn<Row, Row> {
@@ -171,6 +195,7 @@ public class BeamZetaSqlCalcRel extends AbstractBeamCalcRel {
     private final Schema outputSchema;
     private final String defaultTimezone;
     private final boolean verifyRowValues;
+    private final int maxPendingRows;
     private transient List<Integer> referencedColumns = ImmutableList.of();
     private transient Map<BoundedWindow, Queue<TimestampedFuture>> pending = new HashMap<>();
     private transient PreparedExpression exp;
@@ -182,7 +207,8 @@ public class BeamZetaSqlCalcRel extends AbstractBeamCalcRel {
         Schema inputSchema,
         Schema outputSchema,
         String defaultTimezone,
-        boolean verifyRowValues) {
+        boolean verifyRowValues,
+        int maxPendingRows) {
       this.sql = sql;
       this.exp = new PreparedExpression(sql);
       this.nullParams = nullParams;
@@ -190,6 +216,7 @@ public class BeamZetaSqlCalcRel extends AbstractBeamCalcRel {
       this.outputSchema = outputSchema;
       this.defaultTimezone = defaultTimezone;
       this.verifyRowValues = verifyRowValues;
+      this.maxPendingRows = maxPendingRows;
     }
 
     /** exp cannot be reused and is transient so needs to be reinitialized. */
@@ -252,7 +279,7 @@ public class BeamZetaSqlCalcRel extends AbstractBeamCalcRel {
       pendingWindow.add(TimestampedFuture.create(t, valueFuture));
 
       while ((!pendingWindow.isEmpty() && pendingWindow.element().future().isDone())
-          || pendingWindow.size() > MAX_PENDING_WINDOW) {
+          || pendingWindow.size() > maxPendingRows) {
         outputRow(pendingWindow.remove(), r);
       }
     }
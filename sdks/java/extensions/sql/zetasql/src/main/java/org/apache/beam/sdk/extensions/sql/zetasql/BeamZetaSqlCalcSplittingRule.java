@@ -20,13 +20,17 @@ package org.apache.beam.sdk.extensions.sql.zetasql;
 import org.apache.beam.sdk.extensions.sql.impl.rel.BeamCalcRel;
 import org.apache.beam.sdk.extensions.sql.impl.rel.CalcRelSplitter;
 import org.apache.beam.sdk.extensions.sql.impl.rule.BeamCalcSplittingRule;
+import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.plan.RelOptRuleCall;
+import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.rel.core.Calc;
 
 /**
  * A {@link BeamCalcSplittingRule} that converts a {@link LogicalCalc} to a chain of {@link
  * BeamZetaSqlCalcRel} and/or {@link BeamCalcRel} via {@link CalcRelSplitter}.
  *
- * <p>Only Java UDFs are implemented using {@link BeamCalcRel}. All other expressions are
- * implemented using {@link BeamZetaSqlCalcRel}.
+ * <p>Java UDFs are implemented using {@link BeamCalcRel}, ZetaSQL builtin functions which Calcite
+ * does not implement the same way using {@link BeamZetaSqlCalcRel}. All other expressions may be
+ * implemented by either of them: the rule proposes both a split which evaluates them with ZetaSQL
+ * and one which compiles them with {@link BeamCalcRel}, and the planner picks the cheaper one.
  */
 public class BeamZetaSqlCalcSplittingRule extends BeamCalcSplittingRule {
   public static final BeamZetaSqlCalcSplittingRule INSTANCE = new BeamZetaSqlCalcSplittingRule();
@@ -35,6 +39,26 @@ public class BeamZetaSqlCalcSplittingRule extends BeamCalcSplittingRule {
     super("BeamZetaSqlCalcRule");
   }
 
+  @Override
+  public void onMatch(RelOptRuleCall relOptRuleCall) {
+    super.onMatch(relOptRuleCall);
+
+    final Calc calc = (Calc) relOptRuleCall.rel(0);
+    // Fields which are not referenced by any expression are still passed through BeamCalcRel.
+    if (!BeamCalcRelType.supportsType(calc.getInput().getRowType())
+        || !BeamCalcRelType.supportsType(calc.getRowType())) {
+      return;
+    }
+    final CalcRelSplitter compiledFirst =
+        new CalcRelSplitter(
+            calc,
+            relOptRuleCall.builder(),
+            new CalcRelSplitter.RelType[] {
+              new BeamCalcRelType("BeamCalcRelType"), new BeamZetaSqlRelType("BeamZetaSqlRelType")
+            });
+    relOptRuleCall.transformTo(compiledFirst.execute());
+  }
+
   @Override
   protected CalcRelSplitter.RelType[] getRelTypes() {
     return new CalcRelSplitter.RelType[] {
@@ -0,0 +1,95 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.sdk.extensions.sql.zetasql;
+
+import static org.junit.Assert.assertEquals;
+
+import org.apache.beam.sdk.extensions.sql.impl.rel.BeamCalcRel;
+import org.apache.beam.sdk.extensions.sql.impl.rel.BeamRelNode;
+import org.apache.beam.sdk.extensions.sql.impl.rel.BeamSqlRelUtils;
+import org.apache.beam.sdk.schemas.Schema;
+import org.apache.beam.sdk.testing.PAssert;
+import org.apache.beam.sdk.testing.TestPipeline;
+import org.apache.beam.sdk.values.PCollection;
+import org.apache.beam.sdk.values.Row;
+import org.apache.beam.vendor.calcite.v1_20_0.org.apache.calcite.rel.RelNode;
+import org.joda.time.Duration;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link BeamZetaSqlCalcSplittingRule}. */
+@RunWith(JUnit4.class)
+public class BeamZetaSqlCalcSplittingRuleTest extends ZetaSqlTestBase {
+  @Rule public transient TestPipeline pipeline = TestPipeline.create();
+
+  @Before
+  public void setUp() {
+    initialize();
+  }
+
+  private static int count(RelNode node, Class<? extends RelNode> clazz) {
+    int count = clazz.isInstance(node) ? 1 : 0;
+    for (RelNode input : node.getInputs()) {
+      count += count(input, clazz);
+    }
+    return count;
+  }
+
+  @Test
+  public void testCompatibleExpressionsAreCompiled() {
+    String sql = "SELECT Key FROM KeyValue WHERE Key > 14 AND Value IS NOT NULL";
+    ZetaSQLQueryPlanner zetaSQLQueryPlanner = new ZetaSQLQueryPlanner(config);
+    BeamRelNode beamRelNode = zetaSQLQueryPlanner.convertToBeamRel(sql);
+
+    assertEquals(1, count(beamRelNode, BeamCalcRel.class));
+    assertEquals(0, count(beamRelNode, BeamZetaSqlCalcRel.class));
+
+    PCollection<Row> stream = BeamSqlRelUtils.toPCollection(pipeline, beamRelNode);
+    Schema schema = Schema.builder().addInt64Field("Key").build();
+    PAssert.that(stream).containsInAnyOrder(Row.withSchema(schema).addValues(15L).build());
+    pipeline.run().waitUntilFinish(Duration.standardMinutes(PIPELINE_EXECUTION_WAITTIME_MINUTES));
+  }
+
+  @Test
+  public void testZetaSqlFunctionsAreEvaluatedByZetaSql() {
+    String sql = "SELECT Key, UPPER(Value) FROM KeyValue WHERE Key = 14";
+    ZetaSQLQueryPlanner zetaSQLQueryPlanner = new ZetaSQLQueryPlanner(config);
+    BeamRelNode beamRelNode = zetaSQLQueryPlanner.convertToBeamRel(sql);
+
+    assertEquals(1, count(beamRelNode, BeamZetaSqlCalcRel.class));
+
+    PCollection<Row> stream = BeamSqlRelUtils.toPCollection(pipeline, beamRelNode);
+    Schema schema = Schema.builder().addInt64Field("field1").addStringField("field2").build();
+    PAssert.that(stream)
+        .containsInAnyOrder(Row.withSchema(schema).addValues(14L, "KEYVALUE234").build());
+    pipeline.run().waitUntilFinish(Duration.standardMinutes(PIPELINE_EXECUTION_WAITTIME_MINUTES));
+  }
+
+  @Test
+  public void testStringOrderingIsEvaluatedByZetaSql() {
+    String sql = "SELECT Key FROM KeyValue WHERE Value < 'KeyValue235'";
+    ZetaSQLQueryPlanner zetaSQLQueryPlanner = new ZetaSQLQueryPlanner(config);
+    BeamRelNode beamRelNode = zetaSQLQueryPlanner.convertToBeamRel(sql);
+
+    assertEquals(0, count(beamRelNode, BeamCalcRel.class));
+    assertEquals(1, count(beamRelNode, BeamZetaSqlCalcRel.class));
+  }
+}
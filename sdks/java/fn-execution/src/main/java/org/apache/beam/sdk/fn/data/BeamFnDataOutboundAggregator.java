@@ -0,0 +1,417 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.sdk.fn.data;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.apache.beam.model.fnexecution.v1.BeamFnApi;
+import org.apache.beam.sdk.coders.Coder;
+import org.apache.beam.sdk.metrics.MetricName;
+import org.apache.beam.sdk.metrics.MetricsContainer;
+import org.apache.beam.sdk.options.ExperimentalOptions;
+import org.apache.beam.sdk.options.PipelineOptions;
+import org.apache.beam.vendor.grpc.v1p36p0.com.google.protobuf.ByteString;
+import org.apache.beam.vendor.grpc.v1p36p0.com.google.protobuf.UnsafeByteOperations;
+import org.apache.beam.vendor.grpc.v1p36p0.io.grpc.stub.StreamObserver;
+import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.annotations.VisibleForTesting;
+import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Aggregates the outbound data and timers of all {@link LogicalEndpoint endpoints} of a single
+ * instruction and sends them together within a single {@link BeamFnApi.Elements} message.
+ *
+ * <p>Compared to {@link BeamFnDataSizeBasedBufferingOutboundObserver} which buffers each endpoint
+ * separately, the size threshold applies to the sum of all buffered endpoints and a single lock and
+ * a single periodic flush are shared by all endpoints. Elements are encoded into plain byte arrays
+ * which are handed off to the {@link BeamFnApi.Elements} message without copying using {@link
+ * UnsafeByteOperations}. Since the outbound observer may still hold on to a message after it was
+ * sent, buffers are never written to again once they were handed off. The replacement buffer is
+ * pre-sized from the size of the previous flush so that steady streams do not need to grow their
+ * buffers.
+ *
+ * <p>The aggregation is enabled by specifying the experiment {@code data_buffer_aggregation}. The
+ * thresholds are the fixed values of the {@code data_buffer_size_limit} and {@code
+ * data_buffer_time_limit_ms} experiments, they are not adapted to the observed throughput. Buffered
+ * data is sent at the latest {@code data_buffer_time_limit_ms} after the previous flush, whether
+ * that flush was caused by the size limit or by the time limit. Each aggregator schedules its
+ * periodic flushes on its own thread, so a flush blocked on a full stream only delays the data of
+ * its own instruction.
+ *
+ * <p>The number of bytes and messages sent and the distribution of message sizes are reported as
+ * metrics to the {@link MetricsContainer} provided on creation, if any. The throughput in bytes per
+ * second and a histogram of the message sizes with power of two buckets are additionally logged at
+ * debug level when the last endpoint is closed.
+ */
+@SuppressWarnings({
+  "nullness" // TODO(https://issues.apache.org/jira/browse/BEAM-10402)
+})
+public class BeamFnDataOutboundAggregator {
+  private static final Logger LOG = LoggerFactory.getLogger(BeamFnDataOutboundAggregator.class);
+
+  public static final String DATA_BUFFER_AGGREGATION = "data_buffer_aggregation";
+
+  static final MetricName BYTES_SENT =
+      MetricName.named(BeamFnDataOutboundAggregator.class, "bytesSent");
+  static final MetricName MESSAGES_SENT =
+      MetricName.named(BeamFnDataOutboundAggregator.class, "messagesSent");
+  static final MetricName MESSAGE_BYTES =
+      MetricName.named(BeamFnDataOutboundAggregator.class, "messageBytes");
+
+  private static final int MIN_BUFFER_SIZE = 1024;
+  private static final int NUM_HISTOGRAM_BUCKETS = 32;
+
+  /** Returns true if outbound data should be aggregated per instruction. */
+  public static boolean isEnabled(PipelineOptions options) {
+    return ExperimentalOptions.hasExperiment(options, DATA_BUFFER_AGGREGATION);
+  }
+
+  private final String instructionId;
+  private final int sizeLimit;
+  private final StreamObserver<BeamFnApi.Elements> outboundObserver;
+  private final Runnable onCompletion;
+  private final Map<LogicalEndpoint, Receiver<?>> receivers;
+  private final long timeLimitNanos;
+  private final @Nullable ScheduledExecutorService flushExecutor;
+  private final @Nullable MetricsContainer metricsContainer;
+  private final long startNanos;
+
+  private int openReceivers;
+  private long bufferedBytes;
+  private long lastFlushNanos;
+  private boolean completed;
+  private IOException periodicFlushException;
+
+  private long bytesSent;
+  private long messagesSent;
+  private final long[] flushSizeHistogram;
+
+  /**
+   * Creates an aggregator for the provided instruction which does not report metrics. The {@code
+   * onCompletion} callback is invoked once all registered endpoints have been closed.
+   */
+  public BeamFnDataOutboundAggregator(
+      PipelineOptions options,
+      String instructionId,
+      StreamObserver<BeamFnApi.Elements> outboundObserver,
+      Runnable onCompletion) {
+    this(options, instructionId, outboundObserver, onCompletion, null);
+  }
+
+  /**
+   * Creates an aggregator for the provided instruction which reports its metrics to the provided
+   * {@link MetricsContainer}. The {@code onCompletion} callback is invoked once all registered
+   * endpoints have been closed.
+   */
+  public BeamFnDataOutboundAggregator(
+      PipelineOptions options,
+      String instructionId,
+      StreamObserver<BeamFnApi.Elements> outboundObserver,
+      Runnable onCompletion,
+      @Nullable MetricsContainer metricsContainer) {
+    this.instructionId = instructionId;
+    this.sizeLimit = BeamFnDataBufferingOutboundObserver.getSizeLimit(options);
+    this.outboundObserver = outboundObserver;
+    this.onCompletion = onCompletion;
+    this.receivers = new LinkedHashMap<>();
+    this.flushSizeHistogram = new long[NUM_HISTOGRAM_BUCKETS];
+    this.metricsContainer = metricsContainer;
+    this.startNanos = System.nanoTime();
+    this.lastFlushNanos = startNanos;
+    this.timeLimitNanos =
+        TimeUnit.MILLISECONDS.toNanos(BeamFnDataBufferingOutboundObserver.getTimeLimit(options));
+    if (timeLimitNanos > 0) {
+      this.flushExecutor =
+          Executors.newSingleThreadScheduledExecutor(
+              new ThreadFactoryBuilder()
+                  .setDaemon(true)
+                  .setNameFormat("DataOutboundAggregatorFlusher-thread")
+                  .build());
+      flushExecutor.schedule(this::periodicFlush, timeLimitNanos, TimeUnit.NANOSECONDS);
+    } else {
+      this.flushExecutor = null;
+    }
+  }
+
+  /**
+   * Registers an outbound endpoint of this instruction and returns a receiver which encodes values
+   * with the provided {@link Coder}. On closing the returned receiver, all buffered data of the
+   * instruction is sent together with the end of stream marker of the endpoint.
+   *
+   * <p>Returns {@code null} if all previously registered endpoints have already been closed, in
+   * which case a new aggregator must be used.
+   */
+  public synchronized <T> CloseableFnDataReceiver<T> registerOutputLocation(
+      LogicalEndpoint endpoint, Coder<T> coder) {
+    if (completed) {
+      return null;
+    }
+    if (!endpoint.getInstructionId().equals(instructionId)) {
+      throw new IllegalArgumentException(
+          String.format("Endpoint %s does not belong to instruction %s.", endpoint, instructionId));
+    }
+    if (receivers.containsKey(endpoint)) {
+      throw new IllegalStateException(
+          String.format("Endpoint %s has already been registered.", endpoint));
+    }
+    Receiver<T> receiver = new Receiver<>(endpoint, coder);
+    receivers.put(endpoint, receiver);
+    openReceivers += 1;
+    return receiver;
+  }
+
+  /** Sends all buffered data of all endpoints within a single {@link BeamFnApi.Elements}. */
+  public synchronized void flush() throws IOException {
+    checkPeriodicFlushException();
+    if (bufferedBytes > 0) {
+      send(buildElements(null));
+    }
+    lastFlushNanos = System.nanoTime();
+  }
+
+  private synchronized void periodicFlush() {
+    if (completed || periodicFlushException != null) {
+      return;
+    }
+    // Only flush once the time limit passed since the last flush of either kind, and otherwise
+    // check again when it will have passed.
+    long sinceLastFlush = System.nanoTime() - lastFlushNanos;
+    if (sinceLastFlush < timeLimitNanos) {
+      flushExecutor.schedule(
+          this::periodicFlush, timeLimitNanos - sinceLastFlush, TimeUnit.NANOSECONDS);
+      return;
+    }
+    try {
+      flush();
+    } catch (IOException | RuntimeException e) {
+      periodicFlushException = new IOException("Periodic flush failed.", e);
+      return;
+    }
+    flushExecutor.schedule(this::periodicFlush, timeLimitNanos, TimeUnit.NANOSECONDS);
+  }
+
+  private void checkPeriodicFlushException() throws IOException {
+    if (periodicFlushException != null) {
+      throw periodicFlushException;
+    }
+  }
+
+  private BeamFnApi.Elements buildElements(Receiver<?> closingReceiver) {
+    BeamFnApi.Elements.Builder elements = BeamFnApi.Elements.newBuilder();
+    for (Receiver<?> receiver : receivers.values()) {
+      if (receiver.buffer.size() > 0) {
+        receiver.addTo(elements, receiver.buffer.toByteString(), false);
+      }
+    }
+    if (closingReceiver != null) {
+      closingReceiver.addTo(elements, ByteString.EMPTY, true);
+    }
+    bufferedBytes = 0;
+    return elements.build();
+  }
+
+  private void send(BeamFnApi.Elements elements) {
+    int size = elements.getSerializedSize();
+    bytesSent += size;
+    messagesSent += 1;
+    flushSizeHistogram[bucketFor(size)] += 1;
+    if (metricsContainer != null) {
+      metricsContainer.getCounter(BYTES_SENT).inc(size);
+      metricsContainer.getCounter(MESSAGES_SENT).inc();
+      metricsContainer.getDistribution(MESSAGE_BYTES).update(size);
+    }
+    outboundObserver.onNext(elements);
+  }
+
+  private static int bucketFor(long size) {
+    return Math.min(64 - Long.numberOfLeadingZeros(size), NUM_HISTOGRAM_BUCKETS - 1);
+  }
+
+  private void complete() {
+    completed = true;
+    if (flushExecutor != null) {
+      flushExecutor.shutdownNow();
+    }
+    if (LOG.isDebugEnabled()) {
+      LOG.debug(
+          "Closing outbound data for instruction {} having transmitted {} bytes in {} messages "
+              + "({} bytes/sec), flush size histogram by power of two {}",
+          instructionId,
+          bytesSent,
+          messagesSent,
+          getBytesPerSecond(),
+          Arrays.toString(flushSizeHistogram));
+    }
+    onCompletion.run();
+  }
+
+  /** Returns the number of bytes sent by this aggregator. */
+  public synchronized long getBytesSent() {
+    return bytesSent;
+  }
+
+  /** Returns the number of {@link BeamFnApi.Elements} messages sent by this aggregator. */
+  public synchronized long getMessagesSent() {
+    return messagesSent;
+  }
+
+  /** Returns the average number of bytes sent per second since the aggregator was created. */
+  public synchronized double getBytesPerSecond() {
+    long elapsedNanos = Math.max(System.nanoTime() - startNanos, 1);
+    return bytesSent * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+  }
+
+  /**
+   * Returns the histogram of flushed message sizes. Bucket {@code i} counts the messages whose
+   * serialized size is in {@code [2^(i-1), 2^i)} bytes, the last bucket counts all larger messages.
+   */
+  @VisibleForTesting
+  synchronized long[] getFlushSizeHistogram() {
+    return flushSizeHistogram.clone();
+  }
+
+  private class Receiver<T> implements CloseableFnDataReceiver<T> {
+    private final LogicalEndpoint endpoint;
+    private final Coder<T> coder;
+    private final HandOffOutputStream buffer;
+    private boolean closed;
+
+    private Receiver(LogicalEndpoint endpoint, Coder<T> coder) {
+      this.endpoint = endpoint;
+      this.coder = coder;
+      this.buffer = new HandOffOutputStream();
+    }
+
+    @Override
+    public void accept(T value) throws Exception {
+      synchronized (BeamFnDataOutboundAggregator.this) {
+        if (closed) {
+          throw new IllegalStateException("Already closed.");
+        }
+        checkPeriodicFlushException();
+        int sizeBefore = buffer.size();
+        coder.encode(value, buffer);
+        bufferedBytes += buffer.size() - sizeBefore;
+        if (bufferedBytes >= sizeLimit) {
+          flush();
+        }
+      }
+    }
+
+    @Override
+    public void flush() throws Exception {
+      BeamFnDataOutboundAggregator.this.flush();
+    }
+
+    @Override
+    public void close() throws Exception {
+      synchronized (BeamFnDataOutboundAggregator.this) {
+        if (closed) {
+          return;
+        }
+        closed = true;
+        checkPeriodicFlushException();
+        send(buildElements(this));
+        openReceivers -= 1;
+        if (openReceivers == 0) {
+          complete();
+        }
+      }
+    }
+
+    private void addTo(BeamFnApi.Elements.Builder elements, ByteString payload, boolean isLast) {
+      if (endpoint.isTimer()) {
+        elements
+            .addTimersBuilder()
+            .setInstructionId(endpoint.getInstructionId())
+            .setTransformId(endpoint.getTransformId())
+            .setTimerFamilyId(endpoint.getTimerFamilyId())
+            .setTimers(payload)
+            .setIsLast(isLast);
+      } else {
+        elements
+            .addDataBuilder()
+            .setInstructionId(endpoint.getInstructionId())
+            .setTransformId(endpoint.getTransformId())
+            .setData(payload)
+            .setIsLast(isLast);
+      }
+    }
+  }
+
+  /**
+   * An {@link OutputStream} backed by a single byte array which is handed off without copying when
+   * converted to a {@link ByteString}.
+   */
+  @VisibleForTesting
+  static class HandOffOutputStream extends OutputStream {
+    private byte[] buffer;
+    private int count;
+
+    HandOffOutputStream() {
+      this.buffer = new byte[MIN_BUFFER_SIZE];
+    }
+
+    int size() {
+      return count;
+    }
+
+    @Override
+    public void write(int b) {
+      ensureCapacity(count + 1);
+      buffer[count] = (byte) b;
+      count += 1;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+      ensureCapacity(count + len);
+      System.arraycopy(b, off, buffer, count, len);
+      count += len;
+    }
+
+    private void ensureCapacity(int minCapacity) {
+      if (minCapacity > buffer.length) {
+        if (minCapacity < 0) {
+          throw new OutOfMemoryError("Buffered data exceeds 2GiB.");
+        }
+        buffer = Arrays.copyOf(buffer, Math.max(minCapacity, buffer.length << 1));
+      }
+    }
+
+    /**
+     * Returns the buffered bytes without copying them. The underlying array is owned by the
+     * returned {@link ByteString} afterwards and a new array, sized to hold as many bytes as were
+     * just returned, is used for subsequent writes.
+     */
+    ByteString toByteString() {
+      ByteString result = UnsafeByteOperations.unsafeWrap(buffer, 0, count);
+      buffer = new byte[Math.max(MIN_BUFFER_SIZE, count)];
+      count = 0;
+      return result;
+    }
+  }
+}
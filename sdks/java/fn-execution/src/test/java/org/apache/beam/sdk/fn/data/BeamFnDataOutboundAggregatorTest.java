@@ -0,0 +1,311 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.sdk.fn.data;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.empty;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.apache.beam.model.fnexecution.v1.BeamFnApi;
+import org.apache.beam.model.fnexecution.v1.BeamFnApi.Elements;
+import org.apache.beam.sdk.coders.ByteArrayCoder;
+import org.apache.beam.sdk.coders.Coder;
+import org.apache.beam.sdk.coders.LengthPrefixCoder;
+import org.apache.beam.sdk.fn.test.TestStreams;
+import org.apache.beam.sdk.metrics.Counter;
+import org.apache.beam.sdk.metrics.Distribution;
+import org.apache.beam.sdk.metrics.MetricsContainer;
+import org.apache.beam.sdk.options.ExperimentalOptions;
+import org.apache.beam.sdk.options.PipelineOptions;
+import org.apache.beam.sdk.options.PipelineOptionsFactory;
+import org.apache.beam.vendor.grpc.v1p36p0.com.google.protobuf.ByteString;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link BeamFnDataOutboundAggregator}. */
+@RunWith(JUnit4.class)
+public class BeamFnDataOutboundAggregatorTest {
+  private static final LogicalEndpoint DATA_OUTPUT_LOCATION = LogicalEndpoint.data("777L", "555L");
+  private static final LogicalEndpoint OTHER_DATA_OUTPUT_LOCATION =
+      LogicalEndpoint.data("777L", "444L");
+  private static final LogicalEndpoint TIMER_OUTPUT_LOCATION =
+      LogicalEndpoint.timer("777L", "333L", "111L");
+  private static final Coder<byte[]> CODER = LengthPrefixCoder.of(ByteArrayCoder.of());
+
+  private static PipelineOptions optionsWithExperiments(String... experiments) {
+    PipelineOptions options = PipelineOptionsFactory.create();
+    for (String experiment : experiments) {
+      ExperimentalOptions.addExperiment(options.as(ExperimentalOptions.class), experiment);
+    }
+    return options;
+  }
+
+  @Test
+  public void testIsEnabled() {
+    assertFalse(BeamFnDataOutboundAggregator.isEnabled(PipelineOptionsFactory.create()));
+    assertTrue(
+        BeamFnDataOutboundAggregator.isEnabled(
+            optionsWithExperiments(BeamFnDataOutboundAggregator.DATA_BUFFER_AGGREGATION)));
+  }
+
+  @Test
+  public void testAllEndpointsAreSentWithinOneMessage() throws Exception {
+    List<Elements> values = new ArrayList<>();
+    AtomicBoolean completed = new AtomicBoolean();
+    BeamFnDataOutboundAggregator aggregator =
+        new BeamFnDataOutboundAggregator(
+            optionsWithExperiments("data_buffer_size_limit=100"),
+            "777L",
+            TestStreams.<Elements>withOnNext(values::add).build(),
+            () -> completed.set(true));
+    CloseableFnDataReceiver<byte[]> data =
+        aggregator.registerOutputLocation(DATA_OUTPUT_LOCATION, CODER);
+    CloseableFnDataReceiver<byte[]> timers =
+        aggregator.registerOutputLocation(TIMER_OUTPUT_LOCATION, CODER);
+
+    // Test that the threshold applies to the sum of all endpoints.
+    data.accept(new byte[40]);
+    timers.accept(new byte[40]);
+    assertThat(values, empty());
+    data.accept(new byte[20]);
+    assertEquals(
+        Elements.newBuilder()
+            .addData(dataElement(DATA_OUTPUT_LOCATION, new byte[40], new byte[20]))
+            .addTimers(timersElement(TIMER_OUTPUT_LOCATION, new byte[40]))
+            .build(),
+        values.get(0));
+
+    // Test that closing an endpoint flushes the buffers of all endpoints.
+    timers.accept(new byte[10]);
+    data.close();
+    assertEquals(
+        Elements.newBuilder()
+            .addTimers(timersElement(TIMER_OUTPUT_LOCATION, new byte[10]))
+            .addData(
+                BeamFnApi.Elements.Data.newBuilder()
+                    .setInstructionId(DATA_OUTPUT_LOCATION.getInstructionId())
+                    .setTransformId(DATA_OUTPUT_LOCATION.getTransformId())
+                    .setIsLast(true))
+            .build(),
+        values.get(1));
+    assertFalse(completed.get());
+
+    // Test that we can't write to a closed endpoint.
+    try {
+      data.accept(new byte[1]);
+      fail("Writing after close should be prohibited.");
+    } catch (IllegalStateException exn) {
+      // expected
+    }
+
+    timers.close();
+    assertEquals(
+        Elements.newBuilder()
+            .addTimers(
+                BeamFnApi.Elements.Timers.newBuilder()
+                    .setInstructionId(TIMER_OUTPUT_LOCATION.getInstructionId())
+                    .setTransformId(TIMER_OUTPUT_LOCATION.getTransformId())
+                    .setTimerFamilyId(TIMER_OUTPUT_LOCATION.getTimerFamilyId())
+                    .setIsLast(true))
+            .build(),
+        values.get(2));
+    assertEquals(3, values.size());
+    assertTrue(completed.get());
+
+    // Test that no further endpoints can be registered once all endpoints were closed.
+    assertNull(aggregator.registerOutputLocation(OTHER_DATA_OUTPUT_LOCATION, CODER));
+
+    long totalBytes = 0;
+    for (Elements value : values) {
+      totalBytes += value.getSerializedSize();
+    }
+    assertEquals(totalBytes, aggregator.getBytesSent());
+    assertEquals(3, aggregator.getMessagesSent());
+    long flushes = 0;
+    for (long count : aggregator.getFlushSizeHistogram()) {
+      flushes += count;
+    }
+    assertEquals(3, flushes);
+  }
+
+  @Test
+  public void testFlushedBuffersAreNotReused() throws Exception {
+    List<Elements> values = new ArrayList<>();
+    BeamFnDataOutboundAggregator aggregator =
+        new BeamFnDataOutboundAggregator(
+            optionsWithExperiments("data_buffer_size_limit=10"),
+            "777L",
+            TestStreams.<Elements>withOnNext(values::add).build(),
+            () -> {});
+    CloseableFnDataReceiver<byte[]> data =
+        aggregator.registerOutputLocation(DATA_OUTPUT_LOCATION, CODER);
+
+    byte[] first = new byte[10];
+    first[0] = 1;
+    data.accept(first);
+    byte[] second = new byte[10];
+    second[0] = 2;
+    data.accept(second);
+
+    // The payload handed to the first message must not be overwritten by later writes.
+    assertEquals(encode(first), values.get(0).getData(0).getData());
+    assertEquals(encode(second), values.get(1).getData(0).getData());
+  }
+
+  @Test
+  public void testMetricsAreReported() throws Exception {
+    List<Elements> values = new ArrayList<>();
+    MetricsContainer container = mock(MetricsContainer.class);
+    Counter bytesSent = mock(Counter.class);
+    Counter messagesSent = mock(Counter.class);
+    Distribution messageBytes = mock(Distribution.class);
+    when(container.getCounter(BeamFnDataOutboundAggregator.BYTES_SENT)).thenReturn(bytesSent);
+    when(container.getCounter(BeamFnDataOutboundAggregator.MESSAGES_SENT)).thenReturn(messagesSent);
+    when(container.getDistribution(BeamFnDataOutboundAggregator.MESSAGE_BYTES))
+        .thenReturn(messageBytes);
+    BeamFnDataOutboundAggregator aggregator =
+        new BeamFnDataOutboundAggregator(
+            optionsWithExperiments("data_buffer_size_limit=10"),
+            "777L",
+            TestStreams.<Elements>withOnNext(values::add).build(),
+            () -> {},
+            container);
+    CloseableFnDataReceiver<byte[]> data =
+        aggregator.registerOutputLocation(DATA_OUTPUT_LOCATION, CODER);
+    data.accept(new byte[10]);
+    data.close();
+
+    assertEquals(2, values.size());
+    int firstSize = values.get(0).getSerializedSize();
+    int secondSize = values.get(1).getSerializedSize();
+    verify(bytesSent).inc(firstSize);
+    verify(bytesSent).inc(secondSize);
+    verify(messagesSent, times(2)).inc();
+    verify(messageBytes).update(firstSize);
+    verify(messageBytes).update(secondSize);
+  }
+
+  @Test
+  public void testPeriodicFlush() throws Exception {
+    List<Elements> values = Collections.synchronizedList(new ArrayList<>());
+    BeamFnDataOutboundAggregator aggregator =
+        new BeamFnDataOutboundAggregator(
+            optionsWithExperiments("data_buffer_time_limit_ms=1"),
+            "777L",
+            TestStreams.<Elements>withOnNext(values::add).build(),
+            () -> {});
+    CloseableFnDataReceiver<byte[]> data =
+        aggregator.registerOutputLocation(DATA_OUTPUT_LOCATION, CODER);
+    data.accept(new byte[1]);
+    while (values.isEmpty()) {
+      Thread.sleep(1);
+    }
+    assertEquals(
+        Elements.newBuilder().addData(dataElement(DATA_OUTPUT_LOCATION, new byte[1])).build(),
+        values.get(0));
+    data.close();
+  }
+
+  @Test
+  public void testPeriodicFlushFailureIsRethrown() throws Exception {
+    AtomicBoolean fail = new AtomicBoolean();
+    BeamFnDataOutboundAggregator aggregator =
+        new BeamFnDataOutboundAggregator(
+            optionsWithExperiments("data_buffer_time_limit_ms=1"),
+            "777L",
+            TestStreams.<Elements>withOnNext(
+                    (Elements value) -> {
+                      fail.set(true);
+                      throw new RuntimeException("Failed to send.");
+                    })
+                .build(),
+            () -> {});
+    CloseableFnDataReceiver<byte[]> data =
+        aggregator.registerOutputLocation(DATA_OUTPUT_LOCATION, CODER);
+    data.accept(new byte[1]);
+    while (!fail.get()) {
+      Thread.sleep(1);
+    }
+    // Wait for the failure to be recorded by the flushing thread.
+    synchronized (aggregator) {
+      try {
+        data.accept(new byte[1]);
+        fail("Expected the periodic flush failure to be rethrown.");
+      } catch (IOException expected) {
+        // expected
+      }
+    }
+  }
+
+  @Test
+  public void testRegisteringEndpointOfOtherInstructionFails() {
+    BeamFnDataOutboundAggregator aggregator =
+        new BeamFnDataOutboundAggregator(
+            PipelineOptionsFactory.create(),
+            "888L",
+            TestStreams.<Elements>withOnNext(value -> {}).build(),
+            () -> {});
+    try {
+      aggregator.registerOutputLocation(DATA_OUTPUT_LOCATION, CODER);
+      fail("Expected endpoint of another instruction to be rejected.");
+    } catch (IllegalArgumentException expected) {
+      // expected
+    }
+  }
+
+  private static ByteString encode(byte[]... values) throws IOException {
+    ByteString.Output output = ByteString.newOutput();
+    for (byte[] value : values) {
+      CODER.encode(value, output);
+    }
+    return output.toByteString();
+  }
+
+  private static BeamFnApi.Elements.Data dataElement(LogicalEndpoint endpoint, byte[]... values)
+      throws IOException {
+    return BeamFnApi.Elements.Data.newBuilder()
+        .setInstructionId(endpoint.getInstructionId())
+        .setTransformId(endpoint.getTransformId())
+        .setData(encode(values))
+        .build();
+  }
+
+  private static BeamFnApi.Elements.Timers timersElement(LogicalEndpoint endpoint, byte[]... values)
+      throws IOException {
+    return BeamFnApi.Elements.Timers.newBuilder()
+        .setInstructionId(endpoint.getInstructionId())
+        .setTransformId(endpoint.getTransformId())
+        .setTimerFamilyId(endpoint.getTimerFamilyId())
+        .setTimers(encode(values))
+        .build();
+  }
+}
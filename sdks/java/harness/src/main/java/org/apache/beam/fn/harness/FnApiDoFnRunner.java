@@ -59,6 +59,7 @@ import org.apache.beam.runners.core.construction.PTransformTranslation;
 import org.apache.beam.runners.core.construction.ParDoTranslation;
 import org.apache.beam.runners.core.construction.RehydratedComponents;
 import org.apache.beam.runners.core.construction.Timer;
+import org.apache.beam.runners.core.metrics.ElementProcessingTimeSampler;
 import org.apache.beam.runners.core.metrics.MonitoringInfoConstants;
 import org.apache.beam.sdk.Pipeline;
 import org.apache.beam.sdk.coders.Coder;
@@ -238,6 +239,7 @@ public class FnApiDoFnRunner<InputT, RestrictionT, PositionT, WatermarkEstimator
   private final ProcessBundleContextBase processContext;
   private final OnTimerContext<?> onTimerContext;
   private final FinishBundleArgumentProvider finishBundleArgumentProvider;
+  private final ElementProcessingTimeSampler processingTimeSampler;
 
   /**
    * Used to guarantee a consistent view of this {@link FnApiDoFnRunner} while setting up for {@link
@@ -382,6 +384,9 @@ public class FnApiDoFnRunner<InputT, RestrictionT, PositionT, WatermarkEstimator
       } else {
         this.keyCoder = null;
       }
+      // Histograms have no MonitoringInfo encoding, so only the distribution is reported.
+      this.processingTimeSampler =
+          ElementProcessingTimeSampler.fromOptions(pipelineOptions, keyCoder, false);
       if (inputCoder instanceof SchemaCoder) {
         this.schemaCoder = ((SchemaCoder<InputT>) inputCoder);
       } else {
@@ -746,15 +751,18 @@ public class FnApiDoFnRunner<InputT, RestrictionT, PositionT, WatermarkEstimator
 
   private void processElementForParDo(WindowedValue<InputT> elem) {
     currentElement = elem;
+    processingTimeSampler.start();
     try {
       doFnInvoker.invokeProcessElement(processContext);
     } finally {
       currentElement = null;
     }
+    processingTimeSampler.finish(elem.getValue());
   }
 
   private void processElementForWindowObservingParDo(WindowedValue<InputT> elem) {
     currentElement = elem;
+    processingTimeSampler.start();
     try {
       Iterator<BoundedWindow> windowIterator =
           (Iterator<BoundedWindow>) elem.getWindows().iterator();
@@ -766,6 +774,7 @@ public class FnApiDoFnRunner<InputT, RestrictionT, PositionT, WatermarkEstimator
       currentElement = null;
       currentWindow = null;
     }
+    processingTimeSampler.finish(elem.getValue());
   }
 
   private void processElementForPairWithRestriction(WindowedValue<InputT> elem) {
@@ -1659,6 +1668,7 @@ public class FnApiDoFnRunner<InputT, RestrictionT, PositionT, WatermarkEstimator
     }
 
     doFnInvoker.invokeFinishBundle(finishBundleArgumentProvider);
+    processingTimeSampler.reportSlowestKeys();
 
     // TODO(BEAM-10212): Support caching state data across bundle boundaries.
     this.stateAccessor.finalizeState();
@@ -1675,12 +1685,16 @@ public class FnApiDoFnRunner<InputT, RestrictionT, PositionT, WatermarkEstimator
       ((TimestampObservingWatermarkEstimator) currentWatermarkEstimator)
           .observeTimestamp(output.getTimestamp());
     }
+    // Fused consumers run within accept(), which is not part of this DoFn's time.
+    long outputStartNanos = processingTimeSampler.startOutput();
     try {
       for (FnDataReceiver<WindowedValue<T>> consumer : consumers) {
         consumer.accept(output);
       }
     } catch (Throwable t) {
       throw UserCodeException.wrap(t);
+    } finally {
+      processingTimeSampler.finishOutput(outputStartNanos);
     }
   }
 
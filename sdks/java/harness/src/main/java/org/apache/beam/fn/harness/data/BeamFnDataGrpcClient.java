@@ -27,12 +27,16 @@ import org.apache.beam.sdk.coders.Coder;
 import org.apache.beam.sdk.fn.data.BeamFnDataBufferingOutboundObserver;
 import org.apache.beam.sdk.fn.data.BeamFnDataGrpcMultiplexer;
 import org.apache.beam.sdk.fn.data.BeamFnDataInboundObserver;
+import org.apache.beam.sdk.fn.data.BeamFnDataOutboundAggregator;
 import org.apache.beam.sdk.fn.data.CloseableFnDataReceiver;
 import org.apache.beam.sdk.fn.data.FnDataReceiver;
 import org.apache.beam.sdk.fn.data.InboundDataClient;
 import org.apache.beam.sdk.fn.data.LogicalEndpoint;
 import org.apache.beam.sdk.fn.stream.OutboundObserverFactory;
+import org.apache.beam.sdk.metrics.MetricsContainer;
+import org.apache.beam.sdk.metrics.MetricsEnvironment;
 import org.apache.beam.sdk.options.PipelineOptions;
+import org.apache.beam.sdk.values.KV;
 import org.apache.beam.vendor.grpc.v1p36p0.com.google.protobuf.ByteString;
 import org.apache.beam.vendor.grpc.v1p36p0.io.grpc.ManagedChannel;
 import org.slf4j.Logger;
@@ -49,6 +53,8 @@ public class BeamFnDataGrpcClient implements BeamFnDataClient {
   private final ConcurrentMap<Endpoints.ApiServiceDescriptor, BeamFnDataGrpcMultiplexer> cache;
   private final Function<Endpoints.ApiServiceDescriptor, ManagedChannel> channelFactory;
   private final OutboundObserverFactory outboundObserverFactory;
+  private final ConcurrentMap<KV<ApiServiceDescriptor, String>, BeamFnDataOutboundAggregator>
+      outboundAggregators;
   private final PipelineOptions options;
 
   public BeamFnDataGrpcClient(
@@ -59,6 +65,7 @@ public class BeamFnDataGrpcClient implements BeamFnDataClient {
     this.channelFactory = channelFactory;
     this.outboundObserverFactory = outboundObserverFactory;
     this.cache = new ConcurrentHashMap<>();
+    this.outboundAggregators = new ConcurrentHashMap<>();
   }
 
   /**
@@ -93,6 +100,10 @@ public class BeamFnDataGrpcClient implements BeamFnDataClient {
    * data stream finishing.
    *
    * <p>The returned closeable consumer is not thread safe.
+   *
+   * <p>If {@link BeamFnDataOutboundAggregator#isEnabled aggregation} is enabled, all outputs of an
+   * instruction share a single {@link BeamFnDataOutboundAggregator}, which reports its metrics to
+   * the metrics container that is current when the first output of the instruction is registered.
    */
   @Override
   public <T> CloseableFnDataReceiver<T> send(
@@ -102,6 +113,30 @@ public class BeamFnDataGrpcClient implements BeamFnDataClient {
     BeamFnDataGrpcMultiplexer client = getClientFor(apiServiceDescriptor);
 
     LOG.debug("Creating output consumer for {}", outputLocation);
+    if (BeamFnDataOutboundAggregator.isEnabled(options)) {
+      KV<ApiServiceDescriptor, String> key =
+          KV.of(apiServiceDescriptor, outputLocation.getInstructionId());
+      MetricsContainer metricsContainer = MetricsEnvironment.getCurrentContainer();
+      while (true) {
+        BeamFnDataOutboundAggregator aggregator =
+            outboundAggregators.computeIfAbsent(
+                key,
+                (KV<ApiServiceDescriptor, String> unused) ->
+                    new BeamFnDataOutboundAggregator(
+                        options,
+                        outputLocation.getInstructionId(),
+                        client.getOutboundObserver(),
+                        () -> outboundAggregators.remove(key),
+                        metricsContainer));
+        CloseableFnDataReceiver<T> receiver =
+            aggregator.registerOutputLocation(outputLocation, coder);
+        if (receiver != null) {
+          return receiver;
+        }
+        // All outputs of the aggregator were closed concurrently, use a new aggregator instead.
+        outboundAggregators.remove(key, aggregator);
+      }
+    }
     return BeamFnDataBufferingOutboundObserver.forLocation(
         options, outputLocation, coder, client.getOutboundObserver());
   }
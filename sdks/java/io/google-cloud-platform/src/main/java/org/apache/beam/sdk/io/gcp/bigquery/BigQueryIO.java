@@ -582,6 +582,11 @@ public class BigQueryIO {
    *   }
    * }).from("...");
    * }</pre>
+   *
+   * <p>The row is also available as a {@link Row} through {@link SchemaAndRecord#getRow()}. When
+   * reading with {@link Method#DIRECT_READ} and {@link DataFormat#ARROW}, parse functions which
+   * only use {@link SchemaAndRecord#getRow()} read the Arrow record batches without converting
+   * them to {@link GenericRecord}s.
    */
   public static <T> TypedRead<T> read(SerializableFunction<SchemaAndRecord, T> parseFn) {
     return new AutoValue_BigQueryIO_TypedRead.Builder<T>()
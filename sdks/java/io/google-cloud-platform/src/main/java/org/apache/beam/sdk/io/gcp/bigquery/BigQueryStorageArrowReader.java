@@ -17,11 +17,12 @@
  */
 package org.apache.beam.sdk.io.gcp.bigquery;
 
-import com.google.cloud.bigquery.storage.v1.ArrowSchema;
 import com.google.cloud.bigquery.storage.v1.ReadRowsResponse;
 import com.google.cloud.bigquery.storage.v1.ReadSession;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
 import javax.annotation.Nullable;
 import org.apache.arrow.memory.RootAllocator;
 import org.apache.arrow.vector.types.pojo.Schema;
@@ -31,21 +32,26 @@ import org.apache.beam.sdk.extensions.arrow.ArrowConversion.RecordBatchRowIterat
 import org.apache.beam.sdk.schemas.utils.AvroUtils;
 import org.apache.beam.sdk.values.Row;
 
+/**
+ * Reads Arrow record batches of a BigQuery Storage API stream.
+ *
+ * <p>The Arrow schema of the read session is parsed and translated to a Beam schema once, and the
+ * buffers of all record batches of the stream are allocated from one allocator, which is only
+ * released when the reader is closed.
+ */
 @SuppressWarnings("nullness")
 class BigQueryStorageArrowReader implements BigQueryStorageReader {
 
-  private org.apache.beam.sdk.schemas.Schema arrowBeamSchema;
+  private final Schema arrowSchema;
+  private final org.apache.beam.sdk.schemas.Schema arrowBeamSchema;
   private @Nullable RecordBatchRowIterator recordBatchIterator;
   private long rowCount;
-  private ArrowSchema protoSchema;
   private @Nullable RootAllocator alloc;
 
   BigQueryStorageArrowReader(ReadSession readSession) throws IOException {
-    protoSchema = readSession.getArrowSchema();
-    InputStream input = protoSchema.getSerializedSchema().newInput();
-    this.arrowBeamSchema =
-        ArrowConversion.ArrowSchemaTranslator.toBeamSchema(
-            ArrowConversion.arrowSchemaFromInput(input));
+    InputStream input = readSession.getArrowSchema().getSerializedSchema().newInput();
+    this.arrowSchema = ArrowConversion.arrowSchemaFromInput(input);
+    this.arrowBeamSchema = ArrowConversion.ArrowSchemaTranslator.toBeamSchema(arrowSchema);
     this.rowCount = 0;
     this.alloc = null;
   }
@@ -55,12 +61,17 @@ class BigQueryStorageArrowReader implements BigQueryStorageReader {
     com.google.cloud.bigquery.storage.v1.ArrowRecordBatch recordBatch =
         readRowsResponse.getArrowRecordBatch();
     rowCount = recordBatch.getRowCount();
-    this.alloc = new RootAllocator(Long.MAX_VALUE);
-    InputStream input = protoSchema.getSerializedSchema().newInput();
-    Schema arrowSchema = ArrowConversion.arrowSchemaFromInput(input);
+    // Release the buffers of the previous record batch before loading the next one.
+    closeRecordBatch();
+    if (alloc == null) {
+      alloc = new RootAllocator(Long.MAX_VALUE);
+    }
     this.recordBatchIterator =
         ArrowConversion.rowsFromSerializedRecordBatch(
-            arrowSchema, recordBatch.getSerializedRecordBatch().newInput(), this.alloc);
+            arrowSchema,
+            arrowBeamSchema,
+            recordBatch.getSerializedRecordBatch().newInput(),
+            this.alloc);
   }
 
   @Override
@@ -70,13 +81,26 @@ class BigQueryStorageArrowReader implements BigQueryStorageReader {
 
   @Override
   public GenericRecord readSingleRecord() throws IOException {
+    return AvroUtils.toGenericRecord(nextRow(), null);
+  }
+
+  @Override
+  public Row readSingleRow() throws IOException {
+    // The rows of the iterator read their values from the Arrow buffers of the current record
+    // batch, which are released once the next record batch is loaded, so copy the values out.
+    Row row = nextRow();
+    List<Object> values = new ArrayList<>(arrowBeamSchema.getFieldCount());
+    for (int i = 0; i < arrowBeamSchema.getFieldCount(); i++) {
+      values.add(row.getValue(i));
+    }
+    return Row.withSchema(arrowBeamSchema).attachValues(values);
+  }
+
+  private Row nextRow() throws IOException {
     if (recordBatchIterator == null) {
       throw new IOException("Not Initialized");
     }
-    Row row = recordBatchIterator.next();
-    // TODO(BEAM-12551): Update this interface to expect a Row, and avoid converting Arrow data to
-    // GenericRecord.
-    return AvroUtils.toGenericRecord(row, null);
+    return recordBatchIterator.next();
   }
 
   @Override
@@ -86,22 +110,22 @@ class BigQueryStorageArrowReader implements BigQueryStorageReader {
 
   @Override
   public void resetBuffer() {
-    cleanUp();
+    closeRecordBatch();
   }
 
-  private void cleanUp() {
+  private void closeRecordBatch() {
     if (recordBatchIterator != null) {
       recordBatchIterator.close();
       recordBatchIterator = null;
     }
-    if (alloc != null) {
-      alloc.close();
-      alloc = null;
-    }
   }
 
   @Override
   public void close() {
-    this.cleanUp();
+    closeRecordBatch();
+    if (alloc != null) {
+      alloc.close();
+      alloc = null;
+    }
   }
 }
@@ -20,6 +20,8 @@ package org.apache.beam.sdk.io.gcp.bigquery;
 import com.google.cloud.bigquery.storage.v1.ReadRowsResponse;
 import java.io.IOException;
 import org.apache.avro.generic.GenericRecord;
+import org.apache.beam.sdk.schemas.utils.AvroUtils;
+import org.apache.beam.sdk.values.Row;
 
 interface BigQueryStorageReader extends AutoCloseable {
 
@@ -27,9 +29,17 @@ interface BigQueryStorageReader extends AutoCloseable {
 
   long getRowCount();
 
-  // TODO(BEAM-12551): BigQueryStorageReader should produce Rows, rather than GenericRecords
   GenericRecord readSingleRecord() throws IOException;
 
+  /**
+   * Reads the next record as a {@link Row}. By default the record is read as a {@link
+   * GenericRecord} and converted, readers of formats which decode to {@link Row}s natively override
+   * this to avoid the conversion.
+   */
+  default Row readSingleRow() throws IOException {
+    return AvroUtils.toBeamRowStrict(readSingleRecord(), null);
+  }
+
   boolean readyForNextReadResponse() throws IOException;
 
   void resetBuffer();
@@ -144,6 +144,7 @@ class BigQueryStorageStreamSource<T> extends BoundedSource<T> {
   public static class BigQueryStorageStreamReader<T> extends BoundedSource.BoundedReader<T> {
 
     private final BigQueryStorageReader reader;
+    private final boolean readRows;
     private final SerializableFunction<SchemaAndRecord, T> parseFn;
     private final StorageClient storageClient;
     private final TableSchema tableSchema;
@@ -166,6 +167,7 @@ class BigQueryStorageStreamSource<T> extends BoundedSource<T> {
         BigQueryStorageStreamSource<T> source, BigQueryOptions options) throws IOException {
       this.source = source;
       this.reader = BigQueryStorageReaderFactory.getReader(source.readSession);
+      this.readRows = source.readSession.hasArrowSchema();
       this.parseFn = source.parseFn;
       this.storageClient = source.bqServices.getStorageClient(options);
       this.tableSchema = fromJsonString(source.jsonTableSchema, TableSchema.class);
@@ -229,7 +231,13 @@ class BigQueryStorageStreamSource<T> extends BoundedSource<T> {
         reader.processReadRowsResponse(response);
       }
 
-      SchemaAndRecord schemaAndRecord = new SchemaAndRecord(reader.readSingleRecord(), tableSchema);
+      // Arrow record batches are decoded directly to Rows. Avro records are handed over as they
+      // are,
+      // since most parse functions consume GenericRecords.
+      SchemaAndRecord schemaAndRecord =
+          readRows
+              ? new SchemaAndRecord(reader.readSingleRow(), tableSchema)
+              : new SchemaAndRecord(reader.readSingleRecord(), tableSchema);
 
       current = parseFn.apply(schemaAndRecord);
 
@@ -19,13 +19,23 @@ package org.apache.beam.sdk.io.gcp.bigquery;
 
 import com.google.api.services.bigquery.model.TableSchema;
 import org.apache.avro.generic.GenericRecord;
+import org.apache.beam.sdk.schemas.utils.AvroUtils;
+import org.apache.beam.sdk.values.Row;
+import org.checkerframework.checker.nullness.qual.Nullable;
 
 /**
- * A wrapper for a {@link GenericRecord} and the {@link TableSchema} representing the schema of the
- * table (or query) it was generated from.
+ * A wrapper for a record and the {@link TableSchema} representing the schema of the table (or
+ * query) it was generated from.
+ *
+ * <p>The record is available both as a {@link GenericRecord} and as a {@link Row}. Records read
+ * from Avro are converted to a {@link Row} on the first call to {@link #getRow()}, and records read
+ * as {@link Row}s, e.g. from the Arrow format of the BigQuery Storage API, are converted to a
+ * {@link GenericRecord} on the first call to {@link #getRecord()}. Parse functions which only call
+ * {@link #getRow()} therefore read Arrow data without converting it to Avro.
  */
 public class SchemaAndRecord {
-  private final GenericRecord record;
+  private @Nullable GenericRecord record;
+  private @Nullable Row row;
   private final TableSchema tableSchema;
 
   public SchemaAndRecord(GenericRecord record, TableSchema tableSchema) {
@@ -33,10 +43,33 @@ public class SchemaAndRecord {
     this.tableSchema = tableSchema;
   }
 
+  public SchemaAndRecord(Row row, TableSchema tableSchema) {
+    this.row = row;
+    this.tableSchema = tableSchema;
+  }
+
   public GenericRecord getRecord() {
+    GenericRecord record = this.record;
+    if (record == null) {
+      record = AvroUtils.toGenericRecord(getRow(), null);
+      this.record = record;
+    }
     return record;
   }
 
+  /**
+   * Returns the record as a {@link Row}. The schema of the row is derived from the Avro or Arrow
+   * schema the record was read with.
+   */
+  public Row getRow() {
+    Row row = this.row;
+    if (row == null) {
+      row = AvroUtils.toBeamRowStrict(getRecord(), null);
+      this.row = row;
+    }
+    return row;
+  }
+
   public TableSchema getTableSchema() {
     return tableSchema;
   }
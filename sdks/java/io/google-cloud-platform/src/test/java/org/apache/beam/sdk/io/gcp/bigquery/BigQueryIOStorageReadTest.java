@@ -84,6 +84,7 @@ import org.apache.avro.io.Encoder;
 import org.apache.avro.io.EncoderFactory;
 import org.apache.beam.sdk.coders.CoderRegistry;
 import org.apache.beam.sdk.coders.KvCoder;
+import org.apache.beam.sdk.coders.SerializableCoder;
 import org.apache.beam.sdk.extensions.protobuf.ByteStringCoder;
 import org.apache.beam.sdk.extensions.protobuf.ProtoCoder;
 import org.apache.beam.sdk.io.BoundedSource;
@@ -104,6 +105,7 @@ import org.apache.beam.sdk.transforms.SerializableFunction;
 import org.apache.beam.sdk.transforms.display.DisplayData;
 import org.apache.beam.sdk.values.KV;
 import org.apache.beam.sdk.values.PCollection;
+import org.apache.beam.sdk.values.Row;
 import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.collect.ImmutableList;
 import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.collect.Lists;
 import org.junit.After;
@@ -1576,6 +1578,57 @@ public class BigQueryIOStorageReadTest {
     assertEquals(3, rows.size());
   }
 
+  @Test
+  public void testReadRowsFromStreamSourceArrow() throws Exception {
+    ReadSession readSession =
+        ReadSession.newBuilder()
+            .setName("readSession")
+            .setArrowSchema(
+                ArrowSchema.newBuilder()
+                    .setSerializedSchema(serializeArrowSchema(ARROW_SCHEMA))
+                    .build())
+            .setDataFormat(DataFormat.ARROW)
+            .build();
+
+    ReadRowsRequest expectedRequest =
+        ReadRowsRequest.newBuilder().setReadStream("readStream").build();
+
+    List<String> names = Arrays.asList("A", "B", "C");
+    List<Long> values = Arrays.asList(1L, 2L, 3L);
+    List<ReadRowsResponse> responses =
+        Lists.newArrayList(
+            createResponseArrow(ARROW_SCHEMA, names.subList(0, 2), values.subList(0, 2), 0.0, 0.50),
+            createResponseArrow(
+                ARROW_SCHEMA, names.subList(2, 3), values.subList(2, 3), 0.5, 0.75));
+
+    StorageClient fakeStorageClient = mock(StorageClient.class);
+    when(fakeStorageClient.readRows(expectedRequest))
+        .thenReturn(new FakeBigQueryServerStream<>(responses));
+
+    BigQueryStorageStreamSource<Row> streamSource =
+        BigQueryStorageStreamSource.create(
+            readSession,
+            ReadStream.newBuilder().setName("readStream").build(),
+            TABLE_SCHEMA,
+            SchemaAndRecord::getRow,
+            SerializableCoder.of(Row.class),
+            new FakeBigQueryServices().withStorageClient(fakeStorageClient));
+
+    List<Row> rows = new ArrayList<>();
+    BoundedReader<Row> reader = streamSource.createReader(options);
+    for (boolean hasNext = reader.start(); hasNext; hasNext = reader.advance()) {
+      rows.add(reader.getCurrent());
+    }
+    reader.close();
+
+    // The rows must still be readable after the record batches they were read from are released.
+    assertEquals(3, rows.size());
+    for (int i = 0; i < rows.size(); i++) {
+      assertEquals(names.get(i), rows.get(i).getString("name"));
+      assertEquals(values.get(i), rows.get(i).getInt64("number"));
+    }
+  }
+
   @Test
   public void testFractionConsumedArrow() throws Exception {
     ReadSession readSession =
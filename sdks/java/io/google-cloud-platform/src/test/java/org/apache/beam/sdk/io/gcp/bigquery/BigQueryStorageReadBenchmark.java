@@ -0,0 +1,280 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.beam.sdk.io.gcp.bigquery;
+
+import com.google.api.services.bigquery.model.TableFieldSchema;
+import com.google.api.services.bigquery.model.TableSchema;
+import com.google.cloud.bigquery.storage.v1.ArrowRecordBatch;
+import com.google.cloud.bigquery.storage.v1.ArrowSchema;
+import com.google.cloud.bigquery.storage.v1.AvroRows;
+import com.google.cloud.bigquery.storage.v1.AvroSchema;
+import com.google.cloud.bigquery.storage.v1.CreateReadSessionRequest;
+import com.google.cloud.bigquery.storage.v1.DataFormat;
+import com.google.cloud.bigquery.storage.v1.ReadRowsRequest;
+import com.google.cloud.bigquery.storage.v1.ReadRowsResponse;
+import com.google.cloud.bigquery.storage.v1.ReadSession;
+import com.google.cloud.bigquery.storage.v1.ReadStream;
+import com.google.cloud.bigquery.storage.v1.SplitReadStreamRequest;
+import com.google.cloud.bigquery.storage.v1.SplitReadStreamResponse;
+import com.google.protobuf.ByteString;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.BigIntVector;
+import org.apache.arrow.vector.BitVector;
+import org.apache.arrow.vector.Float8Vector;
+import org.apache.arrow.vector.VarCharVector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.arrow.vector.VectorUnloader;
+import org.apache.arrow.vector.ipc.WriteChannel;
+import org.apache.arrow.vector.ipc.message.MessageSerializer;
+import org.apache.arrow.vector.types.FloatingPointPrecision;
+import org.apache.arrow.vector.types.pojo.ArrowType;
+import org.apache.arrow.vector.types.pojo.Field;
+import org.apache.arrow.vector.types.pojo.FieldType;
+import org.apache.arrow.vector.util.Text;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.EncoderFactory;
+import org.apache.beam.sdk.coders.SerializableCoder;
+import org.apache.beam.sdk.io.BoundedSource.BoundedReader;
+import org.apache.beam.sdk.io.gcp.bigquery.BigQueryServices.BigQueryServerStream;
+import org.apache.beam.sdk.io.gcp.bigquery.BigQueryServices.StorageClient;
+import org.apache.beam.sdk.io.gcp.testing.FakeBigQueryServices;
+import org.apache.beam.sdk.io.gcp.testing.FakeBigQueryServices.FakeBigQueryServerStream;
+import org.apache.beam.sdk.options.PipelineOptionsFactory;
+import org.apache.beam.sdk.transforms.SerializableFunction;
+import org.apache.beam.sdk.values.Row;
+import org.apache.beam.vendor.guava.v26_0_jre.com.google.common.collect.ImmutableList;
+
+/**
+ * Measures the rows per second read from a BigQuery Storage API stream served by a fake storage
+ * client, for the Avro and the Arrow format, with parse functions which produce {@link Row}s
+ * through a {@link GenericRecord} and directly.
+ */
+public class BigQueryStorageReadBenchmark {
+  private static final int NUM_ROWS = 2 * 1000 * 1000;
+  private static final int ROWS_PER_RESPONSE = 10 * 1000;
+  private static final int ITERATIONS = 5;
+
+  private static final TableSchema TABLE_SCHEMA =
+      new TableSchema()
+          .setFields(
+              ImmutableList.of(
+                  new TableFieldSchema().setName("name").setType("STRING").setMode("REQUIRED"),
+                  new TableFieldSchema().setName("number").setType("INTEGER").setMode("REQUIRED"),
+                  new TableFieldSchema().setName("value").setType("FLOAT").setMode("REQUIRED"),
+                  new TableFieldSchema().setName("flag").setType("BOOLEAN").setMode("REQUIRED")));
+
+  private static final Schema AVRO_SCHEMA =
+      new Schema.Parser()
+          .parse(
+              "{\"type\": \"record\", \"name\": \"RowRecord\", \"fields\": ["
+                  + "{\"name\": \"name\", \"type\": \"string\"},"
+                  + "{\"name\": \"number\", \"type\": \"long\"},"
+                  + "{\"name\": \"value\", \"type\": \"double\"},"
+                  + "{\"name\": \"flag\", \"type\": \"boolean\"}]}");
+
+  private static final org.apache.arrow.vector.types.pojo.Schema ARROW_SCHEMA =
+      new org.apache.arrow.vector.types.pojo.Schema(
+          ImmutableList.of(
+              field("name", new ArrowType.Utf8()),
+              field("number", new ArrowType.Int(64, true)),
+              field("value", new ArrowType.FloatingPoint(FloatingPointPrecision.DOUBLE)),
+              field("flag", new ArrowType.Bool())));
+
+  private static final org.apache.beam.sdk.schemas.Schema BEAM_SCHEMA =
+      BigQueryUtils.fromTableSchema(TABLE_SCHEMA);
+
+  public static void main(String[] args) throws Exception {
+    SerializableFunction<SchemaAndRecord, Row> viaGenericRecord =
+        input ->
+            BigQueryUtils.toBeamRow(
+                input.getRecord(), BEAM_SCHEMA, BigQueryUtils.ConversionOptions.builder().build());
+    SerializableFunction<SchemaAndRecord, Row> direct = SchemaAndRecord::getRow;
+
+    ReadSession avroSession =
+        ReadSession.newBuilder()
+            .setName("readSession")
+            .setAvroSchema(AvroSchema.newBuilder().setSchema(AVRO_SCHEMA.toString()))
+            .setDataFormat(DataFormat.AVRO)
+            .build();
+    List<ReadRowsResponse> avroResponses = avroResponses();
+    benchmark("Avro via GenericRecord", avroSession, avroResponses, viaGenericRecord);
+
+    ReadSession arrowSession;
+    List<ReadRowsResponse> arrowResponses;
+    try (BufferAllocator allocator = new RootAllocator(Long.MAX_VALUE)) {
+      arrowSession =
+          ReadSession.newBuilder()
+              .setName("readSession")
+              .setArrowSchema(ArrowSchema.newBuilder().setSerializedSchema(arrowSchema()))
+              .setDataFormat(DataFormat.ARROW)
+              .build();
+      arrowResponses = arrowResponses(allocator);
+    }
+    benchmark("Arrow via GenericRecord", arrowSession, arrowResponses, viaGenericRecord);
+    benchmark("Arrow direct", arrowSession, arrowResponses, direct);
+  }
+
+  private static void benchmark(
+      String name,
+      ReadSession readSession,
+      List<ReadRowsResponse> responses,
+      SerializableFunction<SchemaAndRecord, Row> parseFn)
+      throws IOException {
+    BigQueryStorageStreamSource<Row> source =
+        BigQueryStorageStreamSource.create(
+            readSession,
+            ReadStream.newBuilder().setName("readStream").build(),
+            TABLE_SCHEMA,
+            parseFn,
+            SerializableCoder.of(Row.class),
+            new FakeBigQueryServices().withStorageClient(new FakeStorageClient(responses)));
+
+    double bestRowsPerSecond = 0;
+    for (int iteration = 0; iteration < ITERATIONS; iteration++) {
+      long start = System.nanoTime();
+      long rows = 0;
+      long checksum = 0;
+      try (BoundedReader<Row> reader =
+          source.createReader(PipelineOptionsFactory.create().as(BigQueryOptions.class))) {
+        for (boolean hasNext = reader.start(); hasNext; hasNext = reader.advance()) {
+          checksum += reader.getCurrent().getInt64("number");
+          rows++;
+        }
+      }
+      long nanos = System.nanoTime() - start;
+      if (rows != NUM_ROWS || checksum != (long) NUM_ROWS * (NUM_ROWS - 1) / 2) {
+        throw new IllegalStateException(name + " read unexpected rows.");
+      }
+      bestRowsPerSecond = Math.max(bestRowsPerSecond, rows / (nanos / 1e9));
+    }
+    System.out.println(String.format("%s: %.2f Mrows/s", name, bestRowsPerSecond / 1e6));
+  }
+
+  private static List<ReadRowsResponse> avroResponses() throws IOException {
+    GenericDatumWriter<GenericRecord> writer = new GenericDatumWriter<>(AVRO_SCHEMA);
+    List<ReadRowsResponse> responses = new ArrayList<>();
+    for (int offset = 0; offset < NUM_ROWS; offset += ROWS_PER_RESPONSE) {
+      ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+      BinaryEncoder encoder = EncoderFactory.get().binaryEncoder(outputStream, null);
+      for (int i = offset; i < offset + ROWS_PER_RESPONSE; i++) {
+        GenericRecord record = new GenericData.Record(AVRO_SCHEMA);
+        record.put("name", "name" + i);
+        record.put("number", (long) i);
+        record.put("value", i / 2.0);
+        record.put("flag", i % 2 == 0);
+        writer.write(record, encoder);
+      }
+      encoder.flush();
+      responses.add(
+          ReadRowsResponse.newBuilder()
+              .setAvroRows(
+                  AvroRows.newBuilder()
+                      .setSerializedBinaryRows(ByteString.copyFrom(outputStream.toByteArray()))
+                      .setRowCount(ROWS_PER_RESPONSE))
+              .setRowCount(ROWS_PER_RESPONSE)
+              .build());
+    }
+    return responses;
+  }
+
+  private static List<ReadRowsResponse> arrowResponses(BufferAllocator allocator)
+      throws IOException {
+    List<ReadRowsResponse> responses = new ArrayList<>();
+    for (int offset = 0; offset < NUM_ROWS; offset += ROWS_PER_RESPONSE) {
+      try (VectorSchemaRoot schemaRoot = VectorSchemaRoot.create(ARROW_SCHEMA, allocator)) {
+        schemaRoot.allocateNew();
+        schemaRoot.setRowCount(ROWS_PER_RESPONSE);
+        VarCharVector names = (VarCharVector) schemaRoot.getVector("name");
+        BigIntVector numbers = (BigIntVector) schemaRoot.getVector("number");
+        Float8Vector values = (Float8Vector) schemaRoot.getVector("value");
+        BitVector flags = (BitVector) schemaRoot.getVector("flag");
+        for (int i = 0; i < ROWS_PER_RESPONSE; i++) {
+          int row = offset + i;
+          names.setSafe(i, new Text("name" + row));
+          numbers.setSafe(i, row);
+          values.setSafe(i, row / 2.0);
+          flags.setSafe(i, row % 2 == 0 ? 1 : 0);
+        }
+        schemaRoot.setRowCount(ROWS_PER_RESPONSE);
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (org.apache.arrow.vector.ipc.message.ArrowRecordBatch recordBatch =
+            new VectorUnloader(schemaRoot).getRecordBatch()) {
+          MessageSerializer.serialize(
+              new WriteChannel(Channels.newChannel(outputStream)), recordBatch);
+        }
+        responses.add(
+            ReadRowsResponse.newBuilder()
+                .setArrowRecordBatch(
+                    ArrowRecordBatch.newBuilder()
+                        .setSerializedRecordBatch(ByteString.copyFrom(outputStream.toByteArray()))
+                        .setRowCount(ROWS_PER_RESPONSE))
+                .setRowCount(ROWS_PER_RESPONSE)
+                .build());
+      }
+    }
+    return responses;
+  }
+
+  private static ByteString arrowSchema() throws IOException {
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    MessageSerializer.serialize(new WriteChannel(Channels.newChannel(outputStream)), ARROW_SCHEMA);
+    return ByteString.copyFrom(outputStream.toByteArray());
+  }
+
+  private static Field field(String name, ArrowType type) {
+    return new Field(name, new FieldType(false, type, null), null);
+  }
+
+  /** A {@link StorageClient} which serves the same responses for every stream. */
+  private static class FakeStorageClient implements StorageClient {
+    private final List<ReadRowsResponse> responses;
+
+    FakeStorageClient(List<ReadRowsResponse> responses) {
+      this.responses = responses;
+    }
+
+    @Override
+    public ReadSession createReadSession(CreateReadSessionRequest request) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public BigQueryServerStream<ReadRowsResponse> readRows(ReadRowsRequest request) {
+      return new FakeBigQueryServerStream<>(responses);
+    }
+
+    @Override
+    public SplitReadStreamResponse splitReadStream(SplitReadStreamRequest request) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void close() {}
+  }
+}
@@ -187,6 +187,9 @@ public class NexmarkConfiguration implements Serializable {
   /** Fanout for queries 4 (groups by category id), 5 and 7 (find a global maximum). */
   @JsonProperty public int fanout = 5;
 
+  /** If true, query 5 combines the bid counts of its sliding windows per slice of the period. */
+  @JsonProperty public boolean slidingWindowSlicing = false;
+
   /**
    * Maximum waiting time to clean personState in query3 (ie maximum waiting of the auctions related
    * to person in state in seconds in event time).
@@ -332,6 +335,9 @@ public class NexmarkConfiguration implements Serializable {
     if (options.getFanout() != null) {
       fanout = options.getFanout();
     }
+    if (options.getSlidingWindowSlicing() != null) {
+      slidingWindowSlicing = options.getSlidingWindowSlicing();
+    }
     if (options.getMaxAuctionsWaitingTime() != null) {
       maxAuctionsWaitingTime = options.getMaxAuctionsWaitingTime();
     }
@@ -390,6 +396,7 @@ public class NexmarkConfiguration implements Serializable {
     result.diskBusyBytes = diskBusyBytes;
     result.auctionSkip = auctionSkip;
     result.fanout = fanout;
+    result.slidingWindowSlicing = slidingWindowSlicing;
     result.maxAuctionsWaitingTime = maxAuctionsWaitingTime;
     result.occasionalDelaySec = occasionalDelaySec;
     result.probDelayedEvent = probDelayedEvent;
@@ -504,6 +511,9 @@ public class NexmarkConfiguration implements Serializable {
     if (fanout != DEFAULT.fanout) {
       sb.append(String.format("; fanout:%d", fanout));
     }
+    if (slidingWindowSlicing != DEFAULT.slidingWindowSlicing) {
+      sb.append(String.format("; slidingWindowSlicing:%s", slidingWindowSlicing));
+    }
     if (maxAuctionsWaitingTime != DEFAULT.maxAuctionsWaitingTime) {
       sb.append(String.format("; maxAuctionsWaitingTime:%d", fanout));
     }
@@ -581,6 +591,7 @@ public class NexmarkConfiguration implements Serializable {
         diskBusyBytes,
         auctionSkip,
         fanout,
+        slidingWindowSlicing,
         maxAuctionsWaitingTime,
         occasionalDelaySec,
         probDelayedEvent,
@@ -628,6 +639,9 @@ public class NexmarkConfiguration implements Serializable {
     if (fanout != other.fanout) {
       return false;
     }
+    if (slidingWindowSlicing != other.slidingWindowSlicing) {
+      return false;
+    }
     if (maxAuctionsWaitingTime != other.maxAuctionsWaitingTime) {
       return false;
     }
@@ -344,6 +344,14 @@ public interface NexmarkOptions
 
   void setFanout(Integer fanout);
 
+  @Description(
+      "If true, query 5 counts the bids of its sliding windows per slice of the window period "
+          + "and merges the counts of the slices, instead of counting every bid once per window.")
+  @Nullable
+  Boolean getSlidingWindowSlicing();
+
+  void setSlidingWindowSlicing(Boolean slidingWindowSlicing);
+
   @Description(
       "Maximum waiting time to clean personState in query3 (ie maximum waiting of the auctions"
           + " related to person in state in seconds in event time).")
@@ -22,6 +22,9 @@ import java.util.List;
 import java.util.Objects;
 import org.apache.beam.sdk.coders.Coder;
 import org.apache.beam.sdk.coders.CoderRegistry;
+import org.apache.beam.sdk.coders.KvCoder;
+import org.apache.beam.sdk.coders.VarLongCoder;
+import org.apache.beam.sdk.coders.VoidCoder;
 import org.apache.beam.sdk.nexmark.NexmarkConfiguration;
 import org.apache.beam.sdk.nexmark.model.AuctionCount;
 import org.apache.beam.sdk.nexmark.model.Event;
@@ -32,7 +35,10 @@ import org.apache.beam.sdk.transforms.Combine;
 import org.apache.beam.sdk.transforms.Combine.AccumulatingCombineFn;
 import org.apache.beam.sdk.transforms.Count;
 import org.apache.beam.sdk.transforms.DoFn;
+import org.apache.beam.sdk.transforms.MapElements;
+import org.apache.beam.sdk.transforms.PTransform;
 import org.apache.beam.sdk.transforms.ParDo;
+import org.apache.beam.sdk.transforms.SimpleFunction;
 import org.apache.beam.sdk.transforms.windowing.SlidingWindows;
 import org.apache.beam.sdk.transforms.windowing.Window;
 import org.apache.beam.sdk.values.KV;
@@ -142,6 +148,29 @@ public class Query5 extends NexmarkQueryTransform<AuctionCount> {
     this.configuration = configuration;
   }
 
+  private PTransform<PCollection<Long>, PCollection<KV<Long, Long>>> countPerAuction() {
+    if (!configuration.slidingWindowSlicing) {
+      return Count.perElement();
+    }
+    return new PTransform<PCollection<Long>, PCollection<KV<Long, Long>>>("CountPerSlice") {
+      @Override
+      public PCollection<KV<Long, Long>> expand(PCollection<Long> auctions) {
+        return auctions
+            .apply(
+                "ToKv",
+                MapElements.via(
+                    new SimpleFunction<Long, KV<Long, Void>>() {
+                      @Override
+                      public KV<Long, Void> apply(Long auction) {
+                        return KV.of(auction, null);
+                      }
+                    }))
+            .setCoder(KvCoder.of(VarLongCoder.of(), VoidCoder.of()))
+            .apply(Combine.<Long, Void, Long>perKey(Count.combineFn()).withSlidingWindowSlicing());
+      }
+    };
+  }
+
   @Override
   public PCollection<AuctionCount> expand(PCollection<Event> events) {
     return events
@@ -156,7 +185,7 @@ public class Query5 extends NexmarkQueryTransform<AuctionCount> {
         .apply("BidToAuction", NexmarkQueryUtil.BID_TO_AUCTION)
 
         // Count the number of bids per auction id.
-        .apply(Count.perElement())
+        .apply(countPerAuction())
 
         // Keep only the auction ids with the most bids.
         .apply(